@@ -0,0 +1,111 @@
+package com.example.dream_stream_bot.service.access;
+
+import com.example.dream_stream_bot.model.telegram.BotEntity;
+import com.example.dream_stream_bot.model.telegram.BotKeywordEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение проверки обращения к боту в группе: прежняя реализация
+ * ({@code toLowerCase} + {@code contains} на каждый алиас/триггер) против
+ * {@link TriggerAutomaton}. Большинство сообщений в группе боту не адресованы —
+ * это худший случай для обеих (весь текст просматривается целиком).
+ *
+ * Запуск: {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupTriggerMatcherBenchmark {
+
+    @Param({"4", "32"})
+    int triggerCount;
+
+    private BotEntity bot;
+    private String username;
+    private TriggerAutomaton automaton;
+    private String[] messages;
+
+    @Setup
+    public void setUp() {
+        bot = new BotEntity();
+        bot.setName("Морфей, Морф, Сновидец");
+        username = "dream_stream_bot";
+        List<BotKeywordEntity> keywords = new ArrayList<>();
+        for (int i = 0; i < triggerCount; i++) {
+            BotKeywordEntity keyword = new BotKeywordEntity();
+            keyword.setBot(bot);
+            keyword.setKeyword("#триггер" + i);
+            keywords.add(keyword);
+        }
+        bot.setKeywords(keywords);
+        automaton = TriggerAutomaton.compile(GroupTriggerMatcher.addressPatterns(bot, username));
+        messages = new String[]{
+                "Всем привет! Кто идёт сегодня вечером в кино?",
+                "Скиньте, пожалуйста, ссылку на вчерашний созвон, я не успел записать",
+                "Сегодня снилось, что я опаздываю на поезд, а вокзал всё время переезжает на другую улицу. "
+                        + "Потом оказалось, что это не вокзал, а школа, и я сдаю экзамен по предмету, которого не было",
+                "ок",
+        };
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        for (String text : messages) {
+            bh.consume(legacyMatches(bot, text, username));
+        }
+    }
+
+    @Benchmark
+    public void automaton(Blackhole bh) {
+        for (String text : messages) {
+            bh.consume(automaton.matches(text));
+        }
+    }
+
+    /** Текстовая часть прежнего {@code GroupTriggerMatcher.isAddressedToBot}. */
+    private static boolean legacyMatches(BotEntity bot, String text, String botUsername) {
+        String lowerText = text.toLowerCase(Locale.ROOT);
+        if (botUsername != null && !botUsername.isBlank()
+                && lowerText.contains("@" + botUsername.toLowerCase(Locale.ROOT))) {
+            return true;
+        }
+        if (containsCaseInsensitive(lowerText, bot.getName())) {
+            return true;
+        }
+        for (String alias : bot.getBotAliasesList()) {
+            if (containsCaseInsensitive(lowerText, alias)) {
+                return true;
+            }
+        }
+        for (String trigger : bot.getBotTriggersList()) {
+            if (containsCaseInsensitive(lowerText, trigger)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsCaseInsensitive(String lowerText, String needle) {
+        return needle != null && !needle.isEmpty()
+                && lowerText.contains(needle.toLowerCase(Locale.ROOT));
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.dream_stream_bot;
 
+import com.example.dream_stream_bot.config.properties.AccessProperties;
 import com.example.dream_stream_bot.config.properties.AdminProperties;
+import com.example.dream_stream_bot.config.properties.ChatMemoryProperties;
 import com.example.dream_stream_bot.config.properties.PrivacyProperties;
 import com.example.dream_stream_bot.config.properties.TelegramProperties;
 import com.example.dream_stream_bot.config.properties.YooKassaProperties;
@@ -13,7 +15,8 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @SpringBootApplication
 @EnableAsync(proxyTargetClass = true)
 @EnableScheduling
-@EnableConfigurationProperties({TelegramProperties.class, AdminProperties.class, YooKassaProperties.class, PrivacyProperties.class})
+@EnableConfigurationProperties({TelegramProperties.class, AdminProperties.class, YooKassaProperties.class, PrivacyProperties.class,
+		ChatMemoryProperties.class, AccessProperties.class})
 public class TelegramBotApplication {
 
 	public static void main(String[] args) {
@@ -8,6 +8,7 @@ import com.example.dream_stream_bot.bot.command.CommandDispatcher;
 import com.example.dream_stream_bot.bot.error.BotUpdateErrorHandler;
 import com.example.dream_stream_bot.bot.message.MessageSender;
 import com.example.dream_stream_bot.bot.message.OutgoingMessage;
+import com.example.dream_stream_bot.bot.update.ConversationUpdateDispatcher;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
 import com.example.dream_stream_bot.model.user.UserEntity;
 import com.example.dream_stream_bot.service.telegram.BotService;
@@ -19,6 +20,7 @@ import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.User;
 
 public abstract class AbstractTelegramBot extends TelegramLongPollingBot {
@@ -31,6 +33,8 @@ public abstract class AbstractTelegramBot extends TelegramLongPollingBot {
     protected final CallbackDispatcher callbackDispatcher;
     protected final BotUpdateErrorHandler errorHandler;
     protected final EditedMessageHandler editedMessageHandler;
+    protected final ConversationUpdateDispatcher updateDispatcher;
+    protected final BotRuntimeRegistry runtimeRegistry;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTelegramBot.class);
 
@@ -42,7 +46,9 @@ public abstract class AbstractTelegramBot extends TelegramLongPollingBot {
                                CommandDispatcher commandDispatcher,
                                CallbackDispatcher callbackDispatcher,
                                BotUpdateErrorHandler errorHandler,
-                               EditedMessageHandler editedMessageHandler) {
+                               EditedMessageHandler editedMessageHandler,
+                               ConversationUpdateDispatcher updateDispatcher,
+                               BotRuntimeRegistry runtimeRegistry) {
         this.botId = botId;
         this.botService = botService;
         this.messageHandlerService = messageHandlerService;
@@ -52,15 +58,29 @@ public abstract class AbstractTelegramBot extends TelegramLongPollingBot {
         this.callbackDispatcher = callbackDispatcher;
         this.errorHandler = errorHandler;
         this.editedMessageHandler = editedMessageHandler;
+        this.updateDispatcher = updateDispatcher;
+        this.runtimeRegistry = runtimeRegistry;
     }
 
     public Long getBotId() {
         return botId;
     }
 
-    /** Fresh row from DB (cached); used so prompt / keywords / token changes apply without restart. */
+    /**
+     * Текущий снимок настроек бота из {@link BotRuntimeRegistry} — без JPA и кэшей.
+     * Изменения промпта, ключевых слов и токена подхватываются после коммита в админке.
+     */
+    protected BotRuntime getRuntime() {
+        return runtimeRegistry != null ? runtimeRegistry.get(botId) : null;
+    }
+
+    /** Строка бота из текущего снимка (только для чтения). */
     protected BotEntity getBotEntity() {
-        return botService.findById(botId);
+        if (runtimeRegistry == null) {
+            return botService.findById(botId);
+        }
+        BotRuntime runtime = getRuntime();
+        return runtime != null ? runtime.entity() : null;
     }
 
     /**
@@ -81,18 +101,38 @@ public abstract class AbstractTelegramBot extends TelegramLongPollingBot {
 
     @Override
     public String getBotUsername() {
-        BotEntity b = getBotEntity();
-        return b != null ? b.getUsername() : "";
+        if (runtimeRegistry == null) {
+            BotEntity b = getBotEntity();
+            return b != null ? b.getUsername() : "";
+        }
+        BotRuntime runtime = getRuntime();
+        return runtime != null ? runtime.username() : "";
     }
 
     @Override
     public String getBotToken() {
-        BotEntity b = getBotEntity();
-        return b != null ? b.getToken() : "";
+        if (runtimeRegistry == null) {
+            BotEntity b = getBotEntity();
+            return b != null ? b.getToken() : "";
+        }
+        BotRuntime runtime = getRuntime();
+        return runtime != null ? runtime.token() : "";
     }
 
+    /**
+     * Апдейты одного разговора обрабатываются строго по очереди, разных — параллельно
+     * (см. {@link ConversationUpdateDispatcher}). Без диспетчера — синхронно в вызывающем потоке.
+     */
     @Override
     public final void onUpdateReceived(Update update) {
+        if (updateDispatcher != null) {
+            updateDispatcher.dispatch(conversationKey(update), () -> handleSafely(update));
+        } else {
+            handleSafely(update);
+        }
+    }
+
+    private void handleSafely(Update update) {
         if (errorHandler != null) {
             errorHandler.handle(this, getBotUsername(), update, this::dispatchUpdate);
         } else {
@@ -100,6 +140,29 @@ public abstract class AbstractTelegramBot extends TelegramLongPollingBot {
         }
     }
 
+    /**
+     * Ключ сериализации апдейта — тот же id разговора, что и в chat memory.
+     * Апдейты без сообщения (my_chat_member и т.п.) порядка не требуют и получают собственный ключ.
+     */
+    protected String conversationKey(Update update) {
+        if (update.hasMessage()) {
+            return buildConversationId(update.getMessage());
+        }
+        if (update.hasEditedMessage()) {
+            return buildConversationId(update.getEditedMessage());
+        }
+        if (update.hasCallbackQuery()) {
+            CallbackQuery cb = update.getCallbackQuery();
+            Long userId = cb.getFrom() != null ? cb.getFrom().getId() : null;
+            if (cb.getMessage() instanceof Message source) {
+                Integer threadId = Boolean.TRUE.equals(source.getIsTopicMessage()) ? source.getMessageThreadId() : null;
+                return buildConversationId(source.getChatId(), threadId, userId, source.isUserMessage());
+            }
+            return buildConversationId(null, null, userId, true);
+        }
+        return "bot:" + botId + ":update:" + update.getUpdateId();
+    }
+
     /**
      * Базовая маршрутизация: edited_message и callback_query обрабатываются централизованно,
      * остальное — отдаётся в реализацию бота {@link #doHandleUpdate(Update)}.
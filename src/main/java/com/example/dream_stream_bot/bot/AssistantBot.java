@@ -9,6 +9,7 @@ import com.example.dream_stream_bot.bot.error.BotUpdateErrorHandler;
 import com.example.dream_stream_bot.bot.message.MessageSender;
 import com.example.dream_stream_bot.bot.message.MessageSender.TypingKeepAliveHandle;
 import com.example.dream_stream_bot.bot.message.OutgoingMessage;
+import com.example.dream_stream_bot.bot.update.ConversationUpdateDispatcher;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
 import com.example.dream_stream_bot.service.access.AccessDecision;
 import com.example.dream_stream_bot.service.access.AccessGate;
@@ -43,9 +44,11 @@ public class AssistantBot extends AbstractTelegramBot {
                         GatingDedup gatingDedup,
                         PrivateReplyNavigationRouter privateReplyNavigationRouter,
                         GroupLinkWizardService groupLinkWizardService,
-                        ReceiptEmailAwaitService receiptEmailAwaitService) {
+                        ReceiptEmailAwaitService receiptEmailAwaitService,
+                        ConversationUpdateDispatcher updateDispatcher,
+                        BotRuntimeRegistry runtimeRegistry) {
         super(botId, botService, messageHandlerService, userService, messageSender, commandDispatcher,
-                callbackDispatcher, errorHandler, editedMessageHandler);
+                callbackDispatcher, errorHandler, editedMessageHandler, updateDispatcher, runtimeRegistry);
         this.accessGate = accessGate;
         this.gatingDedup = gatingDedup;
         this.privateReplyNavigationRouter = privateReplyNavigationRouter;
@@ -113,12 +116,17 @@ public class AssistantBot extends AbstractTelegramBot {
         String conversationId = buildConversationId(msg);
         Integer threadId = Boolean.TRUE.equals(msg.getIsTopicMessage()) ? msg.getMessageThreadId() : null;
         List<OutgoingMessage> responses;
-        try (TypingKeepAliveHandle typing = messageSender.startTypingKeepAlive(this, msg.getChatId(), threadId)) {
+        TypingKeepAliveHandle typing = messageSender.startTypingKeepAlive(this, msg.getChatId(), threadId);
+        try {
             responses = scope.isGroupLike()
                     ? messageHandlerService.handleReplyToBotMessage(msg, conversationId, botEntity)
                     : messageHandlerService.handlePersonalMessage(msg, conversationId, botEntity);
+        } catch (RuntimeException | Error e) {
+            typing.close();
+            throw e;
         }
-        messageSender.sendAll(this, responses);
+        // «Печатает» держится, пока ответ ждёт своей очереди в лимитах Telegram.
+        messageSender.sendAll(this, responses).whenComplete((done, error) -> typing.close());
 
         if (decision.hasUserMessage()) {
             sendStubIfNeeded(msg, decision);
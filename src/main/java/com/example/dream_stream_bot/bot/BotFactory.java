@@ -5,6 +5,7 @@ import com.example.dream_stream_bot.bot.command.CommandDispatcher;
 import com.example.dream_stream_bot.bot.command.PrivateReplyNavigationRouter;
 import com.example.dream_stream_bot.bot.error.BotUpdateErrorHandler;
 import com.example.dream_stream_bot.bot.message.MessageSender;
+import com.example.dream_stream_bot.bot.update.ConversationUpdateDispatcher;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
 import com.example.dream_stream_bot.service.access.AccessGate;
 import com.example.dream_stream_bot.service.access.GatingDedup;
@@ -38,7 +39,9 @@ public class BotFactory {
                                                 GatingDedup gatingDedup,
                                                 PrivateReplyNavigationRouter privateReplyNavigationRouter,
                                                 GroupLinkWizardService groupLinkWizardService,
-                                                ReceiptEmailAwaitService receiptEmailAwaitService) {
+                                                ReceiptEmailAwaitService receiptEmailAwaitService,
+                                                ConversationUpdateDispatcher updateDispatcher,
+                                                BotRuntimeRegistry runtimeRegistry) {
         String type = botEntity.getType();
         if (type == null) {
             throw new IllegalArgumentException("Bot type is not specified");
@@ -53,11 +56,12 @@ public class BotFactory {
 
         return switch (type.toLowerCase()) {
             case "copycat", "cotycat" -> new CopyCatBot(id, botService, messageHandlerService, userService,
-                    messageSender, commandDispatcher, callbackDispatcher, errorHandler, editedMessageHandler);
+                    messageSender, commandDispatcher, callbackDispatcher, errorHandler, editedMessageHandler,
+                    updateDispatcher, runtimeRegistry);
             case "assistant" -> new AssistantBot(id, botService, messageHandlerService, userService,
                     messageSender, commandDispatcher, callbackDispatcher, errorHandler, editedMessageHandler,
                     accessGate, gatingDedup, privateReplyNavigationRouter, groupLinkWizardService,
-                    receiptEmailAwaitService);
+                    receiptEmailAwaitService, updateDispatcher, runtimeRegistry);
             default -> throw new IllegalArgumentException("Unknown bot type: " + type + ". Supported types: copycat, assistant");
         };
     }
@@ -0,0 +1,347 @@
+package com.example.dream_stream_bot.bot;
+
+import com.example.dream_stream_bot.bot.command.CallbackDispatcher;
+import com.example.dream_stream_bot.bot.command.CommandDispatcher;
+import com.example.dream_stream_bot.bot.command.PrivateReplyNavigationRouter;
+import com.example.dream_stream_bot.bot.error.BotUpdateErrorHandler;
+import com.example.dream_stream_bot.bot.message.MessageSender;
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.bot.update.ConversationUpdateDispatcher;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import com.example.dream_stream_bot.model.telegram.BotEntity;
+import com.example.dream_stream_bot.service.access.AccessGate;
+import com.example.dream_stream_bot.service.access.GatingDedup;
+import com.example.dream_stream_bot.service.payment.ReceiptEmailAwaitService;
+import com.example.dream_stream_bot.service.subscription.GroupLinkWizardService;
+import com.example.dream_stream_bot.service.telegram.BotChangedEvent;
+import com.example.dream_stream_bot.service.telegram.BotMenuSyncService;
+import com.example.dream_stream_bot.service.telegram.BotService;
+import com.example.dream_stream_bot.service.telegram.MessageHandlerService;
+import com.example.dream_stream_bot.service.telegram.TelegramBotApiService;
+import com.example.dream_stream_bot.service.telegram.UserStateService;
+import com.example.dream_stream_bot.service.user.UserService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.BotSession;
+import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Запуск и остановка отдельных ботов без рестарта приложения.
+ *
+ * Держит реестр запущенных {@link AbstractTelegramBot} (бин {@code botRegistry} по username
+ * для webhook-контроллера) и их long-polling сессии. На старте ботов поднимает
+ * {@code BotInitializer}; дальше изменения приходят {@link BotChangedEvent} после коммита:
+ * новый или включённый бот запускается, выключенный или удалённый — останавливается,
+ * смена токена, username или типа — перезапуск. Прочие поля (ключевые слова, агент)
+ * бот читает сам, перезапуск для них не нужен.
+ *
+ * Когда бот пропадает из реестра под прежним username (удалён, выключен, переименован),
+ * публикуется {@link BotUnregisteredEvent} — по нему освобождается очередь webhook-приёма.
+ */
+@Component
+public class BotLifecycleManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BotLifecycleManager.class);
+
+    /** Запущенный бот и параметры, с которыми он зарегистрирован в Telegram. */
+    private record ManagedBot(BotEntity entity, String username, String token, String type,
+                              AbstractTelegramBot bot, BotSession session) {
+    }
+
+    private final BotService botService;
+    private final MessageHandlerService messageHandlerService;
+    private final UserStateService userStateService;
+    private final TelegramBotApiService telegramBotApiService;
+    private final UserService userService;
+    private final MessageSender messageSender;
+    private final CommandDispatcher commandDispatcher;
+    private final CallbackDispatcher callbackDispatcher;
+    private final BotUpdateErrorHandler errorHandler;
+    private final EditedMessageHandler editedMessageHandler;
+    private final AccessGate accessGate;
+    private final GatingDedup gatingDedup;
+    private final PrivateReplyNavigationRouter privateReplyNavigationRouter;
+    private final GroupLinkWizardService groupLinkWizardService;
+    private final ReceiptEmailAwaitService receiptEmailAwaitService;
+    private final TelegramProperties telegramProperties;
+    private final BotMenuSyncService botMenuSyncService;
+    private final ConversationUpdateDispatcher updateDispatcher;
+    private final BotRuntimeRegistry runtimeRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<String, AbstractTelegramBot> botRegistry = new ConcurrentHashMap<>();
+    private final Map<Long, ManagedBot> running = new ConcurrentHashMap<>();
+    private final Map<Long, ReentrantLock> botLocks = new ConcurrentHashMap<>();
+    /** Изменения из админки применяются по одному, в порядке коммитов. */
+    private final ExecutorService changeExecutor;
+    private volatile TelegramBotsApi telegramBotsApi;
+
+    public BotLifecycleManager(BotService botService, MessageHandlerService messageHandlerService,
+                               UserStateService userStateService,
+                               TelegramBotApiService telegramBotApiService,
+                               UserService userService,
+                               MessageSender messageSender,
+                               CommandDispatcher commandDispatcher,
+                               CallbackDispatcher callbackDispatcher,
+                               BotUpdateErrorHandler errorHandler,
+                               EditedMessageHandler editedMessageHandler,
+                               AccessGate accessGate,
+                               GatingDedup gatingDedup,
+                               PrivateReplyNavigationRouter privateReplyNavigationRouter,
+                               GroupLinkWizardService groupLinkWizardService,
+                               ReceiptEmailAwaitService receiptEmailAwaitService,
+                               TelegramProperties telegramProperties,
+                               BotMenuSyncService botMenuSyncService,
+                               ConversationUpdateDispatcher updateDispatcher,
+                               BotRuntimeRegistry runtimeRegistry,
+                               ApplicationEventPublisher eventPublisher,
+                               BotExecutors botExecutors) {
+        this.botService = botService;
+        this.messageHandlerService = messageHandlerService;
+        this.userStateService = userStateService;
+        this.telegramBotApiService = telegramBotApiService;
+        this.userService = userService;
+        this.messageSender = messageSender;
+        this.commandDispatcher = commandDispatcher;
+        this.callbackDispatcher = callbackDispatcher;
+        this.errorHandler = errorHandler;
+        this.editedMessageHandler = editedMessageHandler;
+        this.accessGate = accessGate;
+        this.gatingDedup = gatingDedup;
+        this.privateReplyNavigationRouter = privateReplyNavigationRouter;
+        this.groupLinkWizardService = groupLinkWizardService;
+        this.receiptEmailAwaitService = receiptEmailAwaitService;
+        this.telegramProperties = telegramProperties;
+        this.botMenuSyncService = botMenuSyncService;
+        this.updateDispatcher = updateDispatcher;
+        this.runtimeRegistry = runtimeRegistry;
+        this.eventPublisher = eventPublisher;
+        this.changeExecutor = Executors.newSingleThreadExecutor(botExecutors.threadFactory("bot-lifecycle-"));
+    }
+
+    @Bean
+    public Map<String, AbstractTelegramBot> botRegistry() {
+        return botRegistry;
+    }
+
+    public boolean isRunning(Long botId) {
+        return running.containsKey(botId);
+    }
+
+    /**
+     * Регистрирует бота в выбранном режиме доставки. Уже запущенный бот сначала останавливается.
+     *
+     * @return краткое описание для отчёта или {@code null}, если регистрация не удалась
+     */
+    public String start(BotEntity bot) throws TelegramApiException {
+        ReentrantLock lock = lockFor(bot.getId());
+        lock.lock();
+        try {
+            ManagedBot previous = stopLocked(bot.getId(), false);
+            if (previous != null && !Objects.equals(previous.username(), bot.getUsername())) {
+                eventPublisher.publishEvent(new BotUnregisteredEvent(bot.getId(), previous.username(),
+                        bot.getUsername()));
+            }
+            return startLocked(bot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Останавливает бота: убирает из реестра, гасит long-polling, снимает webhook. */
+    public void stop(Long botId) {
+        ReentrantLock lock = lockFor(botId);
+        lock.lock();
+        try {
+            ManagedBot previous = stopLocked(botId, true);
+            if (previous != null) {
+                eventPublisher.publishEvent(new BotUnregisteredEvent(botId, previous.username(), null));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBotChanged(BotChangedEvent event) {
+        if (event.botId() == null) {
+            return;
+        }
+        changeExecutor.execute(() -> {
+            try {
+                reconcile(event);
+            } catch (Exception e) {
+                LOGGER.error("❌ Failed to apply change of bot id={}: {}", event.botId(), e.getMessage(), e);
+            }
+        });
+    }
+
+    private void reconcile(BotChangedEvent event) throws TelegramApiException {
+        Long botId = event.botId();
+        BotRuntime runtime = event.deleted() ? null : runtimeRegistry.get(botId);
+        BotEntity bot = runtime != null ? runtime.entity() : null;
+        ManagedBot current = running.get(botId);
+        if (bot == null || !Boolean.TRUE.equals(bot.getIsActive())) {
+            if (current != null) {
+                LOGGER.info("⏹️ Bot id={} {} — stopping", botId, bot == null ? "deleted" : "deactivated");
+                stop(botId);
+            }
+            return;
+        }
+        if (current != null && !needsRestart(current, bot)) {
+            return;
+        }
+        LOGGER.info("🔄 Bot '{}' {} — {}", bot.getUsername(), current == null ? "activated" : "changed",
+                current == null ? "starting" : "restarting");
+        String detail = start(bot);
+        if (detail == null) {
+            LOGGER.error("❌ Bot '{}' could not be started after change", bot.getUsername());
+        }
+    }
+
+    private static boolean needsRestart(ManagedBot current, BotEntity bot) {
+        return !Objects.equals(current.token(), bot.getToken())
+                || !Objects.equals(current.username(), bot.getUsername())
+                || !Objects.equals(current.type(), bot.getType());
+    }
+
+    private String startLocked(BotEntity bot) throws TelegramApiException {
+        // Свежий снимок до регистрации: getBotToken/getBotUsername читают только его.
+        runtimeRegistry.refresh(bot.getId());
+        var beforeInfo = telegramBotApiService.getWebhookInfo(bot);
+        if (beforeInfo.isPresent()) {
+            var info = beforeInfo.get();
+            LOGGER.info("📡 Bot '{}' current delivery: {} (pendingUpdates={}, lastError={})",
+                    bot.getUsername(),
+                    info.describeDelivery(),
+                    info.pendingUpdateCount(),
+                    info.lastErrorMessage());
+        } else {
+            LOGGER.info("📡 Bot '{}' current delivery: unknown(unavailable)", bot.getUsername());
+        }
+
+        if (telegramProperties.isLongPolling()) {
+            AbstractTelegramBot telegramBot = createBot(bot);
+            boolean deleted = telegramBotApiService.deleteWebhook(bot);
+            BotSession session = telegramBotsApi().registerBot(telegramBot);
+            register(bot, telegramBot, session);
+            LOGGER.info("✅ Bot '{}' registered successfully (mode=long-polling, type={}, webhookDeleted={})",
+                    bot.getUsername(), bot.getType(), deleted);
+            return "long-polling, webhookDeleted=" + deleted + ", menu=" + syncBotMenuSafely(bot);
+        } else if (telegramProperties.isWebhookMode()) {
+            String baseUrl = telegramProperties.getWebhook().normalizedBaseUrl();
+
+            if (baseUrl.isBlank()) {
+                LOGGER.error("❌ Webhook base URL is empty. Bot '{}' cannot be registered in webhook mode.",
+                        bot.getUsername());
+                return null;
+            }
+
+            register(bot, createBot(bot), null);
+            String webhookUrl = baseUrl + "/webhook/" + bot.getUsername();
+            boolean ok = telegramBotApiService.setWebhook(bot, webhookUrl,
+                    telegramProperties.getWebhook().getSecretToken());
+            if (!ok) {
+                LOGGER.error("❌ Bot '{}' webhook registration failed", bot.getUsername());
+                unregister(bot.getId());
+                return null;
+            }
+            LOGGER.info("✅ Bot '{}' registered successfully (mode=webhook, type={}, targetUrl={})",
+                    bot.getUsername(), bot.getType(), webhookUrl);
+            return "webhook, menu=" + syncBotMenuSafely(bot);
+        } else {
+            LOGGER.error("❌ Unknown telegram.delivery-mode='{}'. Supported: long-polling, webhook",
+                    telegramProperties.getDeliveryMode());
+            return null;
+        }
+    }
+
+    /**
+     * @param releaseWebhook снять webhook в Telegram (бот остановлен насовсем, а не перезапускается)
+     * @return остановленный бот или {@code null}, если он не был запущен
+     */
+    private ManagedBot stopLocked(Long botId, boolean releaseWebhook) {
+        ManagedBot current = unregister(botId);
+        if (current == null) {
+            return null;
+        }
+        if (current.session() != null && current.session().isRunning()) {
+            current.session().stop();
+        }
+        if (releaseWebhook && telegramProperties.isWebhookMode()) {
+            telegramBotApiService.deleteWebhook(current.entity());
+        }
+        LOGGER.info("⏹️ Bot '{}' stopped", current.username());
+        return current;
+    }
+
+    private void register(BotEntity bot, AbstractTelegramBot telegramBot, BotSession session) {
+        running.put(bot.getId(), new ManagedBot(bot, bot.getUsername(), bot.getToken(), bot.getType(),
+                telegramBot, session));
+        botRegistry.put(bot.getUsername(), telegramBot);
+    }
+
+    private ManagedBot unregister(Long botId) {
+        ManagedBot current = running.remove(botId);
+        if (current != null) {
+            botRegistry.remove(current.username(), current.bot());
+        }
+        return current;
+    }
+
+    private AbstractTelegramBot createBot(BotEntity bot) {
+        return BotFactory.createBot(
+                bot, botService, messageHandlerService, userStateService, userService,
+                messageSender, commandDispatcher, callbackDispatcher,
+                errorHandler, editedMessageHandler,
+                accessGate, gatingDedup, privateReplyNavigationRouter, groupLinkWizardService,
+                receiptEmailAwaitService, updateDispatcher, runtimeRegistry);
+    }
+
+    private TelegramBotsApi telegramBotsApi() throws TelegramApiException {
+        TelegramBotsApi api = telegramBotsApi;
+        if (api == null) {
+            api = new TelegramBotsApi(DefaultBotSession.class);
+            telegramBotsApi = api;
+        }
+        return api;
+    }
+
+    private BotMenuSyncService.SyncResult syncBotMenuSafely(BotEntity bot) {
+        try {
+            return botMenuSyncService.syncIfChanged(bot);
+        } catch (Exception e) {
+            LOGGER.warn("⚠️ Failed to sync Telegram menu for bot '{}': {}", bot.getUsername(), e.getMessage());
+            return BotMenuSyncService.SyncResult.FAILED;
+        }
+    }
+
+    private ReentrantLock lockFor(Long botId) {
+        return botLocks.computeIfAbsent(botId, id -> new ReentrantLock());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        changeExecutor.shutdownNow();
+        for (ManagedBot bot : List.copyOf(running.values())) {
+            if (bot.session() != null && bot.session().isRunning()) {
+                bot.session().stop();
+            }
+        }
+    }
+}
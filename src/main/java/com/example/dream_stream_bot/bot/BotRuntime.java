@@ -0,0 +1,56 @@
+package com.example.dream_stream_bot.bot;
+
+import com.example.dream_stream_bot.model.agent.AgentConfigEntity;
+import com.example.dream_stream_bot.model.telegram.BotEntity;
+import com.example.dream_stream_bot.service.access.GroupTriggerMatcher;
+import com.example.dream_stream_bot.service.access.TriggerAutomaton;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Неизменяемый снимок настроек бота для горячего пути обработки апдейтов:
+ * токен, username, алиасы, ключевые слова и агент без обращений к JPA и кэшам.
+ * Снимок целиком заменяется в {@link BotRuntimeRegistry} при изменениях из админки.
+ *
+ * @param entity отсоединённая строка бота с загруженным {@code agentConfig};
+ *               только для чтения — сервисы, принимающие {@link BotEntity}, получают её
+ * @param aliases  алиасы из поля {@code name} (в нижнем регистре)
+ * @param triggers ключевые слова-триггеры (в нижнем регистре)
+ * @param addressTriggers автомат обращения к боту в группе ({@code @username}, алиасы, триггеры)
+ */
+public record BotRuntime(Long botId,
+                         String username,
+                         String token,
+                         String type,
+                         List<String> aliases,
+                         List<String> triggers,
+                         AgentConfigEntity agentConfig,
+                         TriggerAutomaton addressTriggers,
+                         BotEntity entity) {
+
+    public static BotRuntime of(BotEntity bot) {
+        String username = bot.getUsername() != null ? bot.getUsername() : "";
+        return new BotRuntime(
+                bot.getId(),
+                username,
+                bot.getToken() != null ? bot.getToken() : "",
+                bot.getType(),
+                lower(bot.getBotAliasesList()),
+                lower(bot.getBotTriggersList()),
+                bot.getAgentConfig(),
+                TriggerAutomaton.compile(GroupTriggerMatcher.addressPatterns(bot, username)),
+                bot);
+    }
+
+    public Long agentConfigId() {
+        return agentConfig != null ? agentConfig.getId() : null;
+    }
+
+    private static List<String> lower(List<String> values) {
+        return values.stream()
+                .filter(v -> v != null && !v.isBlank())
+                .map(v -> v.toLowerCase(Locale.ROOT))
+                .toList();
+    }
+}
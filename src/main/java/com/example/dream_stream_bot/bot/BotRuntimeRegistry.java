@@ -0,0 +1,89 @@
+package com.example.dream_stream_bot.bot;
+
+import com.example.dream_stream_bot.model.telegram.BotRepository;
+import com.example.dream_stream_bot.service.agent.AgentConfigChangedEvent;
+import com.example.dream_stream_bot.service.telegram.BotChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Снимки {@link BotRuntime} по id бота. Горячий путь ({@code getBotToken}, {@code getBotUsername},
+ * обработка апдейта) читает только отсюда; снимок заменяется целиком после коммита изменений
+ * бота ({@link BotChangedEvent}) или его агента ({@link AgentConfigChangedEvent}).
+ * Слушатели отрабатывают раньше остальных, чтобы перезапуск бота уже видел новый снимок.
+ */
+@Component
+public class BotRuntimeRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BotRuntimeRegistry.class);
+
+    private final BotRepository botRepository;
+    private final Map<Long, BotRuntime> snapshots = new ConcurrentHashMap<>();
+
+    public BotRuntimeRegistry(BotRepository botRepository) {
+        this.botRepository = botRepository;
+    }
+
+    /**
+     * Текущий снимок бота. Если снимка ещё нет (бот только что создан), он загружается
+     * один раз; {@code null} — бота нет в БД.
+     */
+    public BotRuntime get(Long botId) {
+        if (botId == null) {
+            return null;
+        }
+        BotRuntime runtime = snapshots.get(botId);
+        return runtime != null ? runtime : refresh(botId);
+    }
+
+    /** Перечитать бота из БД (с агентом и ключевыми словами) и атомарно заменить снимок. */
+    public BotRuntime refresh(Long botId) {
+        BotRuntime runtime = botRepository.findWithAgentConfigById(botId).map(BotRuntime::of).orElse(null);
+        if (runtime == null) {
+            snapshots.remove(botId);
+        } else {
+            snapshots.put(botId, runtime);
+        }
+        return runtime;
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBotChanged(BotChangedEvent event) {
+        if (event.botId() == null) {
+            return;
+        }
+        if (event.deleted()) {
+            snapshots.remove(event.botId());
+            return;
+        }
+        refreshSafely(event.botId());
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAgentConfigChanged(AgentConfigChangedEvent event) {
+        snapshots.values().stream()
+                .filter(r -> Objects.equals(r.agentConfigId(), event.agentConfigId()))
+                .map(BotRuntime::botId)
+                .toList()
+                .forEach(this::refreshSafely);
+    }
+
+    private void refreshSafely(Long botId) {
+        try {
+            refresh(botId);
+        } catch (Exception e) {
+            // Старый снимок остаётся в силе; следующее изменение перечитает бота.
+            LOGGER.error("❌ Failed to refresh runtime snapshot of bot id={}: {}", botId, e.getMessage(), e);
+        }
+    }
+}
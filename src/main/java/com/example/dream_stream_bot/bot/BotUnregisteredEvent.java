@@ -0,0 +1,13 @@
+package com.example.dream_stream_bot.bot;
+
+/**
+ * Бот снят с регистрации под прежним username: удалён, выключен или переименован.
+ * Публикуется {@link BotLifecycleManager} синхронно, уже после удаления из {@code botRegistry};
+ * слушатели освобождают ресурсы, привязанные к старому username.
+ *
+ * @param botId             id бота
+ * @param username          username, под которым бот был зарегистрирован
+ * @param successorUsername новый username при переименовании, иначе {@code null}
+ */
+public record BotUnregisteredEvent(Long botId, String username, String successorUsername) {
+}
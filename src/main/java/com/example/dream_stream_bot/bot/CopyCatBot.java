@@ -5,6 +5,7 @@ import com.example.dream_stream_bot.bot.command.CommandDispatcher;
 import com.example.dream_stream_bot.bot.error.BotUpdateErrorHandler;
 import com.example.dream_stream_bot.bot.message.MessageSender;
 import com.example.dream_stream_bot.bot.message.OutgoingMessage;
+import com.example.dream_stream_bot.bot.update.ConversationUpdateDispatcher;
 import com.example.dream_stream_bot.service.telegram.BotService;
 import com.example.dream_stream_bot.service.telegram.MessageHandlerService;
 import com.example.dream_stream_bot.service.user.UserService;
@@ -17,9 +18,11 @@ public class CopyCatBot extends AbstractTelegramBot {
                       MessageSender messageSender, CommandDispatcher commandDispatcher,
                       CallbackDispatcher callbackDispatcher,
                       BotUpdateErrorHandler errorHandler,
-                      EditedMessageHandler editedMessageHandler) {
+                      EditedMessageHandler editedMessageHandler,
+                      ConversationUpdateDispatcher updateDispatcher,
+                      BotRuntimeRegistry runtimeRegistry) {
         super(botId, botService, messageHandlerService, userService, messageSender, commandDispatcher,
-                callbackDispatcher, errorHandler, editedMessageHandler);
+                callbackDispatcher, errorHandler, editedMessageHandler, updateDispatcher, runtimeRegistry);
     }
 
     @Override
@@ -5,10 +5,7 @@ import com.example.dream_stream_bot.bot.message.OutgoingMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
-import org.telegram.telegrambots.meta.bots.AbsSender;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import java.util.List;
 import java.util.Locale;
@@ -56,24 +53,20 @@ public class CallbackDispatcher {
                 base.getUser(), prefix, payload);
         try {
             List<OutgoingMessage> responses = handler.handle(enriched);
-            answerCallback(base.getSender(), cq.getId());
+            answerCallback(base, cq);
             if (responses != null && !responses.isEmpty()) {
                 messageSender.sendAll(base.getSender(), responses);
             }
         } catch (Exception e) {
             LOGGER.error("❌ Callback {} failed: {}", prefix, e.getMessage(), e);
-            answerCallback(base.getSender(), cq.getId());
+            answerCallback(base, cq);
         }
         return true;
     }
 
-    private void answerCallback(AbsSender sender, String callbackId) {
-        try {
-            AnswerCallbackQuery a = new AnswerCallbackQuery();
-            a.setCallbackQueryId(callbackId);
-            sender.execute(a);
-        } catch (TelegramApiException e) {
-            LOGGER.warn("⚠️ answerCallbackQuery failed: {}", e.getMessage());
-        }
+    /** Кнопка без сообщения (inline-режим) — ответ в очередь лички нажавшего. */
+    private void answerCallback(CallbackContext ctx, CallbackQuery cq) {
+        Long chatId = ctx.getChatId() != null ? ctx.getChatId() : ctx.getUserTelegramId();
+        messageSender.answerCallback(ctx.getSender(), chatId != null ? chatId : 0L, cq.getId());
     }
 }
@@ -8,11 +8,11 @@ import com.example.dream_stream_bot.model.subscription.SubscriptionPaymentReposi
 import com.example.dream_stream_bot.model.subscription.SubscriptionPaymentStatus;
 import com.example.dream_stream_bot.model.subscription.SubscriptionTariffEntity;
 import com.example.dream_stream_bot.model.subscription.TariffScope;
-import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
 import com.example.dream_stream_bot.service.payment.ReceiptEmailAwaitService;
 import com.example.dream_stream_bot.service.payment.SubscriptionCheckoutService;
 import com.example.dream_stream_bot.service.payment.SubscriptionPaymentCompletionService;
 import com.example.dream_stream_bot.service.payment.YooKassaCheckoutOutgoingFactory;
+import com.example.dream_stream_bot.service.subscription.TariffCatalog;
 import com.example.dream_stream_bot.service.subscription.TariffCheckoutPreviewTextBuilder;
 import com.example.dream_stream_bot.service.telegram.BotNavigationService;
 import org.springframework.stereotype.Component;
@@ -27,7 +27,7 @@ import java.util.List;
 @Component
 public class PaymentCallback implements CallbackHandler {
 
-    private final SubscriptionTariffRepository tariffRepository;
+    private final TariffCatalog tariffCatalog;
     private final SubscriptionCheckoutService checkoutService;
     private final SubscriptionPaymentCompletionService completionService;
     private final SubscriptionPaymentRepository paymentRepository;
@@ -36,7 +36,7 @@ public class PaymentCallback implements CallbackHandler {
     private final ReceiptEmailAwaitService receiptEmailAwaitService;
     private final YooKassaCheckoutOutgoingFactory yooKassaCheckoutOutgoingFactory;
 
-    public PaymentCallback(SubscriptionTariffRepository tariffRepository,
+    public PaymentCallback(TariffCatalog tariffCatalog,
                            SubscriptionCheckoutService checkoutService,
                            SubscriptionPaymentCompletionService completionService,
                            SubscriptionPaymentRepository paymentRepository,
@@ -44,7 +44,7 @@ public class PaymentCallback implements CallbackHandler {
                            TariffCheckoutPreviewTextBuilder tariffCheckoutPreviewTextBuilder,
                            ReceiptEmailAwaitService receiptEmailAwaitService,
                            YooKassaCheckoutOutgoingFactory yooKassaCheckoutOutgoingFactory) {
-        this.tariffRepository = tariffRepository;
+        this.tariffCatalog = tariffCatalog;
         this.checkoutService = checkoutService;
         this.completionService = completionService;
         this.paymentRepository = paymentRepository;
@@ -136,9 +136,7 @@ public class PaymentCallback implements CallbackHandler {
     }
 
     private List<OutgoingMessage> listTariffs(Long chatId, long botId) {
-        List<SubscriptionTariffEntity> tariffs = tariffRepository
-                .findByBotIdAndActiveTrueAndScopeAndPriceAmountMinorIsNotNullOrderBySortOrderAscIdAsc(
-                        botId, TariffScope.PERSONAL);
+        List<SubscriptionTariffEntity> tariffs = tariffCatalog.activePaid(botId, TariffScope.PERSONAL);
         if (tariffs.isEmpty()) {
             return List.of(OutgoingMessage.builder()
                     .chatId(chatId)
@@ -227,7 +225,7 @@ public class PaymentCallback implements CallbackHandler {
 
     /** {@code null}, если тариф не из этого бота, неактивен, не персональный или без цены. */
     private SubscriptionTariffEntity loadPayablePersonalTariff(long botId, long tariffId) {
-        SubscriptionTariffEntity tariff = tariffRepository.findById(tariffId).orElse(null);
+        SubscriptionTariffEntity tariff = tariffCatalog.findById(tariffId).orElse(null);
         if (tariff == null || !tariff.getBotId().equals(botId) || Boolean.FALSE.equals(tariff.isActive())
                 || tariff.getPriceAmountMinor() == null || tariff.getScope() != TariffScope.PERSONAL) {
             return null;
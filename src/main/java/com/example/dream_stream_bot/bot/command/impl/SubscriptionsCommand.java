@@ -7,12 +7,12 @@ import com.example.dream_stream_bot.bot.message.OutgoingMessage;
 import com.example.dream_stream_bot.model.subscription.SubscriptionEntity;
 import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
 import com.example.dream_stream_bot.model.subscription.SubscriptionTariffEntity;
-import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
 import com.example.dream_stream_bot.model.subscription.TariffScope;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
 import com.example.dream_stream_bot.model.user.UserEntity;
 import com.example.dream_stream_bot.service.subscription.SubscriptionCardTextBuilder;
 import com.example.dream_stream_bot.service.subscription.SubscriptionService;
+import com.example.dream_stream_bot.service.subscription.TariffCatalog;
 import com.example.dream_stream_bot.service.telegram.BotNavigationService;
 import com.example.dream_stream_bot.service.telegram.TelegramGroupAdminService;
 import org.springframework.stereotype.Component;
@@ -21,6 +21,7 @@ import org.telegram.telegrambots.meta.api.objects.Message;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Команда {@code /subscriptions} — личная и групповые подписки на текущего бота.
@@ -29,18 +30,18 @@ import java.util.Set;
 public class SubscriptionsCommand implements BotCommand {
 
     private final SubscriptionService subscriptionService;
-    private final SubscriptionTariffRepository subscriptionTariffRepository;
+    private final TariffCatalog tariffCatalog;
     private final SubscriptionCardTextBuilder subscriptionCardTextBuilder;
     private final BotNavigationService botNavigationService;
     private final TelegramGroupAdminService telegramGroupAdminService;
 
     public SubscriptionsCommand(SubscriptionService subscriptionService,
-                                SubscriptionTariffRepository subscriptionTariffRepository,
+                                TariffCatalog tariffCatalog,
                                 SubscriptionCardTextBuilder subscriptionCardTextBuilder,
                                 BotNavigationService botNavigationService,
                                 TelegramGroupAdminService telegramGroupAdminService) {
         this.subscriptionService = subscriptionService;
-        this.subscriptionTariffRepository = subscriptionTariffRepository;
+        this.tariffCatalog = tariffCatalog;
         this.subscriptionCardTextBuilder = subscriptionCardTextBuilder;
         this.botNavigationService = botNavigationService;
         this.telegramGroupAdminService = telegramGroupAdminService;
@@ -97,7 +98,7 @@ public class SubscriptionsCommand implements BotCommand {
             SubscriptionEntity sub = subOpt.get();
             SubscriptionTariffEntity tariff = sub.getTariffId() == null
                     ? null
-                    : subscriptionTariffRepository.findById(sub.getTariffId()).orElse(null);
+                    : tariffCatalog.findById(sub.getTariffId()).orElse(null);
             text.append(subscriptionCardTextBuilder.buildPersonalCard(bot, sub, tariff));
         }
 
@@ -106,13 +107,17 @@ public class SubscriptionsCommand implements BotCommand {
         if (groupSubs.isEmpty()) {
             text.append("Пока нет подключённых групп. Нажмите «➕ Подключить группу» ниже.");
         } else {
-            boolean first = true;
-            for (SubscriptionEntity g : groupSubs) {
-                if (!first) {
+            // Названия групп запрашиваем у Telegram параллельно, а не по одной.
+            List<CompletableFuture<Optional<String>>> titles = groupSubs.stream()
+                    .map(g -> g.getScopeChatId() == null
+                            ? CompletableFuture.completedFuture(Optional.<String>empty())
+                            : telegramGroupAdminService.getChatTitleAsync(bot, g.getScopeChatId()))
+                    .toList();
+            for (int i = 0; i < groupSubs.size(); i++) {
+                if (i > 0) {
                     text.append("\n\n");
                 }
-                first = false;
-                text.append(formatGroupSubscriptionLine(bot, g));
+                text.append(formatGroupSubscriptionLine(groupSubs.get(i), titles.get(i).join()));
             }
         }
 
@@ -124,14 +129,13 @@ public class SubscriptionsCommand implements BotCommand {
                 .build());
     }
 
-    private String formatGroupSubscriptionLine(BotEntity bot, SubscriptionEntity g) {
+    private String formatGroupSubscriptionLine(SubscriptionEntity g, Optional<String> title) {
         String chatTitle = g.getScopeChatId() == null
                 ? "—"
-                : telegramGroupAdminService.getChatTitle(bot, g.getScopeChatId())
-                        .orElse("Группа #" + g.getScopeChatId());
+                : title.orElse("Группа #" + g.getScopeChatId());
         SubscriptionTariffEntity tariff = g.getTariffId() == null
                 ? null
-                : subscriptionTariffRepository.findById(g.getTariffId()).orElse(null);
+                : tariffCatalog.findById(g.getTariffId()).orElse(null);
         String tariffName = tariff == null ? "—" : tariff.getTitle();
         String until = g.getExpiresAt() == null ? "—" : g.getExpiresAt().toLocalDate().toString();
         String statusRu = groupStatusRu(g.getStatus());
@@ -151,9 +155,7 @@ public class SubscriptionsCommand implements BotCommand {
     }
 
     private String emptySubscriptionText(BotEntity bot) {
-        List<SubscriptionTariffEntity> paidPersonal = subscriptionTariffRepository
-                .findByBotIdAndActiveTrueAndScopeAndPriceAmountMinorIsNotNullOrderBySortOrderAscIdAsc(
-                        bot.getId(), TariffScope.PERSONAL);
+        List<SubscriptionTariffEntity> paidPersonal = tariffCatalog.activePaid(bot.getId(), TariffScope.PERSONAL);
         StringBuilder sb = new StringBuilder();
         sb.append("Личная подписка на этого бота ещё не создана.\n\n");
         if (paidPersonal.isEmpty()) {
@@ -1,22 +1,27 @@
 package com.example.dream_stream_bot.bot.message;
 
+import com.example.dream_stream_bot.bot.AbstractTelegramBot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.api.methods.ActionType;
-import org.telegram.telegrambots.meta.api.methods.send.SendChatAction;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.bots.AbsSender;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Единая точка отправки сообщений в Telegram. Проксирует {@link OutgoingMessage}
  * через {@link AbsSender} с правильным проставлением {@code message_thread_id}
- * (форум-топики) и {@code reply_to_message_id}.
+ * (форум-топики) и {@code reply_to_message_id}. Сами вызовы идут через
+ * {@link OutboundDispatcher} с лимитами Telegram.
  */
 @Component
 public class MessageSender {
@@ -30,90 +35,120 @@ public class MessageSender {
         void close();
     }
 
-    /** Telegram держит статус «печатает» около 5 секунд — обновляем чуть раньше. */
-    private static final int TYPING_REFRESH_SECONDS = 4;
+    /** Сколько {@link #trySend} ждёт подтверждения доставки (с учётом очереди лимитов). */
+    private static final long TRY_SEND_TIMEOUT_SECONDS = 30;
+
+    private final TypingKeepAliveService typingKeepAliveService;
+    private final OutboundDispatcher outboundDispatcher;
+
+    public MessageSender(TypingKeepAliveService typingKeepAliveService, OutboundDispatcher outboundDispatcher) {
+        this.typingKeepAliveService = typingKeepAliveService;
+        this.outboundDispatcher = outboundDispatcher;
+    }
 
     /**
-     * Периодически отправляет {@code typing}, пока не вызван {@link TypingKeepAliveHandle#close()} —
-     * для ожидания ответа LLM. Команды и меню должны отправляться через {@link #send}
-     * без этой сессии.
+     * Поддерживает статус {@code typing}, пока не вызван {@link TypingKeepAliveHandle#close()} —
+     * для ожидания ответа LLM. Обновления идут через общий {@link TypingKeepAliveService}
+     * (один таймер на всё приложение, одна сессия на чат/топик). Команды и меню должны
+     * отправляться через {@link #send} без этой сессии.
      */
     public TypingKeepAliveHandle startTypingKeepAlive(AbsSender bot, Long chatId, Integer messageThreadId) {
-        if (chatId == null) {
-            return () -> { };
-        }
-        sendTyping(bot, chatId, messageThreadId);
-        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "telegram-typing-keepalive");
-            t.setDaemon(true);
-            return t;
-        });
-        Runnable refresh = () -> {
-            try {
-                sendTyping(bot, chatId, messageThreadId);
-            } catch (Exception e) {
-                LOGGER.warn("⚠️ Typing refresh failed | chat={} | error={}", chatId, e.getMessage());
-            }
-        };
-        scheduler.scheduleAtFixedRate(refresh, TYPING_REFRESH_SECONDS, TYPING_REFRESH_SECONDS, TimeUnit.SECONDS);
-        return () -> {
-            scheduler.shutdownNow();
-            try {
-                scheduler.awaitTermination(2, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        };
-    }
-
-    private void sendTyping(AbsSender bot, Long chatId, Integer messageThreadId) {
-        SendChatAction action = new SendChatAction();
-        action.setChatId(chatId.toString());
-        action.setAction(ActionType.TYPING);
-        if (messageThreadId != null) {
-            action.setMessageThreadId(messageThreadId);
-        }
-        try {
-            bot.execute(action);
-        } catch (TelegramApiException e) {
-            LOGGER.warn("⚠️ Typing action failed | chat={} | error={}", chatId, e.getMessage());
-        }
+        return typingKeepAliveService.start(bot, chatId, messageThreadId);
     }
 
     /**
-     * Отправка одного сообщения. Telegram-исключения логируются, не пробрасываются —
-     * бизнес-поток не должен падать из-за неудачной доставки.
+     * Отправка одного сообщения через {@link OutboundDispatcher} (полоса ответов пользователю).
+     * Не ждёт доставки; порядок сообщений в чате сохраняется. Ошибки логируются,
+     * не пробрасываются — бизнес-поток не должен падать из-за неудачной доставки.
+     * Future завершается после вызова Bot API ({@code false} — доставить не удалось).
      */
-    public void send(AbsSender bot, OutgoingMessage message) {
-        trySend(bot, message);
+    public CompletableFuture<Boolean> send(AbsSender bot, OutgoingMessage message) {
+        return enqueue(bot, message, OutboundDispatcher.Priority.INTERACTIVE);
+    }
+
+    /** Как {@link #send}, но с явным приоритетом (рассылки — {@link OutboundDispatcher.Priority#BROADCAST}). */
+    public CompletableFuture<Boolean> send(AbsSender bot, OutgoingMessage message, OutboundDispatcher.Priority priority) {
+        return enqueue(bot, message, priority);
     }
 
     /**
-     * Как {@link #send}, но возвращает признак успеха (для UX при доставке в группу по кнопке).
+     * Как {@link #send}, но дожидается доставки и возвращает признак успеха
+     * (для UX при доставке в группу по кнопке).
      */
     public boolean trySend(AbsSender bot, OutgoingMessage message) {
-        SendMessage sm = toSendMessage(message);
         try {
-            bot.execute(sm);
+            return enqueue(bot, message, OutboundDispatcher.Priority.INTERACTIVE)
+                    .get(TRY_SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.warn("⚠️ Send not confirmed | chat={} | error={}", message.getChatId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private CompletableFuture<Boolean> enqueue(AbsSender bot, OutgoingMessage message, OutboundDispatcher.Priority priority) {
+        SendMessage sm = toSendMessage(message);
+        return outboundDispatcher.submit(botIdOf(bot), message.getChatId(), priority, "sendMessage", () -> {
+            try {
+                bot.execute(sm);
+            } catch (TelegramApiException e) {
+                LOGGER.error("❌ Send failed | chat={} | error={}", message.getChatId(), e.getMessage());
+                throw e;
+            }
             LOGGER.info("✅ Sent | chat={} | thread={} | replyTo={} | text='{}'",
                     message.getChatId(),
                     message.getMessageThreadId(),
                     message.getReplyToMessageId(),
                     truncate(message.getText(), 100));
-            return true;
-        } catch (TelegramApiException e) {
-            LOGGER.error("❌ Send failed | chat={} | error={}", message.getChatId(), e.getMessage(), e);
-            return false;
+        });
+    }
+
+    /**
+     * Ответ на нажатие inline-кнопки — через ту же очередь чата, что и сообщения,
+     * поэтому он учитывается в лимитах бота и уходит раньше ответов обработчика.
+     */
+    public CompletableFuture<Boolean> answerCallback(AbsSender bot, long chatId, String callbackQueryId) {
+        AnswerCallbackQuery answer = new AnswerCallbackQuery();
+        answer.setCallbackQueryId(callbackQueryId);
+        return outboundDispatcher.submit(botIdOf(bot), chatId, OutboundDispatcher.Priority.INTERACTIVE,
+                "answerCallbackQuery", () -> {
+                    try {
+                        bot.execute(answer);
+                    } catch (TelegramApiException e) {
+                        LOGGER.warn("⚠️ answerCallbackQuery failed | chat={} | error={}", chatId, e.getMessage());
+                        throw e;
+                    }
+                });
+    }
+
+    /**
+     * Ключ общего лимита бота — {@link OutboundDispatcher#laneKey} по токену: не меняется
+     * при пересоздании объекта бота в {@code BotLifecycleManager}. Без токена — id из БД,
+     * иначе общая полоса {@code 0}.
+     */
+    static long botIdOf(AbsSender bot) {
+        String token = bot instanceof DefaultAbsSender sender ? sender.getBotToken() : null;
+        if (token != null && !token.isEmpty()) {
+            return OutboundDispatcher.laneKey(token);
+        }
+        if (bot instanceof AbstractTelegramBot telegramBot && telegramBot.getBotId() != null) {
+            return -telegramBot.getBotId();
         }
+        return 0L;
     }
 
-    public void sendAll(AbsSender bot, Iterable<OutgoingMessage> messages) {
+    /** Отправить сообщения по порядку; future завершается, когда обработаны все. */
+    public CompletableFuture<Void> sendAll(AbsSender bot, Iterable<OutgoingMessage> messages) {
         if (messages == null) {
-            return;
+            return CompletableFuture.completedFuture(null);
         }
+        List<CompletableFuture<Boolean>> sent = new ArrayList<>();
         for (OutgoingMessage m : messages) {
-            send(bot, m);
+            sent.add(send(bot, m));
         }
+        return CompletableFuture.allOf(sent.toArray(new CompletableFuture[0]));
     }
 
     private SendMessage toSendMessage(OutgoingMessage m) {
@@ -0,0 +1,339 @@
+package com.example.dream_stream_bot.bot.message;
+
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Очередь исходящих вызовов Bot API с лимитами Telegram.
+ *
+ * На каждого бота — глобальный token bucket ({@code global-per-second}), на каждый чат —
+ * свой ({@code per-chat-per-second} со всплеском {@code per-chat-burst}), для групп
+ * дополнительно {@code per-group-per-minute}. В один чат одновременно летит не больше
+ * одного вызова, поэтому порядок сообщений в чате сохраняется. Две полосы приоритета:
+ * {@link Priority#INTERACTIVE} (ответы пользователю) всегда раньше
+ * {@link Priority#BROADCAST} (рассылки, уведомления владельцам).
+ *
+ * Ответ 429 с {@code retry_after} возвращает вызов в голову очереди чата и
+ * замораживает чат на указанное время (до {@code max-retries} попыток).
+ * Планирует один поток-«насос», HTTP-вызовы выполняет отдельный исполнитель.
+ */
+@Component
+public class OutboundDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboundDispatcher.class);
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    /** Чат без отправок дольше минуты забывается — его bucket к этому времени полон. */
+    private static final long CHAT_RETENTION_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    public enum Priority {
+        INTERACTIVE,
+        BROADCAST
+    }
+
+    /** Сам вызов Bot API. 429 сигнализируется {@link TelegramApiRequestException} или {@link RetryAfterException}. */
+    @FunctionalInterface
+    public interface OutboundCall {
+        void execute() throws Exception;
+    }
+
+    private final TelegramProperties.Outbound limits;
+    private final ExecutorService senders;
+    private final Thread pump;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeUp = lock.newCondition();
+    private final Map<Long, BotLane> lanes = new LinkedHashMap<>();
+    private final Map<Priority, AtomicInteger> depth = new EnumMap<>(Priority.class);
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+    private final Counter retryAfterCounter;
+    private final Counter failedCounter;
+    private volatile boolean running = true;
+
+    public OutboundDispatcher(TelegramProperties telegramProperties,
+                              BotExecutors botExecutors,
+                              MeterRegistry meterRegistry) {
+        this.limits = telegramProperties.getOutbound();
+        this.senders = botExecutors.newExecutor("telegram-send-", limits.getSenderThreads());
+        for (Priority p : Priority.values()) {
+            AtomicInteger counter = new AtomicInteger();
+            depth.put(p, counter);
+            String tag = p.name().toLowerCase();
+            Gauge.builder("telegram.outbound.queue.depth", counter, AtomicInteger::get)
+                    .tag("priority", tag)
+                    .description("Outbound Bot API calls waiting for a rate-limit slot")
+                    .register(meterRegistry);
+            waitTimers.put(p, Timer.builder("telegram.outbound.wait")
+                    .tag("priority", tag)
+                    .description("Time from enqueue to the Bot API call")
+                    .register(meterRegistry));
+        }
+        this.retryAfterCounter = Counter.builder("telegram.outbound.retry_after")
+                .description("429 responses with retry_after").register(meterRegistry);
+        this.failedCounter = Counter.builder("telegram.outbound.failed")
+                .description("Outbound calls that failed permanently").register(meterRegistry);
+        this.pump = new Thread(this::pumpLoop, "telegram-outbound-pump");
+        this.pump.setDaemon(true);
+        this.pump.start();
+    }
+
+    /**
+     * Поставить вызов в очередь. Future завершается {@code true} после успешного вызова
+     * и {@code false} после окончательной ошибки; исключений не несёт.
+     *
+     * @param botId  ключ полосы бота ({@link #laneKey}) — общий глобальный лимит для всех отправок одного токена
+     * @param chatId чат назначения ({@code < 0} — группа/супергруппа)
+     */
+    public CompletableFuture<Boolean> submit(long botId, long chatId, Priority priority,
+                                             String description, OutboundCall call) {
+        Job job = new Job(chatId, priority, description, call);
+        lock.lock();
+        try {
+            BotLane lane = lanes.computeIfAbsent(botId, id -> new BotLane());
+            ChatQueue chat = lane.chats.computeIfAbsent(chatId, ChatQueue::new);
+            chat.queue(priority).addLast(job);
+            depth.get(priority).incrementAndGet();
+            wakeUp.signal();
+        } finally {
+            lock.unlock();
+        }
+        return job.result;
+    }
+
+    /**
+     * Ключ полосы бота по его токену. Telegram считает лимит на токен, а id бота — префикс
+     * токена до {@code ':'}, поэтому все отправки одного бота (ответы через {@link MessageSender},
+     * уведомления и рассылки через HTTP-клиент) делят одну полосу. Токен без числового
+     * префикса — по хэшу, пустой — {@code 0}.
+     */
+    public static long laneKey(String token) {
+        if (token == null || token.isEmpty()) {
+            return 0L;
+        }
+        int colon = token.indexOf(':');
+        try {
+            return Long.parseLong(colon > 0 ? token.substring(0, colon) : token);
+        } catch (NumberFormatException e) {
+            return token.hashCode();
+        }
+    }
+
+    private void pumpLoop() {
+        while (running) {
+            lock.lock();
+            try {
+                long waitNanos = pumpOnce(System.nanoTime());
+                if (waitNanos > 0) {
+                    wakeUp.awaitNanos(waitNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("❌ Outbound pump failed: {}", e.getMessage(), e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Разослать всё, что разрешают лимиты. Возвращает, сколько ждать до следующей
+     * возможной отправки. Вызывается под {@link #lock}.
+     */
+    private long pumpOnce(long now) {
+        long next = MAX_IDLE_NANOS;
+        for (Priority priority : Priority.values()) {
+            for (BotLane lane : lanes.values()) {
+                List<ChatQueue> chats = new ArrayList<>(lane.chats.values());
+                for (ChatQueue chat : chats) {
+                    if (chat.inFlight || chat.queue(priority).isEmpty()) {
+                        continue;
+                    }
+                    if (chat.notBeforeNanos > now) {
+                        next = Math.min(next, chat.notBeforeNanos - now);
+                        continue;
+                    }
+                    long wait = Math.max(lane.global.nanosUntilAvailable(), chat.nanosUntilAvailable());
+                    if (wait > 0) {
+                        next = Math.min(next, wait);
+                        continue;
+                    }
+                    lane.global.tryAcquire();
+                    chat.acquire();
+                    Job job = chat.queue(priority).pollFirst();
+                    depth.get(priority).decrementAndGet();
+                    chat.inFlight = true;
+                    // Чат — в конец: круговая очередь между чатами одного бота.
+                    lane.chats.remove(chat.chatId);
+                    lane.chats.put(chat.chatId, chat);
+                    dispatch(chat, job);
+                }
+            }
+        }
+        lanes.values().forEach(lane -> lane.chats.values().removeIf(c -> c.isIdle(now)));
+        lanes.values().removeIf(lane -> lane.chats.isEmpty());
+        return next;
+    }
+
+    private void dispatch(ChatQueue chat, Job job) {
+        if (job.attempts == 0) {
+            waitTimers.get(job.priority).record(System.nanoTime() - job.enqueuedNanos, TimeUnit.NANOSECONDS);
+        }
+        job.attempts++;
+        try {
+            senders.execute(() -> execute(chat, job));
+        } catch (RuntimeException e) {
+            chat.inFlight = false;
+            failedCounter.increment();
+            job.result.complete(false);
+            LOGGER.error("❌ Outbound call rejected | chat={} | {}: {}", job.chatId, job.description, e.getMessage());
+        }
+    }
+
+    /** Чат в полёте не считается простаивающим, поэтому он и его полоса остаются в картах до завершения. */
+    private void execute(ChatQueue chat, Job job) {
+        Integer retryAfter = null;
+        boolean ok = false;
+        try {
+            job.call.execute();
+            ok = true;
+        } catch (Exception e) {
+            retryAfter = retryAfterSeconds(e);
+            if (retryAfter == null || job.attempts > limits.getMaxRetries()) {
+                failedCounter.increment();
+                LOGGER.error("❌ Outbound call failed | chat={} | {} | attempts={} | error={}",
+                        job.chatId, job.description, job.attempts, e.getMessage());
+                retryAfter = null;
+            }
+        }
+        lock.lock();
+        try {
+            chat.inFlight = false;
+            if (retryAfter != null) {
+                retryAfterCounter.increment();
+                LOGGER.warn("⏳ 429 from Telegram | chat={} | {} | retry after {}s (attempt {})",
+                        job.chatId, job.description, retryAfter, job.attempts);
+                chat.notBeforeNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(retryAfter);
+                chat.queue(job.priority).addFirst(job);
+                depth.get(job.priority).incrementAndGet();
+            }
+            wakeUp.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (retryAfter == null) {
+            job.result.complete(ok);
+        }
+    }
+
+    private static Integer retryAfterSeconds(Exception e) {
+        if (e instanceof RetryAfterException ra) {
+            return ra.getRetryAfterSeconds();
+        }
+        if (e instanceof TelegramApiRequestException re && re.getErrorCode() != null && re.getErrorCode() == 429) {
+            Integer seconds = re.getParameters() != null ? re.getParameters().getRetryAfter() : null;
+            return seconds != null ? Math.max(1, seconds) : 1;
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        pump.interrupt();
+        senders.shutdown();
+        try {
+            senders.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Job {
+        private final long chatId;
+        private final Priority priority;
+        private final String description;
+        private final OutboundCall call;
+        private final long enqueuedNanos = System.nanoTime();
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private int attempts;
+
+        Job(long chatId, Priority priority, String description, OutboundCall call) {
+            this.chatId = chatId;
+            this.priority = priority;
+            this.description = description;
+            this.call = call;
+        }
+    }
+
+    private final class BotLane {
+        private final TokenBucket global;
+        private final Map<Long, ChatQueue> chats = new LinkedHashMap<>();
+
+        BotLane() {
+            this.global = new TokenBucket(Math.max(1, limits.getGlobalPerSecond()), Math.max(0.1, limits.getGlobalPerSecond()));
+        }
+    }
+
+    private final class ChatQueue {
+        private final long chatId;
+        private final TokenBucket perChat;
+        /** Только для групп (chat_id &lt; 0): лимит в минуту. */
+        private final TokenBucket perGroup;
+        private final ArrayDeque<Job> interactive = new ArrayDeque<>();
+        private final ArrayDeque<Job> broadcast = new ArrayDeque<>();
+        private boolean inFlight;
+        private long notBeforeNanos;
+        private long lastSentNanos = System.nanoTime();
+
+        ChatQueue(long chatId) {
+            this.chatId = chatId;
+            this.perChat = new TokenBucket(Math.max(1, limits.getPerChatBurst()), Math.max(0.01, limits.getPerChatPerSecond()));
+            int perMinute = Math.max(1, limits.getPerGroupPerMinute());
+            this.perGroup = chatId < 0 ? new TokenBucket(perMinute, perMinute / 60d) : null;
+        }
+
+        ArrayDeque<Job> queue(Priority priority) {
+            return priority == Priority.INTERACTIVE ? interactive : broadcast;
+        }
+
+        long nanosUntilAvailable() {
+            long wait = perChat.nanosUntilAvailable();
+            return perGroup == null ? wait : Math.max(wait, perGroup.nanosUntilAvailable());
+        }
+
+        void acquire() {
+            lastSentNanos = System.nanoTime();
+            perChat.tryAcquire();
+            if (perGroup != null) {
+                perGroup.tryAcquire();
+            }
+        }
+
+        boolean isIdle(long now) {
+            return !inFlight && interactive.isEmpty() && broadcast.isEmpty()
+                    && notBeforeNanos <= now && now - lastSentNanos > CHAT_RETENTION_NANOS;
+        }
+    }
+}
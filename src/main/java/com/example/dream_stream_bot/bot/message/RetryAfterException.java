@@ -0,0 +1,21 @@
+package com.example.dream_stream_bot.bot.message;
+
+/**
+ * Telegram ответил 429 с {@code parameters.retry_after}: вызов нужно повторить
+ * не раньше, чем через {@link #getRetryAfterSeconds()} секунд.
+ * Бросается из {@link OutboundDispatcher.OutboundCall}, если вызов идёт не через
+ * {@code AbsSender} (REST-клиент Bot API).
+ */
+public class RetryAfterException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public RetryAfterException(int retryAfterSeconds) {
+        super("Too Many Requests: retry after " + retryAfterSeconds);
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
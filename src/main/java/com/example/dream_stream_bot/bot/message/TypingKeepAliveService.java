@@ -0,0 +1,212 @@
+package com.example.dream_stream_bot.bot.message;
+
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.ActionType;
+import org.telegram.telegrambots.meta.api.methods.send.SendChatAction;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Общий keep-alive статуса «печатает» для всех ожиданий ответа LLM.
+ *
+ * Один поток-таймер крутит колесо из {@link #WHEEL_SLOTS} слотов по {@link #TICK_MS} мс;
+ * сессия лежит в слоте своего следующего обновления. Сессии коалесцируются по
+ * {@code (бот, chatId, threadId)}: параллельные запросы в один чат/топик делят одну
+ * сессию со счётчиком ссылок. Отмена — O(1): последний {@code close()} снимает флаг
+ * и удаляет сессию из карты, а колесо пропускает её при следующем проходе.
+ * Сами {@code sendChatAction} идут через отдельный исполнитель и ограничены
+ * {@code telegram.outbound.typing-actions-per-second} на бота.
+ */
+@Component
+public class TypingKeepAliveService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TypingKeepAliveService.class);
+
+    static final long TICK_MS = 500L;
+    static final int WHEEL_SLOTS = 16;
+    /** Telegram держит статус «печатает» около 5 секунд — обновляем через 4. */
+    static final int REFRESH_TICKS = (int) (4_000L / TICK_MS);
+
+    private final ScheduledExecutorService timer;
+    private final ExecutorService senders;
+    private final int actionsPerSecond;
+    private final Map<SessionKey, Session> sessions = new ConcurrentHashMap<>();
+    /** Ключ — {@link MessageSender#botIdOf}: пересозданный объект бота не оставляет старый bucket. */
+    private final Map<Long, TokenBucket> rateByBot = new ConcurrentHashMap<>();
+    @SuppressWarnings("unchecked")
+    private final Queue<Session>[] wheel = new Queue[WHEEL_SLOTS];
+    private volatile long tick;
+
+    @Autowired
+    public TypingKeepAliveService(BotExecutors botExecutors, TelegramProperties telegramProperties) {
+        this(botExecutors, telegramProperties, true);
+    }
+
+    /** Без {@code startTimer} колесо крутят вызовы {@link #advance()} — для тестов. */
+    TypingKeepAliveService(BotExecutors botExecutors, TelegramProperties telegramProperties, boolean startTimer) {
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.actionsPerSecond = Math.max(1, telegramProperties.getOutbound().getTypingActionsPerSecond());
+        this.senders = botExecutors.newExecutor("typing-send-", 4);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "typing-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        if (startTimer) {
+            this.timer.scheduleAtFixedRate(this::advance, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Начать (или присоединиться к уже идущему) keep-alive для чата/топика.
+     * Закрытие ручки идемпотентно.
+     */
+    public MessageSender.TypingKeepAliveHandle start(AbsSender bot, Long chatId, Integer messageThreadId) {
+        if (chatId == null) {
+            return () -> { };
+        }
+        SessionKey key = new SessionKey(bot, chatId, messageThreadId);
+        boolean[] created = {false};
+        Session session = sessions.compute(key, (k, existing) -> {
+            if (existing != null) {
+                existing.refs++;
+                return existing;
+            }
+            created[0] = true;
+            return new Session(k);
+        });
+        if (created[0]) {
+            if (tryAcquire(bot)) {
+                sendAsync(session);
+                schedule(session, REFRESH_TICKS);
+            } else {
+                schedule(session, 1);
+            }
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                release(key);
+            }
+        };
+    }
+
+    /** Число активных сессий (чат/топик с ожидающими ответа запросами). */
+    int activeSessions() {
+        return sessions.size();
+    }
+
+    /** Число ботов с собственным лимитом {@code sendChatAction}. */
+    int rateLimitedBots() {
+        return rateByBot.size();
+    }
+
+    private void release(SessionKey key) {
+        sessions.computeIfPresent(key, (k, s) -> {
+            if (--s.refs > 0) {
+                return s;
+            }
+            s.cancelled = true;
+            return null;
+        });
+    }
+
+    private void schedule(Session session, int ticksAhead) {
+        wheel[(int) ((tick + ticksAhead) % WHEEL_SLOTS)].add(session);
+    }
+
+    void advance() {
+        try {
+            long current = ++tick;
+            Queue<Session> slot = wheel[(int) (current % WHEEL_SLOTS)];
+            int due = slot.size();
+            for (int i = 0; i < due; i++) {
+                Session s = slot.poll();
+                if (s == null) {
+                    break;
+                }
+                if (s.cancelled) {
+                    continue;
+                }
+                if (tryAcquire(s.key.bot())) {
+                    sendAsync(s);
+                    schedule(s, REFRESH_TICKS);
+                } else {
+                    // Лимит бота исчерпан — пробуем на следующем тике, статус ещё держится ~1 с.
+                    schedule(s, 1);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("⚠️ Typing wheel tick failed: {}", e.getMessage());
+        }
+    }
+
+    private boolean tryAcquire(AbsSender bot) {
+        return rateByBot.computeIfAbsent(MessageSender.botIdOf(bot),
+                id -> new TokenBucket(actionsPerSecond, actionsPerSecond)).tryAcquire();
+    }
+
+    private void sendAsync(Session session) {
+        try {
+            senders.execute(() -> {
+                if (!session.cancelled) {
+                    sendTyping(session.key);
+                }
+            });
+        } catch (RuntimeException e) {
+            LOGGER.warn("⚠️ Typing action rejected | chat={} | error={}", session.key.chatId(), e.getMessage());
+        }
+    }
+
+    private void sendTyping(SessionKey key) {
+        SendChatAction action = new SendChatAction();
+        action.setChatId(Long.toString(key.chatId()));
+        action.setAction(ActionType.TYPING);
+        if (key.threadId() != null) {
+            action.setMessageThreadId(key.threadId());
+        }
+        try {
+            key.bot().execute(action);
+        } catch (TelegramApiException e) {
+            LOGGER.warn("⚠️ Typing action failed | chat={} | error={}", key.chatId(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private record SessionKey(AbsSender bot, long chatId, Integer threadId) {
+    }
+
+    private static final class Session {
+        private final SessionKey key;
+        /** Меняется только внутри {@code compute} по ключу сессии. */
+        private int refs = 1;
+        private volatile boolean cancelled;
+
+        Session(SessionKey key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.dream_stream_bot.bot.update;
+
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фабрика потоков для конвейера апдейтов.
+ *
+ * При {@code telegram.threads.virtual=true} и Java 21+ отдаёт виртуальные потоки
+ * (по потоку на задачу — тысячи ожидающих ответа LLM разговоров не держат по
+ * платформенному потоку). Иначе — пулы обычных daemon-потоков. API виртуальных
+ * потоков вызывается рефлексией, чтобы исходники собирались и на Java 17.
+ */
+@Component
+public class BotExecutors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BotExecutors.class);
+
+    private final boolean virtual;
+
+    public BotExecutors(TelegramProperties telegramProperties) {
+        boolean requested = telegramProperties.getThreads().isVirtual();
+        boolean supported = isVirtualThreadsSupported();
+        if (requested && !supported) {
+            LOGGER.warn("⚠️ telegram.threads.virtual=true, but Java {} has no virtual threads — using platform pools",
+                    Runtime.version().feature());
+        }
+        this.virtual = requested && supported;
+        LOGGER.info("🧵 Update pipeline threads: {}", virtual ? "virtual" : "platform");
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Исполнитель для блокирующих задач: виртуальный поток на задачу либо
+     * фиксированный пул из {@code platformThreads} потоков.
+     */
+    public ExecutorService newExecutor(String namePrefix, int platformThreads) {
+        if (virtual) {
+            return newThreadPerTaskExecutor(threadFactory(namePrefix));
+        }
+        int threads = Math.max(1, platformThreads);
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory(namePrefix));
+    }
+
+    /** Фабрика потоков с именами {@code <prefix><n>}: виртуальных либо daemon-платформенных. */
+    public ThreadFactory threadFactory(String namePrefix) {
+        if (virtual) {
+            return virtualThreadFactory(namePrefix);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, namePrefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    static boolean isVirtualThreadsSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available", e);
+        }
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor(ThreadFactory factory) {
+        try {
+            Method m = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) m.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available", e);
+        }
+    }
+}
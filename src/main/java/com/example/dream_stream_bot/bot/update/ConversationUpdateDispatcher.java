@@ -0,0 +1,93 @@
+package com.example.dream_stream_bot.bot.update;
+
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Модель конкурентности обработки апдейтов (long-polling и webhook одинаково).
+ *
+ * Ключ — id разговора ({@code buildConversationId}): апдейты одного разговора
+ * идут строго по очереди (запись в chat memory, порядок ответов), разные
+ * разговоры обрабатываются параллельно на общем пуле. Число апдейтов в работе
+ * ограничено {@code telegram.updates.max-pending}: при превышении
+ * {@link #dispatch} блокирует поставщика — long-polling сессию или воркер webhook-очереди.
+ */
+@Component
+public class ConversationUpdateDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConversationUpdateDispatcher.class);
+
+    private final ExecutorService pool;
+    private final KeyedSerialExecutor executor;
+    private final Semaphore pendingPermits;
+    private final int maxPending;
+
+    public ConversationUpdateDispatcher(TelegramProperties telegramProperties,
+                                        BotExecutors botExecutors,
+                                        MeterRegistry meterRegistry) {
+        TelegramProperties.Updates settings = telegramProperties.getUpdates();
+        int threads = settings.resolvedWorkerThreads();
+        this.maxPending = Math.max(1, settings.getMaxPending());
+        // В режиме виртуальных потоков размер пула не ограничивает параллелизм — его держит maxPending.
+        this.pool = botExecutors.newExecutor("update-worker-", threads);
+        this.executor = new KeyedSerialExecutor(pool);
+        this.pendingPermits = new Semaphore(maxPending);
+
+        Gauge.builder("telegram.updates.pending", this, d -> d.maxPending - d.pendingPermits.availablePermits())
+                .description("Updates accepted for processing and not finished yet")
+                .register(meterRegistry);
+        Gauge.builder("telegram.updates.active.conversations", executor, KeyedSerialExecutor::activeKeys)
+                .description("Conversations with queued or running updates")
+                .register(meterRegistry);
+        LOGGER.info("🧵 Update dispatcher started: threads={}, maxPending={}",
+                botExecutors.isVirtual() ? "virtual" : threads, maxPending);
+    }
+
+    /**
+     * Поставить обработку апдейта в очередь разговора {@code conversationKey}.
+     * Блокируется, пока число апдейтов в работе не опустится ниже предела.
+     */
+    public void dispatch(String conversationKey, Runnable handler) {
+        try {
+            pendingPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("⚠️ Interrupted while waiting for dispatch slot, conversation={} skipped", conversationKey);
+            return;
+        }
+        try {
+            executor.execute(conversationKey, () -> {
+                try {
+                    handler.run();
+                } finally {
+                    pendingPermits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            pendingPermits.release();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+        }
+    }
+}
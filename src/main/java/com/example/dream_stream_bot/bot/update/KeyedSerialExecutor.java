@@ -0,0 +1,79 @@
+package com.example.dream_stream_bot.bot.update;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Исполнитель, сериализующий задачи по ключу: задачи с одинаковым ключом
+ * выполняются строго по очереди и в порядке постановки, задачи с разными
+ * ключами — параллельно на общем {@link Executor}.
+ *
+ * После каждой задачи цепочка ключа заново ставится в пул, поэтому длинная
+ * очередь одного ключа не занимает поток целиком и не морит голодом остальные.
+ * Пустые цепочки удаляются из карты — память пропорциональна числу активных ключей.
+ */
+public final class KeyedSerialExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+
+    private final Executor executor;
+    private final ConcurrentHashMap<Object, SerialQueue> queues = new ConcurrentHashMap<>();
+
+    public KeyedSerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public void execute(Object key, Runnable task) {
+        boolean[] started = {false};
+        SerialQueue queue = queues.compute(key, (k, existing) -> {
+            SerialQueue target = existing != null ? existing : new SerialQueue(k);
+            target.tasks.add(task);
+            started[0] = existing == null;
+            return target;
+        });
+        if (started[0]) {
+            executor.execute(queue);
+        }
+    }
+
+    /** Число ключей, по которым сейчас есть выполняемые или ожидающие задачи. */
+    public int activeKeys() {
+        return queues.size();
+    }
+
+    private final class SerialQueue implements Runnable {
+        private final Object key;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        SerialQueue(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            Runnable task = tasks.peek();
+            try {
+                if (task != null) {
+                    task.run();
+                }
+            } catch (RuntimeException | Error e) {
+                LOGGER.error("❌ Task for key '{}' failed: {}", key, e.getMessage(), e);
+            } finally {
+                // Голова снимается только здесь и под той же блокировкой ключа, что и постановка,
+                // поэтому новая задача либо увидит живую цепочку, либо создаст новую.
+                SerialQueue next = queues.compute(key, (k, existing) -> {
+                    tasks.poll();
+                    return tasks.isEmpty() ? null : existing;
+                });
+                if (next != null) {
+                    executor.execute(this);
+                }
+            }
+        }
+    }
+}
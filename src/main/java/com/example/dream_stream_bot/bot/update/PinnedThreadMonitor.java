@@ -0,0 +1,93 @@
+package com.example.dream_stream_bot.bot.update;
+
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Диагностика пиннинга виртуальных потоков: виртуальный поток, заблокированный
+ * внутри {@code synchronized} или нативного вызова (часть JDBC-драйверов, старые
+ * клиенты), удерживает carrier-поток и съедает параллелизм.
+ *
+ * Слушает JFR-событие {@code jdk.VirtualThreadPinned} (Java 21) дольше
+ * {@code telegram.threads.pinning-threshold-ms}, пишет в лог верх стека и
+ * увеличивает счётчик {@code telegram.threads.pinned}. Работает только в
+ * режиме виртуальных потоков.
+ */
+@Component
+public class PinnedThreadMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int STACK_DEPTH = 8;
+
+    private final BotExecutors botExecutors;
+    private final long thresholdMs;
+    private final Counter pinnedCounter;
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(BotExecutors botExecutors,
+                               TelegramProperties telegramProperties,
+                               MeterRegistry meterRegistry) {
+        this.botExecutors = botExecutors;
+        this.thresholdMs = Math.max(1, telegramProperties.getThreads().getPinningThresholdMs());
+        this.pinnedCounter = Counter.builder("telegram.threads.pinned")
+                .description("Virtual threads pinned to their carrier longer than the threshold")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!botExecutors.isVirtual()) {
+            return;
+        }
+        try {
+            RecordingStream rs = new RecordingStream();
+            rs.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            rs.onEvent(PINNED_EVENT, this::onPinned);
+            rs.startAsync();
+            this.stream = rs;
+            LOGGER.info("🔎 Virtual thread pinning diagnostics enabled (threshold={}ms)", thresholdMs);
+        } catch (RuntimeException e) {
+            LOGGER.warn("⚠️ Failed to start pinning diagnostics: {}", e.getMessage());
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        LOGGER.warn("📌 Virtual thread pinned for {} ms at:\n{}",
+                event.getDuration().toMillis(), describeStack(event.getStackTrace()));
+    }
+
+    private static String describeStack(RecordedStackTrace trace) {
+        if (trace == null) {
+            return "  <no stack trace>";
+        }
+        List<RecordedFrame> frames = trace.getFrames();
+        return frames.stream()
+                .limit(STACK_DEPTH)
+                .map(f -> "  at " + f.getMethod().getType().getName() + "." + f.getMethod().getName()
+                        + ":" + f.getLineNumber())
+                .collect(Collectors.joining("\n"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
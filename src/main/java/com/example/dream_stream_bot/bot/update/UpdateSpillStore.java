@@ -0,0 +1,230 @@
+package com.example.dream_stream_bot.bot.update;
+
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Дисковый буфер для апдейтов, не поместившихся в очередь приёма
+ * ({@link TelegramProperties.OverflowPolicy#SPILL}) или не разобранных до остановки.
+ *
+ * Один JSON-файл на апдейт в подкаталоге бота. Имя файла начинается с
+ * {@code update_id}, поэтому дочитывание идёт примерно в порядке поступления.
+ * Забранный файл сначала переименовывается в {@code .claimed}, чтобы его не прочитали
+ * дважды; забранные, но не дочитанные до падения файлы {@link #pendingBots()} возвращает обратно.
+ */
+@Component
+public class UpdateSpillStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpdateSpillStore.class);
+    private static final String SUFFIX = ".json";
+    private static final String CLAIMED_SUFFIX = ".claimed";
+
+    private final ObjectMapper objectMapper;
+    private final Path root;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public UpdateSpillStore(ObjectMapper objectMapper, TelegramProperties telegramProperties) {
+        this.objectMapper = objectMapper;
+        this.root = Paths.get(telegramProperties.getWebhook().getIngestion().getSpillDirectory());
+    }
+
+    /** Сохранить апдейт на диск. {@code false} — если записать не удалось. */
+    public boolean spill(String botUsername, Update update) {
+        try {
+            Path dir = Files.createDirectories(botDir(botUsername));
+            String name = String.format("%012d-%d%s", update.getUpdateId() != null ? update.getUpdateId() : 0,
+                    sequence.incrementAndGet(), SUFFIX);
+            Path tmp = dir.resolve(name + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), update);
+            Files.move(tmp, dir.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("❌ Failed to spill update_id={} of bot '{}': {}", update.getUpdateId(), botUsername, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Забрать до {@code limit} самых старых файлов бота. Возвращает пути уже
+     * переименованных файлов; чтение — через {@link #read(Path)}.
+     */
+    public List<Path> claim(String botUsername, int limit) {
+        Path dir = botDir(botUsername);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        List<Path> candidates;
+        try (Stream<Path> files = Files.list(dir)) {
+            candidates = files
+                    .filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .limit(limit)
+                    .toList();
+        } catch (IOException e) {
+            LOGGER.warn("⚠️ Failed to list spill directory {}: {}", dir, e.getMessage());
+            return List.of();
+        }
+        List<Path> claimed = new ArrayList<>(candidates.size());
+        for (Path file : candidates) {
+            Path target = file.resolveSibling(file.getFileName() + CLAIMED_SUFFIX);
+            try {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                claimed.add(target);
+            } catch (IOException e) {
+                // Файл уже забрал другой воркер.
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Боты, у которых на диске остались апдейты. Вызывается при старте: файлы,
+     * забранные до падения, но не прочитанные, снова становятся доступными.
+     */
+    public List<String> pendingBots() {
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        List<Path> dirs;
+        try (Stream<Path> entries = Files.list(root)) {
+            dirs = entries.filter(Files::isDirectory).sorted().toList();
+        } catch (IOException e) {
+            LOGGER.warn("⚠️ Failed to list spill directory {}: {}", root, e.getMessage());
+            return List.of();
+        }
+        List<String> bots = new ArrayList<>();
+        for (Path dir : dirs) {
+            if (recover(dir) > 0) {
+                bots.add(dir.getFileName().toString());
+            }
+        }
+        return bots;
+    }
+
+    /** Вернуть {@code .claimed} в очередь на чтение. Возвращает число ожидающих файлов. */
+    private int recover(Path dir) {
+        List<Path> files;
+        try (Stream<Path> entries = Files.list(dir)) {
+            files = entries.toList();
+        } catch (IOException e) {
+            LOGGER.warn("⚠️ Failed to list spill directory {}: {}", dir, e.getMessage());
+            return 0;
+        }
+        int pending = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            try {
+                if (name.endsWith(SUFFIX + CLAIMED_SUFFIX)) {
+                    Files.move(file, file.resolveSibling(name.substring(0, name.length() - CLAIMED_SUFFIX.length())),
+                            StandardCopyOption.ATOMIC_MOVE);
+                    pending++;
+                } else if (name.endsWith(SUFFIX)) {
+                    pending++;
+                }
+            } catch (IOException e) {
+                LOGGER.warn("⚠️ Failed to recover spill file {}: {}", file, e.getMessage());
+            }
+        }
+        return pending;
+    }
+
+    /** Прочитать и удалить забранный файл. {@code null} — если файл повреждён. */
+    public Update read(Path claimedFile) {
+        try {
+            return objectMapper.readValue(claimedFile.toFile(), Update.class);
+        } catch (IOException e) {
+            LOGGER.error("❌ Corrupted spill file {} skipped: {}", claimedFile, e.getMessage());
+            return null;
+        } finally {
+            try {
+                Files.deleteIfExists(claimedFile);
+            } catch (IOException e) {
+                LOGGER.warn("⚠️ Failed to delete spill file {}: {}", claimedFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Перенести все файлы бота в каталог {@code toBot} (бот переименован).
+     * Имена файлов сохраняются, поэтому порядок дочитывания не меняется. Возвращает число перенесённых файлов.
+     */
+    public int transfer(String fromBot, String toBot) {
+        Path from = botDir(fromBot);
+        Path to = botDir(toBot);
+        if (from.equals(to) || !Files.isDirectory(from)) {
+            return 0;
+        }
+        recover(from);
+        int moved = 0;
+        try {
+            Files.createDirectories(to);
+            for (Path file : list(from)) {
+                if (file.getFileName().toString().endsWith(SUFFIX)) {
+                    Files.move(file, to.resolve(file.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                    moved++;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("❌ Failed to move spilled updates of bot '{}' to '{}': {}", fromBot, toBot, e.getMessage());
+            return moved;
+        }
+        deleteDir(from);
+        return moved;
+    }
+
+    /** Удалить все файлы бота (бот удалён или выключен). Возвращает число удалённых апдейтов. */
+    public int discard(String botUsername) {
+        Path dir = botDir(botUsername);
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        int discarded = 0;
+        for (Path file : list(dir)) {
+            String name = file.getFileName().toString();
+            try {
+                if (Files.deleteIfExists(file) && (name.endsWith(SUFFIX) || name.endsWith(CLAIMED_SUFFIX))) {
+                    discarded++;
+                }
+            } catch (IOException e) {
+                LOGGER.warn("⚠️ Failed to delete spill file {}: {}", file, e.getMessage());
+            }
+        }
+        deleteDir(dir);
+        return discarded;
+    }
+
+    private List<Path> list(Path dir) {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.toList();
+        } catch (IOException e) {
+            LOGGER.warn("⚠️ Failed to list spill directory {}: {}", dir, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void deleteDir(Path dir) {
+        try {
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            // Каталог не пуст (пишется .tmp) — останется до следующего раза.
+        }
+    }
+
+    private Path botDir(String botUsername) {
+        return root.resolve(botUsername.replaceAll("[^A-Za-z0-9_]", "_"));
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.dream_stream_bot.bot.update;
+
+import com.example.dream_stream_bot.bot.AbstractTelegramBot;
+import com.example.dream_stream_bot.bot.BotUnregisteredEvent;
+import com.example.dream_stream_bot.bot.error.BotUpdateErrorHandler;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Приём webhook-апдейтов: контроллер только кладёт {@link Update} в ограниченную
+ * очередь бота и сразу отвечает Telegram, а обработку (включая LLM) выполняют
+ * отдельные потоки.
+ *
+ * На каждого бота — своя очередь, чтобы медленный бот не задерживал остальных.
+ * Очередь разбирает ровно один воркер: он только передаёт апдейт в
+ * {@link ConversationUpdateDispatcher}, где разговоры уже обрабатываются параллельно.
+ * Второй воркер мог бы передать два апдейта одного чата в обратном порядке. Поведение при переполнении задаёт
+ * {@link TelegramProperties.OverflowPolicy}. Метрики: глубина очереди,
+ * время ожидания в очереди и счётчики исходов приёма по каждому боту.
+ *
+ * Telegram уже получил 200 на всё, что лежит в очереди, поэтому при остановке
+ * новые апдейты отклоняются (429 — Telegram повторит), очередь разбирается до
+ * {@code shutdown-drain-ms}, а остаток при любой политике сбрасывается в
+ * {@link UpdateSpillStore}. Сброшенное на диск дочитывается после старта.
+ *
+ * Очередь привязана к username: когда бот снят с регистрации ({@link BotUnregisteredEvent}),
+ * её воркер останавливается, метрики снимаются, а неразобранные апдейты переходят
+ * к новому username при переименовании или отбрасываются, если бот удалён или выключен.
+ */
+@Component
+public class WebhookUpdateIngestor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebhookUpdateIngestor.class);
+    private static final long POLL_TIMEOUT_MS = 1_000L;
+
+    /** Исход постановки апдейта в очередь. */
+    public enum IngestResult {
+        ACCEPTED,
+        /** Очередь полна, вытеснен самый старый апдейт. */
+        DROPPED_OLDEST,
+        /** Очередь полна, апдейт сохранён на диск. */
+        SPILLED,
+        /** Очередь полна, апдейт не принят — Telegram должен повторить доставку. */
+        REJECTED
+    }
+
+    private final Map<String, AbstractTelegramBot> botRegistry;
+    private final BotUpdateErrorHandler errorHandler;
+    private final TelegramProperties.Ingestion settings;
+    private final UpdateSpillStore spillStore;
+    private final MeterRegistry meterRegistry;
+    private final BotExecutors botExecutors;
+    private final Map<String, BotQueue> queues = new ConcurrentHashMap<>();
+    private volatile boolean accepting = true;
+
+    public WebhookUpdateIngestor(Map<String, AbstractTelegramBot> botRegistry,
+                                 BotUpdateErrorHandler errorHandler,
+                                 TelegramProperties telegramProperties,
+                                 UpdateSpillStore spillStore,
+                                 MeterRegistry meterRegistry,
+                                 BotExecutors botExecutors) {
+        this.botRegistry = botRegistry;
+        this.errorHandler = errorHandler;
+        this.settings = telegramProperties.getWebhook().getIngestion();
+        this.spillStore = spillStore;
+        this.meterRegistry = meterRegistry;
+        this.botExecutors = botExecutors;
+    }
+
+    /**
+     * Поставить апдейт в очередь бота. Не блокирует вызывающий поток.
+     */
+    public IngestResult submit(String botUsername, Update update) {
+        if (!accepting) {
+            return IngestResult.REJECTED;
+        }
+        BotQueue queue = queues.computeIfAbsent(botUsername, this::startQueue);
+        return queue.offer(new QueuedUpdate(update, System.nanoTime()));
+    }
+
+    /** Текущая глубина очереди бота (0, если очередь ещё не создана). */
+    public int depth(String botUsername) {
+        BotQueue queue = queues.get(botUsername);
+        return queue == null ? 0 : queue.deque.size();
+    }
+
+    /** Поднять очереди ботов, у которых после прошлого запуска остались апдейты на диске. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeSpilled() {
+        List<String> bots = spillStore.pendingBots();
+        if (!accepting || bots.isEmpty()) {
+            return;
+        }
+        bots.forEach(botUsername -> queues.computeIfAbsent(botUsername, this::startQueue));
+        LOGGER.info("💾 Resuming spilled webhook updates for bots: {}", bots);
+    }
+
+    /** Освободить очередь бота, снятого с регистрации под прежним username. */
+    @EventListener
+    public void onBotUnregistered(BotUnregisteredEvent event) {
+        release(event.username(), event.successorUsername());
+    }
+
+    /**
+     * Остановить очередь {@code botUsername} и удалить её метрики. Апдейты из очереди и с диска
+     * уходят в очередь {@code successorUsername}, а при {@code null} — отбрасываются.
+     */
+    void release(String botUsername, String successorUsername) {
+        BotQueue queue = queues.remove(botUsername);
+        List<Update> pending = queue != null ? queue.stopNow() : List.of();
+        if (successorUsername == null) {
+            int discarded = pending.size() + spillStore.discard(botUsername);
+            if (discarded > 0) {
+                LOGGER.warn("⚠️ Bot '{}' unregistered: {} pending webhook updates discarded", botUsername, discarded);
+            }
+        } else {
+            int moved = 0;
+            for (Update update : pending) {
+                // Через диск: очередь преемника может быть полна, а его бот ещё не зарегистрирован.
+                if (spillStore.spill(successorUsername, update)) {
+                    moved++;
+                }
+            }
+            moved += spillStore.transfer(botUsername, successorUsername);
+            if (moved > 0 && accepting) {
+                queues.computeIfAbsent(successorUsername, this::startQueue).spillPending = true;
+                LOGGER.info("💾 Bot '{}' renamed to '{}': {} pending webhook updates moved",
+                        botUsername, successorUsername, moved);
+            }
+        }
+        if (queue != null) {
+            LOGGER.info("⏹️ Webhook ingestion stopped for bot '{}'", botUsername);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        accepting = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, settings.getShutdownDrainMs()));
+        queues.values().forEach(BotQueue::beginStop);
+        queues.values().forEach(queue -> queue.awaitStop(deadline));
+    }
+
+    private BotQueue startQueue(String botUsername) {
+        BotQueue queue = new BotQueue(botUsername);
+        queue.start();
+        return queue;
+    }
+
+    private record QueuedUpdate(Update update, long enqueuedAtNanos) {
+    }
+
+    /**
+     * Очередь одного бота со своим воркером. Все счётчики и gauge регистрируются с тегом {@code bot}.
+     */
+    private final class BotQueue {
+        private final String botUsername;
+        private final int capacity;
+        private final LinkedBlockingDeque<QueuedUpdate> deque;
+        private Thread worker;
+        private final List<Meter> meters = new ArrayList<>();
+        private final Counter accepted;
+        private final Counter dropped;
+        private final Counter spilled;
+        private final Counter rejected;
+        private final Timer waitTimer;
+        private volatile boolean stopping;
+        /** Бот снят с регистрации: воркер выходит, не дорабатывая очередь. */
+        private volatile boolean released;
+        /** На диске могут быть апдейты бота; при старте — неизвестно, поэтому {@code true}. */
+        private volatile boolean spillPending = true;
+
+        BotQueue(String botUsername) {
+            this.botUsername = botUsername;
+            this.capacity = Math.max(1, settings.getQueueCapacity());
+            this.deque = new LinkedBlockingDeque<>(capacity);
+            meters.add(Gauge.builder("telegram.webhook.queue.depth", deque, LinkedBlockingDeque::size)
+                    .tag("bot", botUsername)
+                    .description("Webhook updates waiting for a worker")
+                    .register(meterRegistry));
+            this.accepted = outcomeCounter("accepted");
+            this.dropped = outcomeCounter("dropped_oldest");
+            this.spilled = outcomeCounter("spilled");
+            this.rejected = outcomeCounter("rejected");
+            this.waitTimer = Timer.builder("telegram.webhook.queue.wait")
+                    .tag("bot", botUsername)
+                    .description("Time an update spent in the ingestion queue")
+                    .register(meterRegistry);
+            meters.add(waitTimer);
+        }
+
+        private Counter outcomeCounter(String outcome) {
+            Counter counter = Counter.builder("telegram.webhook.updates")
+                    .tag("bot", botUsername)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+            meters.add(counter);
+            return counter;
+        }
+
+        void start() {
+            worker = botExecutors.threadFactory("webhook-" + botUsername + "-").newThread(this::drainLoop);
+            worker.start();
+            LOGGER.info("📥 Webhook ingestion started for bot '{}': capacity={}, overflow={}",
+                    botUsername, capacity, settings.getOverflowPolicy());
+        }
+
+        IngestResult offer(QueuedUpdate item) {
+            if (deque.offerLast(item)) {
+                accepted.increment();
+                return IngestResult.ACCEPTED;
+            }
+            TelegramProperties.OverflowPolicy policy = settings.getOverflowPolicy();
+            if (policy == TelegramProperties.OverflowPolicy.DROP_OLDEST) {
+                QueuedUpdate evicted = deque.pollFirst();
+                if (evicted != null) {
+                    dropped.increment();
+                    LOGGER.warn("⚠️ Webhook queue full for bot '{}': dropped update_id={}",
+                            botUsername, evicted.update().getUpdateId());
+                }
+                if (deque.offerLast(item)) {
+                    accepted.increment();
+                    return IngestResult.DROPPED_OLDEST;
+                }
+            } else if (policy == TelegramProperties.OverflowPolicy.SPILL) {
+                if (spillStore.spill(botUsername, item.update())) {
+                    spillPending = true;
+                    spilled.increment();
+                    return IngestResult.SPILLED;
+                }
+            }
+            rejected.increment();
+            LOGGER.warn("⚠️ Webhook queue full for bot '{}': rejected update_id={} (depth={})",
+                    botUsername, item.update().getUpdateId(), deque.size());
+            return IngestResult.REJECTED;
+        }
+
+        /** Разбирает очередь; при остановке выходит, когда очередь опустела или истёк срок. */
+        private void drainLoop() {
+            while (!released) {
+                QueuedUpdate item;
+                try {
+                    item = stopping ? deque.pollFirst() : deque.pollFirst(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (item == null) {
+                    if (stopping) {
+                        return;
+                    }
+                    refillFromSpill();
+                    continue;
+                }
+                waitTimer.record(System.nanoTime() - item.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+                process(item.update());
+            }
+        }
+
+        private void process(Update update) {
+            AbstractTelegramBot bot = botRegistry.get(botUsername);
+            if (bot == null) {
+                LOGGER.warn("❌ Bot '{}' is no longer registered, update_id={} skipped", botUsername, update.getUpdateId());
+                return;
+            }
+            errorHandler.handle(bot, botUsername, update, bot::onUpdateReceived);
+        }
+
+        /**
+         * Дочитать сохранённые на диск апдейты, пока очередь пуста.
+         * Порядок относительно уже принятых апдейтов при этом не гарантируется.
+         */
+        private void refillFromSpill() {
+            if (!spillPending || stopping || !botRegistry.containsKey(botUsername)) {
+                return;
+            }
+            int room = deque.remainingCapacity() / 2;
+            if (room <= 0) {
+                return;
+            }
+            spillPending = false;
+            List<Path> claimed = spillStore.claim(botUsername, room);
+            if (claimed.size() == room) {
+                spillPending = true;
+            }
+            for (Path file : claimed) {
+                Update update = spillStore.read(file);
+                if (update != null && !deque.offerLast(new QueuedUpdate(update, System.nanoTime()))) {
+                    spillStore.spill(botUsername, update);
+                    spillPending = true;
+                }
+            }
+            if (!claimed.isEmpty()) {
+                LOGGER.info("💾 Webhook queue of bot '{}' refilled from disk: {} updates", botUsername, claimed.size());
+            }
+        }
+
+        /**
+         * Остановить воркер после текущего апдейта, снять метрики и вернуть
+         * то, что осталось в очереди. Ждёт воркер не дольше интервала опроса очереди
+         * или {@code shutdown-drain-ms}, если он больше.
+         */
+        List<Update> stopNow() {
+            released = true;
+            stopping = true;
+            try {
+                worker.join(Math.max(POLL_TIMEOUT_MS * 2, settings.getShutdownDrainMs()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (worker.isAlive()) {
+                LOGGER.warn("⚠️ Webhook worker of bot '{}' is still busy, it will exit after the current update",
+                        botUsername);
+            }
+            List<Update> pending = new ArrayList<>();
+            QueuedUpdate item;
+            while ((item = deque.pollFirst()) != null) {
+                pending.add(item.update());
+            }
+            meters.forEach(meterRegistry::remove);
+            return pending;
+        }
+
+        /** Перестать ждать новых апдейтов: воркер дорабатывает очередь и выходит. */
+        void beginStop() {
+            stopping = true;
+        }
+
+        /**
+         * Дождаться воркера до {@code deadlineNanos}, не прерывая обработку, и
+         * сбросить на диск то, что он не успел забрать.
+         */
+        void awaitStop(long deadlineNanos) {
+            long leftMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (leftMs > 0) {
+                try {
+                    worker.join(leftMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int saved = 0;
+            int lost = 0;
+            QueuedUpdate item;
+            while ((item = deque.pollFirst()) != null) {
+                if (spillStore.spill(botUsername, item.update())) {
+                    saved++;
+                } else {
+                    lost++;
+                }
+            }
+            if (saved > 0) {
+                LOGGER.info("💾 Webhook queue of bot '{}' spilled on shutdown: {} updates", botUsername, saved);
+            }
+            if (lost > 0) {
+                LOGGER.error("❌ Webhook queue of bot '{}': {} updates lost on shutdown", botUsername, lost);
+            }
+        }
+    }
+}
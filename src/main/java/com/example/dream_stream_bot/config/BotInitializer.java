@@ -1,97 +1,45 @@
 package com.example.dream_stream_bot.config;
 
-import com.example.dream_stream_bot.bot.AbstractTelegramBot;
-import com.example.dream_stream_bot.bot.BotFactory;
-import com.example.dream_stream_bot.bot.EditedMessageHandler;
-import com.example.dream_stream_bot.bot.command.CallbackDispatcher;
-import com.example.dream_stream_bot.bot.command.CommandDispatcher;
-import com.example.dream_stream_bot.bot.command.PrivateReplyNavigationRouter;
-import com.example.dream_stream_bot.bot.error.BotUpdateErrorHandler;
-import com.example.dream_stream_bot.bot.message.MessageSender;
+import com.example.dream_stream_bot.bot.BotLifecycleManager;
+import com.example.dream_stream_bot.bot.update.BotExecutors;
 import com.example.dream_stream_bot.config.properties.TelegramProperties;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
-import com.example.dream_stream_bot.service.access.AccessGate;
-import com.example.dream_stream_bot.service.access.GatingDedup;
-import com.example.dream_stream_bot.service.payment.ReceiptEmailAwaitService;
-import com.example.dream_stream_bot.service.subscription.GroupLinkWizardService;
-import com.example.dream_stream_bot.service.telegram.BotMenuSyncService;
 import com.example.dream_stream_bot.service.telegram.BotService;
-import com.example.dream_stream_bot.service.telegram.MessageHandlerService;
-import com.example.dream_stream_bot.service.telegram.TelegramBotApiService;
-import com.example.dream_stream_bot.service.telegram.UserStateService;
-import com.example.dream_stream_bot.service.user.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.meta.TelegramBotsApi;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Стартовая регистрация всех активных ботов. Сам запуск/остановку отдельного бота
+ * выполняет {@link BotLifecycleManager}; дальнейшие изменения он применяет сам.
+ */
 @Slf4j
 @Component
 public class BotInitializer {
     private final BotService botService;
-    private final MessageHandlerService messageHandlerService;
-    private final UserStateService userStateService;
-    private final TelegramBotApiService telegramBotApiService;
-    private final UserService userService;
-    private final MessageSender messageSender;
-    private final CommandDispatcher commandDispatcher;
-    private final CallbackDispatcher callbackDispatcher;
-    private final BotUpdateErrorHandler errorHandler;
-    private final EditedMessageHandler editedMessageHandler;
-    private final AccessGate accessGate;
-    private final GatingDedup gatingDedup;
-    private final PrivateReplyNavigationRouter privateReplyNavigationRouter;
-    private final GroupLinkWizardService groupLinkWizardService;
-    private final ReceiptEmailAwaitService receiptEmailAwaitService;
     private final TelegramProperties telegramProperties;
-    private final BotMenuSyncService botMenuSyncService;
-    private final Map<String, AbstractTelegramBot> botRegistry = new java.util.concurrent.ConcurrentHashMap<>();
+    private final BotExecutors botExecutors;
+    private final BotLifecycleManager botLifecycleManager;
 
-    public BotInitializer(BotService botService, MessageHandlerService messageHandlerService,
-                          UserStateService userStateService,
-                          TelegramBotApiService telegramBotApiService,
-                          UserService userService,
-                          MessageSender messageSender,
-                          CommandDispatcher commandDispatcher,
-                          CallbackDispatcher callbackDispatcher,
-                          BotUpdateErrorHandler errorHandler,
-                          EditedMessageHandler editedMessageHandler,
-                          AccessGate accessGate,
-                          GatingDedup gatingDedup,
-                          PrivateReplyNavigationRouter privateReplyNavigationRouter,
-                          GroupLinkWizardService groupLinkWizardService,
-                          ReceiptEmailAwaitService receiptEmailAwaitService,
+    public BotInitializer(BotService botService,
                           TelegramProperties telegramProperties,
-                          BotMenuSyncService botMenuSyncService) {
+                          BotExecutors botExecutors,
+                          BotLifecycleManager botLifecycleManager) {
         this.botService = botService;
-        this.messageHandlerService = messageHandlerService;
-        this.userStateService = userStateService;
-        this.telegramBotApiService = telegramBotApiService;
-        this.userService = userService;
-        this.messageSender = messageSender;
-        this.commandDispatcher = commandDispatcher;
-        this.callbackDispatcher = callbackDispatcher;
-        this.errorHandler = errorHandler;
-        this.editedMessageHandler = editedMessageHandler;
-        this.accessGate = accessGate;
-        this.gatingDedup = gatingDedup;
-        this.privateReplyNavigationRouter = privateReplyNavigationRouter;
-        this.groupLinkWizardService = groupLinkWizardService;
-        this.receiptEmailAwaitService = receiptEmailAwaitService;
         this.telegramProperties = telegramProperties;
-        this.botMenuSyncService = botMenuSyncService;
-    }
-
-    @Bean
-    public Map<String, AbstractTelegramBot> botRegistry() {
-        return botRegistry;
+        this.botExecutors = botExecutors;
+        this.botLifecycleManager = botLifecycleManager;
     }
 
     @EventListener({ApplicationReadyEvent.class})
@@ -106,15 +54,14 @@ public class BotInitializer {
         }
     }
     
-    private void initializeBots() throws TelegramApiException {
+    /** Итог регистрации одного бота для стартового отчёта. */
+    private enum StartupOutcome { REGISTERED, FAILED, TIMEOUT }
+
+    private record BotStartupResult(String username, StartupOutcome outcome, long millis, String detail) {}
+
+    private void initializeBots() {
         log.info("🤖 Initializing all Telegram bots...");
         
-        // Проверяем зависимости
-        log.info("🔍 Checking dependencies:");
-        log.info("  - BotService: {}", botService != null ? "✅" : "❌");
-        log.info("  - MessageHandlerService: {}", messageHandlerService != null ? "✅" : "❌");
-        log.info("  - UserStateService: {}", userStateService != null ? "✅" : "❌");
-        
         try {
             List<BotEntity> bots = botService.getAllBots();
             log.info("📋 Found {} bots in database", bots.size());
@@ -124,93 +71,17 @@ public class BotInitializer {
                     : telegramProperties.getDeliveryMode().trim().toLowerCase();
             log.info("🧭 Telegram delivery mode: {}", mode);
 
-            TelegramBotsApi telegramBotsApi = null;
-            if (telegramProperties.isLongPolling()) {
-                telegramBotsApi = new TelegramBotsApi(DefaultBotSession.class);
-            }
-
-            int successCount = 0;
-            int errorCount = 0;
-            
+            List<BotEntity> active = new ArrayList<>();
             for (BotEntity bot : bots) {
-                log.info("🔍 Processing bot: username='{}', type='{}', active={}, miniapp={}",
-                        bot.getUsername(), bot.getType(), bot.getIsActive(), bot.getMiniapp());
-
                 if (Boolean.TRUE.equals(bot.getIsActive())) {
-                    try {
-                        var beforeInfo = telegramBotApiService.getWebhookInfo(bot);
-                        if (beforeInfo.isPresent()) {
-                            var info = beforeInfo.get();
-                            log.info("📡 Bot '{}' current delivery: {} (pendingUpdates={}, lastError={})",
-                                    bot.getUsername(),
-                                    info.describeDelivery(),
-                                    info.pendingUpdateCount(),
-                                    info.lastErrorMessage());
-                        } else {
-                            log.info("📡 Bot '{}' current delivery: unknown(unavailable)", bot.getUsername());
-                        }
-
-                        AbstractTelegramBot telegramBot = BotFactory.createBot(
-                                bot, botService, messageHandlerService, userStateService, userService,
-                                messageSender, commandDispatcher, callbackDispatcher,
-                                errorHandler, editedMessageHandler,
-                                accessGate, gatingDedup, privateReplyNavigationRouter, groupLinkWizardService,
-                                receiptEmailAwaitService);
-                        botRegistry.put(bot.getUsername(), telegramBot);
-
-                        if (telegramProperties.isLongPolling()) {
-                            boolean deleted = telegramBotApiService.deleteWebhook(bot);
-                            if (telegramBotsApi == null) {
-                                throw new IllegalStateException("TelegramBotsApi is not initialized for long-polling mode");
-                            }
-                            telegramBotsApi.registerBot(telegramBot);
-                            var afterInfo = telegramBotApiService.getWebhookInfo(bot);
-                            String effective = afterInfo.map(TelegramBotApiService.WebhookInfo::describeDelivery)
-                                    .orElse("unknown(unavailable)");
-                            log.info("✅ Bot '{}' registered successfully (mode=long-polling, type={}, webhookDeleted={}, effective={})",
-                                    bot.getUsername(), bot.getType(), deleted, effective);
-                            syncBotMenuSafely(bot);
-                            successCount++;
-                        } else if (telegramProperties.isWebhookMode()) {
-                            String baseUrl = telegramProperties.getWebhook().normalizedBaseUrl();
-
-                            if (baseUrl.isBlank()) {
-                                log.error("❌ Webhook base URL is empty. Bot '{}' cannot be registered in webhook mode.",
-                                        bot.getUsername());
-                                errorCount++;
-                                continue;
-                            }
-
-                            String webhookUrl = baseUrl + "/webhook/" + bot.getUsername();
-                            boolean ok = telegramBotApiService.setWebhook(bot, webhookUrl,
-                                    telegramProperties.getWebhook().getSecretToken());
-                            if (ok) {
-                                var afterInfo = telegramBotApiService.getWebhookInfo(bot);
-                                String effective = afterInfo.map(TelegramBotApiService.WebhookInfo::describeDelivery)
-                                        .orElse("unknown(unavailable)");
-                                log.info("✅ Bot '{}' registered successfully (mode=webhook, type={}, targetUrl={}, effective={})",
-                                        bot.getUsername(), bot.getType(), webhookUrl, effective);
-                                syncBotMenuSafely(bot);
-                                successCount++;
-                            } else {
-                                log.error("❌ Bot '{}' webhook registration failed", bot.getUsername());
-                                errorCount++;
-                            }
-                        } else {
-                            log.error("❌ Unknown telegram.delivery-mode='{}'. Supported: long-polling, webhook", mode);
-                            errorCount++;
-                        }
-                    } catch (Exception e) {
-                        log.error("❌ Error creating bot '{}' (type: {}): {}",
-                                bot.getUsername(), bot.getType(), e.getMessage(), e);
-                        errorCount++;
-                    }
+                    active.add(bot);
                 } else {
                     log.info("⏸️ Bot '{}' skipped (inactive)", bot.getUsername());
                 }
             }
-            
-            log.info("🎉 Bot initialization completed: {} successful, {} errors", successCount, errorCount);
+
+            List<BotStartupResult> results = registerAll(active);
+            logStartupReport(results);
             
         } catch (Exception e) {
             log.error("❌ Error loading bots from database: {}", e.getMessage(), e);
@@ -218,11 +89,79 @@ public class BotInitializer {
         }
     }
 
-    private void syncBotMenuSafely(BotEntity bot) {
+    /**
+     * Регистрирует ботов параллельно: не больше {@code telegram.startup.parallelism}
+     * одновременно, на каждого — {@code telegram.startup.bot-timeout-seconds} с момента
+     * начала его регистрации. Бот, не уложившийся в таймаут, попадает в отчёт как TIMEOUT;
+     * его регистрация продолжается в фоне.
+     */
+    private List<BotStartupResult> registerAll(List<BotEntity> bots) {
+        if (bots.isEmpty()) {
+            return List.of();
+        }
+        TelegramProperties.Startup startup = telegramProperties.getStartup();
+        int parallelism = Math.max(1, Math.min(startup.getParallelism(), bots.size()));
+        long timeoutMs = TimeUnit.SECONDS.toMillis(Math.max(1, startup.getBotTimeoutSeconds()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, botExecutors.threadFactory("bot-startup-"));
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+                botExecutors.threadFactory("bot-startup-watchdog-"));
+        try {
+            List<CompletableFuture<BotStartupResult>> futures = new ArrayList<>(bots.size());
+            for (BotEntity bot : bots) {
+                CompletableFuture<BotStartupResult> result = new CompletableFuture<>();
+                pool.execute(() -> {
+                    long started = System.nanoTime();
+                    ScheduledFuture<?> timeout = watchdog.schedule(() -> result.complete(new BotStartupResult(
+                            bot.getUsername(), StartupOutcome.TIMEOUT, timeoutMs,
+                            "no response within " + timeoutMs + " ms")), timeoutMs, TimeUnit.MILLISECONDS);
+                    BotStartupResult r = registerBotSafely(bot, started);
+                    timeout.cancel(false);
+                    if (!result.complete(r)) {
+                        log.warn("⌛ Bot '{}' finished registration after timeout: {} in {} ms ({})",
+                                r.username(), r.outcome(), r.millis(), r.detail());
+                    }
+                });
+                futures.add(result);
+            }
+            return futures.stream().map(CompletableFuture::join).toList();
+        } finally {
+            pool.shutdown();
+            watchdog.shutdown();
+        }
+    }
+
+    private BotStartupResult registerBotSafely(BotEntity bot, long started) {
+        log.info("🔍 Processing bot: username='{}', type='{}', active={}, miniapp={}",
+                bot.getUsername(), bot.getType(), bot.getIsActive(), bot.getMiniapp());
+        StartupOutcome outcome;
+        String detail;
         try {
-            botMenuSyncService.syncFor(bot);
+            detail = botLifecycleManager.start(bot);
+            outcome = detail == null ? StartupOutcome.FAILED : StartupOutcome.REGISTERED;
+            if (detail == null) {
+                detail = "registration failed";
+            }
         } catch (Exception e) {
-            log.warn("⚠️ Failed to sync Telegram menu for bot '{}': {}", bot.getUsername(), e.getMessage());
+            log.error("❌ Error creating bot '{}' (type: {}): {}",
+                    bot.getUsername(), bot.getType(), e.getMessage(), e);
+            outcome = StartupOutcome.FAILED;
+            detail = e.getMessage();
         }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        return new BotStartupResult(bot.getUsername(), outcome, millis, detail);
+    }
+
+    private void logStartupReport(List<BotStartupResult> results) {
+        long registered = results.stream().filter(r -> r.outcome() == StartupOutcome.REGISTERED).count();
+        long timedOut = results.stream().filter(r -> r.outcome() == StartupOutcome.TIMEOUT).count();
+        long failed = results.size() - registered - timedOut;
+        StringBuilder report = new StringBuilder();
+        results.stream()
+                .sorted(Comparator.comparingLong(BotStartupResult::millis).reversed())
+                .forEach(r -> report.append(String.format("%n  %-10s %6d ms  %s — %s",
+                        r.outcome(), r.millis(), r.username(), r.detail())));
+        log.info("🎉 Bot initialization completed: {} successful, {} errors, {} timeouts{}",
+                registered, failed, timedOut, report);
     }
 }
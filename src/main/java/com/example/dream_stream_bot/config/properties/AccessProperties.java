@@ -0,0 +1,86 @@
+package com.example.dream_stream_bot.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.access")
+public class AccessProperties {
+
+    private EntitlementCache entitlementCache = new EntitlementCache();
+    private ParticipantActivity participantActivity = new ParticipantActivity();
+
+    public EntitlementCache getEntitlementCache() {
+        return entitlementCache;
+    }
+
+    public void setEntitlementCache(EntitlementCache entitlementCache) {
+        this.entitlementCache = entitlementCache;
+    }
+
+    public ParticipantActivity getParticipantActivity() {
+        return participantActivity;
+    }
+
+    public void setParticipantActivity(ParticipantActivity participantActivity) {
+        this.participantActivity = participantActivity;
+    }
+
+    /**
+     * Кэш подписок и согласий для {@code AccessGate}. Сбрасывается событиями изменений;
+     * TTL — только страховка от пропущенного события.
+     */
+    public static class EntitlementCache {
+        private boolean enabled = true;
+        private long ttlSeconds = 300;
+        /** Предельное число записей в каждой из таблиц кэша. */
+        private long maxEntries = 100_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        public long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    /**
+     * Учёт активных участников групп в памяти; {@code subscription_participant.last_seen_at}
+     * пишется пачкой раз в {@code flushIntervalMs}.
+     */
+    public static class ParticipantActivity {
+        private boolean enabled = true;
+        private long flushIntervalMs = 10_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.dream_stream_bot.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.chat-memory")
+public class ChatMemoryProperties {
+
+    private WriteBehind writeBehind = new WriteBehind();
+    private Cache cache = new Cache();
+    private Partitions partitions = new Partitions();
+    private Retention retention = new Retention();
+    private Archive archive = new Archive();
+
+    public WriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(WriteBehind writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    public Partitions getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(Partitions partitions) {
+        this.partitions = partitions;
+    }
+
+    public Retention getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Retention retention) {
+        this.retention = retention;
+    }
+
+    public Archive getArchive() {
+        return archive;
+    }
+
+    public void setArchive(Archive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Кэш хвостов разговоров перед {@code chat_memory}; размер считается в байтах текста сообщений.
+     * Рассчитан на один инстанс приложения: записи других инстансов он не видит, а индексы
+     * дописанных сообщений назначает сам. При нескольких инстансах на одной БД — выключать.
+     */
+    public static class Cache {
+        private boolean enabled = true;
+        /** Суммарный объём текста (UTF-8) всех закэшированных хвостов. */
+        private long maxBytes = 64L * 1024 * 1024;
+        /** Сколько последних сообщений разговора держать в кэше; окна больше читаются из БД. */
+        private int maxMessagesPerConversation = 200;
+        /** Хвост выбрасывается, если к разговору не обращались столько минут. */
+        private long expireAfterAccessMinutes = 30;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public int getMaxMessagesPerConversation() {
+            return maxMessagesPerConversation;
+        }
+
+        public void setMaxMessagesPerConversation(int maxMessagesPerConversation) {
+            this.maxMessagesPerConversation = maxMessagesPerConversation;
+        }
+
+        public long getExpireAfterAccessMinutes() {
+            return expireAfterAccessMinutes;
+        }
+
+        public void setExpireAfterAccessMinutes(long expireAfterAccessMinutes) {
+            this.expireAfterAccessMinutes = expireAfterAccessMinutes;
+        }
+    }
+
+    /**
+     * Отложенная запись {@code chat_memory}: сообщения копятся в памяти и локальном журнале
+     * и пишутся в БД пачками.
+     */
+    public static class WriteBehind {
+        /** Включить отложенную запись; по умолчанию каждый ход пишется сразу. */
+        private boolean enabled = false;
+        /** Период сброса буферов в БД. */
+        private long flushIntervalMs = 1000;
+        /** Столько несброшенных сообщений одного разговора запускают внеочередной сброс. */
+        private int maxBufferedPerConversation = 32;
+        /** Каталог журнала несброшенных сообщений. */
+        private String journalDirectory = "./data/chat-memory-journal";
+        /** Размер сегмента журнала, после которого начинается новый. */
+        private long journalSegmentBytes = 8 * 1024 * 1024;
+        /** {@code fsync} после каждой записи в журнал (переживает сбой питания, а не только процесса). */
+        private boolean journalFsync = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public int getMaxBufferedPerConversation() {
+            return maxBufferedPerConversation;
+        }
+
+        public void setMaxBufferedPerConversation(int maxBufferedPerConversation) {
+            this.maxBufferedPerConversation = maxBufferedPerConversation;
+        }
+
+        public String getJournalDirectory() {
+            return journalDirectory;
+        }
+
+        public void setJournalDirectory(String journalDirectory) {
+            this.journalDirectory = journalDirectory;
+        }
+
+        public long getJournalSegmentBytes() {
+            return journalSegmentBytes;
+        }
+
+        public void setJournalSegmentBytes(long journalSegmentBytes) {
+            this.journalSegmentBytes = journalSegmentBytes;
+        }
+
+        public boolean isJournalFsync() {
+            return journalFsync;
+        }
+
+        public void setJournalFsync(boolean journalFsync) {
+            this.journalFsync = journalFsync;
+        }
+    }
+
+    /**
+     * Месячные секции {@code chat_memory} по {@code created_at}: обслуживание заранее создаёт секции
+     * на будущие месяцы и удаляет секции старше срока из настройки {@code CHAT_MEMORY_MAX_AGE_MONTHS}.
+     */
+    public static class Partitions {
+        private boolean enabled = true;
+        /** На сколько месяцев вперёд держать готовые секции. */
+        private int monthsAhead = 3;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMonthsAhead() {
+            return monthsAhead;
+        }
+
+        public void setMonthsAhead(int monthsAhead) {
+            this.monthsAhead = monthsAhead;
+        }
+    }
+
+    /**
+     * Ночное удаление памяти по истёкшим подпискам: подписки выбираются страницами,
+     * строки удаляются порциями, каждая — в своей транзакции.
+     */
+    public static class Retention {
+        /** Сколько подписок выбирать за один запрос. */
+        private int pageSize = 200;
+        /** Сколько строк {@code chat_memory} удалять за одну транзакцию. */
+        private int deleteChunkSize = 5000;
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public int getDeleteChunkSize() {
+            return deleteChunkSize;
+        }
+
+        public void setDeleteChunkSize(int deleteChunkSize) {
+            this.deleteChunkSize = deleteChunkSize;
+        }
+    }
+
+    /**
+     * Холодный архив: разговоры без сообщений дольше {@code idleDays} дней переносятся в
+     * {@code chat_memory_archive} одним сжатым сегментом. Восстановление при обращении работает
+     * всегда, даже если перенос выключен.
+     */
+    public static class Archive {
+        private boolean enabled = false;
+        private int idleDays = 90;
+        /** Сколько разговоров переносить за один ночной проход. */
+        private int maxConversationsPerRun = 500;
+        /** Сколько помнить, что у разговора нет архива (без запроса к chat_memory_archive). */
+        private int noArchiveCacheSeconds = 600;
+        private int noArchiveCacheMaxEntries = 100_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getIdleDays() {
+            return idleDays;
+        }
+
+        public void setIdleDays(int idleDays) {
+            this.idleDays = idleDays;
+        }
+
+        public int getMaxConversationsPerRun() {
+            return maxConversationsPerRun;
+        }
+
+        public void setMaxConversationsPerRun(int maxConversationsPerRun) {
+            this.maxConversationsPerRun = maxConversationsPerRun;
+        }
+
+        public int getNoArchiveCacheSeconds() {
+            return noArchiveCacheSeconds;
+        }
+
+        public void setNoArchiveCacheSeconds(int noArchiveCacheSeconds) {
+            this.noArchiveCacheSeconds = noArchiveCacheSeconds;
+        }
+
+        public int getNoArchiveCacheMaxEntries() {
+            return noArchiveCacheMaxEntries;
+        }
+
+        public void setNoArchiveCacheMaxEntries(int noArchiveCacheMaxEntries) {
+            this.noArchiveCacheMaxEntries = noArchiveCacheMaxEntries;
+        }
+    }
+}
@@ -16,6 +16,16 @@ public class TelegramProperties {
 
     private Webhook webhook = new Webhook();
 
+    private Updates updates = new Updates();
+
+    private Threads threads = new Threads();
+
+    private Outbound outbound = new Outbound();
+
+    private Http http = new Http();
+
+    private Startup startup = new Startup();
+
     public String getDeliveryMode() {
         return deliveryMode;
     }
@@ -32,6 +42,46 @@ public class TelegramProperties {
         this.webhook = webhook;
     }
 
+    public Updates getUpdates() {
+        return updates;
+    }
+
+    public void setUpdates(Updates updates) {
+        this.updates = updates;
+    }
+
+    public Threads getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Threads threads) {
+        this.threads = threads;
+    }
+
+    public Outbound getOutbound() {
+        return outbound;
+    }
+
+    public void setOutbound(Outbound outbound) {
+        this.outbound = outbound;
+    }
+
+    public Http getHttp() {
+        return http;
+    }
+
+    public void setHttp(Http http) {
+        this.http = http;
+    }
+
+    public Startup getStartup() {
+        return startup;
+    }
+
+    public void setStartup(Startup startup) {
+        this.startup = startup;
+    }
+
     public boolean isLongPolling() {
         return "long-polling".equalsIgnoreCase(normalizedDeliveryMode());
     }
@@ -49,6 +99,8 @@ public class TelegramProperties {
         private String baseUrl = "";
         /** Секретный токен, валидируется на TelegramWebhookController. */
         private String secretToken = "";
+        /** Очередь приёма апдейтов между контроллером и обработкой. */
+        private Ingestion ingestion = new Ingestion();
 
         public String getBaseUrl() {
             return baseUrl;
@@ -66,6 +118,14 @@ public class TelegramProperties {
             this.secretToken = secretToken;
         }
 
+        public Ingestion getIngestion() {
+            return ingestion;
+        }
+
+        public void setIngestion(Ingestion ingestion) {
+            this.ingestion = ingestion;
+        }
+
         public String normalizedBaseUrl() {
             if (baseUrl == null) {
                 return "";
@@ -74,4 +134,275 @@ public class TelegramProperties {
             return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
         }
     }
+
+    /**
+     * Пул обработки апдейтов: апдейты одного разговора выполняются строго по очереди,
+     * разные разговоры — параллельно.
+     */
+    public static class Updates {
+        /** Размер пула; {@code 0} — по числу ядер ({@code 2 × cores}, не меньше 4). */
+        private int workerThreads = 0;
+        /** Предел апдейтов в обработке и ожидании; сверх него приём блокируется (backpressure). */
+        private int maxPending = 10_000;
+
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+
+        public int resolvedWorkerThreads() {
+            return workerThreads > 0 ? workerThreads : Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        }
+    }
+
+    /**
+     * Потоки конвейера апдейтов: обработка, keep-alive «печатает», исходящие отправки.
+     */
+    public static class Threads {
+        /**
+         * Виртуальные потоки вместо пулов платформенных (нужна Java 21, иначе — предупреждение
+         * и обычные пулы). Почти вся работа на апдейт — блокирующий I/O (JPA, LLM, Bot API).
+         */
+        private boolean virtual = false;
+        /** Порог, начиная с которого пиннинг виртуального потока к carrier-потоку логируется. */
+        private long pinningThresholdMs = 20;
+
+        public boolean isVirtual() {
+            return virtual;
+        }
+
+        public void setVirtual(boolean virtual) {
+            this.virtual = virtual;
+        }
+
+        public long getPinningThresholdMs() {
+            return pinningThresholdMs;
+        }
+
+        public void setPinningThresholdMs(long pinningThresholdMs) {
+            this.pinningThresholdMs = pinningThresholdMs;
+        }
+    }
+
+    /**
+     * Регистрация ботов при старте приложения.
+     */
+    public static class Startup {
+        /** Сколько ботов регистрируется одновременно. */
+        private int parallelism = 8;
+        /** Сколько ждать регистрации одного бота, прежде чем отметить его как timeout. */
+        private long botTimeoutSeconds = 60;
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public long getBotTimeoutSeconds() {
+            return botTimeoutSeconds;
+        }
+
+        public void setBotTimeoutSeconds(long botTimeoutSeconds) {
+            this.botTimeoutSeconds = botTimeoutSeconds;
+        }
+    }
+
+    /**
+     * Общий HTTP-клиент для REST-вызовов Bot API (api.telegram.org).
+     */
+    public static class Http {
+        private long connectTimeoutMs = 5_000;
+        /** Таймаут ответа на один вызов. */
+        private long requestTimeoutMs = 30_000;
+        /** Не больше стольких одновременных запросов к Bot API (остальные ждут в очереди). */
+        private int maxConcurrentRequests = 64;
+        /** HTTP/2 с мультиплексированием; при {@code false} — HTTP/1.1 keep-alive. */
+        private boolean http2 = true;
+
+        public long getConnectTimeoutMs() {
+            return connectTimeoutMs;
+        }
+
+        public void setConnectTimeoutMs(long connectTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+        }
+
+        public long getRequestTimeoutMs() {
+            return requestTimeoutMs;
+        }
+
+        public void setRequestTimeoutMs(long requestTimeoutMs) {
+            this.requestTimeoutMs = requestTimeoutMs;
+        }
+
+        public int getMaxConcurrentRequests() {
+            return maxConcurrentRequests;
+        }
+
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+        }
+
+        public boolean isHttp2() {
+            return http2;
+        }
+
+        public void setHttp2(boolean http2) {
+            this.http2 = http2;
+        }
+    }
+
+    /**
+     * Исходящие вызовы Bot API и их лимиты.
+     */
+    public static class Outbound {
+        /** Не больше стольких {@code sendChatAction} в секунду на бота (keep-alive «печатает»). */
+        private int typingActionsPerSecond = 20;
+        /** Глобальный лимит сообщений бота в секунду (Telegram: ~30). */
+        private double globalPerSecond = 30;
+        /** Лимит сообщений в один чат в секунду (Telegram: ~1). */
+        private double perChatPerSecond = 1;
+        /** Допустимый всплеск в один чат (несколько частей одного ответа). */
+        private int perChatBurst = 3;
+        /** Лимит сообщений в одну группу в минуту (Telegram: 20). */
+        private int perGroupPerMinute = 20;
+        /** Сколько раз повторять отправку после 429 {@code retry_after}. */
+        private int maxRetries = 5;
+        /** Потоки, выполняющие сами HTTP-вызовы отправки. */
+        private int senderThreads = 8;
+
+        public int getTypingActionsPerSecond() {
+            return typingActionsPerSecond;
+        }
+
+        public void setTypingActionsPerSecond(int typingActionsPerSecond) {
+            this.typingActionsPerSecond = typingActionsPerSecond;
+        }
+
+        public double getGlobalPerSecond() {
+            return globalPerSecond;
+        }
+
+        public void setGlobalPerSecond(double globalPerSecond) {
+            this.globalPerSecond = globalPerSecond;
+        }
+
+        public double getPerChatPerSecond() {
+            return perChatPerSecond;
+        }
+
+        public void setPerChatPerSecond(double perChatPerSecond) {
+            this.perChatPerSecond = perChatPerSecond;
+        }
+
+        public int getPerChatBurst() {
+            return perChatBurst;
+        }
+
+        public void setPerChatBurst(int perChatBurst) {
+            this.perChatBurst = perChatBurst;
+        }
+
+        public int getPerGroupPerMinute() {
+            return perGroupPerMinute;
+        }
+
+        public void setPerGroupPerMinute(int perGroupPerMinute) {
+            this.perGroupPerMinute = perGroupPerMinute;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public int getSenderThreads() {
+            return senderThreads;
+        }
+
+        public void setSenderThreads(int senderThreads) {
+            this.senderThreads = senderThreads;
+        }
+    }
+
+    /**
+     * Параметры асинхронного приёма webhook-апдейтов: контроллер кладёт апдейт
+     * в ограниченную очередь бота и сразу отвечает Telegram 200.
+     */
+    public static class Ingestion {
+        /** Ёмкость очереди на одного бота. */
+        private int queueCapacity = 1000;
+        /** Что делать при переполнении очереди. */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+        /**
+         * Каталог дискового буфера: по подкаталогу на бота. Сюда же при остановке
+         * сбрасываются недоразобранные апдейты, поэтому он должен лежать на постоянном томе.
+         */
+        private String spillDirectory = "/data/webhook-spill";
+        /** Сколько при остановке ждать разбора очереди, прежде чем сбросить остаток на диск. */
+        private long shutdownDrainMs = 10_000L;
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        public String getSpillDirectory() {
+            return spillDirectory;
+        }
+
+        public void setSpillDirectory(String spillDirectory) {
+            this.spillDirectory = spillDirectory;
+        }
+
+        public long getShutdownDrainMs() {
+            return shutdownDrainMs;
+        }
+
+        public void setShutdownDrainMs(long shutdownDrainMs) {
+            this.shutdownDrainMs = shutdownDrainMs;
+        }
+    }
+
+    /**
+     * Политика переполнения очереди приёма.
+     * <ul>
+     *   <li>{@code REJECT} — ответить 429, Telegram повторит доставку позже;</li>
+     *   <li>{@code DROP_OLDEST} — вытеснить самый старый апдейт из очереди;</li>
+     *   <li>{@code SPILL} — сохранить апдейт на диск и дочитать, когда очередь освободится.</li>
+     * </ul>
+     */
+    public enum OverflowPolicy {
+        REJECT,
+        DROP_OLDEST,
+        SPILL
+    }
 }
@@ -6,10 +6,10 @@ import com.example.dream_stream_bot.model.subscription.SubscriptionPeriodEntity;
 import com.example.dream_stream_bot.model.subscription.SubscriptionRepository;
 import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
 import com.example.dream_stream_bot.model.subscription.SubscriptionTariffEntity;
-import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
 import com.example.dream_stream_bot.model.user.UserEntity;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
 import com.example.dream_stream_bot.service.subscription.SubscriptionService;
+import com.example.dream_stream_bot.service.subscription.TariffCatalog;
 import com.example.dream_stream_bot.service.telegram.BotService;
 import com.example.dream_stream_bot.service.user.UserService;
 import org.springframework.stereotype.Controller;
@@ -31,18 +31,18 @@ public class AdminSubscriptionController {
 
     private final SubscriptionService subscriptionService;
     private final SubscriptionRepository subscriptionRepository;
-    private final SubscriptionTariffRepository subscriptionTariffRepository;
+    private final TariffCatalog tariffCatalog;
     private final BotService botService;
     private final UserService userService;
 
     public AdminSubscriptionController(SubscriptionService subscriptionService,
                                        SubscriptionRepository subscriptionRepository,
-                                       SubscriptionTariffRepository subscriptionTariffRepository,
+                                       TariffCatalog tariffCatalog,
                                        BotService botService,
                                        UserService userService) {
         this.subscriptionService = subscriptionService;
         this.subscriptionRepository = subscriptionRepository;
-        this.subscriptionTariffRepository = subscriptionTariffRepository;
+        this.tariffCatalog = tariffCatalog;
         this.botService = botService;
         this.userService = userService;
     }
@@ -76,7 +76,7 @@ public class AdminSubscriptionController {
         model.addAttribute("ownerById", ownerById);
 
         Map<Long, SubscriptionTariffEntity> tariffById = botList.stream()
-                .flatMap(b -> subscriptionTariffRepository.findByBotIdOrderBySortOrderAscIdAsc(b.getId()).stream())
+                .flatMap(b -> tariffCatalog.byBot(b.getId()).stream())
                 .collect(Collectors.toMap(SubscriptionTariffEntity::getId, t -> t, (a, b) -> a));
         List<SubscriptionTariffEntity> allTariffs = tariffById.values().stream()
                 .sorted(Comparator.<SubscriptionTariffEntity, Long>comparing(SubscriptionTariffEntity::getBotId)
@@ -111,7 +111,7 @@ public class AdminSubscriptionController {
         BotEntity bot = botService.findById(subscription.getBotId());
         model.addAttribute("bot", bot);
         java.util.Optional<SubscriptionTariffEntity> tariffOpt =
-                subscriptionTariffRepository.findById(subscription.getTariffId());
+                tariffCatalog.findById(subscription.getTariffId());
         tariffOpt.ifPresent(t -> model.addAttribute("tariff", t));
         model.addAttribute("isGroupTariff", tariffOpt.map(t -> t.getScope().isGroup()).orElse(false));
         return "admin/subscription-details";
@@ -125,7 +125,7 @@ public class AdminSubscriptionController {
                          RedirectAttributes redirectAttributes) {
         try {
             Long scopeResolved = null;
-            if (subscriptionTariffRepository.findById(tariffId).map(t -> t.getScope().isGroup()).orElse(false)) {
+            if (tariffCatalog.findById(tariffId).map(t -> t.getScope().isGroup()).orElse(false)) {
                 scopeResolved = scopeChatId;
             }
             SubscriptionEntity created = subscriptionService.createOrGet(ownerUserId, botId, tariffId, scopeResolved);
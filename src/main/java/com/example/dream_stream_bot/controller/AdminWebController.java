@@ -275,7 +275,11 @@ public class AdminWebController {
             @RequestParam(required = false) Double frequencyPenalty,
             @RequestParam(required = false) Double presencePenalty,
             @RequestParam(required = false) String systemPrompt,
-            @RequestParam(required = false) Integer memWindow) {
+            @RequestParam(required = false) Integer memWindow,
+            @RequestParam(required = false) Integer summarizeAfterTokens,
+            @RequestParam(required = false) Integer summaryKeepMessages,
+            @RequestParam(required = false) Integer contextTokenBudget,
+            @RequestParam(required = false) Integer replyTokenReserve) {
         AgentConfigEntity e = new AgentConfigEntity();
         e.setName(name.trim());
         e.setDisplayName(blankToNull(displayName));
@@ -291,6 +295,10 @@ public class AdminWebController {
         e.setPresencePenalty(presencePenalty);
         e.setSystemPrompt(blankToNull(systemPrompt));
         e.setMemWindow(memWindow != null ? memWindow : 100);
+        e.setSummarizeAfterTokens(summarizeAfterTokens);
+        e.setSummaryKeepMessages(summaryKeepMessages != null ? summaryKeepMessages : 20);
+        e.setContextTokenBudget(contextTokenBudget);
+        e.setReplyTokenReserve(replyTokenReserve != null ? replyTokenReserve : 1024);
         AgentConfigEntity saved = agentConfigService.save(e);
         return "redirect:/admin/agents?selectedId=" + saved.getId();
     }
@@ -311,7 +319,11 @@ public class AdminWebController {
             @RequestParam(required = false) Double frequencyPenalty,
             @RequestParam(required = false) Double presencePenalty,
             @RequestParam(required = false) String systemPrompt,
-            @RequestParam(required = false) Integer memWindow) {
+            @RequestParam(required = false) Integer memWindow,
+            @RequestParam(required = false) Integer summarizeAfterTokens,
+            @RequestParam(required = false) Integer summaryKeepMessages,
+            @RequestParam(required = false) Integer contextTokenBudget,
+            @RequestParam(required = false) Integer replyTokenReserve) {
         agentConfigService.update(
                 id,
                 name.trim(),
@@ -327,7 +339,11 @@ public class AdminWebController {
                 frequencyPenalty,
                 presencePenalty,
                 blankToNull(systemPrompt),
-                memWindow);
+                memWindow,
+                summarizeAfterTokens,
+                summaryKeepMessages,
+                contextTokenBudget,
+                replyTokenReserve);
         return "redirect:/admin/agents?selectedId=" + id;
     }
 
@@ -1,7 +1,7 @@
 package com.example.dream_stream_bot.controller;
 
 import com.example.dream_stream_bot.bot.AbstractTelegramBot;
-import com.example.dream_stream_bot.bot.error.BotUpdateErrorHandler;
+import com.example.dream_stream_bot.bot.update.WebhookUpdateIngestor;
 import com.example.dream_stream_bot.config.properties.TelegramProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -18,14 +18,14 @@ public class TelegramWebhookController {
 
     private final Map<String, AbstractTelegramBot> botRegistry;
     private final TelegramProperties telegramProperties;
-    private final BotUpdateErrorHandler errorHandler;
+    private final WebhookUpdateIngestor updateIngestor;
 
     public TelegramWebhookController(Map<String, AbstractTelegramBot> botRegistry,
                                      TelegramProperties telegramProperties,
-                                     BotUpdateErrorHandler errorHandler) {
+                                     WebhookUpdateIngestor updateIngestor) {
         this.botRegistry = botRegistry;
         this.telegramProperties = telegramProperties;
-        this.errorHandler = errorHandler;
+        this.updateIngestor = updateIngestor;
     }
 
     @PostMapping("/{botUsername}")
@@ -44,14 +44,17 @@ public class TelegramWebhookController {
             }
         }
 
-        AbstractTelegramBot bot = botRegistry.get(botUsername);
-        if (bot == null) {
+        if (!botRegistry.containsKey(botUsername)) {
             log.warn("❌ No bot found for username: {}", botUsername);
             return ResponseEntity.notFound().build();
         }
 
-        errorHandler.handle(bot, botUsername, update, bot::onUpdateReceived);
-        log.info("✅ Update routed to bot: {}", botUsername);
+        // Обработка (включая LLM) идёт в воркерах очереди, Telegram получает ответ сразу.
+        WebhookUpdateIngestor.IngestResult result = updateIngestor.submit(botUsername, update);
+        if (result == WebhookUpdateIngestor.IngestResult.REJECTED) {
+            return ResponseEntity.status(429).body("Too Many Requests");
+        }
+        log.debug("✅ Update {} queued for bot: {} ({})", update.getUpdateId(), botUsername, result);
         return ResponseEntity.ok("OK");
     }
 }
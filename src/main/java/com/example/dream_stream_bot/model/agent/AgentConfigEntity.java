@@ -64,6 +64,22 @@ public class AgentConfigEntity {
     @Column(name = "mem_window")
     private Integer memWindow = 100;
 
+    /** Порог (оценка токенов), после которого старая часть разговора сжимается в summary; {@code null} — не сжимать. */
+    @Column(name = "summarize_after_tokens")
+    private Integer summarizeAfterTokens;
+
+    /** Сколько последних сообщений остаются дословно при сжатии. */
+    @Column(name = "summary_keep_messages")
+    private Integer summaryKeepMessages = 20;
+
+    /** Бюджет токенов всего промпта (system + память + реплика + ответ); {@code null} — только {@link #memWindow}. */
+    @Column(name = "context_token_budget")
+    private Integer contextTokenBudget;
+
+    /** Часть бюджета, оставляемая под ответ модели. */
+    @Column(name = "reply_token_reserve")
+    private Integer replyTokenReserve = 1024;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
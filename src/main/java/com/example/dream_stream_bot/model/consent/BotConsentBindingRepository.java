@@ -1,6 +1,8 @@
 package com.example.dream_stream_bot.model.consent;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -18,4 +20,15 @@ public interface BotConsentBindingRepository extends JpaRepository<BotConsentBin
     List<BotConsentBindingEntity> findByBotIdAndConsentCodeOrderByCreatedAtDesc(Long botId, ConsentCode consentCode);
 
     List<BotConsentBindingEntity> findByDocumentIdAndActiveTrue(Long documentId);
+
+    /**
+     * Строки {@code [ConsentCode, Long]}: код активной привязки бота и число действующих
+     * (не отозванных) принятий пользователем привязанной версии документа.
+     */
+    @Query("select b.consentCode, count(uc.id) from BotConsentBindingEntity b "
+            + "left join UserConsentEntity uc on uc.documentId = b.documentId "
+            + "and uc.userId = :userId and uc.revokedAt is null "
+            + "where b.botId = :botId and b.active = true "
+            + "group by b.consentCode")
+    List<Object[]> countAcceptancesByCode(@Param("botId") Long botId, @Param("userId") Long userId);
 }
@@ -1,10 +1,12 @@
 package com.example.dream_stream_bot.model.subscription;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +38,21 @@ public interface SubscriptionRepository extends JpaRepository<SubscriptionEntity
 
     List<SubscriptionEntity> findByStatus(SubscriptionStatus status);
 
+    /** Подписки с конечным сроком в указанных статусах — очередь {@code SubscriptionExpiryScheduler}. */
+    List<SubscriptionEntity> findByStatusInAndExpiresAtIsNotNull(List<SubscriptionStatus> statuses);
+
+    /**
+     * Перевести подписку в {@code expired}, если она всё ещё в одном из {@code open} статусов и срок
+     * наступил. Возвращает 1 только тому, чей UPDATE изменил строку.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update SubscriptionEntity s set s.status = :expired, s.updatedAt = :now "
+            + "where s.id = :id and s.status in :open and s.expiresAt <= :now")
+    int expireIfDue(@Param("id") Long id,
+                    @Param("expired") SubscriptionStatus expired,
+                    @Param("open") List<SubscriptionStatus> open,
+                    @Param("now") OffsetDateTime now);
+
     long countByTariffId(Long tariffId);
 
     long deleteByTariffIdAndStatusIn(Long tariffId, List<SubscriptionStatus> statuses);
@@ -16,14 +16,7 @@ public interface SubscriptionTariffRepository extends JpaRepository<Subscription
 
     List<SubscriptionTariffEntity> findByBotIdInOrderByBotIdAscSortOrderAsc(Collection<Long> botIds);
 
-    Optional<SubscriptionTariffEntity> findByBotIdAndCode(Long botId, String code);
-
     Optional<SubscriptionTariffEntity> findByBotIdAndDefaultPersonalTrue(Long botId);
 
     Optional<SubscriptionTariffEntity> findByBotIdAndDefaultGroupTrue(Long botId);
-
-    List<SubscriptionTariffEntity> findByBotIdAndActiveTrueAndScopeAndPriceAmountMinorIsNotNullOrderBySortOrderAscIdAsc(
-            Long botId, TariffScope scope);
-
-    List<SubscriptionTariffEntity> findByBotIdAndActiveTrueAndScopeOrderBySortOrderAscIdAsc(Long botId, TariffScope scope);
 }
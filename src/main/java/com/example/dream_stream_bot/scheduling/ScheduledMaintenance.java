@@ -1,6 +1,8 @@
 package com.example.dream_stream_bot.scheduling;
 
 import com.example.dream_stream_bot.service.consent.ConsentService;
+import com.example.dream_stream_bot.service.memory.ChatMemoryArchiveService;
+import com.example.dream_stream_bot.service.memory.ChatMemoryPartitionService;
 import com.example.dream_stream_bot.service.memory.ChatMemoryRetentionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,7 +10,8 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 /**
- * Ночное обслуживание: эскалация истёкшего grace по согласиям и retention для истории чатов.
+ * Ночное обслуживание: эскалация истёкшего grace по согласиям, retention для истории чатов
+ * месячные секции {@code chat_memory} и перенос неактивных разговоров в холодный архив.
  */
 @Component
 public class ScheduledMaintenance {
@@ -17,11 +20,24 @@ public class ScheduledMaintenance {
 
     private final ConsentService consentService;
     private final ChatMemoryRetentionService chatMemoryRetentionService;
+    private final ChatMemoryPartitionService chatMemoryPartitionService;
+    private final ChatMemoryArchiveService chatMemoryArchiveService;
 
     public ScheduledMaintenance(ConsentService consentService,
-                               ChatMemoryRetentionService chatMemoryRetentionService) {
+                               ChatMemoryRetentionService chatMemoryRetentionService,
+                               ChatMemoryPartitionService chatMemoryPartitionService,
+                               ChatMemoryArchiveService chatMemoryArchiveService) {
         this.consentService = consentService;
         this.chatMemoryRetentionService = chatMemoryRetentionService;
+        this.chatMemoryPartitionService = chatMemoryPartitionService;
+        this.chatMemoryArchiveService = chatMemoryArchiveService;
+    }
+
+    @Scheduled(cron = "0 5 3 * * *")
+    public void nightlyChatMemoryPartitions() {
+        ChatMemoryPartitionService.Result result = chatMemoryPartitionService.maintainPartitions();
+        LOGGER.info("🗓 Scheduled maintenance | chat_memory partitions created={} | dropped={} | moved_from_default={}",
+                result.created(), result.dropped(), result.movedFromDefault());
     }
 
     @Scheduled(cron = "0 15 3 * * *")
@@ -31,4 +47,11 @@ public class ScheduledMaintenance {
         LOGGER.info("🗓 Scheduled maintenance | blocked_consents={} | memory_rows_removed={}",
                 blocked, purged);
     }
+
+    @Scheduled(cron = "0 45 3 * * *")
+    public void nightlyChatMemoryArchive() {
+        ChatMemoryArchiveService.Result result = chatMemoryArchiveService.maintain();
+        LOGGER.info("🗓 Scheduled maintenance | chat_memory archived={} | archive_expired={}",
+                result.archived(), result.expired());
+    }
 }
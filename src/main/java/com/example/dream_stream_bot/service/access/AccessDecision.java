@@ -1,7 +1,5 @@
 package com.example.dream_stream_bot.service.access;
 
-import com.example.dream_stream_bot.model.subscription.SubscriptionEntity;
-
 /**
  * Результат проверки {@link AccessGate#evaluate}.
  * Несёт минимум информации, нужный боту для маршрутизации:
@@ -14,20 +12,20 @@ public final class AccessDecision {
     private final boolean allowed;
     private final AccessReason reason;
     private final String userMessage;
-    private final SubscriptionEntity subscription;
+    private final SubscriptionSnapshot subscription;
 
-    private AccessDecision(boolean allowed, AccessReason reason, String userMessage, SubscriptionEntity subscription) {
+    private AccessDecision(boolean allowed, AccessReason reason, String userMessage, SubscriptionSnapshot subscription) {
         this.allowed = allowed;
         this.reason = reason;
         this.userMessage = userMessage;
         this.subscription = subscription;
     }
 
-    public static AccessDecision allow(SubscriptionEntity subscription) {
+    public static AccessDecision allow(SubscriptionSnapshot subscription) {
         return new AccessDecision(true, AccessReason.ACTIVE, null, subscription);
     }
 
-    public static AccessDecision allowWithReminder(SubscriptionEntity subscription, AccessReason reason, String reminderText) {
+    public static AccessDecision allowWithReminder(SubscriptionSnapshot subscription, AccessReason reason, String reminderText) {
         return new AccessDecision(true, reason, reminderText, subscription);
     }
 
@@ -42,7 +40,7 @@ public final class AccessDecision {
     public boolean isAllowed() { return allowed; }
     public AccessReason getReason() { return reason; }
     public String getUserMessage() { return userMessage; }
-    public SubscriptionEntity getSubscription() { return subscription; }
+    public SubscriptionSnapshot getSubscription() { return subscription; }
 
     /** Если true — заглушку отправлять нужно (если ещё не отправляли в этом окне). */
     public boolean hasUserMessage() {
@@ -1,16 +1,13 @@
 package com.example.dream_stream_bot.service.access;
 
 import com.example.dream_stream_bot.bot.command.ChatScope;
-import com.example.dream_stream_bot.model.subscription.SubscriptionEntity;
 import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
-import com.example.dream_stream_bot.model.subscription.SubscriptionTariffEntity;
-import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
-import com.example.dream_stream_bot.model.subscription.TariffAccessMode;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
 import com.example.dream_stream_bot.model.user.UserEntity;
 import com.example.dream_stream_bot.service.consent.ConsentService;
+import com.example.dream_stream_bot.service.consent.ConsentVerdict;
 import com.example.dream_stream_bot.service.subscription.OwnerParticipantLimitNotifier;
-import com.example.dream_stream_bot.service.subscription.SubscriptionParticipantService;
+import com.example.dream_stream_bot.service.subscription.ParticipantActivityTracker;
 import com.example.dream_stream_bot.service.subscription.SubscriptionService;
 import com.example.dream_stream_bot.service.user.UserService;
 import org.slf4j.Logger;
@@ -19,17 +16,18 @@ import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.objects.Message;
 
 import java.time.OffsetDateTime;
-import java.time.ZoneId;
 import java.util.Optional;
 
 /**
  * Единая точка проверки доступа сообщения к {@code MessageHandlerService}.
+ *
+ * Подписки и вердикт согласий читаются через {@link EntitlementCache},
+ * поэтому повторные сообщения проверяются без обращения к БД.
  */
 @Service
 public class AccessGate {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AccessGate.class);
-    private static final ZoneId MOSKOW = ZoneId.of("Europe/Moscow");
 
     private static final String STUB_NO_SUB_PERSONAL =
             "🔒 Подписка не активирована. Нажмите /start, чтобы пройти онбординг и активировать триал.";
@@ -49,27 +47,27 @@ public class AccessGate {
             "⏳ Групповая подписка создана, но ещё не активирована администратором. Владелец получит уведомление после вашей оплаты/активации.";
 
     private final SubscriptionService subscriptionService;
-    private final SubscriptionParticipantService participantService;
+    private final ParticipantActivityTracker participantActivityTracker;
     private final UserService userService;
     private final GroupTriggerMatcher triggerMatcher;
     private final ConsentService consentService;
     private final OwnerParticipantLimitNotifier ownerParticipantLimitNotifier;
-    private final SubscriptionTariffRepository subscriptionTariffRepository;
+    private final EntitlementCache entitlementCache;
 
     public AccessGate(SubscriptionService subscriptionService,
-                      SubscriptionParticipantService participantService,
+                      ParticipantActivityTracker participantActivityTracker,
                       UserService userService,
                       GroupTriggerMatcher triggerMatcher,
                       ConsentService consentService,
                       OwnerParticipantLimitNotifier ownerParticipantLimitNotifier,
-                      SubscriptionTariffRepository subscriptionTariffRepository) {
+                      EntitlementCache entitlementCache) {
         this.subscriptionService = subscriptionService;
-        this.participantService = participantService;
+        this.participantActivityTracker = participantActivityTracker;
         this.userService = userService;
         this.triggerMatcher = triggerMatcher;
         this.consentService = consentService;
         this.ownerParticipantLimitNotifier = ownerParticipantLimitNotifier;
-        this.subscriptionTariffRepository = subscriptionTariffRepository;
+        this.entitlementCache = entitlementCache;
     }
 
     public AccessDecision evaluate(BotEntity bot, Message message, ChatScope scope, String botUsername) {
@@ -94,11 +92,13 @@ public class AccessGate {
         if (telegramUserId == null) {
             return AccessDecision.deny(AccessReason.UNSUPPORTED_CHAT);
         }
-        Optional<UserEntity> user = userService.findByTelegramId(telegramUserId);
+        Optional<Long> user = findAppUserId(telegramUserId);
         if (user.isEmpty()) {
             return AccessDecision.deny(AccessReason.NO_SUBSCRIPTION, STUB_NO_SUB_PERSONAL);
         }
-        Optional<SubscriptionEntity> sub = subscriptionService.findPersonal(bot.getId(), user.get().getId());
+        Long appUserId = user.get();
+        Optional<SubscriptionSnapshot> sub = entitlementCache.personal(bot.getId(), appUserId,
+                () -> subscriptionService.findPersonal(bot.getId(), appUserId).map(SubscriptionSnapshot::of));
         if (sub.isEmpty()) {
             return AccessDecision.deny(AccessReason.NO_SUBSCRIPTION, STUB_NO_SUB_PERSONAL);
         }
@@ -106,7 +106,7 @@ public class AccessGate {
         if (!decision.isAllowed()) {
             return decision;
         }
-        if (!consentService.hasRequiredConsents(bot, user.get().getId())) {
+        if (!consentVerdict(bot, appUserId).accessGranted()) {
             return AccessDecision.deny(AccessReason.PENDING_CONSENT, STUB_PENDING);
         }
         return decision;
@@ -116,11 +116,13 @@ public class AccessGate {
         if (!triggerMatcher.isAddressedToBot(bot, message, botUsername)) {
             return AccessDecision.deny(AccessReason.GROUP_TRIGGER_NOT_MATCHED);
         }
-        Optional<SubscriptionEntity> sub = subscriptionService.findGroup(bot.getId(), message.getChatId());
+        Long chatId = message.getChatId();
+        Optional<SubscriptionSnapshot> sub = entitlementCache.group(bot.getId(), chatId,
+                () -> subscriptionService.findGroup(bot.getId(), chatId).map(SubscriptionSnapshot::of));
         if (sub.isEmpty()) {
             return AccessDecision.deny(AccessReason.NO_SUBSCRIPTION, STUB_NO_SUB_GROUP);
         }
-        SubscriptionEntity subscription = sub.get();
+        SubscriptionSnapshot subscription = sub.get();
         AccessDecision base = evaluateSubscriptionStatus(subscription);
         if (!base.isAllowed()) {
             return base;
@@ -130,83 +132,77 @@ public class AccessGate {
         if (telegramUserId == null) {
             return AccessDecision.deny(AccessReason.UNSUPPORTED_CHAT);
         }
-        Optional<UserEntity> participant = userService.findByTelegramId(telegramUserId);
+        Optional<Long> participant = findAppUserId(telegramUserId);
         if (participant.isEmpty()) {
             return AccessDecision.deny(AccessReason.UNSUPPORTED_CHAT);
         }
-        Long appUserId = participant.get().getId();
-        boolean consentOk = subscription.getOwnerUserId().equals(appUserId)
-                ? consentService.hasRequiredConsents(bot, appUserId)
-                : consentService.hasParticipantConsents(bot, appUserId);
-        if (!consentOk) {
+        Long appUserId = participant.get();
+        // Владельцу и участнику нужны одни и те же согласия: оферту принимают при покупке.
+        if (!consentVerdict(bot, appUserId).accessGranted()) {
             String deeplink = "Откройте бота в личке: https://t.me/" + botUsername
-                    + "?start=group_consent_" + subscription.getId();
+                    + "?start=group_consent_" + subscription.id();
             return AccessDecision.deny(AccessReason.PENDING_CONSENT,
                     "📝 Чтобы бот мог ответить вам в этой группе, подтвердите согласия в личке.\n" + deeplink);
         }
 
-        participantService.touch(subscription.getId(), telegramUserId);
+        long active = participantActivityTracker.touch(subscription.id(), telegramUserId);
 
-        Integer max = subscription.getMaxParticipants();
+        Integer max = subscription.maxParticipants();
         if (max != null && max > 0) {
-            OffsetDateTime monthStart = firstDayOfCalendarMonthUtc();
-            long active = participantService.countActiveSince(subscription.getId(), monthStart);
             long hardCeiling = Math.round(Math.ceil(max * 1.3));
             LOGGER.debug("Participants | sub={} | active_since_month={} | max={} | hard={}",
-                    subscription.getId(), active, max, hardCeiling);
+                    subscription.id(), active, max, hardCeiling);
             if (active > hardCeiling) {
                 return AccessDecision.deny(AccessReason.PARTICIPANT_LIMIT_HARD, STUB_LIMIT_HARD);
             }
             if (active > max) {
-                ownerParticipantLimitNotifier.notifySoftLimitExceeded(bot, subscription, active, max);
+                ownerParticipantLimitNotifier.notifySoftLimitExceeded(bot, subscription.scopeChatId(),
+                        subscription.ownerUserId(), active, max);
                 LOGGER.warn("Group {} subscription #{} exceeds soft participant cap ({} > {})",
-                        message.getChatId(), subscription.getId(), active, max);
+                        chatId, subscription.id(), active, max);
             }
         }
 
         return base;
     }
 
-    private AccessDecision evaluateSubscriptionStatus(SubscriptionEntity sub) {
-        return switch (sub.getStatus()) {
+    private Optional<Long> findAppUserId(Long telegramUserId) {
+        return entitlementCache.appUserId(telegramUserId,
+                () -> userService.findByTelegramId(telegramUserId).map(UserEntity::getId));
+    }
+
+    private ConsentVerdict consentVerdict(BotEntity bot, Long appUserId) {
+        return entitlementCache.consents(bot.getId(), appUserId,
+                () -> consentService.verdictForBot(bot.getId(), appUserId));
+    }
+
+    private AccessDecision evaluateSubscriptionStatus(SubscriptionSnapshot sub) {
+        return switch (sub.status()) {
             case AWAITING_ACTIVATION -> AccessDecision.deny(AccessReason.NO_SUBSCRIPTION, STUB_AWAITING_ACTIVATION);
             case PENDING_CONSENT -> AccessDecision.deny(AccessReason.PENDING_CONSENT, STUB_PENDING);
             case CANCELLED -> AccessDecision.deny(AccessReason.CANCELLED, STUB_CANCELLED);
             case BLOCKED_CONSENT -> AccessDecision.deny(AccessReason.BLOCKED_CONSENT, STUB_BLOCKED_CONSENT);
             case EXPIRED -> AccessDecision.deny(AccessReason.EXPIRED, STUB_EXPIRED);
+            // По окончании периода SubscriptionExpiryScheduler переводит подписку в EXPIRED. Срок в снимке
+            // всё равно сверяется: кэш другого инстанса или отложенный повтор перевода не дают лишнего доступа.
             case TRIAL, ACTIVE -> {
-                Optional<SubscriptionTariffEntity> tariffOpt = subscriptionTariffRepository.findById(sub.getTariffId());
-                if (tariffOpt.isPresent()
-                        && tariffOpt.get().getAccessMode() == TariffAccessMode.FREE_UNLIMITED
-                        && sub.getStatus() == SubscriptionStatus.ACTIVE) {
-                    if (sub.getRequiresConsentReacceptanceUntil() != null
-                            && sub.getRequiresConsentReacceptanceUntil().isAfter(OffsetDateTime.now())) {
-                        yield AccessDecision.allowWithReminder(sub, AccessReason.CONSENT_GRACE,
-                                "📝 Условия обновились — подтвердите принятие новой версии до "
-                                        + sub.getRequiresConsentReacceptanceUntil().toLocalDate());
-                    }
-                    yield AccessDecision.allow(sub);
+                // Без срока доступ даёт только безлимит — его activateFreeUnlimited хранит как ACTIVE без expires_at.
+                if (sub.expiresAt() == null && sub.status() != SubscriptionStatus.ACTIVE) {
+                    LOGGER.info("Subscription #{} status={} has no expiry", sub.id(), sub.status());
+                    yield AccessDecision.deny(AccessReason.EXPIRED, STUB_EXPIRED);
                 }
-
-                OffsetDateTime expiresAt = sub.getExpiresAt();
-                if (expiresAt == null || !expiresAt.isAfter(OffsetDateTime.now())) {
-                    LOGGER.info("Subscription #{} status={} but expired at {}", sub.getId(), sub.getStatus(), expiresAt);
+                if (sub.expiresAt() != null && !sub.expiresAt().isAfter(OffsetDateTime.now())) {
+                    LOGGER.info("Subscription #{} status={} but expired at {}", sub.id(), sub.status(), sub.expiresAt());
                     yield AccessDecision.deny(AccessReason.EXPIRED, STUB_EXPIRED);
                 }
-                if (sub.getRequiresConsentReacceptanceUntil() != null
-                        && sub.getRequiresConsentReacceptanceUntil().isAfter(OffsetDateTime.now())) {
+                if (sub.requiresConsentReacceptanceUntil() != null
+                        && sub.requiresConsentReacceptanceUntil().isAfter(OffsetDateTime.now())) {
                     yield AccessDecision.allowWithReminder(sub, AccessReason.CONSENT_GRACE,
                             "📝 Условия обновились — подтвердите принятие новой версии до "
-                                    + sub.getRequiresConsentReacceptanceUntil().toLocalDate());
+                                    + sub.requiresConsentReacceptanceUntil().toLocalDate());
                 }
                 yield AccessDecision.allow(sub);
             }
         };
     }
-
-    private static OffsetDateTime firstDayOfCalendarMonthUtc() {
-        OffsetDateTime now = OffsetDateTime.now(MOSKOW);
-        OffsetDateTime first = now.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
-        return first;
-    }
 }
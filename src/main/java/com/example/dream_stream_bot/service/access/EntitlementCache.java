@@ -0,0 +1,148 @@
+package com.example.dream_stream_bot.service.access;
+
+import com.example.dream_stream_bot.config.properties.AccessProperties;
+import com.example.dream_stream_bot.service.consent.ConsentVerdict;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш прав доступа для {@link AccessGate}: telegram id → пользователь, подписка по
+ * {@code (botId, userId)} и {@code (botId, chatId)} со способом доступа тарифа, вердикт согласий.
+ * Пока ничего не менялось, проверка сообщения обходится без запросов к БД.
+ *
+ * Записи сбрасываются по {@link EntitlementsChangedEvent} после коммита. Значение, прочитанное
+ * из БД до сброса, в кэш не попадает — за этим следит счётчик поколений.
+ */
+@Component
+public class EntitlementCache {
+
+    private record BotUser(Long botId, Long userId) {
+    }
+
+    private record BotChat(Long botId, Long chatId) {
+    }
+
+    private final boolean enabled;
+    private final Cache<Long, Long> users;
+    private final Cache<BotUser, Optional<SubscriptionSnapshot>> personal;
+    private final Cache<BotChat, Optional<SubscriptionSnapshot>> groups;
+    private final Cache<BotUser, ConsentVerdict> consents;
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    public EntitlementCache(AccessProperties accessProperties, MeterRegistry meterRegistry) {
+        AccessProperties.EntitlementCache properties = accessProperties.getEntitlementCache();
+        this.enabled = properties.isEnabled();
+        this.users = newCache(properties);
+        this.personal = newCache(properties);
+        this.groups = newCache(properties);
+        this.consents = newCache(properties);
+        this.hits = Counter.builder("access.entitlement.cache.requests")
+                .description("Проверки доступа, ответ на которые взят из кэша")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("access.entitlement.cache.requests")
+                .description("Проверки доступа, ушедшие в БД")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    private static <K, V> Cache<K, V> newCache(AccessProperties.EntitlementCache properties) {
+        return Caffeine.newBuilder()
+                .maximumSize(Math.max(1, properties.getMaxEntries()))
+                .expireAfterWrite(Math.max(1, properties.getTtlSeconds()), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /** Id пользователя приложения по telegram id; отсутствие пользователя не кэшируется. */
+    public Optional<Long> appUserId(Long telegramUserId, Supplier<Optional<Long>> loader) {
+        Long cached = enabled ? users.getIfPresent(telegramUserId) : null;
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        return load(users, telegramUserId, () -> loader.get().orElse(null));
+    }
+
+    /** Личная подписка пользователя на бот. */
+    public Optional<SubscriptionSnapshot> personal(Long botId, Long appUserId,
+                                                   Supplier<Optional<SubscriptionSnapshot>> loader) {
+        return lookup(personal, new BotUser(botId, appUserId), loader);
+    }
+
+    /** Групповая подписка чата на бот. */
+    public Optional<SubscriptionSnapshot> group(Long botId, Long chatId,
+                                                Supplier<Optional<SubscriptionSnapshot>> loader) {
+        return lookup(groups, new BotChat(botId, chatId), loader);
+    }
+
+    /** Вердикт по согласиям пользователя на боте. */
+    public ConsentVerdict consents(Long botId, Long appUserId, Supplier<ConsentVerdict> loader) {
+        return lookup(consents, new BotUser(botId, appUserId), loader);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntitlementsChanged(EntitlementsChangedEvent event) {
+        generation.incrementAndGet();
+        Long botId = event.botId();
+        Long userId = event.userId();
+        if (botId == null && userId == null) {
+            users.invalidateAll();
+            personal.invalidateAll();
+            groups.invalidateAll();
+            consents.invalidateAll();
+            return;
+        }
+        personal.asMap().keySet().removeIf(k -> matches(botId, k.botId()) && matches(userId, k.userId()));
+        consents.asMap().keySet().removeIf(k -> matches(botId, k.botId()) && matches(userId, k.userId()));
+        groups.asMap().entrySet().removeIf(e -> matches(botId, e.getKey().botId())
+                && (userId == null || e.getValue().map(s -> userId.equals(s.ownerUserId())).orElse(false)));
+        if (userId != null) {
+            users.asMap().values().removeIf(userId::equals);
+        }
+    }
+
+    private static boolean matches(Long expected, Long actual) {
+        return expected == null || Objects.equals(expected, actual);
+    }
+
+    private <K, V> V lookup(Cache<K, V> cache, K key, Supplier<V> loader) {
+        V cached = enabled ? cache.getIfPresent(key) : null;
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        return load(cache, key, loader).orElseThrow();
+    }
+
+    private <K, V> Optional<V> load(Cache<K, V> cache, K key, Supplier<V> loader) {
+        if (!enabled) {
+            return Optional.ofNullable(loader.get());
+        }
+        misses.increment();
+        long seen = generation.get();
+        V loaded = loader.get();
+        if (loaded != null) {
+            cache.put(key, loaded);
+            // Сброс мог пройти, пока читали БД: тогда прочитанное могло устареть.
+            if (generation.get() != seen) {
+                cache.invalidate(key);
+            }
+        }
+        return Optional.ofNullable(loaded);
+    }
+}
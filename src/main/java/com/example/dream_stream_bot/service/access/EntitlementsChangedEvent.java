@@ -0,0 +1,27 @@
+package com.example.dream_stream_bot.service.access;
+
+/**
+ * Изменились подписки, тарифы или согласия, от которых зависит решение {@link AccessGate}.
+ * Слушатель — {@link EntitlementCache}, получает событие после коммита транзакции.
+ *
+ * @param botId  бот, {@code null} — все боты
+ * @param userId id пользователя приложения ({@code users.id}), {@code null} — все пользователи
+ */
+public record EntitlementsChangedEvent(Long botId, Long userId) {
+
+    public static EntitlementsChangedEvent all() {
+        return new EntitlementsChangedEvent(null, null);
+    }
+
+    public static EntitlementsChangedEvent bot(Long botId) {
+        return new EntitlementsChangedEvent(botId, null);
+    }
+
+    public static EntitlementsChangedEvent user(Long userId) {
+        return new EntitlementsChangedEvent(null, userId);
+    }
+
+    public static EntitlementsChangedEvent userOnBot(Long userId, Long botId) {
+        return new EntitlementsChangedEvent(botId, userId);
+    }
+}
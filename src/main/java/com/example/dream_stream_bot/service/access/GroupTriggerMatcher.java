@@ -1,10 +1,13 @@
 package com.example.dream_stream_bot.service.access;
 
+import com.example.dream_stream_bot.bot.BotRuntime;
+import com.example.dream_stream_bot.bot.BotRuntimeRegistry;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.objects.Message;
 
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Решает, адресовано ли сообщение боту в групповом чате.
@@ -12,10 +15,20 @@ import java.util.Locale;
  *  - это reply на сообщение бота;
  *  - текст содержит {@code @bot_username};
  *  - текст содержит имя бота, его alias или триггер-слово (например, {@code #сон}).
+ *
+ * Текстовые признаки проверяются одним проходом по {@link TriggerAutomaton} из снимка
+ * бота ({@link BotRuntime#addressTriggers()}), который пересобирается только при
+ * изменении бота.
  */
 @Component
 public class GroupTriggerMatcher {
 
+    private final BotRuntimeRegistry runtimeRegistry;
+
+    public GroupTriggerMatcher(BotRuntimeRegistry runtimeRegistry) {
+        this.runtimeRegistry = runtimeRegistry;
+    }
+
     public boolean isAddressedToBot(BotEntity bot, Message message, String botUsername) {
         if (message == null || message.getText() == null) {
             return false;
@@ -23,28 +36,34 @@ public class GroupTriggerMatcher {
         if (isReplyToBot(message, botUsername)) {
             return true;
         }
-        String lowerText = message.getText().toLowerCase(Locale.ROOT);
-        if (botUsername != null && !botUsername.isBlank()
-                && lowerText.contains("@" + botUsername.toLowerCase(Locale.ROOT))) {
-            return true;
-        }
-        if (bot == null) {
-            return false;
-        }
-        if (containsCaseInsensitive(lowerText, bot.getName())) {
-            return true;
+        return automatonFor(bot, botUsername).matches(message.getText());
+    }
+
+    /** Шаблоны обращения к боту: {@code @username}, алиасы из имени, триггер-слова. */
+    public static List<String> addressPatterns(BotEntity bot, String botUsername) {
+        List<String> patterns = new ArrayList<>();
+        if (botUsername != null && !botUsername.isBlank()) {
+            patterns.add("@" + botUsername);
         }
-        for (String alias : bot.getBotAliasesList()) {
-            if (containsCaseInsensitive(lowerText, alias)) {
-                return true;
-            }
+        if (bot != null) {
+            patterns.addAll(bot.getBotAliasesList());
+            patterns.addAll(bot.getBotTriggersList());
         }
-        for (String trigger : bot.getBotTriggersList()) {
-            if (containsCaseInsensitive(lowerText, trigger)) {
-                return true;
+        return patterns;
+    }
+
+    /**
+     * Автомат из снимка, если передана строка этого снимка (обычный путь апдейта);
+     * иначе — собранный на месте.
+     */
+    private TriggerAutomaton automatonFor(BotEntity bot, String botUsername) {
+        if (bot != null) {
+            BotRuntime runtime = runtimeRegistry.get(bot.getId());
+            if (runtime != null && runtime.entity() == bot && runtime.username().equals(botUsername)) {
+                return runtime.addressTriggers();
             }
         }
-        return false;
+        return TriggerAutomaton.compile(addressPatterns(bot, botUsername));
     }
 
     private static boolean isReplyToBot(Message message, String botUsername) {
@@ -54,9 +73,4 @@ public class GroupTriggerMatcher {
         String fromUsername = message.getReplyToMessage().getFrom().getUserName();
         return fromUsername != null && fromUsername.equalsIgnoreCase(botUsername);
     }
-
-    private static boolean containsCaseInsensitive(String lowerText, String needle) {
-        return needle != null && !needle.isEmpty()
-                && lowerText.contains(needle.toLowerCase(Locale.ROOT));
-    }
 }
@@ -0,0 +1,26 @@
+package com.example.dream_stream_bot.service.access;
+
+import com.example.dream_stream_bot.model.subscription.SubscriptionEntity;
+import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Неизменяемый срез подписки для {@link EntitlementCache}: всё, что нужно {@link AccessGate}.
+ * Сроки сравниваются с текущим временем при каждой проверке.
+ */
+public record SubscriptionSnapshot(Long id,
+                                   Long botId,
+                                   Long ownerUserId,
+                                   Long scopeChatId,
+                                   SubscriptionStatus status,
+                                   OffsetDateTime expiresAt,
+                                   OffsetDateTime requiresConsentReacceptanceUntil,
+                                   Integer maxParticipants) {
+
+    public static SubscriptionSnapshot of(SubscriptionEntity sub) {
+        return new SubscriptionSnapshot(sub.getId(), sub.getBotId(), sub.getOwnerUserId(), sub.getScopeChatId(),
+                sub.getStatus(), sub.getExpiresAt(), sub.getRequiresConsentReacceptanceUntil(),
+                sub.getMaxParticipants());
+    }
+}
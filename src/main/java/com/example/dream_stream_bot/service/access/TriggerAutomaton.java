@@ -0,0 +1,145 @@
+package com.example.dream_stream_bot.service.access;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Автомат Ахо — Корасик для поиска любой из подстрок без учёта регистра.
+ *
+ * Собирается один раз на набор шаблонов (алиасы, триггеры, {@code @username} бота)
+ * и проверяет текст за один линейный проход без копирования и {@code toLowerCase}
+ * всего сообщения. Неизменяемый, потокобезопасный.
+ */
+public final class TriggerAutomaton {
+
+    private static final int ROOT = 0;
+    private static final TriggerAutomaton EMPTY = new TriggerAutomaton(
+            new char[][]{new char[0]}, new int[][]{new int[0]}, new int[]{ROOT}, new boolean[]{false}, 0);
+
+    /** Символы переходов каждого состояния, по возрастанию. */
+    private final char[][] keys;
+    /** Целевые состояния, параллельно {@link #keys}. */
+    private final int[][] targets;
+    private final int[] fail;
+    /** Состояние завершает шаблон (само или по цепочке fail-ссылок). */
+    private final boolean[] accepting;
+    private final int patternCount;
+
+    private TriggerAutomaton(char[][] keys, int[][] targets, int[] fail, boolean[] accepting, int patternCount) {
+        this.keys = keys;
+        this.targets = targets;
+        this.fail = fail;
+        this.accepting = accepting;
+        this.patternCount = patternCount;
+    }
+
+    /** Пустые и {@code null} шаблоны пропускаются. */
+    public static TriggerAutomaton compile(Collection<String> patterns) {
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Boolean> terminal = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        terminal.add(false);
+        int count = 0;
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    terminal.add(false);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            terminal.set(state, true);
+            count++;
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+
+        int size = trie.size();
+        char[][] keys = new char[size][];
+        int[][] targets = new int[size][];
+        for (int s = 0; s < size; s++) {
+            Map<Character, Integer> children = trie.get(s);
+            keys[s] = new char[children.size()];
+            targets[s] = new int[children.size()];
+            int k = 0;
+            for (Map.Entry<Character, Integer> e : children.entrySet()) {
+                keys[s][k] = e.getKey();
+                targets[s][k] = e.getValue();
+                k++;
+            }
+        }
+
+        int[] fail = new int[size];
+        boolean[] accepting = new boolean[size];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int t : targets[ROOT]) {
+            fail[t] = ROOT;
+            accepting[t] = terminal.get(t);
+            queue.add(t);
+        }
+        // BFS: fail-ссылка всегда ведёт в менее глубокое, уже обработанное состояние.
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (int k = 0; k < keys[s].length; k++) {
+                char c = keys[s][k];
+                int t = targets[s][k];
+                int f = fail[s];
+                int next;
+                while ((next = step(keys, targets, f, c)) < 0 && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[t] = next < 0 ? ROOT : next;
+                accepting[t] = terminal.get(t) || accepting[fail[t]];
+                queue.add(t);
+            }
+        }
+        return new TriggerAutomaton(keys, targets, fail, accepting, count);
+    }
+
+    /** Есть ли в тексте хотя бы один шаблон (без учёта регистра). */
+    public boolean matches(CharSequence text) {
+        if (text == null || patternCount == 0) {
+            return false;
+        }
+        int state = ROOT;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = fold(text.charAt(i));
+            int next;
+            while ((next = step(keys, targets, state, c)) < 0 && state != ROOT) {
+                state = fail[state];
+            }
+            state = next < 0 ? ROOT : next;
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int patternCount() {
+        return patternCount;
+    }
+
+    private static int step(char[][] keys, int[][] targets, int state, char c) {
+        int idx = Arrays.binarySearch(keys[state], c);
+        return idx >= 0 ? targets[state][idx] : -1;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+}
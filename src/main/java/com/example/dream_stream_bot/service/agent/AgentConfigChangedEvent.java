@@ -0,0 +1,8 @@
+package com.example.dream_stream_bot.service.agent;
+
+/**
+ * Конфигурация агента изменена или удалена. Публикуется {@link AgentConfigService};
+ * слушатели получают его после коммита транзакции.
+ */
+public record AgentConfigChangedEvent(Long agentConfigId) {
+}
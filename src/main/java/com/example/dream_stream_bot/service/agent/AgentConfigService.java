@@ -7,6 +7,7 @@ import com.example.dream_stream_bot.model.agent.AgentRole;
 import com.example.dream_stream_bot.model.agent.DataLocality;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,10 +22,13 @@ public class AgentConfigService {
 
     private final AgentConfigRepository agentConfigRepository;
     private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public AgentConfigService(AgentConfigRepository agentConfigRepository, CacheManager cacheManager) {
+    public AgentConfigService(AgentConfigRepository agentConfigRepository, CacheManager cacheManager,
+                              ApplicationEventPublisher eventPublisher) {
         this.agentConfigRepository = agentConfigRepository;
         this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
     }
 
     @Cacheable(value = CACHE_NAME, key = "#id", unless = "#result == null")
@@ -45,6 +49,7 @@ public class AgentConfigService {
     public AgentConfigEntity save(AgentConfigEntity entity) {
         AgentConfigEntity saved = agentConfigRepository.save(entity);
         evictCache(saved.getId());
+        eventPublisher.publishEvent(new AgentConfigChangedEvent(saved.getId()));
         return saved;
     }
 
@@ -52,6 +57,7 @@ public class AgentConfigService {
     public void deleteById(Long id) {
         agentConfigRepository.deleteById(id);
         evictCache(id);
+        eventPublisher.publishEvent(new AgentConfigChangedEvent(id));
     }
 
     /**
@@ -83,7 +89,11 @@ public class AgentConfigService {
             Double frequencyPenalty,
             Double presencePenalty,
             String systemPrompt,
-            Integer memWindow) {
+            Integer memWindow,
+            Integer summarizeAfterTokens,
+            Integer summaryKeepMessages,
+            Integer contextTokenBudget,
+            Integer replyTokenReserve) {
         return agentConfigRepository.findById(id)
                 .map(entity -> {
                     entity.setName(name);
@@ -100,6 +110,10 @@ public class AgentConfigService {
                     entity.setPresencePenalty(presencePenalty);
                     entity.setSystemPrompt(systemPrompt);
                     entity.setMemWindow(memWindow != null ? memWindow : 100);
+                    entity.setSummarizeAfterTokens(summarizeAfterTokens);
+                    entity.setSummaryKeepMessages(summaryKeepMessages != null ? summaryKeepMessages : 20);
+                    entity.setContextTokenBudget(contextTokenBudget);
+                    entity.setReplyTokenReserve(replyTokenReserve != null ? replyTokenReserve : 1024);
                     return save(entity);
                 })
                 .orElse(null);
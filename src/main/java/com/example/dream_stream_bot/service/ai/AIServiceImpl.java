@@ -2,6 +2,9 @@ package com.example.dream_stream_bot.service.ai;
 
 import com.example.dream_stream_bot.model.agent.AgentConfigEntity;
 import com.example.dream_stream_bot.model.agent.AgentProvider;
+import com.example.dream_stream_bot.service.memory.ChatMemoryCompactionService;
+import com.example.dream_stream_bot.service.memory.ContextBudget;
+import com.example.dream_stream_bot.service.memory.WindowedChatMemory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
@@ -17,15 +20,16 @@ public class AIServiceImpl implements AIService {
     private static final Logger logger = LoggerFactory.getLogger(AIServiceImpl.class);
 
     private static final String CHAT_MEMORY_CONVERSATION_ID_KEY = "conversation-id";
-    private static final String CHAT_MEMORY_RETRIEVE_SIZE_KEY = "chat-memory-retrieve-size";
 
     private final ChatClient chatClient;
     private final ChatMemory chatMemory;
+    private final ChatMemoryCompactionService compactionService;
 
     @Autowired
-    public AIServiceImpl(ChatClient chatClient, ChatMemory chatMemory) {
+    public AIServiceImpl(ChatClient chatClient, ChatMemory chatMemory, ChatMemoryCompactionService compactionService) {
         this.chatClient = chatClient;
         this.chatMemory = chatMemory;
+        this.compactionService = compactionService;
     }
 
     @Override
@@ -40,32 +44,42 @@ public class AIServiceImpl implements AIService {
         logger.debug("\uD83E\uDD16 AI Request | Using conversation_id key: '{}' | Value: '{}'",
                 CHAT_MEMORY_CONVERSATION_ID_KEY, conversationId);
 
-        PromptChatMemoryAdvisor advisor = PromptChatMemoryAdvisor.builder(chatMemory)
+        // Advisor в Spring AI 1.0 не передаёт размер окна в ChatMemory.get — окно задаёт обёртка памяти,
+        // и из БД читается только хвост разговора.
+        int retrieveSize = agentConfig.getMemWindow() != null ? agentConfig.getMemWindow() : 100;
+        int historyBudget = historyTokenBudget(agentConfig, userMessage);
+        ChatMemory memory = chatMemory instanceof WindowedChatMemory windowed
+                ? windowed.window(retrieveSize, historyBudget)
+                : chatMemory;
+        PromptChatMemoryAdvisor advisor = PromptChatMemoryAdvisor.builder(memory)
                 .conversationId(conversationId)
                 .build();
 
-        int retrieveSize = agentConfig.getMemWindow() != null ? agentConfig.getMemWindow() : 100;
         OpenAiChatOptions.Builder optionsBuilder = OpenAiChatOptions.builder()
                 .model(agentConfig.getModel());
         applySamplingOptions(optionsBuilder, agentConfig);
 
         String response;
-        try {
-            response = callModel(conversationId, userMessage, agentConfig, advisor, retrieveSize, optionsBuilder.build());
-        } catch (RuntimeException e) {
-            if (!isUnsupportedSamplingOption(e)) {
-                throw e;
+        // Реплика пользователя и ответ модели записываются в память одним INSERT при закрытии хода.
+        try (WindowedChatMemory.Turn ignored = chatMemory instanceof WindowedChatMemory windowed
+                ? windowed.beginTurn(conversationId)
+                : () -> { }) {
+            try {
+                response = callModel(userMessage, agentConfig, advisor, optionsBuilder.build());
+            } catch (RuntimeException e) {
+                if (!isUnsupportedSamplingOption(e)) {
+                    throw e;
+                }
+                logger.warn("\uD83E\uDD16 AI Request | Model '{}' rejected custom sampling options; retrying with explicit OpenAI defaults",
+                        agentConfig.getModel(), e);
+                response = callModel(
+                        userMessage,
+                        agentConfig,
+                        advisor,
+                        defaultSamplingOptions(agentConfig.getModel()));
             }
-            logger.warn("\uD83E\uDD16 AI Request | Model '{}' rejected custom sampling options; retrying with explicit OpenAI defaults",
-                    agentConfig.getModel(), e);
-            response = callModel(
-                    conversationId,
-                    userMessage,
-                    agentConfig,
-                    advisor,
-                    retrieveSize,
-                    defaultSamplingOptions(agentConfig.getModel()));
         }
+        compactionService.compactLater(conversationId, agentConfig);
         logger.info("\uD83E\uDD16 AI Response | Conversation: {} | Length: {} chars",
                 conversationId, response.length());
         logger.debug("\uD83E\uDD16 AI Response content | Conversation: {} | Text: '{}'",
@@ -73,6 +87,22 @@ public class AIServiceImpl implements AIService {
         return response;
     }
 
+    /**
+     * Сколько токенов может занять история: бюджет агента за вычетом system prompt, текущей реплики
+     * и резерва под ответ. Без бюджета — {@link ContextBudget#UNLIMITED}, работает только окно {@code mem_window}.
+     */
+    static int historyTokenBudget(AgentConfigEntity agentConfig, String userMessage) {
+        Integer budget = agentConfig.getContextTokenBudget();
+        if (budget == null) {
+            return ContextBudget.UNLIMITED;
+        }
+        int reserve = agentConfig.getReplyTokenReserve() != null ? agentConfig.getReplyTokenReserve() : 0;
+        int fixed = TokenEstimator.estimateMessage(agentConfig.getSystemPrompt())
+                + TokenEstimator.estimateMessage(userMessage)
+                + reserve;
+        return Math.max(0, budget - fixed);
+    }
+
     private String truncateText(String text, int maxLength) {
         if (text == null) {
             return null;
@@ -95,16 +125,13 @@ public class AIServiceImpl implements AIService {
         }
     }
 
-    private String callModel(String conversationId,
-                             String userMessage,
+    private String callModel(String userMessage,
                              AgentConfigEntity agentConfig,
                              PromptChatMemoryAdvisor advisor,
-                             int retrieveSize,
                              OpenAiChatOptions options) {
         return chatClient.prompt()
                 .options(options)
                 .advisors(advisor)
-                .advisors(a -> a.param(CHAT_MEMORY_RETRIEVE_SIZE_KEY, retrieveSize))
                 .system(agentConfig.getSystemPrompt() != null ? agentConfig.getSystemPrompt() : "")
                 .user(userMessage)
                 .call()
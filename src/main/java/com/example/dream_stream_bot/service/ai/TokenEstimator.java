@@ -0,0 +1,39 @@
+package com.example.dream_stream_bot.service.ai;
+
+/**
+ * Грубая оценка числа токенов без токенайзера модели.
+ *
+ * Для BPE-словарей OpenAI латиница даёт около 4 символов на токен, кириллица и прочие
+ * не-ASCII символы — около 2. На каждое сообщение добавляются служебные токены разметки роли.
+ * Оценка нужна для порогов сжатия и бюджета контекста, а не для биллинга.
+ */
+public final class TokenEstimator {
+
+    /** Служебные токены на одно сообщение чата (роль, разделители). */
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    private TokenEstimator() {
+    }
+
+    /** Оценка токенов в тексте. */
+    public static int estimate(CharSequence text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            if (text.charAt(i) < 0x80) {
+                ascii++;
+            } else {
+                other++;
+            }
+        }
+        return (ascii + 3) / 4 + (other + 1) / 2;
+    }
+
+    /** Оценка токенов одного сообщения чата вместе со служебными. */
+    public static int estimateMessage(CharSequence text) {
+        return estimate(text) + MESSAGE_OVERHEAD;
+    }
+}
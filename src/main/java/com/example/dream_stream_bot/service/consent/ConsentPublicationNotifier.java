@@ -1,5 +1,6 @@
 package com.example.dream_stream_bot.service.consent;
 
+import com.example.dream_stream_bot.bot.message.OutboundDispatcher;
 import com.example.dream_stream_bot.model.consent.ConsentDocumentEntity;
 import com.example.dream_stream_bot.model.consent.BotConsentBindingRepository;
 import com.example.dream_stream_bot.model.consent.BotConsentBindingEntity;
@@ -83,17 +84,19 @@ public class ConsentPublicationNotifier {
             String msg = "Опубликована новая версия документа «" + doc.getTitle() + "» (v" + doc.getVersion() + ").\n"
                     + "Откройте @" + un + " и при необходимости подтвердите согласия через /start.";
             Map<String, Object> markup = inlineOpenBotUrl(un);
-            telegramBotApiService.sendTextMessage(bot, owner.get().getTelegramId(), msg, markup);
+            telegramBotApiService.enqueueTextMessage(bot, owner.get().getTelegramId(), msg, markup,
+                    OutboundDispatcher.Priority.BROADCAST);
 
             if (subscriptionTariffService.isGroupTariff(sub.getTariffId()) && sub.getScopeChatId() != null) {
                 String gk = sub.getBotId() + ":" + sub.getScopeChatId();
                 if (groupNotified.add(gk)) {
                     String gtext = "Обновлена версия документа «" + doc.getTitle() + "». Участникам может потребоваться подтвердить согласия в личке с ботом.";
-                    telegramBotApiService.sendTextMessage(bot, sub.getScopeChatId(), gtext, null);
+                    telegramBotApiService.enqueueTextMessage(bot, sub.getScopeChatId(), gtext, null,
+                            OutboundDispatcher.Priority.BROADCAST);
                 }
             }
         }
-        LOGGER.info("📨 Consent publication notifications sent for {} v{}", doc.getCode(), doc.getVersion());
+        LOGGER.info("📨 Consent publication notifications queued for {} v{}", doc.getCode(), doc.getVersion());
     }
 
     private static Map<String, Object> inlineOpenBotUrl(String username) {
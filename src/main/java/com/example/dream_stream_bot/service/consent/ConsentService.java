@@ -12,9 +12,11 @@ import com.example.dream_stream_bot.model.subscription.SubscriptionEntity;
 import com.example.dream_stream_bot.model.subscription.SubscriptionRepository;
 import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
+import com.example.dream_stream_bot.service.access.EntitlementsChangedEvent;
 import com.example.dream_stream_bot.service.telegram.BotService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -50,6 +52,7 @@ public class ConsentService {
     private final TelegraphClient telegraphClient;
     private final BotService botService;
     private final ConsentPublicationNotifier publicationNotifier;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ConsentService(ConsentDocumentRepository documentRepository,
                           BotConsentBindingRepository botConsentBindingRepository,
@@ -57,7 +60,8 @@ public class ConsentService {
                           SubscriptionRepository subscriptionRepository,
                           TelegraphClient telegraphClient,
                           BotService botService,
-                          ConsentPublicationNotifier publicationNotifier) {
+                          ConsentPublicationNotifier publicationNotifier,
+                          ApplicationEventPublisher eventPublisher) {
         this.documentRepository = documentRepository;
         this.botConsentBindingRepository = botConsentBindingRepository;
         this.userConsentRepository = userConsentRepository;
@@ -65,6 +69,7 @@ public class ConsentService {
         this.telegraphClient = telegraphClient;
         this.botService = botService;
         this.publicationNotifier = publicationNotifier;
+        this.eventPublisher = eventPublisher;
     }
 
     public Optional<ConsentDocumentEntity> getCurrent(ConsentCode code) {
@@ -177,6 +182,7 @@ public class ConsentService {
         if (doc.getChangeType() == ConsentChangeType.MATERIAL) {
             triggerMaterialGraceForBot(botId);
         }
+        eventPublisher.publishEvent(EntitlementsChangedEvent.bot(botId));
         return saved;
     }
 
@@ -191,6 +197,7 @@ public class ConsentService {
             binding.setActive(false);
             botConsentBindingRepository.save(binding);
         }
+        eventPublisher.publishEvent(EntitlementsChangedEvent.bot(botId));
     }
 
     /**
@@ -303,6 +310,7 @@ public class ConsentService {
 
         if (saved.getChangeType() == ConsentChangeType.MATERIAL) {
             triggerMaterialGrace();
+            eventPublisher.publishEvent(EntitlementsChangedEvent.all());
         }
         LOGGER.info("📰 Published consent document | code={} | version={} | telegraph={}",
                 saved.getCode(), saved.getVersion(), saved.getExternalUrl());
@@ -329,12 +337,15 @@ public class ConsentService {
         entity.setChatId(chatId);
         entity.setTelegramMessageId(telegramMessageId);
         entity.setAcceptedVia(acceptedVia);
-        return userConsentRepository.save(entity);
+        UserConsentEntity saved = userConsentRepository.save(entity);
+        eventPublisher.publishEvent(EntitlementsChangedEvent.user(userId));
+        return saved;
     }
 
     @Transactional
     public int revokeAll(Long userId) {
         int n = userConsentRepository.revokeAllForUser(userId, OffsetDateTime.now());
+        eventPublisher.publishEvent(EntitlementsChangedEvent.user(userId));
         LOGGER.info("🗑 Revoked {} consents for user {}", n, userId);
         return n;
     }
@@ -348,6 +359,26 @@ public class ConsentService {
                 .isPresent();
     }
 
+    /**
+     * Все привязанные к боту коды и какие из них пользователь ещё не принял — одним запросом
+     * по привязкам и принятиям, без обхода кодов по одному.
+     */
+    public ConsentVerdict verdictForBot(Long botId, Long userId) {
+        if (botId == null || userId == null) {
+            return ConsentVerdict.NONE;
+        }
+        int required = 0;
+        int missing = 0;
+        for (Object[] row : botConsentBindingRepository.countAcceptancesByCode(botId, userId)) {
+            int bit = ConsentVerdict.bit((ConsentCode) row[0]);
+            required |= bit;
+            if (((Number) row[1]).longValue() == 0) {
+                missing |= bit;
+            }
+        }
+        return new ConsentVerdict(required, missing);
+    }
+
     /**
      * Согласия для доступа к боту. Оферта принимается отдельно в покупательском сценарии.
      */
@@ -355,12 +386,7 @@ public class ConsentService {
         if (bot == null || appUserId == null) {
             return false;
         }
-        for (ConsentCode code : requiredCodesForBot(bot.getId(), false)) {
-            if (!hasAcceptedActiveDocument(appUserId, bot.getId(), code)) {
-                return false;
-            }
-        }
-        return true;
+        return verdictForBot(bot.getId(), appUserId).accessGranted();
     }
 
     /**
@@ -370,12 +396,7 @@ public class ConsentService {
         if (bot == null || appUserId == null) {
             return false;
         }
-        for (ConsentCode code : requiredCodesForBot(bot.getId(), false)) {
-            if (!hasAcceptedActiveDocument(appUserId, bot.getId(), code)) {
-                return false;
-            }
-        }
-        return true;
+        return verdictForBot(bot.getId(), appUserId).accessGranted();
     }
 
     @Transactional
@@ -384,6 +405,7 @@ public class ConsentService {
             return 0;
         }
         int n = userConsentRepository.revokeLinkedToSubscriptionsOnBot(userId, botId, OffsetDateTime.now());
+        eventPublisher.publishEvent(EntitlementsChangedEvent.userOnBot(userId, botId));
         LOGGER.info("🗑 Revoked {} consent rows for user {} on bot {}", n, userId, botId);
         return n;
     }
@@ -397,6 +419,7 @@ public class ConsentService {
             return 0;
         }
         int n = userConsentRepository.deleteForUserOnBot(userId, botId);
+        eventPublisher.publishEvent(EntitlementsChangedEvent.userOnBot(userId, botId));
         LOGGER.info("🗑 Deleted {} consent rows for user {} on bot {}", n, userId, botId);
         return n;
     }
@@ -450,6 +473,7 @@ public class ConsentService {
     public int escalateExpiredConsents() {
         OffsetDateTime now = OffsetDateTime.now();
         int blocked = 0;
+        int cleared = 0;
         for (SubscriptionEntity sub : subscriptionRepository.findAll()) {
             OffsetDateTime until = sub.getRequiresConsentReacceptanceUntil();
             if (until == null || until.isAfter(now)) {
@@ -462,6 +486,7 @@ public class ConsentService {
             if (hasRequiredConsents(bot, sub.getOwnerUserId())) {
                 sub.setRequiresConsentReacceptanceUntil(null);
                 subscriptionRepository.save(sub);
+                cleared++;
                 continue;
             }
             sub.setStatus(SubscriptionStatus.BLOCKED_CONSENT);
@@ -469,6 +494,9 @@ public class ConsentService {
             subscriptionRepository.save(sub);
             blocked++;
         }
+        if (blocked + cleared > 0) {
+            eventPublisher.publishEvent(EntitlementsChangedEvent.all());
+        }
         if (blocked > 0) {
             LOGGER.warn("🚨 Escalated {} subscriptions to BLOCKED_CONSENT", blocked);
         }
@@ -0,0 +1,55 @@
+package com.example.dream_stream_bot.service.consent;
+
+import com.example.dream_stream_bot.model.consent.ConsentCode;
+
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Состояние согласий пользователя по боту: битовые маски (по {@link ConsentCode#ordinal()})
+ * кодов, привязанных к боту, и кодов, чья привязанная версия ещё не принята.
+ * Строится одним запросом в {@link ConsentService#verdictForBot(Long, Long)}.
+ */
+public record ConsentVerdict(int required, int missing) {
+
+    public static final ConsentVerdict NONE = new ConsentVerdict(0, 0);
+
+    private static final int OFFER = bit(ConsentCode.OFFER);
+
+    public static int bit(ConsentCode code) {
+        return 1 << code.ordinal();
+    }
+
+    public boolean isRequired(ConsentCode code) {
+        return (required & bit(code)) != 0;
+    }
+
+    public boolean isMissing(ConsentCode code) {
+        return (missing & bit(code)) != 0;
+    }
+
+    /** Согласия для доступа к боту приняты; оферта не учитывается — её принимают при покупке. */
+    public boolean accessGranted() {
+        return (missing & ~OFFER) == 0;
+    }
+
+    /** Первый из {@code order} код, который ещё не принят, или {@code null}. */
+    public ConsentCode firstMissing(List<ConsentCode> order) {
+        for (ConsentCode code : order) {
+            if (isMissing(code)) {
+                return code;
+            }
+        }
+        return null;
+    }
+
+    public EnumSet<ConsentCode> missingCodes() {
+        EnumSet<ConsentCode> codes = EnumSet.noneOf(ConsentCode.class);
+        for (ConsentCode code : ConsentCode.values()) {
+            if (isMissing(code)) {
+                codes.add(code);
+            }
+        }
+        return codes;
+    }
+}
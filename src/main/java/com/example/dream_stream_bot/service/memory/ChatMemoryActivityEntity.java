@@ -0,0 +1,45 @@
+package com.example.dream_stream_bot.service.memory;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Время последнего сообщения разговора. Пишет {@link ChatMemoryBatchWriter}, читает
+ * {@link ChatMemoryArchiveService}; удаления истории чистят строку через {@link ChatMemoryActivityRepository}.
+ */
+@Entity
+@Table(name = "chat_memory_activity")
+public class ChatMemoryActivityEntity {
+
+    @Id
+    @Column(name = "conversation_id", nullable = false)
+    private String conversationId;
+
+    @Column(name = "bot_id")
+    private Long botId;
+
+    @Column(name = "chat_id")
+    private Long chatId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "last_message_at", nullable = false)
+    private LocalDateTime lastMessageAt;
+
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+
+    public Long getBotId() { return botId; }
+    public void setBotId(Long botId) { this.botId = botId; }
+
+    public Long getChatId() { return chatId; }
+    public void setChatId(Long chatId) { this.chatId = chatId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(LocalDateTime lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+}
@@ -0,0 +1,40 @@
+package com.example.dream_stream_bot.service.memory;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Удаления {@code chat_memory_activity} вместе с историей — те же срезы, что у {@link ChatMemoryArchiveRepository}. */
+@Repository
+public interface ChatMemoryActivityRepository extends JpaRepository<ChatMemoryActivityEntity, String> {
+
+    @Modifying
+    @Query("delete from ChatMemoryActivityEntity a where a.botId = :botId and a.userId = :userId")
+    int deleteByBotIdAndUserId(@Param("botId") Long botId, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ChatMemoryActivityEntity a where a.botId = :botId and a.userId = :userId and a.chatId is null")
+    int deletePrivate(@Param("botId") Long botId, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ChatMemoryActivityEntity a where a.botId = :botId and a.chatId = :chatId")
+    int deleteByBotIdAndChatId(@Param("botId") Long botId, @Param("chatId") Long chatId);
+
+    @Modifying
+    @Query("delete from ChatMemoryActivityEntity a where a.botId = :botId")
+    int deleteByBotId(@Param("botId") Long botId);
+
+    @Modifying
+    @Query("delete from ChatMemoryActivityEntity a where a.conversationId like concat(:prefix, '%')")
+    int deleteByConversationIdStartingWith(@Param("prefix") String prefix);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ChatMemoryActivityEntity a where a.conversationId = :conversationId")
+    int deleteExact(@Param("conversationId") String conversationId);
+}
@@ -0,0 +1,58 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Формат сегмента {@code chat_memory_archive.payload}: JSON-массив сообщений разговора
+ * в порядке {@code message_index}, сжатый gzip. Повторяющийся текст диалога сжимается в разы.
+ */
+public class ChatMemoryArchiveCodec {
+
+    private static final TypeReference<List<Message>> MESSAGES = new TypeReference<>() {
+    };
+
+    /** Сообщение сегмента; {@code createdAt} — ISO-строка, как в {@link ChatMemoryJournal.Entry}. */
+    public record Message(int index, String role, String content, Integer telegramMessageId,
+                          Integer messageThreadId, String createdAt) {
+    }
+
+    /** Сжатый сегмент и размер JSON до сжатия. */
+    public record Segment(byte[] payload, long rawBytes) {
+    }
+
+    private final ObjectMapper objectMapper;
+
+    public ChatMemoryArchiveCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public Segment encode(List<Message> messages) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(messages);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            }
+            return new Segment(out.toByteArray(), json.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode chat memory archive segment", e);
+        }
+    }
+
+    public List<Message> decode(byte[] payload) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(gzip, MESSAGES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode chat memory archive segment", e);
+        }
+    }
+}
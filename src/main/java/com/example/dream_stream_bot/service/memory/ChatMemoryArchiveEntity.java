@@ -0,0 +1,67 @@
+package com.example.dream_stream_bot.service.memory;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/** Архивный сегмент разговора, см. {@link ChatMemoryArchiveService}. */
+@Entity
+@Table(name = "chat_memory_archive")
+public class ChatMemoryArchiveEntity {
+
+    @Id
+    @Column(name = "conversation_id", nullable = false)
+    private String conversationId;
+
+    @Column(name = "bot_id")
+    private Long botId;
+
+    @Column(name = "chat_id")
+    private Long chatId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "message_count", nullable = false)
+    private Integer messageCount;
+
+    @Column(name = "raw_bytes", nullable = false)
+    private Long rawBytes;
+
+    /** Сообщения разговора в формате {@link ChatMemoryArchiveCodec}. */
+    @Column(name = "payload", nullable = false, columnDefinition = "BYTEA")
+    private byte[] payload;
+
+    @Column(name = "last_message_at", nullable = false)
+    private LocalDateTime lastMessageAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt = LocalDateTime.now();
+
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+
+    public Long getBotId() { return botId; }
+    public void setBotId(Long botId) { this.botId = botId; }
+
+    public Long getChatId() { return chatId; }
+    public void setChatId(Long chatId) { this.chatId = chatId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Integer getMessageCount() { return messageCount; }
+    public void setMessageCount(Integer messageCount) { this.messageCount = messageCount; }
+
+    public Long getRawBytes() { return rawBytes; }
+    public void setRawBytes(Long rawBytes) { this.rawBytes = rawBytes; }
+
+    public byte[] getPayload() { return payload; }
+    public void setPayload(byte[] payload) { this.payload = payload; }
+
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    public void setLastMessageAt(LocalDateTime lastMessageAt) { this.lastMessageAt = lastMessageAt; }
+
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+}
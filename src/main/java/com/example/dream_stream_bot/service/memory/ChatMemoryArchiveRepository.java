@@ -0,0 +1,51 @@
+package com.example.dream_stream_bot.service.memory;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ChatMemoryArchiveRepository extends JpaRepository<ChatMemoryArchiveEntity, String> {
+
+    @Query("select coalesce(sum(a.messageCount), 0) from ChatMemoryArchiveEntity a where a.botId = :botId and a.userId = :userId")
+    long countMessagesByBotIdAndUserId(@Param("botId") Long botId, @Param("userId") Long userId);
+
+    /** Архив пользователя в рамках бота (личка + все группы). */
+    @Modifying
+    @Query("delete from ChatMemoryArchiveEntity a where a.botId = :botId and a.userId = :userId")
+    int deleteByBotIdAndUserId(@Param("botId") Long botId, @Param("userId") Long userId);
+
+    /** Архив личного разговора пользователя с ботом; вызов — отдельная транзакция, если её нет. */
+    @Transactional
+    @Modifying
+    @Query("delete from ChatMemoryArchiveEntity a where a.botId = :botId and a.userId = :userId and a.chatId is null")
+    int deletePrivate(@Param("botId") Long botId, @Param("userId") Long userId);
+
+    /** Архив группового чата (все топики и пользователи); вызов — отдельная транзакция, если её нет. */
+    @Transactional
+    @Modifying
+    @Query("delete from ChatMemoryArchiveEntity a where a.botId = :botId and a.chatId = :chatId")
+    int deleteByBotIdAndChatId(@Param("botId") Long botId, @Param("chatId") Long chatId);
+
+    @Modifying
+    @Query("delete from ChatMemoryArchiveEntity a where a.botId = :botId")
+    int deleteByBotId(@Param("botId") Long botId);
+
+    @Modifying
+    @Query("delete from ChatMemoryArchiveEntity a where a.conversationId like concat(:prefix, '%')")
+    int deleteByConversationIdStartingWith(@Param("prefix") String prefix);
+
+    @Modifying
+    @Query("delete from ChatMemoryArchiveEntity a where a.conversationId = :conversationId")
+    int deleteExact(@Param("conversationId") String conversationId);
+
+    /** Архивы разговоров, последнее сообщение которых старше {@code cutoff}. */
+    @Modifying
+    @Query("delete from ChatMemoryArchiveEntity a where a.lastMessageAt < :cutoff")
+    int deleteByLastMessageAtBefore(@Param("cutoff") LocalDateTime cutoff);
+}
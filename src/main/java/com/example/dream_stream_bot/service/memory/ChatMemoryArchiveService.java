@@ -0,0 +1,256 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.config.properties.ChatMemoryProperties;
+import com.example.dream_stream_bot.service.settings.SystemSettingsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Холодный архив истории: разговоры без новых сообщений дольше {@code app.chat-memory.archive.idle-days}
+ * переносятся из {@code chat_memory} в одну строку {@code chat_memory_archive} (сегмент
+ * {@link ChatMemoryArchiveCodec}). Когда пользователь возвращается, {@link #rehydrate(String)}
+ * возвращает сообщения в {@code chat_memory} с прежними индексами — {@link PostgresChatMemory}
+ * вызывает его перед чтением из БД и перед записью.
+ *
+ * Перенос и восстановление идут под той же advisory-блокировкой разговора, что и
+ * {@link ChatMemoryBatchWriter#append}, поэтому не пересекаются с дописыванием.
+ *
+ * Кандидаты на перенос берутся из {@code chat_memory_activity} по индексу времени последнего
+ * сообщения. Отсутствие архива кэшируется на {@code no-archive-cache-seconds}: разговор
+ * в архив попадает только после {@code idle-days} без сообщений, поэтому недавно проверенный
+ * разговор туда не уходит, а перенос этим инстансом сбрасывает запись сразу.
+ */
+@Service
+public class ChatMemoryArchiveService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatMemoryArchiveService.class);
+
+    private static final String IDLE_CONVERSATIONS_SQL =
+            "SELECT conversation_id FROM chat_memory_activity WHERE last_message_at < ? ORDER BY last_message_at LIMIT ?";
+    private static final String DELETE_ACTIVITY_SQL = "DELETE FROM chat_memory_activity WHERE conversation_id = ?";
+
+    /** Сообщений в одном INSERT при восстановлении (по 7 параметров на строку). */
+    private static final int REHYDRATE_BATCH = 1000;
+
+    /** Итог ночного прохода: перенесено в архив и удалено по предельному возрасту. */
+    public record Result(int archived, int expired) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PostgresChatMemoryRepository repository;
+    private final ChatMemoryArchiveRepository archiveRepository;
+    private final ChatMemoryBatchWriter batchWriter;
+    private final ChatMemoryWriteBehind writeBehind;
+    private final ChatMemoryTailCache tailCache;
+    private final SystemSettingsService systemSettingsService;
+    private final ChatMemoryArchiveCodec codec;
+    private final ChatMemoryProperties.Archive properties;
+    private final Counter archivedConversations;
+    private final Counter rehydratedConversations;
+    /** Разговоры, у которых недавно не нашлось архива: {@link #rehydrate} не ходит за ними в БД. */
+    private final Cache<String, Boolean> withoutArchive;
+
+    public ChatMemoryArchiveService(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    PostgresChatMemoryRepository repository,
+                                    ChatMemoryArchiveRepository archiveRepository,
+                                    ChatMemoryBatchWriter batchWriter,
+                                    ChatMemoryWriteBehind writeBehind,
+                                    ChatMemoryTailCache tailCache,
+                                    SystemSettingsService systemSettingsService,
+                                    ObjectMapper objectMapper,
+                                    ChatMemoryProperties chatMemoryProperties,
+                                    MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.repository = repository;
+        this.archiveRepository = archiveRepository;
+        this.batchWriter = batchWriter;
+        this.writeBehind = writeBehind;
+        this.tailCache = tailCache;
+        this.systemSettingsService = systemSettingsService;
+        this.codec = new ChatMemoryArchiveCodec(objectMapper);
+        this.properties = chatMemoryProperties.getArchive();
+        this.withoutArchive = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, properties.getNoArchiveCacheMaxEntries()))
+                .expireAfterWrite(Math.max(1, properties.getNoArchiveCacheSeconds()), TimeUnit.SECONDS)
+                .build();
+        this.archivedConversations = Counter.builder("chat.memory.archive.conversations")
+                .description("Разговоры, перенесённые в холодный архив")
+                .tag("action", "archived")
+                .register(meterRegistry);
+        this.rehydratedConversations = Counter.builder("chat.memory.archive.conversations")
+                .description("Разговоры, восстановленные из холодного архива")
+                .tag("action", "rehydrated")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ночной проход: удаляет архивы старше {@code CHAT_MEMORY_MAX_AGE_MONTHS} (если retention
+     * не бессрочный) и, если перенос включён, архивирует очередную порцию неактивных разговоров.
+     */
+    public Result maintain() {
+        int expired = 0;
+        int maxAgeMonths = systemSettingsService.isRetentionUnlimited() ? 0 : systemSettingsService.getChatMemoryMaxAgeMonths();
+        if (maxAgeMonths > 0) {
+            LocalDateTime cutoff = LocalDateTime.now().minusMonths(maxAgeMonths);
+            Integer deleted = transactionTemplate.execute(status -> archiveRepository.deleteByLastMessageAtBefore(cutoff));
+            expired = deleted != null ? deleted : 0;
+        }
+        if (!properties.isEnabled()) {
+            return new Result(0, expired);
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(Math.max(1, properties.getIdleDays()));
+        List<String> idle = jdbcTemplate.queryForList(IDLE_CONVERSATIONS_SQL, String.class,
+                Timestamp.valueOf(cutoff), Math.max(1, properties.getMaxConversationsPerRun()));
+        int archived = 0;
+        for (String conversationId : idle) {
+            try {
+                if (archive(conversationId, cutoff)) {
+                    archived++;
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("⚠️ Failed to archive conversation | conv={}: {}", conversationId, e.getMessage(), e);
+            }
+        }
+        LOGGER.info("🧊 Chat memory archive | archived={} | candidates={} | expired={}", archived, idle.size(), expired);
+        return new Result(archived, expired);
+    }
+
+    /** Переносит разговор в архив, если в нём нет сообщений новее {@code cutoff}. */
+    public boolean archive(String conversationId, LocalDateTime cutoff) {
+        writeBehind.flushAndEvict(conversationId::equals);
+        Boolean archived = transactionTemplate.execute(status -> archiveLocked(conversationId, cutoff));
+        if (!Boolean.TRUE.equals(archived)) {
+            return false;
+        }
+        withoutArchive.invalidate(conversationId);
+        tailCache.invalidate(conversationId);
+        archivedConversations.increment();
+        return true;
+    }
+
+    private boolean archiveLocked(String conversationId, LocalDateTime cutoff) {
+        batchWriter.lockConversation(conversationId);
+        List<ChatMemoryEntity> rows = repository.findByConversationIdOrderByMessageIndexAsc(conversationId);
+        LocalDateTime lastMessageAt = rows.stream()
+                .map(ChatMemoryEntity::getCreatedAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        if (lastMessageAt == null) {
+            // История удалена в обход архива (clear, стирание пользователя, срок хранения).
+            jdbcTemplate.update(DELETE_ACTIVITY_SQL, conversationId);
+            return false;
+        }
+        if (!lastMessageAt.isBefore(cutoff)) {
+            jdbcTemplate.update("UPDATE chat_memory_activity SET last_message_at = ? WHERE conversation_id = ?",
+                    Timestamp.valueOf(lastMessageAt), conversationId);
+            return false;
+        }
+
+        // Архив мог остаться от прошлого переноса, если строки дописали в обход восстановления.
+        ChatMemoryArchiveEntity archive = archiveRepository.findById(conversationId).orElse(null);
+        List<ChatMemoryArchiveCodec.Message> messages = new ArrayList<>();
+        Set<Integer> indexes = new HashSet<>();
+        if (archive != null) {
+            for (ChatMemoryArchiveCodec.Message m : codec.decode(archive.getPayload())) {
+                messages.add(m);
+                indexes.add(m.index());
+            }
+            if (archive.getLastMessageAt().isAfter(lastMessageAt)) {
+                lastMessageAt = archive.getLastMessageAt();
+            }
+        } else {
+            archive = new ChatMemoryArchiveEntity();
+            archive.setConversationId(conversationId);
+            ConversationKey key = ConversationKey.parse(conversationId);
+            archive.setBotId(key.botId());
+            archive.setChatId(key.chatId());
+            archive.setUserId(key.userId());
+        }
+        for (ChatMemoryEntity row : rows) {
+            if (indexes.add(row.getMessageIndex())) {
+                messages.add(new ChatMemoryArchiveCodec.Message(row.getMessageIndex(), row.getRole(), row.getContent(),
+                        row.getTelegramMessageId(), row.getMessageThreadId(),
+                        row.getCreatedAt() != null ? row.getCreatedAt().toString() : null));
+            }
+        }
+        messages.sort(Comparator.comparingInt(ChatMemoryArchiveCodec.Message::index));
+
+        ChatMemoryArchiveCodec.Segment segment = codec.encode(messages);
+        archive.setMessageCount(messages.size());
+        archive.setRawBytes(segment.rawBytes());
+        archive.setPayload(segment.payload());
+        archive.setLastMessageAt(lastMessageAt);
+        archive.setArchivedAt(LocalDateTime.now());
+        archiveRepository.save(archive);
+        repository.deleteAllByConversationId(conversationId);
+        jdbcTemplate.update(DELETE_ACTIVITY_SQL, conversationId);
+        LOGGER.debug("🧊 Archived conversation | conv={} | messages={} | bytes={}→{}",
+                conversationId, messages.size(), segment.rawBytes(), segment.payload().length);
+        return true;
+    }
+
+    /**
+     * Возвращает архивный разговор в {@code chat_memory}. Без архива — один поиск по первичному ключу,
+     * результат которого кэшируется. Возвращает {@code true}, если сообщения были восстановлены.
+     */
+    public boolean rehydrate(String conversationId) {
+        if (conversationId == null || withoutArchive.getIfPresent(conversationId) != null) {
+            return false;
+        }
+        if (!archiveRepository.existsById(conversationId)) {
+            withoutArchive.put(conversationId, Boolean.TRUE);
+            return false;
+        }
+        Integer restored = transactionTemplate.execute(status -> {
+            batchWriter.lockConversation(conversationId);
+            ChatMemoryArchiveEntity archive = archiveRepository.findById(conversationId).orElse(null);
+            if (archive == null) {
+                // Восстановлен параллельным запросом, пока ждали блокировку.
+                return 0;
+            }
+            List<ChatMemoryBatchWriter.IndexedMessage> indexed = new ArrayList<>();
+            for (ChatMemoryArchiveCodec.Message m : codec.decode(archive.getPayload())) {
+                indexed.add(new ChatMemoryBatchWriter.IndexedMessage(m.index(), new ChatMemoryBatchWriter.PendingMessage(
+                        m.role(), m.content(), m.telegramMessageId(), m.messageThreadId(),
+                        m.createdAt() != null ? LocalDateTime.parse(m.createdAt()) : null)));
+            }
+            for (int from = 0; from < indexed.size(); from += REHYDRATE_BATCH) {
+                batchWriter.insertIndexed(conversationId,
+                        indexed.subList(from, Math.min(indexed.size(), from + REHYDRATE_BATCH)));
+            }
+            archiveRepository.delete(archive);
+            return indexed.size();
+        });
+        withoutArchive.put(conversationId, Boolean.TRUE);
+        if (restored == null || restored == 0) {
+            return false;
+        }
+        tailCache.invalidate(conversationId);
+        rehydratedConversations.increment();
+        LOGGER.info("🔥 Rehydrated conversation from archive | conv={} | messages={}", conversationId, restored);
+        return true;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.service.ai.TokenEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запись сообщений разговора в {@code chat_memory} одним многострочным
+ * {@code INSERT ... SELECT}: следующий {@code message_index} берётся как
+ * {@code MAX(message_index) + 1} внутри того же оператора, без отдельного COUNT.
+ *
+ * На PostgreSQL запись разговора сериализуется транзакционной advisory-блокировкой
+ * по {@code conversation_id}, чтобы параллельные вставки (например, с разных инстансов)
+ * не получили одинаковые индексы.
+ *
+ * Вместе со строками обновляется {@code chat_memory_activity} — время последнего сообщения
+ * разговора, по которому {@link ChatMemoryArchiveService} находит неактивные разговоры.
+ */
+@Component
+public class ChatMemoryBatchWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatMemoryBatchWriter.class);
+
+    /** Сообщение, ожидающее записи. */
+    public record PendingMessage(String role, String content, Integer telegramMessageId,
+                                 Integer messageThreadId, LocalDateTime createdAt) {
+    }
+
+    /** Сообщение с уже назначенным {@code message_index} (отложенная запись, воспроизведение журнала). */
+    public record IndexedMessage(int index, PendingMessage message) {
+    }
+
+    /** {@code bot_id, chat_id, user_id} — одинаковые для всех строк разговора, см. {@link #addKey}. */
+    private static final String KEY_COLUMNS = "CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    public ChatMemoryBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Дописывает сообщения в конец разговора в переданном порядке. */
+    @Transactional
+    public void append(String conversationId, List<PendingMessage> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        lockConversation(conversationId);
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO chat_memory (conversation_id, message_index, role, content, "
+                        + "telegram_message_id, message_thread_id, created_at, token_count, bot_id, chat_id, user_id) "
+                        + "SELECT ?, base.next_index + v.ord, v.role, v.content, v.tg_id, v.thread_id, v.created_at, v.tokens, "
+                        + KEY_COLUMNS + " FROM (VALUES ");
+        List<Object> args = new ArrayList<>(4 + messages.size() * 7 + 1);
+        addKey(args, conversationId);
+        for (int i = 0; i < messages.size(); i++) {
+            appendRow(sql, args, i, i, messages.get(i));
+        }
+        sql.append(") AS v(ord, role, content, tg_id, thread_id, created_at, tokens) "
+                + "CROSS JOIN (SELECT COALESCE(MAX(message_index), -1) + 1 AS next_index "
+                + "FROM chat_memory WHERE conversation_id = ?) base");
+        args.add(conversationId);
+        int inserted = jdbcTemplate.update(sql.toString(), args.toArray());
+        touch(conversationId, lastCreatedAt(messages));
+        LOGGER.debug("💾 chat_memory batch append | conv={} | rows={}", conversationId, inserted);
+    }
+
+    /**
+     * Транзакционная advisory-блокировка записи разговора (на PostgreSQL): её же берёт {@link #append},
+     * поэтому под ней строки разговора можно переносить, не пересекаясь с дописыванием.
+     */
+    public void lockConversation(String conversationId) {
+        if (isPostgres()) {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext(?))", conversationId);
+        }
+    }
+
+    /** Индекс, который получит следующее сообщение разговора. */
+    public int nextIndex(String conversationId) {
+        Integer next = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(message_index), -1) + 1 FROM chat_memory WHERE conversation_id = ?",
+                Integer.class, conversationId);
+        return next != null ? next : 0;
+    }
+
+    /**
+     * Записывает сообщения с заданными индексами одним INSERT, пропуская уже существующие
+     * {@code (conversation_id, message_index)}: повторная запись того же набора ничего не меняет.
+     */
+    @Transactional
+    public int insertIndexed(String conversationId, List<IndexedMessage> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return 0;
+        }
+        lockConversation(conversationId);
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO chat_memory (conversation_id, message_index, role, content, "
+                        + "telegram_message_id, message_thread_id, created_at, token_count, bot_id, chat_id, user_id) "
+                        + "SELECT ?, v.idx, v.role, v.content, v.tg_id, v.thread_id, v.created_at, v.tokens, "
+                        + KEY_COLUMNS + " FROM (VALUES ");
+        List<Object> args = new ArrayList<>(4 + messages.size() * 7 + 1);
+        addKey(args, conversationId);
+        for (int i = 0; i < messages.size(); i++) {
+            appendRow(sql, args, i, messages.get(i).index(), messages.get(i).message());
+        }
+        sql.append(") AS v(idx, role, content, tg_id, thread_id, created_at, tokens) "
+                + "WHERE NOT EXISTS (SELECT 1 FROM chat_memory c "
+                + "WHERE c.conversation_id = ? AND c.message_index = v.idx)");
+        args.add(conversationId);
+        int inserted = jdbcTemplate.update(sql.toString(), args.toArray());
+        if (inserted > 0) {
+            touch(conversationId, lastCreatedAt(messages.stream().map(IndexedMessage::message).toList()));
+        }
+        LOGGER.debug("💾 chat_memory indexed insert | conv={} | rows={}/{}", conversationId, inserted, messages.size());
+        return inserted;
+    }
+
+    /**
+     * Сдвигает время последнего сообщения разговора вперёд (назад — никогда: восстановление
+     * из архива пишет старые сообщения). Вызывается под {@link #lockConversation}, поэтому
+     * UPDATE и INSERT не гоняются с параллельной записью того же разговора.
+     */
+    private void touch(String conversationId, LocalDateTime lastMessageAt) {
+        Timestamp at = Timestamp.valueOf(lastMessageAt);
+        int updated = jdbcTemplate.update(
+                "UPDATE chat_memory_activity SET last_message_at = ? WHERE conversation_id = ? AND last_message_at < ?",
+                at, conversationId, at);
+        if (updated == 0) {
+            List<Object> args = new ArrayList<>(6);
+            addKey(args, conversationId);
+            args.add(at);
+            args.add(conversationId);
+            jdbcTemplate.update("INSERT INTO chat_memory_activity (conversation_id, bot_id, chat_id, user_id, last_message_at) "
+                    + "SELECT CAST(? AS VARCHAR(255)), " + KEY_COLUMNS + ", CAST(? AS TIMESTAMP) WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM chat_memory_activity WHERE conversation_id = ?)", args.toArray());
+        }
+    }
+
+    private static LocalDateTime lastCreatedAt(List<PendingMessage> messages) {
+        LocalDateTime last = null;
+        for (PendingMessage m : messages) {
+            if (m.createdAt() != null && (last == null || m.createdAt().isAfter(last))) {
+                last = m.createdAt();
+            }
+        }
+        return last != null ? last : LocalDateTime.now();
+    }
+
+    /** Id разговора и его разобранные части для {@link #KEY_COLUMNS}. */
+    private static void addKey(List<Object> args, String conversationId) {
+        ConversationKey key = ConversationKey.parse(conversationId);
+        args.add(conversationId);
+        args.add(key.botId());
+        args.add(key.chatId());
+        args.add(key.userId());
+    }
+
+    /** Строка {@code VALUES}; явные CAST нужны, чтобы типы колонок одинаково выводились в PostgreSQL и H2. */
+    private static void appendRow(StringBuilder sql, List<Object> args, int position, int key, PendingMessage m) {
+        if (position > 0) {
+            sql.append(", ");
+        }
+        sql.append("(CAST(? AS INTEGER), CAST(? AS VARCHAR(50)), CAST(? AS VARCHAR), "
+                + "CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS TIMESTAMP), CAST(? AS INTEGER))");
+        String content = m.content() != null ? m.content() : "";
+        args.add(key);
+        args.add(m.role());
+        args.add(content);
+        args.add(m.telegramMessageId());
+        args.add(m.messageThreadId());
+        args.add(Timestamp.valueOf(m.createdAt() != null ? m.createdAt() : LocalDateTime.now()));
+        args.add(TokenEstimator.estimateMessage(content));
+    }
+
+    private boolean isPostgres() {
+        Boolean cached = postgres;
+        if (cached == null) {
+            String product = jdbcTemplate.execute((Connection c) -> c.getMetaData().getDatabaseProductName());
+            cached = product != null && product.toLowerCase().contains("postgres");
+            postgres = cached;
+        }
+        return cached;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.model.agent.AgentConfigEntity;
+import com.example.dream_stream_bot.service.ai.TokenEstimator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Сжатие памяти разговора: когда оценка токенов истории ({@code chat_memory.token_count}) превышает
+ * {@link AgentConfigEntity#getSummarizeAfterTokens()}, всё, кроме последних
+ * {@link AgentConfigEntity#getSummaryKeepMessages()} сообщений (и прежнего summary),
+ * пересказывается моделью агента и заменяется одной строкой {@link ChatMemoryEntity#ROLE_SUMMARY}.
+ *
+ * Выполняется в фоне после ответа пользователю; на разговор — не больше одного сжатия одновременно.
+ * Проверка идёт после каждого ответа, поэтому порог сначала сверяется с суммой {@code token_count}
+ * в БД и отложенными сообщениями; буфер сбрасывается и история читается, только когда порог превышен.
+ */
+@Service
+public class ChatMemoryCompactionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatMemoryCompactionService.class);
+
+    private static final String SUMMARY_PROMPT = """
+            Ты сжимаешь историю диалога для долговременной памяти ассистента.
+            Перескажи разговор кратко, от третьего лица, сохранив: факты о пользователе, его сны и
+            их детали, выводы и интерпретации ассистента, договорённости и открытые вопросы.
+            Не добавляй ничего, чего не было в диалоге. Пиши на языке диалога.""";
+
+    private final ChatClient chatClient;
+    private final PostgresChatMemoryRepository repository;
+    private final ChatMemoryService chatMemoryService;
+    private final ChatMemoryWriteBehind writeBehind;
+    private final ExecutorService executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ChatMemoryCompactionService(ChatClient chatClient,
+                                       PostgresChatMemoryRepository repository,
+                                       ChatMemoryService chatMemoryService,
+                                       ChatMemoryWriteBehind writeBehind,
+                                       BotExecutors botExecutors) {
+        this.chatClient = chatClient;
+        this.repository = repository;
+        this.chatMemoryService = chatMemoryService;
+        this.writeBehind = writeBehind;
+        this.executor = botExecutors.newExecutor("memory-compaction-", 2);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Поставить проверку разговора в фон, если у агента включено сжатие. */
+    public void compactLater(String conversationId, AgentConfigEntity agentConfig) {
+        if (conversationId == null || agentConfig == null || agentConfig.getSummarizeAfterTokens() == null) {
+            return;
+        }
+        if (!inFlight.add(conversationId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    compactIfNeeded(conversationId, agentConfig);
+                } catch (Exception e) {
+                    LOGGER.warn("⚠️ Memory compaction failed | conv={}: {}", conversationId, e.getMessage(), e);
+                } finally {
+                    inFlight.remove(conversationId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(conversationId);
+        }
+    }
+
+    /** Сжать разговор, если он превысил порог агента. Возвращает {@code true}, если summary записан. */
+    public boolean compactIfNeeded(String conversationId, AgentConfigEntity agentConfig) {
+        int threshold = agentConfig.getSummarizeAfterTokens();
+        int keep = Math.max(2, agentConfig.getSummaryKeepMessages() != null ? agentConfig.getSummaryKeepMessages() : 20);
+
+        long estimated = repository.sumTokens(conversationId);
+        for (ChatMemoryBatchWriter.IndexedMessage pending : writeBehind.pending(conversationId)) {
+            estimated += TokenEstimator.estimateMessage(pending.message().content());
+        }
+        if (estimated <= threshold) {
+            return false;
+        }
+
+        writeBehind.flush(conversationId);
+        List<ChatMemoryEntity> rows = repository.findByConversationIdOrderByMessageIndexAsc(conversationId);
+        if (rows.size() <= keep) {
+            return false;
+        }
+        int tokens = 0;
+        for (ChatMemoryEntity row : rows) {
+            tokens += row.tokensOrEstimate();
+        }
+        if (tokens <= threshold) {
+            return false;
+        }
+
+        // Граница — начало хода пользователя, чтобы в хвосте не остался ответ без вопроса.
+        int boundary = rows.size() - keep;
+        while (boundary < rows.size() && !"user".equalsIgnoreCase(rows.get(boundary).getRole())) {
+            boundary++;
+        }
+        if (boundary <= 0 || boundary >= rows.size()) {
+            return false;
+        }
+        List<ChatMemoryEntity> older = rows.subList(0, boundary);
+        if (older.size() == 1 && ChatMemoryEntity.ROLE_SUMMARY.equals(older.get(0).getRole())) {
+            return false;
+        }
+
+        String summary = summarize(older, agentConfig);
+        if (summary == null || summary.isBlank()) {
+            LOGGER.warn("⚠️ Memory compaction produced empty summary | conv={}", conversationId);
+            return false;
+        }
+        chatMemoryService.replaceWithSummary(conversationId, older.get(older.size() - 1).getMessageIndex(), summary.strip());
+        LOGGER.info("🗜 Memory compaction | conv={} | tokens≈{} > {} | summarized={} | kept={}",
+                conversationId, tokens, threshold, older.size(), rows.size() - boundary);
+        return true;
+    }
+
+    private String summarize(List<ChatMemoryEntity> older, AgentConfigEntity agentConfig) {
+        StringBuilder transcript = new StringBuilder();
+        for (ChatMemoryEntity row : older) {
+            String role = row.getRole().toLowerCase();
+            String label = switch (role) {
+                case ChatMemoryEntity.ROLE_SUMMARY -> "Ранее (краткое содержание)";
+                case "user" -> "Пользователь";
+                case "assistant" -> "Ассистент";
+                default -> role;
+            };
+            transcript.append(label).append(": ").append(row.getContent()).append("\n\n");
+        }
+        return chatClient.prompt()
+                .options(OpenAiChatOptions.builder().model(agentConfig.getModel()).build())
+                .system(SUMMARY_PROMPT)
+                .user(transcript.toString())
+                .call()
+                .content();
+    }
+}
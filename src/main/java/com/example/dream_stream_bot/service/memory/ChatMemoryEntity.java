@@ -1,5 +1,6 @@
 package com.example.dream_stream_bot.service.memory;
 
+import com.example.dream_stream_bot.service.ai.TokenEstimator;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
@@ -7,6 +8,10 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "chat_memory")
 public class ChatMemoryEntity {
+
+    /** Роль строки со сжатым содержанием более ранней части разговора. */
+    public static final String ROLE_SUMMARY = "summary";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -29,9 +34,43 @@ public class ChatMemoryEntity {
     @Column(name = "message_thread_id")
     private Integer messageThreadId;
 
+    /** Части {@link ConversationKey} id разговора — по ним идут удаления по боту, чату и пользователю. */
+    @Column(name = "bot_id")
+    private Long botId;
+
+    @Column(name = "chat_id")
+    private Long chatId;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    /** Оценка токенов сообщения; считается при записи ({@link TokenEstimator#estimateMessage}). */
+    @Column(name = "token_count")
+    private Integer tokenCount;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    @PrePersist
+    @PreUpdate
+    void beforeSave() {
+        this.tokenCount = TokenEstimator.estimateMessage(content);
+        if (botId == null) {
+            ConversationKey key = ConversationKey.parse(conversationId);
+            this.botId = key.botId();
+            this.chatId = key.chatId();
+            this.userId = key.userId();
+            if (messageThreadId == null) {
+                this.messageThreadId = key.threadId();
+            }
+        }
+    }
+
+    /** Сохранённая оценка токенов или, для строк до её появления, оценка на лету. */
+    public int tokensOrEstimate() {
+        return tokenCount != null ? tokenCount : TokenEstimator.estimateMessage(content);
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -53,6 +92,18 @@ public class ChatMemoryEntity {
     public Integer getMessageThreadId() { return messageThreadId; }
     public void setMessageThreadId(Integer messageThreadId) { this.messageThreadId = messageThreadId; }
 
+    public Long getBotId() { return botId; }
+    public void setBotId(Long botId) { this.botId = botId; }
+
+    public Long getChatId() { return chatId; }
+    public void setChatId(Long chatId) { this.chatId = chatId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Integer getTokenCount() { return tokenCount; }
+    public void setTokenCount(Integer tokenCount) { this.tokenCount = tokenCount; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 } 
\ No newline at end of file
@@ -0,0 +1,220 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Локальный журнал несброшенных сообщений {@link ChatMemoryWriteBehind}.
+ *
+ * Сегменты {@code segment-<n>.log} — по JSON-строке на сообщение с уже назначенным
+ * {@code message_index}, поэтому воспроизведение идемпотентно. Сегмент удаляется
+ * только после того, как всё записанное до него попало в БД; строки удалённых
+ * разговоров вычищаются из закрытых сегментов раньше ({@link #retain}). Недописанная
+ * последняя строка (падение посреди записи) при чтении пропускается.
+ */
+public class ChatMemoryJournal implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatMemoryJournal.class);
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    /** Строка журнала. */
+    public record Entry(String conversationId, int index, String role, String content,
+                        Integer telegramMessageId, Integer messageThreadId, String createdAt) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long segmentNumber;
+    private Path activePath;
+    private FileChannel active;
+
+    public ChatMemoryJournal(ObjectMapper objectMapper, Path directory, long segmentBytes, boolean fsync) throws IOException {
+        this.objectMapper = objectMapper;
+        this.directory = Files.createDirectories(directory);
+        this.segmentBytes = Math.max(1024, segmentBytes);
+        this.fsync = fsync;
+        List<Path> existing = segments();
+        this.segmentNumber = existing.isEmpty() ? 0 : number(existing.get(existing.size() - 1));
+    }
+
+    /** Дописать строку в активный сегмент; новый сегмент открывается при превышении размера. */
+    public void append(Entry entry) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            if (active == null || active.size() >= segmentBytes) {
+                openNextSegment();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                active.write(buffer);
+            }
+            if (fsync) {
+                active.force(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Закрыть активный сегмент: следующие записи пойдут в новый. Возвращает все закрытые
+     * сегменты — их можно удалить, когда сброшено всё, что было в буферах на этот момент.
+     */
+    public List<Path> seal() {
+        lock.lock();
+        try {
+            closeActive();
+            return segments();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void delete(List<Path> sealed) {
+        for (Path segment : sealed) {
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                LOGGER.warn("⚠️ Failed to delete chat memory journal segment {}: {}", segment, e.getMessage());
+            }
+        }
+    }
+
+    /** Все строки всех сегментов в порядке записи. */
+    public List<Entry> readAll(List<Path> sealed) {
+        List<Entry> entries = new ArrayList<>();
+        for (Path segment : sealed) {
+            try {
+                read(segment, entries);
+            } catch (IOException e) {
+                LOGGER.error("❌ Failed to read chat memory journal segment {}: {}", segment, e.getMessage());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Переписать закрытые сегменты, оставив только строки, для которых {@code keep} верен;
+     * сегмент без оставшихся строк удаляется. Замена файла атомарна.
+     */
+    public void retain(List<Path> sealed, Predicate<Entry> keep) throws IOException {
+        for (Path segment : sealed) {
+            if (!Files.exists(segment)) {
+                continue;
+            }
+            List<Entry> entries = new ArrayList<>();
+            read(segment, entries);
+            List<Entry> kept = entries.stream().filter(keep).toList();
+            if (kept.size() == entries.size()) {
+                continue;
+            }
+            if (kept.isEmpty()) {
+                Files.deleteIfExists(segment);
+                continue;
+            }
+            Path tmp = segment.resolveSibling(segment.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Entry entry : kept) {
+                    writer.write(objectMapper.writeValueAsString(entry));
+                    writer.write('\n');
+                }
+            }
+            Files.move(tmp, segment, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closeActive();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void read(Path segment, List<Entry> entries) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    entries.add(objectMapper.readValue(line, Entry.class));
+                } catch (IOException e) {
+                    LOGGER.warn("⚠️ Skipping damaged line in chat memory journal {}: {}", segment, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        closeActive();
+        segmentNumber++;
+        activePath = directory.resolve(String.format("%s%020d%s", PREFIX, segmentNumber, SUFFIX));
+        active = FileChannel.open(activePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private void closeActive() {
+        if (active == null) {
+            return;
+        }
+        try {
+            active.force(false);
+            active.close();
+        } catch (IOException e) {
+            LOGGER.warn("⚠️ Failed to close chat memory journal segment {}: {}", activePath, e.getMessage());
+        }
+        active = null;
+        activePath = null;
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            LOGGER.warn("⚠️ Failed to list chat memory journal {}: {}", directory, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static long number(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
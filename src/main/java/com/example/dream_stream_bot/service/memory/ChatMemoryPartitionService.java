@@ -0,0 +1,274 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.config.properties.ChatMemoryProperties;
+import com.example.dream_stream_bot.service.settings.SystemSettingsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание месячных секций {@code chat_memory} (см. миграцию V29): заранее создаёт секции
+ * на {@code app.chat-memory.partitions.months-ahead} месяцев вперёд и, если задан
+ * {@link SystemSettingsService#KEY_CHAT_MEMORY_MAX_AGE_MONTHS}, удаляет секции старше этого срока
+ * одним {@code DROP TABLE} вместо построчного DELETE.
+ *
+ * Строки, попавшие в {@code chat_memory_default} (месяц без секции — например, восстановленная
+ * из архива старая история), переносятся в секции своих месяцев; просроченные удаляются.
+ * Имена секций в DDL строятся только из {@link YearMonth}, прочитанные из каталога — проверяются.
+ *
+ * Работает только на PostgreSQL с уже секционированной таблицей. Все шаги идут в одном соединении
+ * под session advisory-блокировкой, чтобы при нескольких инстансах обслуживание выполнял один.
+ */
+@Service
+public class ChatMemoryPartitionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatMemoryPartitionService.class);
+
+    private static final String PARTITION_PREFIX = "chat_memory_p";
+    private static final Pattern PARTITION_NAME = Pattern.compile("^" + PARTITION_PREFIX + "(\\d{6})$");
+    private static final Pattern MONTH = Pattern.compile("^\\d{6}$");
+    private static final String DEFAULT_PARTITION = "chat_memory_default";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String LOCK_KEY = "hashtext('chat_memory_partitions')";
+
+    /** Итог обслуживания: сколько секций создано, удалено и сколько строк вынесено из default-секции. */
+    public record Result(int created, int dropped, int movedFromDefault) {
+        static final Result SKIPPED = new Result(0, 0, 0);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SystemSettingsService systemSettingsService;
+    private final ChatMemoryTailCache tailCache;
+    private final ChatMemoryProperties.Partitions properties;
+
+    public ChatMemoryPartitionService(JdbcTemplate jdbcTemplate,
+                                      SystemSettingsService systemSettingsService,
+                                      ChatMemoryTailCache tailCache,
+                                      ChatMemoryProperties chatMemoryProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.systemSettingsService = systemSettingsService;
+        this.tailCache = tailCache;
+        this.properties = chatMemoryProperties.getPartitions();
+    }
+
+    public Result maintainPartitions() {
+        if (!properties.isEnabled()) {
+            return Result.SKIPPED;
+        }
+        int maxAgeMonths = systemSettingsService.isRetentionUnlimited() ? 0 : systemSettingsService.getChatMemoryMaxAgeMonths();
+        Result result = jdbcTemplate.execute((Connection c) -> maintain(c, YearMonth.now(), maxAgeMonths));
+        if (result != null && (result.dropped() > 0 || result.movedFromDefault() > 0)) {
+            // В удалённых секциях и строках default могли быть сообщения любых разговоров.
+            tailCache.invalidateIf(conv -> true);
+        }
+        return result != null ? result : Result.SKIPPED;
+    }
+
+    private Result maintain(Connection connection, YearMonth now, int maxAgeMonths) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        if (product == null || !product.toLowerCase().contains("postgres")) {
+            return Result.SKIPPED;
+        }
+        try (Statement st = connection.createStatement()) {
+            if (!queryBoolean(st, "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table p "
+                    + "JOIN pg_class c ON c.oid = p.partrelid WHERE c.relname = 'chat_memory')")) {
+                return Result.SKIPPED;
+            }
+            if (!queryBoolean(st, "SELECT pg_try_advisory_lock(" + LOCK_KEY + ")")) {
+                LOGGER.info("⏭ chat_memory partitions: maintenance is running elsewhere");
+                return Result.SKIPPED;
+            }
+            try {
+                List<String> existing = listPartitions(st);
+                int created = 0;
+                for (int i = 0; i <= Math.max(0, properties.getMonthsAhead()); i++) {
+                    YearMonth month = now.plusMonths(i);
+                    if (!existing.contains(partitionName(month)) && createPartition(st, month)) {
+                        created++;
+                    }
+                }
+                int moved = 0;
+                if (existing.contains(DEFAULT_PARTITION)) {
+                    if (maxAgeMonths > 0) {
+                        moved += expireDefaultRows(connection, now.minusMonths(maxAgeMonths));
+                    }
+                    for (YearMonth month : defaultMonths(st)) {
+                        try {
+                            moved += splitFromDefault(connection, month);
+                        } catch (SQLException e) {
+                            LOGGER.warn("⚠️ chat_memory partition {} not split from default: {}",
+                                    partitionName(month), e.getMessage());
+                        }
+                    }
+                }
+                int dropped = 0;
+                for (String name : expiredPartitions(listPartitions(st), now, maxAgeMonths)) {
+                    st.execute("DROP TABLE IF EXISTS " + name);
+                    dropped++;
+                    LOGGER.info("🧹 chat_memory partition dropped | {} | max_age_months={}", name, maxAgeMonths);
+                }
+                return new Result(created, dropped, moved);
+            } finally {
+                st.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+            }
+        }
+    }
+
+    private static boolean createPartition(Statement st, YearMonth month) {
+        String name = partitionName(month);
+        try {
+            st.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF chat_memory " + bounds(month));
+            LOGGER.info("🗂 chat_memory partition created | {}", name);
+            return true;
+        } catch (SQLException e) {
+            // В chat_memory_default уже есть строки этого месяца — секцию создаст splitFromDefault.
+            LOGGER.warn("⚠️ chat_memory partition {} not created: {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    /** Месяцы, строки которых лежат в {@code chat_memory_default}. */
+    private static List<YearMonth> defaultMonths(Statement st) throws SQLException {
+        List<YearMonth> months = new ArrayList<>();
+        try (ResultSet rs = st.executeQuery("SELECT DISTINCT to_char(created_at, 'YYYYMM') FROM "
+                + DEFAULT_PARTITION + " ORDER BY 1")) {
+            while (rs.next()) {
+                parseMonth(rs.getString(1)).ifPresent(months::add);
+            }
+        }
+        return months;
+    }
+
+    /**
+     * Выносит строки месяца из default-секции в новую секцию: строки переносятся в отдельную таблицу,
+     * и она подключается как секция месяца. Всё в одной транзакции — читатели видят строки либо
+     * в default, либо уже в секции.
+     */
+    private static int splitFromDefault(Connection connection, YearMonth month) throws SQLException {
+        String name = partitionName(month);
+        return inTransaction(connection, st -> {
+            st.execute("CREATE TABLE " + name + " (LIKE chat_memory INCLUDING DEFAULTS)");
+            int moved = st.executeUpdate("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                    + " WHERE created_at >= '" + month.atDay(1) + "' AND created_at < '" + month.plusMonths(1).atDay(1)
+                    + "' RETURNING *) INSERT INTO " + name + " SELECT * FROM moved");
+            st.execute("ALTER TABLE chat_memory ATTACH PARTITION " + name + " " + bounds(month));
+            LOGGER.info("🗂 chat_memory partition split from default | {} | rows={}", name, moved);
+            return moved;
+        });
+    }
+
+    /** Удаляет из default-секции строки месяцев старше {@code oldestKept} — как DROP их секций. */
+    private static int expireDefaultRows(Connection connection, YearMonth oldestKept) throws SQLException {
+        return inTransaction(connection, st -> {
+            int deleted = st.executeUpdate("DELETE FROM " + DEFAULT_PARTITION
+                    + " WHERE created_at < '" + oldestKept.atDay(1) + "'");
+            if (deleted > 0) {
+                LOGGER.info("🧹 chat_memory default partition | expired rows={} | before {}", deleted, oldestKept);
+            }
+            return deleted;
+        });
+    }
+
+    @FunctionalInterface
+    private interface StatementWork {
+        int run(Statement st) throws SQLException;
+    }
+
+    private static int inTransaction(Connection connection, StatementWork work) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement st = connection.createStatement()) {
+            int result = work.run(st);
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /** {@code FOR VALUES} секции месяца; даты — из {@link YearMonth}, в формате ISO. */
+    private static String bounds(YearMonth month) {
+        return "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+    }
+
+    private static List<String> listPartitions(Statement st) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (ResultSet rs = st.executeQuery("SELECT c.relname FROM pg_inherits i "
+                + "JOIN pg_class c ON c.oid = i.inhrelid "
+                + "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = 'chat_memory'")) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private static boolean queryBoolean(Statement st, String sql) throws SQLException {
+        try (ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    /** Имя секции месяца; годы вне 1000–9999 не дают шесть цифр и отклоняются. */
+    static String partitionName(YearMonth month) {
+        if (month.getYear() < 1000 || month.getYear() > 9999) {
+            throw new IllegalArgumentException("Unsupported partition month: " + month);
+        }
+        return PARTITION_PREFIX + month.format(SUFFIX);
+    }
+
+    /** {@code YYYYMM} → месяц; всё остальное (в том числе {@code 202513}) — пусто. */
+    static Optional<YearMonth> parseMonth(String suffix) {
+        if (suffix == null || !MONTH.matcher(suffix).matches()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(YearMonth.parse(suffix, SUFFIX));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Месячные секции, целиком старше {@code maxAgeMonths} полных месяцев относительно {@code now}.
+     * {@code chat_memory_default} и секции с чужими именами не трогаются; 0 — ничего не удалять.
+     */
+    static List<String> expiredPartitions(Collection<String> partitions, YearMonth now, int maxAgeMonths) {
+        List<String> expired = new ArrayList<>();
+        if (maxAgeMonths <= 0) {
+            return expired;
+        }
+        YearMonth oldestKept = now.minusMonths(maxAgeMonths);
+        for (String name : partitions) {
+            Matcher m = PARTITION_NAME.matcher(name);
+            if (!m.matches()) {
+                continue;
+            }
+            // Имя для DROP строится заново из разобранного месяца, а не берётся из каталога.
+            parseMonth(m.group(1))
+                    .filter(month -> month.isBefore(oldestKept))
+                    .map(ChatMemoryPartitionService::partitionName)
+                    .ifPresent(expired::add);
+        }
+        expired.sort(null);
+        return expired;
+    }
+}
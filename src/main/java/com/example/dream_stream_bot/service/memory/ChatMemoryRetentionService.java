@@ -1,89 +1,216 @@
 package com.example.dream_stream_bot.service.memory;
 
-import com.example.dream_stream_bot.model.subscription.SubscriptionEntity;
-import com.example.dream_stream_bot.model.subscription.SubscriptionRepository;
-import com.example.dream_stream_bot.model.user.UserEntity;
+import com.example.dream_stream_bot.config.properties.ChatMemoryProperties;
+import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
+import com.example.dream_stream_bot.model.subscription.TariffAccessMode;
+import com.example.dream_stream_bot.model.subscription.TariffScope;
 import com.example.dream_stream_bot.service.settings.SystemSettingsService;
-import com.example.dream_stream_bot.service.subscription.SubscriptionService;
-import com.example.dream_stream_bot.service.subscription.SubscriptionTariffService;
-import com.example.dream_stream_bot.service.user.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 /**
  * Удаление записей {@code chat_memory} после окончания подписки согласно {@link SystemSettingsService}.
+ *
+ * Подписки, чья память подлежит удалению, выбираются одним запросом с join тарифа и владельца,
+ * страницами по id. Строки удаляются порциями по индексам {@code (bot_id, chat_id)} /
+ * {@code (bot_id, user_id)}, каждая порция — в своей транзакции. После каждой страницы id последней
+ * подписки сохраняется в {@link SystemSettingsService#KEY_CHAT_MEMORY_RETENTION_CURSOR}: прерванный
+ * проход продолжается с этого места, законченный — сбрасывает курсор.
  */
 @Service
 public class ChatMemoryRetentionService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ChatMemoryRetentionService.class);
 
-    private final SubscriptionRepository subscriptionRepository;
-    private final SubscriptionService subscriptionService;
-    private final SubscriptionTariffService subscriptionTariffService;
+    /**
+     * Подписки после курсора, чей срок закончился раньше {@code cutoff} (не позже текущего момента).
+     * Безлимит FREE_UNLIMITED в статусе ACTIVE пропускается, даже если у строки остался {@code expires_at}.
+     */
+    private static final String EXPIRED_SUBSCRIPTIONS_SQL = """
+            SELECT s.id, s.bot_id, s.scope_chat_id, t.scope, u.telegram_id
+            FROM subscription s
+            JOIN subscription_tariff t ON t.id = s.tariff_id
+            LEFT JOIN users u ON u.id = s.owner_user_id
+            WHERE s.id > ?
+              AND s.expires_at IS NOT NULL
+              AND s.expires_at <= ?
+              AND NOT (t.access_mode = ? AND s.status = ?)
+            ORDER BY s.id
+            LIMIT ?""";
+
+    /** Подписка, чья память удаляется: групповой чат или личный разговор владельца. */
+    record Target(long subscriptionId, long botId, Long chatId, Long ownerTelegramId) {
+
+        boolean isGroup() {
+            return chatId != null;
+        }
+
+        boolean covers(ConversationKey key) {
+            if (isGroup()) {
+                return key.isInChat(botId, chatId);
+            }
+            return key.chatId() == null && key.isUserInBot(botId, ownerTelegramId);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
     private final PostgresChatMemoryRepository chatMemoryRepository;
+    private final ChatMemoryArchiveRepository archiveRepository;
+    private final ChatMemoryActivityRepository activityRepository;
     private final SystemSettingsService systemSettingsService;
-    private final UserService userService;
+    private final ChatMemoryWriteBehind writeBehind;
+    private final ChatMemoryTailCache tailCache;
+    private final ChatMemoryProperties.Retention properties;
+    private final Timer duration;
+    private final Counter rowsDeleted;
+    private final Counter subscriptionsProcessed;
+    private final AtomicLong cursor = new AtomicLong();
 
-    public ChatMemoryRetentionService(SubscriptionRepository subscriptionRepository,
-                                      SubscriptionService subscriptionService,
-                                      SubscriptionTariffService subscriptionTariffService,
+    public ChatMemoryRetentionService(JdbcTemplate jdbcTemplate,
                                       PostgresChatMemoryRepository chatMemoryRepository,
+                                      ChatMemoryArchiveRepository archiveRepository,
+                                      ChatMemoryActivityRepository activityRepository,
                                       SystemSettingsService systemSettingsService,
-                                      UserService userService) {
-        this.subscriptionRepository = subscriptionRepository;
-        this.subscriptionService = subscriptionService;
-        this.subscriptionTariffService = subscriptionTariffService;
+                                      ChatMemoryWriteBehind writeBehind,
+                                      ChatMemoryTailCache tailCache,
+                                      ChatMemoryProperties chatMemoryProperties,
+                                      MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
         this.chatMemoryRepository = chatMemoryRepository;
+        this.archiveRepository = archiveRepository;
+        this.activityRepository = activityRepository;
         this.systemSettingsService = systemSettingsService;
-        this.userService = userService;
+        this.writeBehind = writeBehind;
+        this.tailCache = tailCache;
+        this.properties = chatMemoryProperties.getRetention();
+        this.duration = Timer.builder("chat.memory.retention.duration")
+                .description("Длительность ночного прохода retention по chat_memory")
+                .register(meterRegistry);
+        this.rowsDeleted = Counter.builder("chat.memory.retention.rows.deleted")
+                .description("Строки chat_memory, удалённые retention")
+                .register(meterRegistry);
+        this.subscriptionsProcessed = Counter.builder("chat.memory.retention.subscriptions")
+                .description("Истёкшие подписки, обработанные retention")
+                .register(meterRegistry);
+        Gauge.builder("chat.memory.retention.cursor", cursor, AtomicLong::get)
+                .description("Id последней обработанной подписки в текущем проходе")
+                .register(meterRegistry);
     }
 
-    @Transactional
     public int purgeExpiredMemories() {
         if (systemSettingsService.isRetentionUnlimited()) {
             return 0;
         }
+        Timer.Sample sample = Timer.start();
+        try {
+            return purgePages();
+        } finally {
+            sample.stop(duration);
+        }
+    }
+
+    private int purgePages() {
         int days = systemSettingsService.getRetentionDaysAfterExpiry();
-        OffsetDateTime now = OffsetDateTime.now();
-        int totalDeleted = 0;
+        Timestamp cutoff = Timestamp.from(OffsetDateTime.now().minusDays(days).toInstant());
+        int pageSize = Math.max(1, properties.getPageSize());
+        long after = systemSettingsService.getLong(SystemSettingsService.KEY_CHAT_MEMORY_RETENTION_CURSOR, 0L);
+        if (after > 0) {
+            LOGGER.info("🧹 Retention resumes after subscription id={}", after);
+        }
+        cursor.set(after);
 
-        for (SubscriptionEntity sub : subscriptionRepository.findAll()) {
-            if (sub.getExpiresAt() == null) {
-                continue;
-            }
-            OffsetDateTime purgeOkAfter = sub.getExpiresAt().plusDays(days);
-            if (now.isBefore(purgeOkAfter)) {
-                continue;
+        int totalDeleted = 0;
+        int subscriptions = 0;
+        while (true) {
+            List<Target> page = jdbcTemplate.query(EXPIRED_SUBSCRIPTIONS_SQL,
+                    (rs, i) -> {
+                        Long scopeChatId = rs.getObject(3, Long.class);
+                        boolean group = TariffScope.GROUP.name().equals(rs.getString(4)) && scopeChatId != null;
+                        return new Target(rs.getLong(1), rs.getLong(2), group ? scopeChatId : null,
+                                rs.getObject(5, Long.class));
+                    },
+                    after, cutoff,
+                    TariffAccessMode.FREE_UNLIMITED.name(), SubscriptionStatus.ACTIVE.name(), pageSize);
+            if (page.isEmpty()) {
+                break;
             }
-            if (subscriptionService.isActive(sub)) {
-                continue;
+            totalDeleted += purgePage(page);
+            subscriptions += page.size();
+            after = page.get(page.size() - 1).subscriptionId();
+            systemSettingsService.set(SystemSettingsService.KEY_CHAT_MEMORY_RETENTION_CURSOR, String.valueOf(after));
+            cursor.set(after);
+            LOGGER.debug("🧹 Retention progress | subscriptions={} | deleted={} | cursor={}",
+                    subscriptions, totalDeleted, after);
+            if (page.size() < pageSize) {
+                break;
             }
-            if (subscriptionTariffService.isGroupTariff(sub.getTariffId()) && sub.getScopeChatId() != null) {
-                String prefix = "bot:" + sub.getBotId() + ":chat:" + sub.getScopeChatId();
-                int rows = chatMemoryRepository.deleteByConversationIdStartingWith(prefix);
-                totalDeleted += rows;
-                if (rows > 0) {
-                    LOGGER.info("🧹 Retention purge | group prefix={} | deleted={}", prefix, rows);
-                }
-            } else {
-                UserEntity owner = userService.findById(sub.getOwnerUserId()).orElse(null);
-                if (owner == null) {
-                    continue;
-                }
-                String personalConv = "bot:" + sub.getBotId() + ":user:" + owner.getTelegramId();
-                long rows = chatMemoryRepository.deleteAllByConversationId(personalConv);
-                totalDeleted += (int) rows;
-                if (rows > 0) {
-                    LOGGER.info("🧹 Retention purge | personal conv={} | deleted={}", personalConv, rows);
+        }
+        systemSettingsService.set(SystemSettingsService.KEY_CHAT_MEMORY_RETENTION_CURSOR, "0");
+        LOGGER.info("🧹 Retention pass done | subscriptions={} | deleted={}", subscriptions, totalDeleted);
+        return totalDeleted;
+    }
+
+    private int purgePage(List<Target> page) {
+        Predicate<String> affected = conv -> {
+            ConversationKey key = ConversationKey.parse(conv);
+            for (Target target : page) {
+                if (target.covers(key)) {
+                    return true;
                 }
             }
+            return false;
+        };
+        writeBehind.flushAndEvict(affected);
+        int deleted = 0;
+        for (Target target : page) {
+            int rows = purge(target);
+            deleted += rows;
+            subscriptionsProcessed.increment();
+            if (rows > 0) {
+                LOGGER.info("🧹 Retention purge | subscription={} | {} | deleted={}", target.subscriptionId(),
+                        target.isGroup() ? "group bot=" + target.botId() + " chat=" + target.chatId()
+                                : "personal bot=" + target.botId() + " tg_user=" + target.ownerTelegramId(),
+                        rows);
+            }
         }
+        tailCache.invalidateIf(affected);
+        return deleted;
+    }
 
-        return totalDeleted;
+    /** Удаляет архивные сегменты подписки и её строки — порциями до пустого результата. */
+    private int purge(Target target) {
+        if (!target.isGroup() && target.ownerTelegramId() == null) {
+            return 0;
+        }
+        if (target.isGroup()) {
+            archiveRepository.deleteByBotIdAndChatId(target.botId(), target.chatId());
+            activityRepository.deleteByBotIdAndChatId(target.botId(), target.chatId());
+        } else {
+            archiveRepository.deletePrivate(target.botId(), target.ownerTelegramId());
+            activityRepository.deletePrivate(target.botId(), target.ownerTelegramId());
+        }
+        int chunk = Math.max(1, properties.getDeleteChunkSize());
+        int total = 0;
+        int rows;
+        do {
+            rows = target.isGroup()
+                    ? chatMemoryRepository.deleteChunkByBotIdAndChatId(target.botId(), target.chatId(), chunk)
+                    : chatMemoryRepository.deletePrivateChunk(target.botId(), target.ownerTelegramId(), chunk);
+            total += rows;
+            rowsDeleted.increment(rows);
+        } while (rows >= chunk);
+        return total;
     }
 }
@@ -7,10 +7,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 /**
  * Доменный сервис над {@link PostgresChatMemoryRepository} для команд /forget_last,
- * /forget_me и обработчика edited_message.
+ * /forget_me и обработчика edited_message. Перед правкой и удалением записей сбрасывает
+ * буферы {@link ChatMemoryWriteBehind}, чтобы не потерять и не воскресить сообщения,
+ * после — сбрасывает хвосты в {@link ChatMemoryTailCache}. Удаления затрагивают и холодный архив
+ * ({@link ChatMemoryArchiveService}), правки — сначала возвращают разговор из него.
  */
 @Service
 public class ChatMemoryService {
@@ -18,9 +22,24 @@ public class ChatMemoryService {
     private static final Logger LOGGER = LoggerFactory.getLogger(ChatMemoryService.class);
 
     private final PostgresChatMemoryRepository repository;
+    private final ChatMemoryWriteBehind writeBehind;
+    private final ChatMemoryTailCache tailCache;
+    private final ChatMemoryArchiveService archiveService;
+    private final ChatMemoryArchiveRepository archiveRepository;
+    private final ChatMemoryActivityRepository activityRepository;
 
-    public ChatMemoryService(PostgresChatMemoryRepository repository) {
+    public ChatMemoryService(PostgresChatMemoryRepository repository,
+                             ChatMemoryWriteBehind writeBehind,
+                             ChatMemoryTailCache tailCache,
+                             ChatMemoryArchiveService archiveService,
+                             ChatMemoryArchiveRepository archiveRepository,
+                             ChatMemoryActivityRepository activityRepository) {
         this.repository = repository;
+        this.writeBehind = writeBehind;
+        this.tailCache = tailCache;
+        this.archiveService = archiveService;
+        this.archiveRepository = archiveRepository;
+        this.activityRepository = activityRepository;
     }
 
     /**
@@ -32,6 +51,8 @@ public class ChatMemoryService {
         if (conversationId == null || telegramMessageId == null) {
             return false;
         }
+        archiveService.rehydrate(conversationId);
+        writeBehind.flush(conversationId);
         Optional<ChatMemoryEntity> existing = repository.findByConversationIdAndTelegramMessageId(conversationId, telegramMessageId);
         if (existing.isEmpty()) {
             return false;
@@ -39,6 +60,7 @@ public class ChatMemoryService {
         ChatMemoryEntity entity = existing.get();
         entity.setContent(newContent != null ? newContent : "");
         repository.save(entity);
+        tailCache.invalidate(conversationId);
         LOGGER.info("✏️ Edited memory entry | conv={} | tg_msg_id={} | new_len={}",
                 conversationId, telegramMessageId, entity.getContent().length());
         return true;
@@ -53,36 +75,95 @@ public class ChatMemoryService {
         if (conversationId == null) {
             return 0;
         }
+        archiveService.rehydrate(conversationId);
+        writeBehind.flushAndEvict(conversationId::equals);
         List<ChatMemoryEntity> tail = repository.findTop2ByConversationIdOrderByMessageIndexDesc(conversationId);
         if (tail.isEmpty()) {
             return 0;
         }
         repository.deleteAll(tail);
+        tailCache.invalidate(conversationId);
         LOGGER.info("🗑 Forget last | conv={} | deleted={}", conversationId, tail.size());
         return tail.size();
     }
 
     /**
-     * Удаляет все записи памяти пользователя в рамках конкретного бота.
-     * Префикс: {@code bot:<botId>:...:user:<telegramUserId>}.
+     * Заменяет сообщения разговора с индексом до {@code lastIndex} включительно одной строкой
+     * {@link ChatMemoryEntity#ROLE_SUMMARY} на месте последнего из них. Возвращает число удалённых строк.
+     */
+    @Transactional
+    public int replaceWithSummary(String conversationId, int lastIndex, String summary) {
+        writeBehind.flushAndEvict(conversationId::equals);
+        int removed = repository.deleteUpToIndex(conversationId, lastIndex);
+        ChatMemoryEntity entity = new ChatMemoryEntity();
+        entity.setConversationId(conversationId);
+        entity.setMessageIndex(lastIndex);
+        entity.setRole(ChatMemoryEntity.ROLE_SUMMARY);
+        entity.setContent(summary);
+        repository.save(entity);
+        tailCache.invalidate(conversationId);
+        LOGGER.info("🗜 Memory compacted | conv={} | replaced={} | summary_len={}",
+                conversationId, removed, summary.length());
+        return removed;
+    }
+
+    /**
+     * Удаляет все записи памяти пользователя в рамках конкретного бота
+     * (разговоры {@code bot:<botId>:...:user:<telegramUserId>}) по индексу {@code (bot_id, user_id)}.
      */
     @Transactional
     public int forgetUser(Long botId, Long telegramUserId) {
         if (botId == null || telegramUserId == null) {
             return 0;
         }
-        String botPrefix = "bot:" + botId;
-        int removed = repository.deleteForUserInBot(botPrefix, String.valueOf(telegramUserId));
+        Predicate<String> userConversations = conv -> ConversationKey.parse(conv).isUserInBot(botId, telegramUserId);
+        writeBehind.flushAndEvict(userConversations);
+        int removed = repository.deleteByBotIdAndUserId(botId, telegramUserId);
+        removed += (int) archiveRepository.countMessagesByBotIdAndUserId(botId, telegramUserId);
+        archiveRepository.deleteByBotIdAndUserId(botId, telegramUserId);
+        activityRepository.deleteByBotIdAndUserId(botId, telegramUserId);
+        tailCache.invalidateIf(userConversations);
         LOGGER.info("🗑 Forget user | bot={} | tg_user={} | deleted={}", botId, telegramUserId, removed);
         return removed;
     }
 
+    /**
+     * Удаляет разговоры по префиксу id. Префиксы {@code bot:<id>} и {@code bot:<id>:chat:<chatId>}
+     * удаляются по типизированным колонкам, остальные — через LIKE.
+     */
     @Transactional
     public int deleteByConversationIdPrefix(String conversationIdPrefix) {
         if (conversationIdPrefix == null || conversationIdPrefix.isBlank()) {
             return 0;
         }
-        return repository.deleteByConversationIdStartingWith(conversationIdPrefix);
+        ConversationKey key = ConversationKey.parse(conversationIdPrefix);
+        boolean wholeBot = key.botId() != null && key.chatId() == null && key.threadId() == null && key.userId() == null;
+        boolean wholeChat = key.chatId() != null && key.threadId() == null && key.userId() == null;
+        Predicate<String> matching;
+        if (wholeBot) {
+            matching = conv -> key.botId().equals(ConversationKey.parse(conv).botId());
+        } else if (wholeChat) {
+            matching = conv -> ConversationKey.parse(conv).isInChat(key.botId(), key.chatId());
+        } else {
+            matching = conv -> conv.startsWith(conversationIdPrefix);
+        }
+        writeBehind.flushAndEvict(matching);
+        int removed;
+        if (wholeBot) {
+            removed = repository.deleteByBotId(key.botId());
+            archiveRepository.deleteByBotId(key.botId());
+            activityRepository.deleteByBotId(key.botId());
+        } else if (wholeChat) {
+            removed = repository.deleteByBotIdAndChatId(key.botId(), key.chatId());
+            archiveRepository.deleteByBotIdAndChatId(key.botId(), key.chatId());
+            activityRepository.deleteByBotIdAndChatId(key.botId(), key.chatId());
+        } else {
+            removed = repository.deleteByConversationIdStartingWith(conversationIdPrefix);
+            archiveRepository.deleteByConversationIdStartingWith(conversationIdPrefix);
+            activityRepository.deleteByConversationIdStartingWith(conversationIdPrefix);
+        }
+        tailCache.invalidateIf(matching);
+        return removed;
     }
 
     @Transactional
@@ -90,6 +171,11 @@ public class ChatMemoryService {
         if (conversationId == null || conversationId.isBlank()) {
             return 0;
         }
-        return (int) repository.deleteAllByConversationId(conversationId);
+        writeBehind.flushAndEvict(conversationId::equals);
+        int removed = (int) repository.deleteAllByConversationId(conversationId);
+        archiveRepository.deleteExact(conversationId);
+        activityRepository.deleteExact(conversationId);
+        tailCache.invalidate(conversationId);
+        return removed;
     }
 }
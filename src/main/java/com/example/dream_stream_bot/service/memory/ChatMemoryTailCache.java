@@ -0,0 +1,217 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.config.properties.ChatMemoryProperties;
+import com.example.dream_stream_bot.service.ai.TokenEstimator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Кэш последних сообщений разговоров перед {@code chat_memory}.
+ *
+ * Хвост разговора кладётся при первом чтении окна и дальше дописывается теми же сообщениями,
+ * что уходят в БД, поэтому обычный обмен репликами не читает таблицу вовсе. Вес записи — байты
+ * текста (UTF-8), общий объём ограничен {@code app.chat-memory.cache.max-bytes}.
+ *
+ * Любое изменение или удаление уже записанных сообщений должно вызвать {@link #invalidate(String)}
+ * или {@link #invalidateIf(Predicate)}: сброс повторяется после коммита транзакции, чтобы
+ * параллельное чтение не вернуло в кэш старые строки.
+ *
+ * Кэш локален для инстанса: {@link #append} продолжает индексы от последнего закэшированного
+ * сообщения, а записи и удаления с других инстансов его не сбрасывают. Поэтому он включается
+ * только при единственном инстансе на базу ({@code app.chat-memory.cache.enabled}).
+ */
+@Component
+public class ChatMemoryTailCache {
+
+    /** Сообщение хвоста с оценкой токенов. */
+    public record Entry(int index, String role, String content, int tokens) {
+
+        public Entry(int index, String role, String content) {
+            this(index, role, content, TokenEstimator.estimateMessage(content));
+        }
+    }
+
+    /**
+     * Последние сообщения разговора; {@code complete} — это весь разговор. Summary сжатой части
+     * (если есть) всегда первый и не считается в окно.
+     */
+    private record Tail(List<Entry> entries, boolean complete, int bytes) {
+
+        Entry summary() {
+            return !entries.isEmpty() && ChatMemoryEntity.ROLE_SUMMARY.equalsIgnoreCase(entries.get(0).role())
+                    ? entries.get(0)
+                    : null;
+        }
+
+        List<Entry> body() {
+            return summary() != null ? entries.subList(1, entries.size()) : entries;
+        }
+
+        static Tail of(List<Entry> entries, boolean complete) {
+            int bytes = 0;
+            for (Entry e : entries) {
+                bytes += utf8Length(e.content());
+            }
+            return new Tail(List.copyOf(entries), complete, bytes);
+        }
+
+        int lastIndex() {
+            return entries.isEmpty() ? -1 : entries.get(entries.size() - 1).index();
+        }
+    }
+
+    private final boolean enabled;
+    private final int maxMessages;
+    private final Cache<String, Tail> tails;
+    private final Counter hits;
+    private final Counter misses;
+
+    public ChatMemoryTailCache(ChatMemoryProperties chatMemoryProperties, MeterRegistry meterRegistry) {
+        ChatMemoryProperties.Cache properties = chatMemoryProperties.getCache();
+        this.enabled = properties.isEnabled();
+        this.maxMessages = Math.max(1, properties.getMaxMessagesPerConversation());
+        this.tails = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1, properties.getMaxBytes()))
+                .weigher((String conversationId, Tail tail) -> tail.bytes())
+                .expireAfterAccess(properties.getExpireAfterAccessMinutes(), TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        this.hits = Counter.builder("chat.memory.cache.requests")
+                .description("Чтения окна памяти из кэша хвостов")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("chat.memory.cache.requests")
+                .description("Чтения окна памяти, ушедшие в БД")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("chat.memory.cache.evicted.bytes", tails, c -> c.stats().evictionWeight())
+                .description("Байты текста, вытесненные из кэша хвостов")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("chat.memory.cache.bytes", tails,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .description("Байты текста в кэше хвостов")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("chat.memory.cache.conversations", tails, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Последние {@code lastN} сообщений из кэша или {@code null}, если хвоста нет
+     * или он короче окна.
+     */
+    public List<Entry> window(String conversationId, int lastN) {
+        if (!enabled) {
+            return null;
+        }
+        Tail tail = tails.getIfPresent(conversationId);
+        if (tail == null || (!tail.complete() && tail.body().size() < lastN)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        List<Entry> body = tail.body();
+        List<Entry> window = body.size() > lastN ? body.subList(body.size() - lastN, body.size()) : body;
+        if (tail.summary() == null) {
+            return window;
+        }
+        List<Entry> withSummary = new ArrayList<>(window.size() + 1);
+        withSummary.add(tail.summary());
+        withSummary.addAll(window);
+        return withSummary;
+    }
+
+    /** Положить хвост, прочитанный из БД (вместе с ещё не записанными сообщениями). */
+    public void put(String conversationId, List<Entry> entries, boolean complete) {
+        if (!enabled || entries.size() > maxMessages + 1) {
+            return;
+        }
+        tails.put(conversationId, Tail.of(entries, complete));
+    }
+
+    /** Дописать к закэшированному хвосту только что сохранённые сообщения; без хвоста — ничего. */
+    public void append(String conversationId, List<ChatMemoryBatchWriter.PendingMessage> messages) {
+        if (!enabled || messages.isEmpty()) {
+            return;
+        }
+        tails.asMap().computeIfPresent(conversationId, (id, tail) -> {
+            List<Entry> entries = new ArrayList<>(tail.entries().size() + messages.size());
+            entries.addAll(tail.entries());
+            int next = tail.lastIndex() + 1;
+            for (ChatMemoryBatchWriter.PendingMessage m : messages) {
+                entries.add(new Entry(next++, m.role(), m.content()));
+            }
+            boolean complete = tail.complete();
+            Entry summary = tail.summary();
+            int bodySize = summary != null ? entries.size() - 1 : entries.size();
+            if (bodySize > maxMessages) {
+                List<Entry> trimmed = new ArrayList<>(maxMessages + 1);
+                if (summary != null) {
+                    trimmed.add(summary);
+                }
+                trimmed.addAll(entries.subList(entries.size() - maxMessages, entries.size()));
+                entries = trimmed;
+                complete = false;
+            }
+            return Tail.of(entries, complete);
+        });
+    }
+
+    /** Есть ли в кэше хвост разговора (без учёта в статистике попаданий). */
+    public boolean contains(String conversationId) {
+        return enabled && tails.asMap().containsKey(conversationId);
+    }
+
+    public void invalidate(String conversationId) {
+        invalidateIf(conversationId::equals);
+    }
+
+    public void invalidateIf(Predicate<String> conversationFilter) {
+        if (!enabled) {
+            return;
+        }
+        tails.asMap().keySet().removeIf(conversationFilter);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tails.asMap().keySet().removeIf(conversationFilter);
+                }
+            });
+        }
+    }
+
+    private static int utf8Length(String s) {
+        if (s == null) {
+            return 0;
+        }
+        int bytes = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
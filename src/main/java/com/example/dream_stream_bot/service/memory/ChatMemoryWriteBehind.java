@@ -0,0 +1,327 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.config.properties.ChatMemoryProperties;
+import com.example.dream_stream_bot.service.memory.ChatMemoryBatchWriter.IndexedMessage;
+import com.example.dream_stream_bot.service.memory.ChatMemoryBatchWriter.PendingMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Отложенная запись {@code chat_memory} ({@code app.chat-memory.write-behind.enabled}).
+ *
+ * Сообщения получают {@code message_index} сразу, пишутся в {@link ChatMemoryJournal} и
+ * копятся в буфере разговора; в БД они уходят пачкой по таймеру или когда буфер разговора
+ * заполнен. Пока сообщение не записано, {@link PostgresChatMemory} подмешивает его к чтению.
+ * После падения журнал воспроизводится при старте; запись по {@code (conversation_id,
+ * message_index)} идемпотентна. Правки и удаления памяти сначала сбрасывают буферы.
+ *
+ * Рассчитано на то, что разговор обслуживает один инстанс: индексы назначаются локально.
+ */
+@Component
+public class ChatMemoryWriteBehind {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatMemoryWriteBehind.class);
+    /** Буфер без записей дольше этого срока выбрасывается вместе с закэшированным индексом. */
+    private static final long IDLE_EVICT_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private final ChatMemoryProperties.WriteBehind properties;
+    private final ChatMemoryBatchWriter batchWriter;
+    private final ObjectMapper objectMapper;
+    private final BotExecutors botExecutors;
+    private final Map<String, ConversationBuffer> buffers = new ConcurrentHashMap<>();
+    /** Сбросы всех буферов идут по одному: от этого зависит, какие сегменты журнала можно удалить. */
+    private final ReentrantLock flushAllLock = new ReentrantLock();
+
+    private ChatMemoryJournal journal;
+    private ScheduledExecutorService flusher;
+
+    public ChatMemoryWriteBehind(ChatMemoryProperties chatMemoryProperties,
+                                 ChatMemoryBatchWriter batchWriter,
+                                 ObjectMapper objectMapper,
+                                 BotExecutors botExecutors) {
+        this.properties = chatMemoryProperties.getWriteBehind();
+        this.batchWriter = batchWriter;
+        this.objectMapper = objectMapper;
+        this.botExecutors = botExecutors;
+    }
+
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Path directory = Paths.get(properties.getJournalDirectory());
+        try {
+            journal = new ChatMemoryJournal(objectMapper, directory,
+                    properties.getJournalSegmentBytes(), properties.isJournalFsync());
+        } catch (IOException e) {
+            LOGGER.error("❌ Chat memory journal {} is unavailable, write-behind disabled: {}", directory, e.getMessage());
+            return;
+        }
+        replay();
+        long interval = Math.max(50, properties.getFlushIntervalMs());
+        flusher = Executors.newSingleThreadScheduledExecutor(botExecutors.threadFactory("chat-memory-flush-"));
+        flusher.scheduleWithFixedDelay(this::flushAllSafely, interval, interval, TimeUnit.MILLISECONDS);
+        LOGGER.info("💾 Chat memory write-behind enabled | flush every {} ms | journal {}", interval, directory);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            flushAllSafely();
+            journal.close();
+        }
+    }
+
+    /** Поставить сообщения в очередь записи; индексы назначаются сразу, в порядке списка. */
+    public void append(String conversationId, List<PendingMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        while (true) {
+            ConversationBuffer buffer = buffers.computeIfAbsent(conversationId, ConversationBuffer::new);
+            buffer.lock.lock();
+            try {
+                if (buffer.evicted) {
+                    continue;
+                }
+                if (buffer.nextIndex < 0) {
+                    buffer.nextIndex = batchWriter.nextIndex(conversationId);
+                }
+                List<IndexedMessage> indexed = new ArrayList<>(messages.size());
+                for (PendingMessage message : messages) {
+                    indexed.add(new IndexedMessage(buffer.nextIndex++, message));
+                }
+                buffer.lastAppendAt = System.currentTimeMillis();
+                if (!journal(conversationId, indexed)) {
+                    // Без журнала буфер не переживёт падение — пишем сразу.
+                    batchWriter.insertIndexed(conversationId, indexed);
+                    return;
+                }
+                buffer.pending.addAll(indexed);
+                if (buffer.pending.size() >= properties.getMaxBufferedPerConversation()) {
+                    flusher.execute(() -> flushSafely(conversationId));
+                }
+                return;
+            } finally {
+                buffer.lock.unlock();
+            }
+        }
+    }
+
+    /** Ещё не записанные в БД сообщения разговора, по возрастанию индекса. */
+    public List<IndexedMessage> pending(String conversationId) {
+        ConversationBuffer buffer = buffers.get(conversationId);
+        if (buffer == null) {
+            return List.of();
+        }
+        buffer.lock.lock();
+        try {
+            return List.copyOf(buffer.pending);
+        } finally {
+            buffer.lock.unlock();
+        }
+    }
+
+    /** Записать буфер разговора в БД. Нужен перед правкой записей разговора. */
+    public void flush(String conversationId) {
+        ConversationBuffer buffer = buffers.get(conversationId);
+        if (buffer == null) {
+            return;
+        }
+        buffer.lock.lock();
+        try {
+            flushLocked(buffer);
+        } finally {
+            buffer.lock.unlock();
+        }
+    }
+
+    /**
+     * Перед удалением записей: сбросить буферы и забыть буферы подходящих разговоров вместе
+     * с их индексами. Строки этих разговоров вычищаются из журнала, даже если сброс других
+     * разговоров не удался и сегменты остались, — иначе воспроизведение вернуло бы удалённое.
+     */
+    public void flushAndEvict(Predicate<String> conversationFilter) {
+        if (!isEnabled()) {
+            return;
+        }
+        flushAllLock.lock();
+        try {
+            flushAll();
+            List<Path> sealed = journal.seal();
+            for (ConversationBuffer buffer : List.copyOf(buffers.values())) {
+                if (!conversationFilter.test(buffer.conversationId)) {
+                    continue;
+                }
+                buffer.lock.lock();
+                try {
+                    flushLocked(buffer);
+                    buffer.evicted = true;
+                    buffers.remove(buffer.conversationId, buffer);
+                } finally {
+                    buffer.lock.unlock();
+                }
+            }
+            journal.retain(sealed, entry -> !conversationFilter.test(entry.conversationId()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to purge chat memory journal", e);
+        } finally {
+            flushAllLock.unlock();
+        }
+    }
+
+    /**
+     * Сбросить все буферы. Сегменты журнала, закрытые до начала сброса, удаляются,
+     * только если записались все разговоры.
+     */
+    public boolean flushAll() {
+        if (!isEnabled()) {
+            return true;
+        }
+        flushAllLock.lock();
+        try {
+            List<Path> sealed = journal.seal();
+            boolean allFlushed = true;
+            long now = System.currentTimeMillis();
+            for (ConversationBuffer buffer : List.copyOf(buffers.values())) {
+                buffer.lock.lock();
+                try {
+                    flushLocked(buffer);
+                    if (buffer.pending.isEmpty() && now - buffer.lastAppendAt > IDLE_EVICT_MS) {
+                        buffer.evicted = true;
+                        buffers.remove(buffer.conversationId, buffer);
+                    }
+                } catch (RuntimeException e) {
+                    allFlushed = false;
+                    LOGGER.error("❌ Chat memory flush failed | conv={} | pending={}: {}",
+                            buffer.conversationId, buffer.pending.size(), e.getMessage());
+                } finally {
+                    buffer.lock.unlock();
+                }
+            }
+            if (allFlushed) {
+                journal.delete(sealed);
+            }
+            return allFlushed;
+        } finally {
+            flushAllLock.unlock();
+        }
+    }
+
+    private void flushLocked(ConversationBuffer buffer) {
+        if (buffer.pending.isEmpty()) {
+            return;
+        }
+        batchWriter.insertIndexed(buffer.conversationId, new ArrayList<>(buffer.pending));
+        buffer.pending.clear();
+    }
+
+    private void flushSafely(String conversationId) {
+        try {
+            flush(conversationId);
+        } catch (RuntimeException e) {
+            LOGGER.error("❌ Chat memory flush failed | conv={}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    private void flushAllSafely() {
+        try {
+            flushAll();
+        } catch (RuntimeException e) {
+            LOGGER.error("❌ Chat memory flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean journal(String conversationId, List<IndexedMessage> indexed) {
+        try {
+            for (IndexedMessage m : indexed) {
+                PendingMessage p = m.message();
+                journal.append(new ChatMemoryJournal.Entry(conversationId, m.index(), p.role(), p.content(),
+                        p.telegramMessageId(), p.messageThreadId(),
+                        p.createdAt() != null ? p.createdAt().toString() : null));
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("❌ Failed to journal chat memory | conv={}: {}", conversationId, e.getMessage());
+            return false;
+        }
+    }
+
+    /** Дописать в БД то, что осталось в журнале после прошлого запуска. */
+    private void replay() {
+        List<Path> sealed = journal.seal();
+        List<ChatMemoryJournal.Entry> entries = journal.readAll(sealed);
+        if (entries.isEmpty()) {
+            journal.delete(sealed);
+            return;
+        }
+        Map<String, List<IndexedMessage>> byConversation = new LinkedHashMap<>();
+        for (ChatMemoryJournal.Entry e : entries) {
+            PendingMessage message = new PendingMessage(e.role(), e.content(), e.telegramMessageId(),
+                    e.messageThreadId(), e.createdAt() != null ? LocalDateTime.parse(e.createdAt()) : null);
+            byConversation.computeIfAbsent(e.conversationId(), k -> new ArrayList<>())
+                    .add(new IndexedMessage(e.index(), message));
+        }
+        int inserted = 0;
+        try {
+            for (Map.Entry<String, List<IndexedMessage>> e : byConversation.entrySet()) {
+                inserted += batchWriter.insertIndexed(e.getKey(), e.getValue());
+            }
+        } catch (RuntimeException e) {
+            // Сегменты остаются: следующий запуск повторит воспроизведение.
+            LOGGER.error("❌ Chat memory journal replay failed: {}", e.getMessage(), e);
+            return;
+        }
+        journal.delete(sealed);
+        LOGGER.info("💾 Chat memory journal replayed | entries={} | inserted={} | conversations={}",
+                entries.size(), inserted, byConversation.size());
+    }
+
+    private static final class ConversationBuffer {
+        private final String conversationId;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<IndexedMessage> pending = new ArrayDeque<>();
+        private int nextIndex = -1;
+        private long lastAppendAt = System.currentTimeMillis();
+        private boolean evicted;
+
+        private ConversationBuffer(String conversationId) {
+            this.conversationId = conversationId;
+        }
+    }
+}
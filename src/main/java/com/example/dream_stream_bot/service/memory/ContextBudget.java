@@ -0,0 +1,54 @@
+package com.example.dream_stream_bot.service.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Отбор истории в промпт по бюджету токенов: от новых сообщений к старым, пока помещаются.
+ * Хвост остаётся непрерывным — сообщение, не влезшее в бюджет, отсекает и всё, что старше.
+ *
+ * Summary сжатой части (первый элемент окна) идёт первым, если занимает не больше половины
+ * бюджета; иначе он вытеснил бы почти весь свежий контекст и пропускается.
+ */
+public final class ContextBudget {
+
+    /** Бюджет не задан — окно берётся целиком. */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private ContextBudget() {
+    }
+
+    public static <T> List<T> fitNewest(List<T> window, ToIntFunction<T> tokens, Predicate<T> isSummary, int budget) {
+        if (budget == UNLIMITED || window.isEmpty()) {
+            return window;
+        }
+        int remaining = Math.max(0, budget);
+        T summary = null;
+        int from = 0;
+        if (isSummary.test(window.get(0))) {
+            from = 1;
+            int summaryTokens = tokens.applyAsInt(window.get(0));
+            if (summaryTokens <= remaining / 2) {
+                summary = window.get(0);
+                remaining -= summaryTokens;
+            }
+        }
+        int start = window.size();
+        for (int i = window.size() - 1; i >= from; i--) {
+            int t = tokens.applyAsInt(window.get(i));
+            if (t > remaining) {
+                break;
+            }
+            remaining -= t;
+            start = i;
+        }
+        List<T> result = new ArrayList<>(window.size() - start + 1);
+        if (summary != null) {
+            result.add(summary);
+        }
+        result.addAll(window.subList(start, window.size()));
+        return result;
+    }
+}
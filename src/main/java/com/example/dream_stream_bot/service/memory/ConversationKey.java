@@ -0,0 +1,47 @@
+package com.example.dream_stream_bot.service.memory;
+
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разобранный id разговора, который формирует {@code AbstractTelegramBot.buildConversationId}:
+ * {@code bot:<bot_id>[:chat:<chat_id>][:thread:<thread_id>][:user:<user_id>]}.
+ * Те же значения хранятся в типизированных колонках {@code chat_memory}, по ним идут удаления.
+ * Части, которых нет в id (или id другой формы), — {@code null}.
+ */
+public record ConversationKey(Long botId, Long chatId, Integer threadId, Long userId) {
+
+    private static final Pattern PATTERN = Pattern.compile(
+            "^bot:(\\d+)(?::chat:(-?\\d+))?(?::thread:(\\d+))?(?::user:(\\d+))?$");
+    private static final ConversationKey UNKNOWN = new ConversationKey(null, null, null, null);
+
+    public static ConversationKey parse(String conversationId) {
+        if (conversationId == null) {
+            return UNKNOWN;
+        }
+        Matcher m = PATTERN.matcher(conversationId);
+        if (!m.matches()) {
+            return UNKNOWN;
+        }
+        try {
+            return new ConversationKey(
+                    Long.parseLong(m.group(1)),
+                    m.group(2) != null ? Long.parseLong(m.group(2)) : null,
+                    m.group(3) != null ? Integer.parseInt(m.group(3)) : null,
+                    m.group(4) != null ? Long.parseLong(m.group(4)) : null);
+        } catch (NumberFormatException e) {
+            return UNKNOWN;
+        }
+    }
+
+    /** Разговор пользователя в боте: личка, группы и топики. */
+    public boolean isUserInBot(Long botId, Long userId) {
+        return botId != null && userId != null && botId.equals(this.botId) && userId.equals(this.userId);
+    }
+
+    /** Разговор внутри группового чата бота (любой топик, любой участник). */
+    public boolean isInChat(Long botId, Long chatId) {
+        return botId != null && chatId != null && botId.equals(this.botId) && Objects.equals(chatId, this.chatId);
+    }
+}
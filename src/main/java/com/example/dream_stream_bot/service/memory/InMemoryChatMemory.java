@@ -6,11 +6,10 @@ import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
-import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.stereotype.Component;
 
-public class InMemoryChatMemory implements ChatMemory {
+public class InMemoryChatMemory implements WindowedChatMemory {
 
     // Потокобезопасная карта для хранения сообщений по conversationId
     private final ConcurrentMap<String, List<Message>> conversations = new ConcurrentHashMap<>();
@@ -27,6 +26,13 @@ public class InMemoryChatMemory implements ChatMemory {
         return new ArrayList<>(conversations.getOrDefault(conversationId, Collections.emptyList()));
     }
 
+    // Возвращает последние lastN сообщений разговора
+    @Override
+    public List<Message> get(String conversationId, int lastN) {
+        List<Message> all = get(conversationId);
+        return lastN <= 0 ? new ArrayList<>() : new ArrayList<>(all.subList(Math.max(0, all.size() - lastN), all.size()));
+    }
+
     // Очищает историю сообщений для указанного разговора
     @Override
     public void clear(String conversationId) {
@@ -2,29 +2,62 @@ package com.example.dream_stream_bot.service.memory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Component
-public class PostgresChatMemory implements ChatMemory {
+public class PostgresChatMemory implements WindowedChatMemory {
     private static final Logger logger = LoggerFactory.getLogger(PostgresChatMemory.class);
 
-    /** Совпадает со схемой conversationId, которую формирует AbstractTelegramBot.buildConversationId. */
-    private static final Pattern THREAD_ID_PATTERN = Pattern.compile(":thread:(\\d+)");
+    private static final String SUMMARY_PREFIX = "[Краткое содержание предыдущей части разговора]\n";
 
     @Autowired
     private PostgresChatMemoryRepository repository;
 
+    @Autowired
+    private ChatMemoryBatchWriter batchWriter;
+
+    @Autowired
+    private ChatMemoryWriteBehind writeBehind;
+
+    @Autowired
+    private ChatMemoryTailCache tailCache;
+
+    @Autowired
+    private ChatMemoryArchiveService archiveService;
+
+    @Autowired
+    private ChatMemoryActivityRepository activityRepository;
+
+    /** Открытый ход разговора текущего потока: сообщения копятся до {@link Turn#close()}. */
+    private final ThreadLocal<BufferedTurn> currentTurn = new ThreadLocal<>();
+
+    /**
+     * Открывает ход для {@code conversationId}: сообщения, добавленные в этом потоке до закрытия,
+     * записываются одним многострочным INSERT (или одной порцией в {@link ChatMemoryWriteBehind}).
+     * Вложенный ход — no-op.
+     */
+    @Override
+    public Turn beginTurn(String conversationId) {
+        if (currentTurn.get() != null) {
+            return () -> { };
+        }
+        BufferedTurn turn = new BufferedTurn(conversationId);
+        currentTurn.set(turn);
+        return turn;
+    }
+
     @Override
     public void add(String conversationId, List<Message> messages) {
         if (messages == null || messages.isEmpty()) {
@@ -32,47 +65,197 @@ public class PostgresChatMemory implements ChatMemory {
         }
         logger.info("💾 PostgresChatMemory.add() | ConversationId: {} | Messages count: {}",
                 conversationId, messages.size());
-        Integer threadId = extractThreadId(conversationId);
+        Integer threadId = ConversationKey.parse(conversationId).threadId();
         TelegramMessageContext.MessageRef incomingRef = TelegramMessageContext.takeIncoming();
-        int startIndex = repository.countByConversationId(conversationId);
-        for (int i = 0; i < messages.size(); i++) {
-            Message msg = messages.get(i);
-            ChatMemoryEntity entity = new ChatMemoryEntity();
-            entity.setConversationId(conversationId);
-            entity.setMessageIndex(startIndex + i);
-            entity.setRole(msg.getMessageType().name().toLowerCase());
-            entity.setContent(extractText(msg));
-            entity.setMessageThreadId(threadId);
-            if (incomingRef != null && msg instanceof UserMessage) {
-                entity.setTelegramMessageId(incomingRef.telegramMessageId());
+        List<ChatMemoryBatchWriter.PendingMessage> pending = new ArrayList<>(messages.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (Message msg : messages) {
+            Integer telegramMessageId = incomingRef != null && msg instanceof UserMessage
+                    ? incomingRef.telegramMessageId()
+                    : null;
+            pending.add(new ChatMemoryBatchWriter.PendingMessage(
+                    msg.getMessageType().name().toLowerCase(), extractText(msg), telegramMessageId, threadId, now));
+        }
+        BufferedTurn turn = currentTurn.get();
+        if (turn != null && turn.conversationId.equals(conversationId)) {
+            turn.pending.addAll(pending);
+            return;
+        }
+        persist(conversationId, pending);
+    }
+
+    private void persist(String conversationId, List<ChatMemoryBatchWriter.PendingMessage> pending) {
+        if (!tailCache.contains(conversationId)) {
+            // Индексы новых сообщений продолжают архивную историю, поэтому она возвращается до записи.
+            archiveService.rehydrate(conversationId);
+        }
+        if (writeBehind.isEnabled()) {
+            writeBehind.append(conversationId, pending);
+        } else {
+            batchWriter.append(conversationId, pending);
+        }
+        tailCache.append(conversationId, pending);
+    }
+
+    /**
+     * Хвост разговора: из {@link ChatMemoryTailCache}, а при промахе —
+     * {@code ORDER BY message_index DESC LIMIT n} по индексу {@code (conversation_id, message_index)};
+     * время и память не зависят от длины истории. Если разговор сжат, перед хвостом идёт его summary.
+     * Если в БД нет ни одной строки, разговор возвращается из холодного архива
+     * ({@link ChatMemoryArchiveService#rehydrate}).
+     */
+    @Override
+    public List<Message> get(String conversationId, int lastN) {
+        return toMessages(windowEntries(conversationId, lastN));
+    }
+
+    /**
+     * То же окно, урезанное до {@code tokenBudget} по оценкам токенов, сохранённым при записи
+     * ({@code chat_memory.token_count}) — текст при чтении не пересчитывается.
+     */
+    @Override
+    public List<Message> get(String conversationId, int lastN, int tokenBudget) {
+        List<ChatMemoryTailCache.Entry> window = ContextBudget.fitNewest(windowEntries(conversationId, lastN),
+                ChatMemoryTailCache.Entry::tokens, PostgresChatMemory::isSummaryEntry, tokenBudget);
+        logger.debug("💾 PostgresChatMemory.get() | ConversationId: {} | Budget: {} | Messages: {} | Tokens≈{}",
+                conversationId, tokenBudget, window.size(),
+                window.stream().mapToInt(ChatMemoryTailCache.Entry::tokens).sum());
+        return toMessages(window);
+    }
+
+    private List<ChatMemoryTailCache.Entry> windowEntries(String conversationId, int lastN) {
+        if (lastN <= 0) {
+            return List.of();
+        }
+        List<ChatMemoryTailCache.Entry> window = tailCache.window(conversationId, lastN);
+        if (window == null) {
+            List<ChatMemoryEntity> tail = new ArrayList<>(
+                    repository.findByConversationIdOrderByMessageIndexDesc(conversationId, Limit.of(lastN)));
+            // Перенесённый в архив разговор не оставляет строк в chat_memory — архив нужен только пустому.
+            if (tail.isEmpty() && archiveService.rehydrate(conversationId)) {
+                tail.addAll(repository.findByConversationIdOrderByMessageIndexDesc(conversationId, Limit.of(lastN)));
+            }
+            Collections.reverse(tail);
+            logger.info("💾 PostgresChatMemory.get() | ConversationId: {} | Window: {} | Retrieved {} messages",
+                    conversationId, lastN, tail.size());
+            // Summary — самая ранняя строка сжатого разговора: дошли до неё — прочитан весь разговор,
+            // даже если тела в нём меньше lastN.
+            boolean complete = tail.size() < lastN || isSummary(tail.get(0));
+            if (!complete) {
+                // Окно не дошло до начала разговора: summary сжатой части идёт перед хвостом.
+                repository.findFirstByConversationIdOrderByMessageIndexAsc(conversationId)
+                        .filter(PostgresChatMemory::isSummary)
+                        .ifPresent(summary -> tail.add(0, summary));
             }
-            repository.save(entity);
+            window = withWriteBehind(conversationId, tail);
+            tailCache.put(conversationId, window, complete);
         }
+        return withOpenTurn(conversationId, window, lastN);
     }
 
     @Override
     public List<Message> get(String conversationId) {
         logger.info("💾 PostgresChatMemory.get() | ConversationId: {}", conversationId);
         List<ChatMemoryEntity> entities = repository.findByConversationIdOrderByMessageIndexAsc(conversationId);
+        if (entities.isEmpty() && archiveService.rehydrate(conversationId)) {
+            entities = repository.findByConversationIdOrderByMessageIndexAsc(conversationId);
+        }
         logger.info("💾 PostgresChatMemory.get() | ConversationId: {} | Retrieved {} messages",
                 conversationId, entities.size());
-        return entities.stream()
-                .map(e -> {
-                    String role = e.getRole().toLowerCase();
-                    return switch (role) {
-                        case "user" -> (Message) new UserMessage(e.getContent());
-                        case "assistant" -> new AssistantMessage(e.getContent());
-                        case "system" -> new SystemMessage(e.getContent());
-                        default -> throw new IllegalArgumentException("Unknown role: " + e.getRole());
-                    };
-                })
-                .collect(Collectors.toList());
+        return toMessages(withOpenTurn(conversationId, withWriteBehind(conversationId, entities), Integer.MAX_VALUE));
+    }
+
+    /**
+     * Строки из БД плюс ещё не записанные сообщения буфера отложенной записи
+     * (по индексу — уже сброшенные не дублируются).
+     */
+    private List<ChatMemoryTailCache.Entry> withWriteBehind(String conversationId, List<ChatMemoryEntity> rows) {
+        List<ChatMemoryTailCache.Entry> entries = new ArrayList<>(rows.size());
+        for (ChatMemoryEntity row : rows) {
+            entries.add(new ChatMemoryTailCache.Entry(
+                    row.getMessageIndex(), row.getRole(), row.getContent(), row.tokensOrEstimate()));
+        }
+        if (writeBehind.isEnabled()) {
+            int lastSaved = rows.isEmpty() ? -1 : rows.get(rows.size() - 1).getMessageIndex();
+            for (ChatMemoryBatchWriter.IndexedMessage m : writeBehind.pending(conversationId)) {
+                if (m.index() > lastSaved) {
+                    entries.add(new ChatMemoryTailCache.Entry(m.index(), m.message().role(), m.message().content()));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Сообщения открытого хода ещё не записаны (например, при повторном вызове модели) —
+     * дописываются в конец окна; summary в начале окна при обрезке сохраняется.
+     */
+    private List<ChatMemoryTailCache.Entry> withOpenTurn(String conversationId,
+                                                         List<ChatMemoryTailCache.Entry> window, int lastN) {
+        BufferedTurn turn = currentTurn.get();
+        if (turn == null || !turn.conversationId.equals(conversationId) || turn.pending.isEmpty()) {
+            return window;
+        }
+        List<ChatMemoryTailCache.Entry> result = new ArrayList<>(window);
+        for (ChatMemoryBatchWriter.PendingMessage p : turn.pending) {
+            result.add(new ChatMemoryTailCache.Entry(-1, p.role(), p.content()));
+        }
+        int from = !result.isEmpty() && isSummaryEntry(result.get(0)) ? 1 : 0;
+        int excess = result.size() - from - lastN;
+        if (excess > 0) {
+            result.subList(from, from + excess).clear();
+        }
+        return result;
+    }
+
+    private static List<Message> toMessages(List<ChatMemoryTailCache.Entry> entries) {
+        return entries.stream()
+                .map(e -> toMessage(e.role(), e.content()))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private static boolean isSummaryEntry(ChatMemoryTailCache.Entry e) {
+        return ChatMemoryEntity.ROLE_SUMMARY.equalsIgnoreCase(e.role());
+    }
+
+    private static boolean isSummary(ChatMemoryEntity e) {
+        return ChatMemoryEntity.ROLE_SUMMARY.equalsIgnoreCase(e.getRole());
+    }
+
+    private static Message toMessage(String role, String content) {
+        return switch (role.toLowerCase()) {
+            // PromptChatMemoryAdvisor переносит в промпт только USER/ASSISTANT — summary подаётся от ассистента.
+            case ChatMemoryEntity.ROLE_SUMMARY -> new AssistantMessage(SUMMARY_PREFIX + content);
+            case "user" -> new UserMessage(content);
+            case "assistant" -> new AssistantMessage(content);
+            case "system" -> new SystemMessage(content);
+            default -> throw new IllegalArgumentException("Unknown role: " + role);
+        };
     }
 
     @Override
     public void clear(String conversationId) {
         logger.info("💾 PostgresChatMemory.clear() | ConversationId: {}", conversationId);
+        writeBehind.flushAndEvict(conversationId::equals);
         repository.deleteByConversationId(conversationId);
+        activityRepository.deleteExact(conversationId);
+        tailCache.invalidate(conversationId);
+    }
+
+    private final class BufferedTurn implements Turn {
+
+        private final String conversationId;
+        private final List<ChatMemoryBatchWriter.PendingMessage> pending = new ArrayList<>(2);
+
+        private BufferedTurn(String conversationId) {
+            this.conversationId = conversationId;
+        }
+
+        @Override
+        public void close() {
+            currentTurn.remove();
+            persist(conversationId, pending);
+        }
     }
 
     private static String extractText(Message msg) {
@@ -87,19 +270,4 @@ public class PostgresChatMemory implements ChatMemory {
         }
         return "";
     }
-
-    private static Integer extractThreadId(String conversationId) {
-        if (conversationId == null) {
-            return null;
-        }
-        Matcher m = THREAD_ID_PATTERN.matcher(conversationId);
-        if (m.find()) {
-            try {
-                return Integer.parseInt(m.group(1));
-            } catch (NumberFormatException e) {
-                return null;
-            }
-        }
-        return null;
-    }
 }
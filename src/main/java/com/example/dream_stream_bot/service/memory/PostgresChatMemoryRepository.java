@@ -1,10 +1,12 @@
 package com.example.dream_stream_bot.service.memory;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,26 +15,69 @@ import java.util.Optional;
 public interface PostgresChatMemoryRepository extends JpaRepository<ChatMemoryEntity, Long> {
     List<ChatMemoryEntity> findByConversationIdOrderByMessageIndexAsc(String conversationId);
 
+    /** Хвост разговора (новые первыми) — обратный проход по индексу {@code (conversation_id, message_index)}. */
+    List<ChatMemoryEntity> findByConversationIdOrderByMessageIndexDesc(String conversationId, Limit limit);
+
     int countByConversationId(String conversationId);
 
+    /**
+     * Токены разговора по {@code token_count} без загрузки строк. Для старых строк без оценки —
+     * грубая оценка сверху (2 символа на токен), точный подсчёт делает вызывающий.
+     */
+    @Query("select coalesce(sum(coalesce(c.tokenCount, length(c.content) / 2 + 4)), 0) "
+            + "from ChatMemoryEntity c where c.conversationId = :conversationId")
+    long sumTokens(@Param("conversationId") String conversationId);
+
+    /** Первая строка разговора — после сжатия это summary. */
+    Optional<ChatMemoryEntity> findFirstByConversationIdOrderByMessageIndexAsc(String conversationId);
+
+    /** Удаляет сообщения разговора с индексом не больше {@code lastIndex} (замена на summary). */
+    @Modifying
+    @Query("delete from ChatMemoryEntity c where c.conversationId = :conversationId and c.messageIndex <= :lastIndex")
+    int deleteUpToIndex(@Param("conversationId") String conversationId, @Param("lastIndex") int lastIndex);
+
     void deleteByConversationId(String conversationId);
 
     Optional<ChatMemoryEntity> findByConversationIdAndTelegramMessageId(String conversationId, Integer telegramMessageId);
 
     List<ChatMemoryEntity> findTop2ByConversationIdOrderByMessageIndexDesc(String conversationId);
 
-    /** Все сообщения в рамках группового чата (все топики и пользователи): {@code bot:<id>:chat:<chatId>}% */
+    /** Удаление по префиксу id разговора — для префиксов, которые не сводятся к {@link ConversationKey}. */
     @Modifying
     @Query("delete from ChatMemoryEntity c where c.conversationId like concat(:prefix, '%')")
     int deleteByConversationIdStartingWith(@Param("prefix") String prefix);
 
+    /** Все сообщения в рамках группового чата (все топики и пользователи) — индекс {@code (bot_id, chat_id)}. */
+    @Modifying
+    @Query("delete from ChatMemoryEntity c where c.botId = :botId and c.chatId = :chatId")
+    int deleteByBotIdAndChatId(@Param("botId") Long botId, @Param("chatId") Long chatId);
+
+    /** Все записи памяти пользователя Telegram в рамках бота (личка + все группы) — индекс {@code (bot_id, user_id)}. */
+    @Modifying
+    @Query("delete from ChatMemoryEntity c where c.botId = :botId and c.userId = :userId")
+    int deleteByBotIdAndUserId(@Param("botId") Long botId, @Param("userId") Long userId);
+
     /**
-     * Удаляет все записи памяти пользователя Telegram в рамках бота (личка + все группы этого бота).
-     * Суффикс разговора: {@code :user:<telegram_id>}.
+     * Порция (до {@code limit} строк) памяти группового чата; вызов — отдельная транзакция.
+     * Используется ночным retention, чтобы не держать одну большую транзакцию.
      */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM chat_memory WHERE id IN (SELECT id FROM chat_memory "
+            + "WHERE bot_id = :botId AND chat_id = :chatId LIMIT :limit)", nativeQuery = true)
+    int deleteChunkByBotIdAndChatId(@Param("botId") Long botId, @Param("chatId") Long chatId, @Param("limit") int limit);
+
+    /** Порция (до {@code limit} строк) личного разговора пользователя с ботом; вызов — отдельная транзакция. */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM chat_memory WHERE id IN (SELECT id FROM chat_memory "
+            + "WHERE bot_id = :botId AND user_id = :userId AND chat_id IS NULL LIMIT :limit)", nativeQuery = true)
+    int deletePrivateChunk(@Param("botId") Long botId, @Param("userId") Long userId, @Param("limit") int limit);
+
+    /** Вся память бота — по ведущей колонке индексов {@code bot_id}. */
     @Modifying
-    @Query("delete from ChatMemoryEntity c where c.conversationId like concat(:botPrefix, '%') and c.conversationId like concat('%', ':user:', :telegramUserId)")
-    int deleteForUserInBot(@Param("botPrefix") String botPrefix, @Param("telegramUserId") String telegramUserId);
+    @Query("delete from ChatMemoryEntity c where c.botId = :botId")
+    int deleteByBotId(@Param("botId") Long botId);
 
     @Modifying
     long deleteAllByConversationId(String conversationId);
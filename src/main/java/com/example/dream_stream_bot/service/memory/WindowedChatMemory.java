@@ -0,0 +1,72 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.service.ai.TokenEstimator;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+
+/**
+ * {@link ChatMemory} с чтением только хвоста разговора.
+ *
+ * В Spring AI 1.0 {@code PromptChatMemoryAdvisor} всегда зовёт {@link #get(String)} без размера окна,
+ * поэтому окно задаётся обёрткой {@link #window(int)}: она передаётся в advisor вместо самой памяти.
+ */
+public interface WindowedChatMemory extends ChatMemory {
+
+    /** Последние {@code lastN} сообщений разговора в хронологическом порядке. */
+    List<Message> get(String conversationId, int lastN);
+
+    /**
+     * Последние сообщения окна {@code lastN}, умещающиеся в {@code tokenBudget} (см. {@link ContextBudget}).
+     * По умолчанию токены оцениваются по тексту при каждом чтении.
+     */
+    default List<Message> get(String conversationId, int lastN, int tokenBudget) {
+        return ContextBudget.fitNewest(get(conversationId, lastN),
+                m -> TokenEstimator.estimateMessage(m.getText()), m -> false, tokenBudget);
+    }
+
+    /** Представление этой памяти, у которого {@link #get(String)} отдаёт только последние {@code lastN} сообщений. */
+    default ChatMemory window(int lastN) {
+        return window(lastN, ContextBudget.UNLIMITED);
+    }
+
+    /** Как {@link #window(int)}, но вдобавок не больше {@code tokenBudget} токенов истории. */
+    default ChatMemory window(int lastN, int tokenBudget) {
+        return new Window(this, lastN, tokenBudget);
+    }
+
+    /**
+     * Открывает ход разговора: сообщения, добавленные до {@link Turn#close()}, можно записать вместе.
+     * По умолчанию ничего не буферизует.
+     */
+    default Turn beginTurn(String conversationId) {
+        return () -> { };
+    }
+
+    /** Область хода разговора; {@link #close()} записывает накопленные сообщения. */
+    interface Turn extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    record Window(WindowedChatMemory delegate, int lastN, int tokenBudget) implements ChatMemory {
+
+        @Override
+        public void add(String conversationId, List<Message> messages) {
+            delegate.add(conversationId, messages);
+        }
+
+        @Override
+        public List<Message> get(String conversationId) {
+            return tokenBudget == ContextBudget.UNLIMITED
+                    ? delegate.get(conversationId, lastN)
+                    : delegate.get(conversationId, lastN, tokenBudget);
+        }
+
+        @Override
+        public void clear(String conversationId) {
+            delegate.clear(conversationId);
+        }
+    }
+}
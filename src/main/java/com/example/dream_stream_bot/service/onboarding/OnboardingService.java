@@ -799,12 +799,10 @@ public class OnboardingService {
     }
 
     private ConsentCode nextMissingConsent(Long userId, Long botId, List<ConsentCode> required) {
-        for (ConsentCode code : required) {
-            if (!consentService.hasAcceptedBotBoundDocument(userId, botId, code)) {
-                return code;
-            }
+        if (required.isEmpty()) {
+            return null;
         }
-        return null;
+        return consentService.verdictForBot(botId, userId).firstMissing(required);
     }
 
     private List<ConsentCode> requiredConsentsOwner(BotEntity bot) {
@@ -13,11 +13,13 @@ import com.example.dream_stream_bot.model.subscription.TariffScope;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
 import com.example.dream_stream_bot.model.user.UserEntity;
 import com.example.dream_stream_bot.model.user.UserRepository;
+import com.example.dream_stream_bot.service.access.EntitlementsChangedEvent;
 import com.example.dream_stream_bot.service.subscription.SubscriptionTariffService;
 import com.example.dream_stream_bot.service.telegram.BotService;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -40,6 +42,7 @@ public class SubscriptionCheckoutService {
     private final YooKassaCredentialsResolver credentialsResolver;
     private final YooKassaHttpClient yooKassaHttpClient;
     private final YooKassaProperties yooKassaProperties;
+    private final ApplicationEventPublisher eventPublisher;
 
     public SubscriptionCheckoutService(BotService botService,
                                        SubscriptionRepository subscriptionRepository,
@@ -48,7 +51,8 @@ public class SubscriptionCheckoutService {
                                        UserRepository userRepository,
                                        YooKassaCredentialsResolver credentialsResolver,
                                        YooKassaHttpClient yooKassaHttpClient,
-                                       YooKassaProperties yooKassaProperties) {
+                                       YooKassaProperties yooKassaProperties,
+                                       ApplicationEventPublisher eventPublisher) {
         this.botService = botService;
         this.subscriptionRepository = subscriptionRepository;
         this.tariffService = tariffService;
@@ -57,6 +61,7 @@ public class SubscriptionCheckoutService {
         this.credentialsResolver = credentialsResolver;
         this.yooKassaHttpClient = yooKassaHttpClient;
         this.yooKassaProperties = yooKassaProperties;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -94,6 +99,7 @@ public class SubscriptionCheckoutService {
         if (!subscription.getTariffId().equals(tariffId)) {
             subscription.setTariffId(tariffId);
             subscriptionRepository.save(subscription);
+            eventPublisher.publishEvent(EntitlementsChangedEvent.bot(botId));
         }
 
         return chargeYooKassa(bot, credentials, subscription, tariff, ownerUserId, tariffId, null, receiptEmailOverride);
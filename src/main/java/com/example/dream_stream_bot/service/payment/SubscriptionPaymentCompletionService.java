@@ -6,9 +6,9 @@ import com.example.dream_stream_bot.model.subscription.SubscriptionPaymentReposi
 import com.example.dream_stream_bot.model.subscription.SubscriptionPaymentStatus;
 import com.example.dream_stream_bot.model.subscription.SubscriptionRepository;
 import com.example.dream_stream_bot.model.subscription.SubscriptionTariffEntity;
-import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
 import com.example.dream_stream_bot.service.subscription.SubscriptionService;
+import com.example.dream_stream_bot.service.subscription.TariffCatalog;
 import com.example.dream_stream_bot.service.telegram.BotService;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
@@ -26,7 +26,7 @@ public class SubscriptionPaymentCompletionService {
 
     private final SubscriptionPaymentRepository paymentRepository;
     private final SubscriptionRepository subscriptionRepository;
-    private final SubscriptionTariffRepository tariffRepository;
+    private final TariffCatalog tariffCatalog;
     private final SubscriptionService subscriptionService;
     private final BotService botService;
     private final YooKassaCredentialsResolver credentialsResolver;
@@ -34,14 +34,14 @@ public class SubscriptionPaymentCompletionService {
 
     public SubscriptionPaymentCompletionService(SubscriptionPaymentRepository paymentRepository,
                                                 SubscriptionRepository subscriptionRepository,
-                                                SubscriptionTariffRepository tariffRepository,
+                                                TariffCatalog tariffCatalog,
                                                 SubscriptionService subscriptionService,
                                                 BotService botService,
                                                 YooKassaCredentialsResolver credentialsResolver,
                                                 YooKassaHttpClient yooKassaHttpClient) {
         this.paymentRepository = paymentRepository;
         this.subscriptionRepository = subscriptionRepository;
-        this.tariffRepository = tariffRepository;
+        this.tariffCatalog = tariffCatalog;
         this.subscriptionService = subscriptionService;
         this.botService = botService;
         this.credentialsResolver = credentialsResolver;
@@ -94,7 +94,7 @@ public class SubscriptionPaymentCompletionService {
             return false;
         }
 
-        SubscriptionTariffEntity tariff = tariffRepository.findById(pay.getTariffId())
+        SubscriptionTariffEntity tariff = tariffCatalog.findById(pay.getTariffId())
                 .orElseThrow(() -> new IllegalStateException("Tariff missing id=" + pay.getTariffId()));
         if (tariff.getPaidTermDays() == null || tariff.getPaidTermDays() < 1) {
             throw new IllegalStateException("Tariff has no paid_term_days id=" + tariff.getId());
@@ -6,14 +6,17 @@ import com.example.dream_stream_bot.model.subscription.ReferralBonusGrantReposit
 import com.example.dream_stream_bot.model.subscription.SubscriptionEntity;
 import com.example.dream_stream_bot.model.subscription.SubscriptionParticipantRepository;
 import com.example.dream_stream_bot.model.subscription.SubscriptionRepository;
+import com.example.dream_stream_bot.service.access.EntitlementsChangedEvent;
 import com.example.dream_stream_bot.service.consent.ConsentService;
 import com.example.dream_stream_bot.service.memory.ChatMemoryService;
 import com.example.dream_stream_bot.service.onboarding.OnboardingScopeHolder;
 import com.example.dream_stream_bot.service.payment.ReceiptEmailAwaitService;
 import com.example.dream_stream_bot.service.subscription.GroupLinkWizardStateHolder;
+import com.example.dream_stream_bot.service.subscription.ParticipantActivityTracker;
 import com.example.dream_stream_bot.service.subscription.SubscriptionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,35 +37,41 @@ public class UserDataErasureService {
     private final SubscriptionRepository subscriptionRepository;
     private final SubscriptionService subscriptionService;
     private final SubscriptionParticipantRepository participantRepository;
+    private final ParticipantActivityTracker participantActivityTracker;
     private final ReferralBonusGrantRepository referralBonusGrantRepository;
     private final ConsentService consentService;
     private final ChatMemoryService chatMemoryService;
     private final OnboardingScopeHolder onboardingScopeHolder;
     private final GroupLinkWizardStateHolder groupLinkWizardStateHolder;
     private final ReceiptEmailAwaitService receiptEmailAwaitService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public UserDataErasureService(BotUserErasureRepository erasureRepository,
                                   TelegramIdHashService telegramIdHashService,
                                   SubscriptionRepository subscriptionRepository,
                                   SubscriptionService subscriptionService,
                                   SubscriptionParticipantRepository participantRepository,
+                                  ParticipantActivityTracker participantActivityTracker,
                                   ReferralBonusGrantRepository referralBonusGrantRepository,
                                   ConsentService consentService,
                                   ChatMemoryService chatMemoryService,
                                   OnboardingScopeHolder onboardingScopeHolder,
                                   GroupLinkWizardStateHolder groupLinkWizardStateHolder,
-                                  ReceiptEmailAwaitService receiptEmailAwaitService) {
+                                  ReceiptEmailAwaitService receiptEmailAwaitService,
+                                  ApplicationEventPublisher eventPublisher) {
         this.erasureRepository = erasureRepository;
         this.telegramIdHashService = telegramIdHashService;
         this.subscriptionRepository = subscriptionRepository;
         this.subscriptionService = subscriptionService;
         this.participantRepository = participantRepository;
+        this.participantActivityTracker = participantActivityTracker;
         this.referralBonusGrantRepository = referralBonusGrantRepository;
         this.consentService = consentService;
         this.chatMemoryService = chatMemoryService;
         this.onboardingScopeHolder = onboardingScopeHolder;
         this.groupLinkWizardStateHolder = groupLinkWizardStateHolder;
         this.receiptEmailAwaitService = receiptEmailAwaitService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -76,6 +85,7 @@ public class UserDataErasureService {
         clearInMemoryState(botId, appUserId);
 
         int referralDeleted = referralBonusGrantRepository.deleteByBotIdAndUserId(botId, appUserId);
+        participantActivityTracker.forgetTelegramUser(telegramUserId);
         int participantsRemoved = participantRepository.deleteByTelegramIdOnBot(telegramUserId, botId);
 
         List<SubscriptionEntity> owned = new ArrayList<>(
@@ -93,6 +103,7 @@ public class UserDataErasureService {
         record.setBotId(botId);
         record.setTelegramIdHash(hash);
         erasureRepository.save(record);
+        eventPublisher.publishEvent(EntitlementsChangedEvent.userOnBot(appUserId, botId));
 
         LOGGER.info("🗑 User data erased | bot={} | appUser={} | subs={} | participants={} | consents={} | referral={} | memory={}",
                 botId, appUserId, subscriptionsDeleted, participantsRemoved, consentsDeleted,
@@ -20,6 +20,18 @@ public class SystemSettingsService {
     /** Если true — retention job не удаляет данные (для роли оператора ПД с бессрочным хранением). */
     public static final String KEY_RETENTION_UNLIMITED = "RETENTION_UNLIMITED";
 
+    /**
+     * Предельный возраст истории чатов в месяцах независимо от подписок: старые месячные секции
+     * {@code chat_memory} удаляются целиком. 0 — без ограничения.
+     */
+    public static final String KEY_CHAT_MEMORY_MAX_AGE_MONTHS = "CHAT_MEMORY_MAX_AGE_MONTHS";
+
+    /**
+     * Id последней подписки, обработанной ночным retention; по нему прерванный проход продолжается.
+     * 0 — следующий проход начинается сначала.
+     */
+    public static final String KEY_CHAT_MEMORY_RETENTION_CURSOR = "CHAT_MEMORY_RETENTION_CURSOR";
+
     private static final int DEFAULT_RETENTION_DAYS = 90;
 
     private final SystemSettingsRepository repository;
@@ -48,6 +60,18 @@ public class SystemSettingsService {
                 .orElse(defaultValue);
     }
 
+    public long getLong(String key, long defaultValue) {
+        return get(key)
+                .map(value -> {
+                    try {
+                        return Long.parseLong(value.trim());
+                    } catch (NumberFormatException e) {
+                        return defaultValue;
+                    }
+                })
+                .orElse(defaultValue);
+    }
+
     public boolean getBool(String key, boolean defaultValue) {
         return get(key)
                 .map(value -> Boolean.parseBoolean(value.trim()))
@@ -68,4 +92,8 @@ public class SystemSettingsService {
     public boolean isRetentionUnlimited() {
         return getBool(KEY_RETENTION_UNLIMITED, false);
     }
+
+    public int getChatMemoryMaxAgeMonths() {
+        return Math.max(0, getInt(KEY_CHAT_MEMORY_MAX_AGE_MONTHS, 0));
+    }
 }
@@ -1,6 +1,6 @@
 package com.example.dream_stream_bot.service.subscription;
 
-import com.example.dream_stream_bot.model.subscription.SubscriptionEntity;
+import com.example.dream_stream_bot.bot.message.OutboundDispatcher;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
 import com.example.dream_stream_bot.model.user.UserEntity;
 import com.example.dream_stream_bot.service.access.GatingDedup;
@@ -28,19 +28,19 @@ public class OwnerParticipantLimitNotifier {
         this.gatingDedup = gatingDedup;
     }
 
-    public void notifySoftLimitExceeded(BotEntity bot, SubscriptionEntity subscription, long active, int max) {
-        String key = GatingDedup.key("participant_soft", bot.getId(), subscription.getScopeChatId(),
-                subscription.getOwnerUserId(), "cap");
+    public void notifySoftLimitExceeded(BotEntity bot, Long scopeChatId, Long ownerUserId, long active, int max) {
+        String key = GatingDedup.key("participant_soft", bot.getId(), scopeChatId, ownerUserId, "cap");
         if (!gatingDedup.acquire(key)) {
             return;
         }
-        Optional<UserEntity> owner = userService.findById(subscription.getOwnerUserId());
+        Optional<UserEntity> owner = userService.findById(ownerUserId);
         if (owner.isEmpty()) {
             return;
         }
-        String text = "👥 По подписке группы в чате " + subscription.getScopeChatId()
+        String text = "👥 По подписке группы в чате " + scopeChatId
                 + " за расчётный месяц зафиксировано " + active + " активных участников при лимите "
                 + max + ". Рассмотрите апгрейд тарифа или сокращение числа обращающихся к боту.";
-        telegramBotApiService.sendTextMessage(bot, owner.get().getTelegramId(), text, null);
+        telegramBotApiService.enqueueTextMessage(bot, owner.get().getTelegramId(), text, null,
+                OutboundDispatcher.Priority.BROADCAST);
     }
 }
@@ -0,0 +1,248 @@
+package com.example.dream_stream_bot.service.subscription;
+
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.config.properties.AccessProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Активные участники групповых подписок за текущий календарный месяц (по Москве) — в памяти.
+ *
+ * При первом сообщении в подписке за месяц участники месяца читаются из
+ * {@code subscription_participant} одним запросом, дальше {@link #touch(Long, Long)} отвечает
+ * из памяти. Отметки {@code last_seen_at} копятся и раз в {@code app.access.participant-activity.flush-interval-ms}
+ * уходят в БД пачкой: UPDATE существующих строк и INSERT новых. Участник, ещё не записанный в БД,
+ * после рестарта считается заново со следующего сообщения.
+ *
+ * Рассчитано на то, что подписку обслуживает один инстанс, как и {@code ChatMemoryWriteBehind}.
+ */
+@Component
+public class ParticipantActivityTracker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParticipantActivityTracker.class);
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+
+    private static final String MONTH_MEMBERS_SQL =
+            "SELECT telegram_id FROM subscription_participant WHERE subscription_id = ? AND last_seen_at >= ?";
+    private static final String UPDATE_SQL =
+            "UPDATE subscription_participant SET last_seen_at = ? "
+                    + "WHERE subscription_id = ? AND telegram_id = ? AND last_seen_at < ?";
+    /** Подписка могла быть удалена, пока отметка ждала записи, — такие строки пропускаются. */
+    private static final String INSERT_SQL =
+            "INSERT INTO subscription_participant (subscription_id, telegram_id, first_seen_at, last_seen_at) "
+                    + "SELECT s.id, CAST(? AS BIGINT), CAST(? AS TIMESTAMP WITH TIME ZONE), "
+                    + "CAST(? AS TIMESTAMP WITH TIME ZONE) FROM subscription s WHERE s.id = ? "
+                    + "AND NOT EXISTS (SELECT 1 FROM subscription_participant p "
+                    + "WHERE p.subscription_id = s.id AND p.telegram_id = ?)";
+
+    private record Key(Long subscriptionId, Long telegramId) {
+    }
+
+    /** Первое и последнее сообщение участника с прошлого сброса. */
+    private record Seen(OffsetDateTime first, OffsetDateTime last) {
+
+        Seen merge(Seen other) {
+            return new Seen(first.isBefore(other.first) ? first : other.first,
+                    last.isAfter(other.last) ? last : other.last);
+        }
+    }
+
+    /** Участники подписки, писавшие в {@code month}. */
+    private record MonthActivity(YearMonth month, Set<Long> members) {
+    }
+
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SubscriptionParticipantService participantService;
+    private final BotExecutors botExecutors;
+    private final Map<Long, MonthActivity> months = new ConcurrentHashMap<>();
+    private final Map<Key, Seen> pending = new ConcurrentHashMap<>();
+    /**
+     * Сбросы идут по одному; {@link #forgetTelegramUser(Long)} и чтение месячного набора ждут
+     * текущий сброс: его пачка уже вынута из {@code pending}, но ещё не видна в БД.
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private ScheduledExecutorService flusher;
+
+    public ParticipantActivityTracker(AccessProperties accessProperties,
+                                      JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      SubscriptionParticipantService participantService,
+                                      BotExecutors botExecutors,
+                                      MeterRegistry meterRegistry) {
+        AccessProperties.ParticipantActivity properties = accessProperties.getParticipantActivity();
+        this.enabled = properties.isEnabled();
+        this.flushIntervalMs = Math.max(100, properties.getFlushIntervalMs());
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.participantService = participantService;
+        this.botExecutors = botExecutors;
+        Gauge.builder("participant.activity.pending", pending, Map::size)
+                .description("Отметки участников, ещё не записанные в subscription_participant")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(botExecutors.threadFactory("participant-flush-"));
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        LOGGER.info("👥 Participant activity tracker enabled | flush every {} ms", flushIntervalMs);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+    }
+
+    /**
+     * Отмечает сообщение участника и возвращает число уникальных активных участников подписки
+     * в текущем календарном месяце (включая его).
+     */
+    public long touch(Long subscriptionId, Long telegramUserId) {
+        if (subscriptionId == null || telegramUserId == null) {
+            return 0;
+        }
+        if (!enabled) {
+            participantService.touch(subscriptionId, telegramUserId);
+            return participantService.countActiveSince(subscriptionId, monthStart(YearMonth.now(MOSCOW)));
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        YearMonth month = YearMonth.from(now.atZoneSameInstant(MOSCOW));
+        MonthActivity activity = months.get(subscriptionId);
+        if (activity == null || !activity.month().equals(month)) {
+            MonthActivity loaded = load(subscriptionId, month);
+            activity = months.compute(subscriptionId,
+                    (id, current) -> current != null && current.month().equals(month) ? current : loaded);
+        }
+        activity.members().add(telegramUserId);
+        pending.merge(new Key(subscriptionId, telegramUserId), new Seen(now, now), Seen::merge);
+        return activity.members().size();
+    }
+
+    /**
+     * Забывает неотправленные отметки пользователя и месячные наборы, где он есть (они перечитаются
+     * из БД). Вызывается перед удалением его строк участника, чтобы сброс не вернул их обратно.
+     */
+    public void forgetTelegramUser(Long telegramUserId) {
+        if (telegramUserId == null) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            pending.keySet().removeIf(k -> telegramUserId.equals(k.telegramId()));
+            months.values().removeIf(a -> a.members().contains(telegramUserId));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** Пишет накопленные отметки в БД; возвращает число обработанных участников. */
+    public int flush() {
+        flushLock.lock();
+        try {
+            YearMonth current = YearMonth.now(MOSCOW);
+            months.values().removeIf(a -> a.month().isBefore(current));
+            if (pending.isEmpty()) {
+                return 0;
+            }
+            Map<Key, Seen> batch = new HashMap<>();
+            for (Key key : List.copyOf(pending.keySet())) {
+                Seen seen = pending.remove(key);
+                if (seen != null) {
+                    batch.put(key, seen);
+                }
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+            } catch (RuntimeException e) {
+                batch.forEach((key, seen) -> pending.merge(key, seen, Seen::merge));
+                throw e;
+            }
+            LOGGER.debug("👥 Participant activity flushed | participants={}", batch.size());
+            return batch.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOGGER.warn("⚠️ Failed to flush participant activity, will retry: {}", e.getMessage(), e);
+        }
+    }
+
+    private void write(Map<Key, Seen> batch) {
+        List<Object[]> updates = new ArrayList<>(batch.size());
+        List<Object[]> inserts = new ArrayList<>(batch.size());
+        batch.forEach((key, seen) -> {
+            Timestamp first = Timestamp.from(seen.first().toInstant());
+            Timestamp last = Timestamp.from(seen.last().toInstant());
+            updates.add(new Object[]{last, key.subscriptionId(), key.telegramId(), last});
+            inserts.add(new Object[]{key.telegramId(), first, last, key.subscriptionId(), key.telegramId()});
+        });
+        jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+    }
+
+    private MonthActivity load(Long subscriptionId, YearMonth month) {
+        OffsetDateTime since = monthStart(month);
+        Set<Long> members = ConcurrentHashMap.newKeySet();
+        flushLock.lock();
+        try {
+            members.addAll(jdbcTemplate.queryForList(MONTH_MEMBERS_SQL, Long.class,
+                    subscriptionId, Timestamp.from(since.toInstant())));
+            pending.forEach((key, seen) -> {
+                if (key.subscriptionId().equals(subscriptionId) && !seen.last().isBefore(since)) {
+                    members.add(key.telegramId());
+                }
+            });
+        } finally {
+            flushLock.unlock();
+        }
+        return new MonthActivity(month, members);
+    }
+
+    private static OffsetDateTime monthStart(YearMonth month) {
+        return month.atDay(1).atStartOfDay(MOSCOW).toOffsetDateTime();
+    }
+}
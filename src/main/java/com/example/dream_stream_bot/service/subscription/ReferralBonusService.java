@@ -8,7 +8,6 @@ import com.example.dream_stream_bot.model.subscription.SubscriptionPeriodEntity;
 import com.example.dream_stream_bot.model.subscription.SubscriptionPeriodRepository;
 import com.example.dream_stream_bot.model.subscription.SubscriptionRepository;
 import com.example.dream_stream_bot.model.subscription.SubscriptionTariffEntity;
-import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
 import com.example.dream_stream_bot.model.user.UserEntity;
 import com.example.dream_stream_bot.service.user.UserService;
 import org.springframework.stereotype.Service;
@@ -18,18 +17,18 @@ import java.util.Optional;
 @Service
 public class ReferralBonusService {
 
-    private final SubscriptionTariffRepository tariffRepository;
+    private final TariffCatalog tariffCatalog;
     private final SubscriptionRepository subscriptionRepository;
     private final SubscriptionPeriodRepository periodRepository;
     private final ReferralBonusGrantRepository referralBonusGrantRepository;
     private final UserService userService;
 
-    public ReferralBonusService(SubscriptionTariffRepository tariffRepository,
+    public ReferralBonusService(TariffCatalog tariffCatalog,
                                 SubscriptionRepository subscriptionRepository,
                                 SubscriptionPeriodRepository periodRepository,
                                 ReferralBonusGrantRepository referralBonusGrantRepository,
                                 UserService userService) {
-        this.tariffRepository = tariffRepository;
+        this.tariffCatalog = tariffCatalog;
         this.subscriptionRepository = subscriptionRepository;
         this.periodRepository = periodRepository;
         this.referralBonusGrantRepository = referralBonusGrantRepository;
@@ -44,7 +43,7 @@ public class ReferralBonusService {
         if (referralBonusGrantRepository.existsByPaymentPeriodId(paymentPeriod.getId())) {
             return Optional.empty();
         }
-        SubscriptionTariffEntity tariff = tariffRepository.findById(referredSubscription.getTariffId()).orElse(null);
+        SubscriptionTariffEntity tariff = tariffCatalog.findById(referredSubscription.getTariffId()).orElse(null);
         if (tariff == null || !tariff.isReferralEnabled()) {
             return Optional.empty();
         }
@@ -0,0 +1,15 @@
+package com.example.dream_stream_bot.service.subscription;
+
+import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Подписка сохранена или удалена через {@link SubscriptionService}.
+ * Слушатель — {@link SubscriptionExpiryScheduler}, получает событие после коммита транзакции.
+ *
+ * @param status    {@code null} — подписка удалена
+ * @param expiresAt конец последнего периода, {@code null} — бессрочно или периодов нет
+ */
+public record SubscriptionChangedEvent(Long subscriptionId, SubscriptionStatus status, OffsetDateTime expiresAt) {
+}
@@ -0,0 +1,48 @@
+package com.example.dream_stream_bot.service.subscription;
+
+import com.example.dream_stream_bot.bot.message.OutboundDispatcher;
+import com.example.dream_stream_bot.model.subscription.SubscriptionEntity;
+import com.example.dream_stream_bot.model.telegram.BotEntity;
+import com.example.dream_stream_bot.model.user.UserEntity;
+import com.example.dream_stream_bot.service.telegram.BotService;
+import com.example.dream_stream_bot.service.telegram.TelegramBotApiService;
+import com.example.dream_stream_bot.service.user.UserService;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Сообщение владельцу, когда {@link SubscriptionExpiryScheduler} перевёл его подписку в EXPIRED.
+ */
+@Service
+public class SubscriptionExpiryNotifier {
+
+    private final UserService userService;
+    private final BotService botService;
+    private final TelegramBotApiService telegramBotApiService;
+
+    public SubscriptionExpiryNotifier(UserService userService,
+                                      BotService botService,
+                                      TelegramBotApiService telegramBotApiService) {
+        this.userService = userService;
+        this.botService = botService;
+        this.telegramBotApiService = telegramBotApiService;
+    }
+
+    public void notifyExpired(SubscriptionEntity subscription) {
+        BotEntity bot = botService.findById(subscription.getBotId());
+        if (bot == null) {
+            return;
+        }
+        Optional<UserEntity> owner = userService.findById(subscription.getOwnerUserId());
+        if (owner.isEmpty()) {
+            return;
+        }
+        String text = subscription.getScopeChatId() != null
+                ? "⌛ Срок подписки группы в чате " + subscription.getScopeChatId()
+                        + " закончился — бот перестанет отвечать там, пока её не продлят. Продлить: /subscriptions"
+                : "⌛ Срок вашей подписки закончился. Продлить: /subscriptions";
+        telegramBotApiService.enqueueTextMessage(bot, owner.get().getTelegramId(), text, null,
+                OutboundDispatcher.Priority.BROADCAST);
+    }
+}
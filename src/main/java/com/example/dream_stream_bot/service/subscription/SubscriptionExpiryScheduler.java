@@ -0,0 +1,200 @@
+package com.example.dream_stream_bot.service.subscription;
+
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.model.subscription.SubscriptionEntity;
+import com.example.dream_stream_bot.model.subscription.SubscriptionRepository;
+import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Переводит TRIAL/ACTIVE подписки в EXPIRED в момент окончания периода.
+ *
+ * Сроки держатся в очереди по времени: при старте она заполняется из БД одним запросом,
+ * дальше обновляется по {@link SubscriptionChangedEvent}. Один поток спит до ближайшего срока,
+ * переводит подписку через {@link SubscriptionService#expireIfDue(Long, OffsetDateTime)} (он же
+ * сбрасывает кэш прав доступа) и сообщает владельцу. Подписки, истёкшие во время простоя,
+ * переводятся сразу после старта.
+ *
+ * Продление не удаляет старую запись из очереди: актуальный срок подписки хранится отдельно,
+ * устаревшие записи пропускаются при извлечении.
+ *
+ * Планировщик работает на каждом инстансе. Перевод — условный UPDATE, поэтому подписку
+ * получает и уведомляет владельца только тот инстанс, чей UPDATE изменил строку. Кэш прав
+ * сбрасывается тоже только там; остальные инстансы не дают доступ после срока, потому что
+ * {@link com.example.dream_stream_bot.service.access.AccessGate} сверяет {@code expires_at} из снимка.
+ */
+@Component
+public class SubscriptionExpiryScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubscriptionExpiryScheduler.class);
+
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    private record Entry(Instant at, Long subscriptionId) {
+    }
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionService subscriptionService;
+    private final SubscriptionExpiryNotifier notifier;
+    private final BotExecutors botExecutors;
+    private final Counter expiredCounter;
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.comparing(Entry::at));
+    /** Актуальный срок по подписке; запись очереди с другим сроком устарела. */
+    private final Map<Long, Instant> deadlines = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> wakeUp;
+    private Instant wakeUpAt;
+
+    public SubscriptionExpiryScheduler(SubscriptionRepository subscriptionRepository,
+                                       SubscriptionService subscriptionService,
+                                       SubscriptionExpiryNotifier notifier,
+                                       BotExecutors botExecutors,
+                                       MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.subscriptionService = subscriptionService;
+        this.notifier = notifier;
+        this.botExecutors = botExecutors;
+        this.expiredCounter = Counter.builder("subscription.expiry.expired")
+                .description("Подписки, переведённые в EXPIRED по окончании периода")
+                .register(meterRegistry);
+        Gauge.builder("subscription.expiry.scheduled", deadlines, Map::size)
+                .description("Подписки с запланированным окончанием срока")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(botExecutors.threadFactory("subscription-expiry-"));
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        List<SubscriptionEntity> subscriptions = subscriptionRepository.findByStatusInAndExpiresAtIsNotNull(
+                List.of(SubscriptionStatus.TRIAL, SubscriptionStatus.ACTIVE));
+        for (SubscriptionEntity subscription : subscriptions) {
+            schedule(subscription.getId(), subscription.getExpiresAt());
+        }
+        LOGGER.info("⌛ Subscription expiry scheduler loaded | subscriptions={}", subscriptions.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubscriptionChanged(SubscriptionChangedEvent event) {
+        if (event.status() != null && event.status().isAccessAllowed() && event.expiresAt() != null) {
+            schedule(event.subscriptionId(), event.expiresAt());
+        } else {
+            deadlines.remove(event.subscriptionId());
+        }
+    }
+
+    /** Планирует перевод подписки в EXPIRED на {@code expiresAt}; прежний срок подписки забывается. */
+    public void schedule(Long subscriptionId, OffsetDateTime expiresAt) {
+        if (subscriptionId == null || expiresAt == null) {
+            return;
+        }
+        Instant at = expiresAt.toInstant();
+        lock.lock();
+        try {
+            if (at.equals(deadlines.put(subscriptionId, at))) {
+                return;
+            }
+            queue.add(new Entry(at, subscriptionId));
+            arm();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Переводит в EXPIRED подписки со сроком не позже {@code now} и планирует следующее пробуждение.
+     * Возвращает число переведённых подписок.
+     */
+    public int expireDue(Instant now) {
+        List<Long> due = new ArrayList<>();
+        lock.lock();
+        try {
+            while (!queue.isEmpty() && !queue.peek().at().isAfter(now)) {
+                Entry entry = queue.poll();
+                if (deadlines.remove(entry.subscriptionId(), entry.at())) {
+                    due.add(entry.subscriptionId());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        int expired = 0;
+        OffsetDateTime at = now.atOffset(ZoneOffset.UTC);
+        for (Long subscriptionId : due) {
+            try {
+                Optional<SubscriptionEntity> subscription = subscriptionService.expireIfDue(subscriptionId, at);
+                if (subscription.isPresent()) {
+                    expired++;
+                    expiredCounter.increment();
+                    notifier.notifyExpired(subscription.get());
+                }
+            } catch (Exception e) {
+                LOGGER.warn("⚠️ Failed to expire subscription, will retry | sub={}: {}",
+                        subscriptionId, e.getMessage(), e);
+                schedule(subscriptionId, at.plus(RETRY_DELAY));
+            }
+        }
+        lock.lock();
+        try {
+            wakeUp = null;
+            arm();
+        } finally {
+            lock.unlock();
+        }
+        return expired;
+    }
+
+    /** Переставляет пробуждение на голову очереди, если она раньше уже запланированного. Под {@link #lock}. */
+    private void arm() {
+        Entry head = queue.peek();
+        if (head == null || executor == null || executor.isShutdown()) {
+            return;
+        }
+        if (wakeUp != null && !head.at().isBefore(wakeUpAt)) {
+            return;
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+        }
+        long delayMs = Math.max(0, Duration.between(Instant.now(), head.at()).toMillis());
+        wakeUpAt = head.at();
+        wakeUp = executor.schedule(() -> expireDue(Instant.now()), delayMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -7,12 +7,13 @@ import com.example.dream_stream_bot.model.subscription.SubscriptionPeriodReposit
 import com.example.dream_stream_bot.model.subscription.SubscriptionRepository;
 import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
 import com.example.dream_stream_bot.model.subscription.SubscriptionTariffEntity;
-import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
 import com.example.dream_stream_bot.model.subscription.TariffAccessMode;
 import com.example.dream_stream_bot.model.subscription.TrialUsageEntity;
 import com.example.dream_stream_bot.model.subscription.TrialUsageRepository;
+import com.example.dream_stream_bot.service.access.EntitlementsChangedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -38,22 +39,25 @@ public class SubscriptionService {
     private final SubscriptionRepository subscriptionRepository;
     private final SubscriptionPeriodRepository periodRepository;
     private final TrialUsageRepository trialUsageRepository;
-    private final SubscriptionTariffRepository tariffRepository;
+    private final TariffCatalog tariffCatalog;
     private final SubscriptionTariffService tariffService;
     private final ReferralBonusService referralBonusService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public SubscriptionService(SubscriptionRepository subscriptionRepository,
                                SubscriptionPeriodRepository periodRepository,
                                TrialUsageRepository trialUsageRepository,
-                               SubscriptionTariffRepository tariffRepository,
+                               TariffCatalog tariffCatalog,
                                SubscriptionTariffService tariffService,
-                               ReferralBonusService referralBonusService) {
+                               ReferralBonusService referralBonusService,
+                               ApplicationEventPublisher eventPublisher) {
         this.subscriptionRepository = subscriptionRepository;
         this.periodRepository = periodRepository;
         this.trialUsageRepository = trialUsageRepository;
-        this.tariffRepository = tariffRepository;
+        this.tariffCatalog = tariffCatalog;
         this.tariffService = tariffService;
         this.referralBonusService = referralBonusService;
+        this.eventPublisher = eventPublisher;
     }
 
     /** Личная подписка пользователя на бот. */
@@ -126,7 +130,7 @@ public class SubscriptionService {
         entity.setScopeChatId(scopeChatId);
         entity.setMaxParticipants(group ? tariff.getMaxParticipants() : null);
         entity.setStatus(SubscriptionStatus.PENDING_CONSENT);
-        return subscriptionRepository.save(entity);
+        return save(entity);
     }
 
     /**
@@ -160,7 +164,7 @@ public class SubscriptionService {
             subscription.setStartedAt(now);
         }
         refreshExpiresAt(subscription);
-        return subscriptionRepository.save(subscription);
+        return save(subscription);
     }
 
     /** Персональный безлимит без периодов (после согласий). */
@@ -172,7 +176,7 @@ public class SubscriptionService {
             subscription.setStartedAt(now);
         }
         subscription.setExpiresAt(null);
-        return subscriptionRepository.save(subscription);
+        return save(subscription);
     }
 
     @Transactional
@@ -205,13 +209,13 @@ public class SubscriptionService {
         }
         subscription.setStatus(SubscriptionStatus.ACTIVE);
         refreshExpiresAt(subscription);
-        return subscriptionRepository.save(subscription);
+        return save(subscription);
     }
 
     @Transactional
     public SubscriptionEntity cancel(SubscriptionEntity subscription) {
         subscription.setStatus(SubscriptionStatus.CANCELLED);
-        return subscriptionRepository.save(subscription);
+        return save(subscription);
     }
 
     /**
@@ -228,39 +232,61 @@ public class SubscriptionService {
         return n;
     }
 
+    /**
+     * Даёт ли подписка доступ. Истёкшие TRIAL/ACTIVE переводит в EXPIRED
+     * {@link SubscriptionExpiryScheduler}, но срок сверяется и здесь — сущность могла быть
+     * прочитана до перевода. Без {@code expires_at} доступ даёт только безлимит,
+     * который хранится как ACTIVE ({@link #activateFreeUnlimited}).
+     */
     public boolean isActive(SubscriptionEntity subscription) {
-        if (subscription == null) {
-            return false;
-        }
-        Optional<SubscriptionTariffEntity> tariffOpt = tariffRepository.findById(subscription.getTariffId());
-        if (tariffOpt.isPresent()
-                && tariffOpt.get().getAccessMode() == TariffAccessMode.FREE_UNLIMITED
-                && subscription.getStatus() == SubscriptionStatus.ACTIVE) {
-            return true;
-        }
-        if (!subscription.getStatus().isAccessAllowed()) {
+        if (subscription == null || !subscription.getStatus().isAccessAllowed()) {
             return false;
         }
-        return subscription.getExpiresAt() != null && subscription.getExpiresAt().isAfter(OffsetDateTime.now());
+        OffsetDateTime expiresAt = subscription.getExpiresAt();
+        return expiresAt == null
+                ? subscription.getStatus() == SubscriptionStatus.ACTIVE
+                : expiresAt.isAfter(OffsetDateTime.now());
     }
 
     @Transactional
     public SubscriptionEntity setMaxParticipants(SubscriptionEntity subscription, Integer max) {
         subscription.setMaxParticipants(max);
-        return subscriptionRepository.save(subscription);
+        return save(subscription);
     }
 
     @Transactional
     public SubscriptionEntity markAwaitingActivation(SubscriptionEntity subscription) {
         subscription.setStatus(SubscriptionStatus.AWAITING_ACTIVATION);
-        return subscriptionRepository.save(subscription);
+        return save(subscription);
     }
 
     /** Пересчитать expires_at по периодам + перевести в EXPIRED при необходимости. */
     @Transactional
     public SubscriptionEntity refreshExpiry(SubscriptionEntity subscription) {
         refreshExpiresAt(subscription);
-        return subscriptionRepository.save(subscription);
+        return save(subscription);
+    }
+
+    /**
+     * Переводит TRIAL/ACTIVE подписку в {@link SubscriptionStatus#EXPIRED}, если её {@code expires_at}
+     * наступил к {@code now}. Перевод — условным UPDATE, поэтому из нескольких инстансов подписку
+     * получает ровно один: только ему возвращается подписка (и только он уведомляет владельца).
+     */
+    @Transactional
+    public Optional<SubscriptionEntity> expireIfDue(Long subscriptionId, OffsetDateTime now) {
+        int updated = subscriptionRepository.expireIfDue(subscriptionId, SubscriptionStatus.EXPIRED,
+                List.of(SubscriptionStatus.TRIAL, SubscriptionStatus.ACTIVE), now);
+        if (updated == 0) {
+            return Optional.empty();
+        }
+        SubscriptionEntity subscription = subscriptionRepository.findById(subscriptionId).orElseThrow();
+        LOGGER.info("⌛ Subscription expired | sub={} | bot={} | owner={} | expiresAt={}",
+                subscription.getId(), subscription.getBotId(), subscription.getOwnerUserId(),
+                subscription.getExpiresAt());
+        eventPublisher.publishEvent(EntitlementsChangedEvent.bot(subscription.getBotId()));
+        eventPublisher.publishEvent(new SubscriptionChangedEvent(
+                subscription.getId(), subscription.getStatus(), subscription.getExpiresAt()));
+        return Optional.of(subscription);
     }
 
     /**
@@ -276,6 +302,8 @@ public class SubscriptionService {
         trialUsageRepository.deleteByTariffIdAndOwnerUserIdAndScopeChatId(
                 sub.getTariffId(), sub.getOwnerUserId(), scopeKey);
         subscriptionRepository.delete(sub);
+        eventPublisher.publishEvent(EntitlementsChangedEvent.bot(sub.getBotId()));
+        eventPublisher.publishEvent(new SubscriptionChangedEvent(sub.getId(), null, null));
         LOGGER.info("🗑 Deleted subscription fully | sub={} | bot={} | owner={}",
                 sub.getId(), sub.getBotId(), sub.getOwnerUserId());
     }
@@ -302,7 +330,18 @@ public class SubscriptionService {
         }
         subscription.setStatus(SubscriptionStatus.ACTIVE);
         refreshExpiresAt(subscription);
-        return subscriptionRepository.save(subscription);
+        return save(subscription);
+    }
+
+    /**
+     * Сохраняет подписку; после коммита сбрасывается кэш прав доступа бота
+     * и обновляется срок в {@link SubscriptionExpiryScheduler}.
+     */
+    private SubscriptionEntity save(SubscriptionEntity subscription) {
+        SubscriptionEntity saved = subscriptionRepository.save(subscription);
+        eventPublisher.publishEvent(EntitlementsChangedEvent.bot(saved.getBotId()));
+        eventPublisher.publishEvent(new SubscriptionChangedEvent(saved.getId(), saved.getStatus(), saved.getExpiresAt()));
+        return saved;
     }
 
     private SubscriptionPeriodEntity addPeriod(SubscriptionEntity subscription, PeriodSource source,
@@ -340,7 +379,7 @@ public class SubscriptionService {
     }
 
     private void refreshExpiresAt(SubscriptionEntity subscription) {
-        SubscriptionTariffEntity tariff = tariffRepository.findById(subscription.getTariffId()).orElse(null);
+        SubscriptionTariffEntity tariff = tariffCatalog.findById(subscription.getTariffId()).orElse(null);
         if (tariff != null && tariff.getAccessMode() == TariffAccessMode.FREE_UNLIMITED) {
             subscription.setExpiresAt(null);
             return;
@@ -8,13 +8,17 @@ import com.example.dream_stream_bot.model.subscription.TariffAccessMode;
 import com.example.dream_stream_bot.model.subscription.TariffScope;
 import com.example.dream_stream_bot.model.subscription.TrialUsageRepository;
 import com.example.dream_stream_bot.model.subscription.ReferralBonusGrantRepository;
+import com.example.dream_stream_bot.service.access.EntitlementsChangedEvent;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 @Service
 public class SubscriptionTariffService {
@@ -23,39 +27,39 @@ public class SubscriptionTariffService {
     static final String CODE_PERSONAL_FREE = "PERSONAL_FREE";
 
     private final SubscriptionTariffRepository tariffRepository;
+    private final TariffCatalog tariffCatalog;
     private final SubscriptionRepository subscriptionRepository;
     private final TrialUsageRepository trialUsageRepository;
     private final ReferralBonusGrantRepository referralBonusGrantRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public SubscriptionTariffService(SubscriptionTariffRepository tariffRepository,
+                                     TariffCatalog tariffCatalog,
                                      SubscriptionRepository subscriptionRepository,
                                      TrialUsageRepository trialUsageRepository,
-                                     ReferralBonusGrantRepository referralBonusGrantRepository) {
+                                     ReferralBonusGrantRepository referralBonusGrantRepository,
+                                     ApplicationEventPublisher eventPublisher) {
         this.tariffRepository = tariffRepository;
+        this.tariffCatalog = tariffCatalog;
         this.subscriptionRepository = subscriptionRepository;
         this.trialUsageRepository = trialUsageRepository;
         this.referralBonusGrantRepository = referralBonusGrantRepository;
+        this.eventPublisher = eventPublisher;
     }
 
+    /** Тариф из {@link TariffCatalog}; менять его нельзя — правка только через {@link #update}. */
     public SubscriptionTariffEntity require(Long id) {
-        return tariffRepository.findById(id)
+        return tariffCatalog.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Tariff id=" + id));
     }
 
     public List<SubscriptionTariffEntity> listByBot(Long botId) {
-        return tariffRepository.findByBotIdOrderBySortOrderAscIdAsc(botId);
+        return tariffCatalog.byBot(botId);
     }
 
     public List<SubscriptionTariffEntity> listPersonalTrialAndFreeEligible(long botId, long ownerUserId) {
-        List<SubscriptionTariffEntity> tariffs = tariffRepository.findByBotIdOrderBySortOrderAscIdAsc(botId);
         List<SubscriptionTariffEntity> out = new ArrayList<>();
-        for (SubscriptionTariffEntity t : tariffs) {
-            if (!Boolean.TRUE.equals(t.isActive())) {
-                continue;
-            }
-            if (t.getScope() != TariffScope.PERSONAL) {
-                continue;
-            }
+        for (SubscriptionTariffEntity t : tariffCatalog.active(botId, TariffScope.PERSONAL)) {
             if (t.getAccessMode() == TariffAccessMode.FREE_UNLIMITED) {
                 out.add(t);
             } else if (t.getAccessMode() == TariffAccessMode.TRIAL_ONBOARDING) {
@@ -69,7 +73,7 @@ public class SubscriptionTariffService {
 
     /** Активные групповые тарифы бота (витрина мастера привязки). */
     public List<SubscriptionTariffEntity> listActiveGroupTariffs(long botId) {
-        return tariffRepository.findByBotIdAndActiveTrueAndScopeOrderBySortOrderAscIdAsc(botId, TariffScope.GROUP);
+        return tariffCatalog.active(botId, TariffScope.GROUP);
     }
 
     public SubscriptionTariffEntity requireForBot(Long botId, Long tariffId) {
@@ -81,15 +85,29 @@ public class SubscriptionTariffService {
     }
 
     public SubscriptionTariffEntity resolveDefaultPersonal(Long botId) {
-        return tariffRepository.findByBotIdAndDefaultPersonalTrue(botId)
-                .orElseGet(() -> tariffRepository.findByBotIdAndCode(botId, CODE_PERSONAL_TRIAL)
-                        .orElseThrow(() -> new IllegalStateException("No personal default tariff for bot " + botId)));
+        return findInCatalog(botId, SubscriptionTariffEntity::isDefaultPersonal)
+                .or(() -> findInCatalog(botId, t -> CODE_PERSONAL_TRIAL.equals(t.getCode())))
+                .orElseThrow(() -> new IllegalStateException("No personal default tariff for bot " + botId));
     }
 
     public SubscriptionTariffEntity resolveDefaultGroup(Long botId) {
-        return tariffRepository.findByBotIdAndDefaultGroupTrue(botId)
-                .orElseGet(() -> tariffRepository.findByBotIdAndCode(botId, "GROUP_S")
-                        .orElseThrow(() -> new IllegalStateException("No group default tariff for bot " + botId)));
+        return findInCatalog(botId, SubscriptionTariffEntity::isDefaultGroup)
+                .or(() -> findInCatalog(botId, t -> "GROUP_S".equals(t.getCode())))
+                .orElseThrow(() -> new IllegalStateException("No group default tariff for bot " + botId));
+    }
+
+    private Optional<SubscriptionTariffEntity> findInCatalog(Long botId, Predicate<SubscriptionTariffEntity> filter) {
+        return tariffCatalog.byBot(botId).stream().filter(filter).findFirst();
+    }
+
+    /** Тариф из БД для правки в текущей транзакции (сущности каталога не меняются). */
+    private SubscriptionTariffEntity requireManagedForBot(Long botId, Long tariffId) {
+        SubscriptionTariffEntity t = tariffRepository.findById(tariffId)
+                .orElseThrow(() -> new EntityNotFoundException("Tariff id=" + tariffId));
+        if (!t.getBotId().equals(botId)) {
+            throw new IllegalArgumentException("Tariff " + tariffId + " belongs to bot " + t.getBotId() + ", expected " + botId);
+        }
+        return t;
     }
 
     /** Создаёт стандартный набор тарифов для нового бота (если ещё пусто). */
@@ -117,6 +135,7 @@ public class SubscriptionTariffService {
         saveNew(botId, "GROUP_L", "Группа (до 50)", TariffScope.GROUP, TariffAccessMode.PAID_TERM,
                 null, 50, order++, false, false,
                 false, null, null, true, null);
+        eventPublisher.publishEvent(new TariffsChangedEvent(botId));
     }
 
     private void saveNew(Long botId, String code, String title, TariffScope scope,
@@ -173,7 +192,9 @@ public class SubscriptionTariffService {
         applyActivationInstruction(e, activationInstruction);
         applyDefaultFlags(e, defaultPersonal, defaultGroup);
         validate(e);
-        return tariffRepository.save(e);
+        SubscriptionTariffEntity saved = tariffRepository.save(e);
+        eventPublisher.publishEvent(new TariffsChangedEvent(botId));
+        return saved;
     }
 
     @Transactional
@@ -186,7 +207,7 @@ public class SubscriptionTariffService {
                                              Long priceAmountMinor, String currency, Integer paidTermDays,
                                              String checkoutDescription, String detailDescription,
                                              String activationInstruction) {
-        SubscriptionTariffEntity e = requireForBot(botId, id);
+        SubscriptionTariffEntity e = requireManagedForBot(botId, id);
         e.setCode(normalizeCode(code));
         e.setTitle(title.trim());
         e.setScope(scope);
@@ -203,12 +224,16 @@ public class SubscriptionTariffService {
         applyActivationInstruction(e, activationInstruction);
         applyDefaultFlags(e, defaultPersonal, defaultGroup);
         validate(e);
-        return tariffRepository.save(e);
+        SubscriptionTariffEntity saved = tariffRepository.save(e);
+        // Способ доступа и лимит участников читаются AccessGate из кэша.
+        eventPublisher.publishEvent(EntitlementsChangedEvent.bot(botId));
+        eventPublisher.publishEvent(new TariffsChangedEvent(botId));
+        return saved;
     }
 
     @Transactional
     public void delete(Long id, Long botId) {
-        SubscriptionTariffEntity e = requireForBot(botId, id);
+        SubscriptionTariffEntity e = requireManagedForBot(botId, id);
 
         // Deletion must not fail if only historical/cancelled data remains.
         subscriptionRepository.deleteByTariffIdAndStatusIn(id, List.of(
@@ -226,6 +251,8 @@ public class SubscriptionTariffService {
                     "Тариф используется активными/триальными подписками. Сначала переведите их на другой тариф или отмените.");
         }
         tariffRepository.delete(e);
+        eventPublisher.publishEvent(EntitlementsChangedEvent.bot(botId));
+        eventPublisher.publishEvent(new TariffsChangedEvent(botId));
     }
 
     private void applyDefaultFlags(SubscriptionTariffEntity e, boolean defaultPersonal, boolean defaultGroup) {
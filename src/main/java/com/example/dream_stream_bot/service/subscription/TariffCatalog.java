@@ -0,0 +1,143 @@
+package com.example.dream_stream_bot.service.subscription;
+
+import com.example.dream_stream_bot.model.subscription.SubscriptionTariffEntity;
+import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
+import com.example.dream_stream_bot.model.subscription.TariffScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Каталог тарифов в памяти: неизменяемый снимок с индексами по id, по боту и по (бот, scope)
+ * для активных тарифов. Загружается при первом обращении; после коммита изменений тарифов бота
+ * ({@link TariffsChangedEvent}) собирается новый снимок, где перечитаны только тарифы этого бота,
+ * и подменяет прежний — читатели не блокируются.
+ *
+ * Тарифы читаются в отдельной транзакции, поэтому сущности в снимке не привязаны к сессии
+ * вызывающего кода; их нельзя менять — правка идёт через {@link SubscriptionTariffService}.
+ * Как и {@link ParticipantActivityTracker}, рассчитан на один инстанс.
+ */
+@Component
+public class TariffCatalog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TariffCatalog.class);
+
+    private static final Comparator<SubscriptionTariffEntity> SORT_ORDER =
+            Comparator.comparingInt(SubscriptionTariffEntity::getSortOrder)
+                    .thenComparing(SubscriptionTariffEntity::getId);
+
+    private record ScopeKey(Long botId, TariffScope scope) {
+    }
+
+    private record Snapshot(Map<Long, SubscriptionTariffEntity> byId,
+                            Map<Long, List<SubscriptionTariffEntity>> byBot,
+                            Map<ScopeKey, List<SubscriptionTariffEntity>> activeByScope) {
+
+        static Snapshot of(List<SubscriptionTariffEntity> tariffs) {
+            List<SubscriptionTariffEntity> sorted = tariffs.stream().sorted(SORT_ORDER).toList();
+            Map<Long, SubscriptionTariffEntity> byId = new HashMap<>();
+            for (SubscriptionTariffEntity t : sorted) {
+                byId.put(t.getId(), t);
+            }
+            Map<Long, List<SubscriptionTariffEntity>> byBot = sorted.stream()
+                    .collect(Collectors.groupingBy(SubscriptionTariffEntity::getBotId, Collectors.toUnmodifiableList()));
+            Map<ScopeKey, List<SubscriptionTariffEntity>> activeByScope = sorted.stream()
+                    .filter(SubscriptionTariffEntity::isActive)
+                    .collect(Collectors.groupingBy(t -> new ScopeKey(t.getBotId(), t.getScope()),
+                            Collectors.toUnmodifiableList()));
+            return new Snapshot(Map.copyOf(byId), Map.copyOf(byBot), Map.copyOf(activeByScope));
+        }
+    }
+
+    private final SubscriptionTariffRepository tariffRepository;
+    private final TransactionTemplate readTemplate;
+    /** Пересборки идут по одной, чтобы параллельные изменения разных ботов не затёрли друг друга. */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    public TariffCatalog(SubscriptionTariffRepository tariffRepository,
+                         PlatformTransactionManager transactionManager) {
+        this.tariffRepository = tariffRepository;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTemplate.setReadOnly(true);
+    }
+
+    public Optional<SubscriptionTariffEntity> findById(Long id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(snapshot().byId().get(id));
+    }
+
+    /** Все тарифы бота по {@code sort_order, id}. */
+    public List<SubscriptionTariffEntity> byBot(Long botId) {
+        return snapshot().byBot().getOrDefault(botId, List.of());
+    }
+
+    /** Активные тарифы бота с указанным scope по {@code sort_order, id}. */
+    public List<SubscriptionTariffEntity> active(Long botId, TariffScope scope) {
+        return snapshot().activeByScope().getOrDefault(new ScopeKey(botId, scope), List.of());
+    }
+
+    /** Активные тарифы бота с указанным scope, у которых задана цена (витрина оплаты). */
+    public List<SubscriptionTariffEntity> activePaid(Long botId, TariffScope scope) {
+        return active(botId, scope).stream()
+                .filter(t -> t.getPriceAmountMinor() != null)
+                .toList();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTariffsChanged(TariffsChangedEvent event) {
+        rebuildLock.lock();
+        try {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            List<SubscriptionTariffEntity> tariffs = new ArrayList<>();
+            for (SubscriptionTariffEntity t : current.byId().values()) {
+                if (!t.getBotId().equals(event.botId())) {
+                    tariffs.add(t);
+                }
+            }
+            tariffs.addAll(readTemplate.execute(status -> tariffRepository.findByBotIdOrderBySortOrderAscIdAsc(event.botId())));
+            snapshot = Snapshot.of(tariffs);
+            LOGGER.info("🏷 Tariff catalog rebuilt | bot={} | tariffs={}", event.botId(), tariffs.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        rebuildLock.lock();
+        try {
+            if (snapshot == null) {
+                List<SubscriptionTariffEntity> tariffs = readTemplate.execute(status -> tariffRepository.findAll());
+                snapshot = Snapshot.of(tariffs);
+                LOGGER.info("🏷 Tariff catalog loaded | tariffs={}", tariffs.size());
+            }
+            return snapshot;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.dream_stream_bot.service.subscription;
+
+/**
+ * Тарифы бота созданы, изменены или удалены через {@link SubscriptionTariffService}.
+ * Слушатель — {@link TariffCatalog}, получает событие после коммита транзакции.
+ */
+public record TariffsChangedEvent(Long botId) {
+}
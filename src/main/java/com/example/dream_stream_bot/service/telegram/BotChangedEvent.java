@@ -0,0 +1,11 @@
+package com.example.dream_stream_bot.service.telegram;
+
+/**
+ * Бот создан, изменён или удалён. Публикуется {@link BotService}; слушатели
+ * получают его после коммита транзакции.
+ *
+ * @param botId   id бота
+ * @param deleted {@code true}, если строка бота удалена
+ */
+public record BotChangedEvent(Long botId, boolean deleted) {
+}
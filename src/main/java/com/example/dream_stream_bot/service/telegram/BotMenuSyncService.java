@@ -3,14 +3,20 @@ package com.example.dream_stream_bot.service.telegram;
 import com.example.dream_stream_bot.bot.command.BotCommand;
 import com.example.dream_stream_bot.bot.command.ChatScope;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
+import com.example.dream_stream_bot.service.settings.SystemSettingsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Синхронизация набора команд бота с меню Telegram через {@code setMyCommands}.
@@ -23,6 +29,8 @@ import java.util.Set;
  *
  * В обе области попадают только команды с непустым {@link BotCommand#menuDescription()}.
  * Идемпотентно: вызовы можно делать на каждом старте без побочных эффектов.
+ * {@link #syncIfChanged} пропускает вызовы Telegram, если хэш меню не изменился
+ * с последней успешной синхронизации (хранится в {@code system_settings}).
  */
 @Service
 public class BotMenuSyncService {
@@ -32,23 +40,54 @@ public class BotMenuSyncService {
     private static final Map<String, Object> SCOPE_PRIVATE = Map.of("type", "all_private_chats");
     private static final Map<String, Object> SCOPE_GROUP = Map.of("type", "all_group_chats");
 
+    /** Префикс ключа {@code system_settings} с хэшем последнего опубликованного меню бота. */
+    static final String KEY_MENU_HASH_PREFIX = "BOT_MENU_HASH_";
+
+    public enum SyncResult { SYNCED, UNCHANGED, FAILED }
+
     private final List<BotCommand> commands;
     private final TelegramBotApiService telegramBotApiService;
+    private final SystemSettingsService systemSettingsService;
 
     public BotMenuSyncService(List<BotCommand> commands,
-                              TelegramBotApiService telegramBotApiService) {
+                              TelegramBotApiService telegramBotApiService,
+                              SystemSettingsService systemSettingsService) {
         this.commands = commands;
         this.telegramBotApiService = telegramBotApiService;
+        this.systemSettingsService = systemSettingsService;
+    }
+
+    /**
+     * Как {@link #syncFor}, но без вызовов Telegram, если набор команд не менялся
+     * с последней успешной синхронизации этого бота.
+     */
+    public SyncResult syncIfChanged(BotEntity bot) {
+        if (bot == null || bot.getId() == null) {
+            return SyncResult.FAILED;
+        }
+        String key = KEY_MENU_HASH_PREFIX + bot.getId();
+        String hash = menuHash(bot);
+        if (systemSettingsService.get(key).filter(hash::equals).isPresent()) {
+            LOGGER.info("📋 Telegram menu for bot '{}' unchanged — sync skipped", bot.getUsername());
+            return SyncResult.UNCHANGED;
+        }
+        if (!syncFor(bot)) {
+            return SyncResult.FAILED;
+        }
+        systemSettingsService.set(key, hash);
+        return SyncResult.SYNCED;
     }
 
     /**
      * Синхронизирует меню команд для одного бота (private + group scopes).
      * Ошибка вызова Telegram API логируется, но не пробрасывается, чтобы
      * не блокировать запуск приложения.
+     *
+     * @return {@code true}, если Telegram принял обе области
      */
-    public void syncFor(BotEntity bot) {
+    public boolean syncFor(BotEntity bot) {
         if (bot == null) {
-            return;
+            return false;
         }
         List<TelegramBotApiService.MenuCommand> privateMenu = menuFor(Set.of(ChatScope.PRIVATE));
         List<TelegramBotApiService.MenuCommand> groupMenu = menuFor(Set.of(ChatScope.GROUP, ChatScope.SUPERGROUP));
@@ -58,8 +97,30 @@ public class BotMenuSyncService {
                 privateMenu.stream().map(TelegramBotApiService.MenuCommand::command).toList(),
                 groupMenu.stream().map(TelegramBotApiService.MenuCommand::command).toList());
 
-        telegramBotApiService.setMyCommands(bot, privateMenu, SCOPE_PRIVATE, null);
-        telegramBotApiService.setMyCommands(bot, groupMenu, SCOPE_GROUP, null);
+        // Обе области независимы — отправляем параллельно и ждём обе.
+        CompletableFuture<Boolean> privateOk = telegramBotApiService.setMyCommandsAsync(bot, privateMenu, SCOPE_PRIVATE, null);
+        CompletableFuture<Boolean> groupOk = telegramBotApiService.setMyCommandsAsync(bot, groupMenu, SCOPE_GROUP, null);
+        return privateOk.join() && groupOk.join();
+    }
+
+    /** SHA-256 от username бота и обоих меню (порядок команд стабилен — по имени). */
+    private String menuHash(BotEntity bot) {
+        StringBuilder sb = new StringBuilder(bot.getUsername()).append('\n');
+        appendMenu(sb, "private", menuFor(Set.of(ChatScope.PRIVATE)));
+        appendMenu(sb, "group", menuFor(Set.of(ChatScope.GROUP, ChatScope.SUPERGROUP)));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void appendMenu(StringBuilder sb, String scope, List<TelegramBotApiService.MenuCommand> menu) {
+        sb.append('[').append(scope).append(']');
+        for (TelegramBotApiService.MenuCommand c : menu) {
+            sb.append(c.command()).append('\t').append(c.description()).append('\n');
+        }
     }
 
     private List<TelegramBotApiService.MenuCommand> menuFor(Set<ChatScope> targetScopes) {
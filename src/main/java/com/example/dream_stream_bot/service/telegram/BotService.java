@@ -10,6 +10,7 @@ import com.example.dream_stream_bot.service.subscription.SubscriptionTariffServi
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -32,18 +33,21 @@ public class BotService {
     private final AgentConfigService agentConfigService;
     private final CacheManager cacheManager;
     private final SubscriptionTariffService subscriptionTariffService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public BotService(BotRepository botRepository,
                       BotKeywordRepository botKeywordRepository,
                       AgentConfigService agentConfigService,
                       CacheManager cacheManager,
-                      SubscriptionTariffService subscriptionTariffService) {
+                      SubscriptionTariffService subscriptionTariffService,
+                      ApplicationEventPublisher eventPublisher) {
         this.botRepository = botRepository;
         this.botKeywordRepository = botKeywordRepository;
         this.agentConfigService = agentConfigService;
         this.cacheManager = cacheManager;
         this.subscriptionTariffService = subscriptionTariffService;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<BotEntity> getAllBots() {
@@ -84,6 +88,7 @@ public class BotService {
             subscriptionTariffService.ensureDefaultTariffsForBot(saved.getId());
         }
         evictBotCache(saved.getId());
+        eventPublisher.publishEvent(new BotChangedEvent(saved.getId(), false));
         return saved;
     }
 
@@ -102,6 +107,7 @@ public class BotService {
         botRepository.findById(id).ifPresent(bot -> {
             botRepository.delete(bot);
             evictBotCache(id);
+            eventPublisher.publishEvent(new BotChangedEvent(id, true));
         });
     }
 
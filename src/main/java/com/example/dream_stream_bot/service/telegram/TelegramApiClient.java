@@ -0,0 +1,172 @@
+package com.example.dream_stream_bot.service.telegram;
+
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Общий HTTP-клиент для REST-вызовов Bot API.
+ *
+ * Один {@link HttpClient} на приложение: пул соединений с keep-alive и HTTP/2
+ * (мультиплексирование запросов в одном TLS-соединении к api.telegram.org),
+ * таймауты из {@code telegram.http.*}. Число одновременных запросов ограничено
+ * {@code max-concurrent-requests}; лишние ждут своей очереди без блокировки потока
+ * (асинхронные вызовы) или с блокировкой (синхронные).
+ */
+@Component
+public class TelegramApiClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TelegramApiClient.class);
+    private static final String TELEGRAM_API_URL = "https://api.telegram.org/bot";
+
+    /** Ответ Bot API: HTTP-статус и сырое тело (JSON с полями {@code ok}, {@code result}…). */
+    public record Response(int statusCode, String body) {
+        public boolean isTooManyRequests() {
+            return statusCode == 429;
+        }
+    }
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration requestTimeout;
+    private final AsyncPermits permits;
+
+    public TelegramApiClient(TelegramProperties telegramProperties, ObjectMapper objectMapper) {
+        TelegramProperties.Http settings = telegramProperties.getHttp();
+        this.httpClient = HttpClient.newBuilder()
+                .version(settings.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(settings.getConnectTimeoutMs()))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.objectMapper = objectMapper;
+        this.requestTimeout = Duration.ofMillis(settings.getRequestTimeoutMs());
+        this.permits = new AsyncPermits(Math.max(1, settings.getMaxConcurrentRequests()));
+        LOGGER.info("🌐 Telegram API client: http2={}, connectTimeout={}ms, requestTimeout={}ms, maxConcurrent={}",
+                settings.isHttp2(), settings.getConnectTimeoutMs(), settings.getRequestTimeoutMs(),
+                settings.getMaxConcurrentRequests());
+    }
+
+    /** GET {@code /bot<token>/<method>?query}. Ошибки транспорта — {@link IllegalStateException}. */
+    public Response get(String token, String method, Map<String, ?> query) {
+        return join(getAsync(token, method, query));
+    }
+
+    /** POST {@code /bot<token>/<method>} с JSON-телом. Ошибки транспорта — {@link IllegalStateException}. */
+    public Response post(String token, String method, Map<String, ?> payload) {
+        return join(postAsync(token, method, payload));
+    }
+
+    public CompletableFuture<Response> getAsync(String token, String method, Map<String, ?> query) {
+        String qs = query == null || query.isEmpty() ? "" : "?" + query.entrySet().stream()
+                .map(e -> e.getKey() + "=" + URLEncoder.encode(String.valueOf(e.getValue()), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(TELEGRAM_API_URL + token + "/" + method + qs))
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+        return send(request);
+    }
+
+    public CompletableFuture<Response> postAsync(String token, String method, Map<String, ?> payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload == null ? Map.of() : payload);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Cannot serialize " + method + " payload", e));
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(TELEGRAM_API_URL + token + "/" + method))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
+                .build();
+        return send(request);
+    }
+
+    private CompletableFuture<Response> send(HttpRequest request) {
+        return permits.acquire()
+                .thenCompose(ignored -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)))
+                .handle((response, error) -> {
+                    permits.release();
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        throw new CompletionException(new IllegalStateException(
+                                "Telegram API call failed: " + cause.getMessage(), cause));
+                    }
+                    return new Response(response.statusCode(), response.body());
+                });
+    }
+
+    private static Response join(CompletableFuture<Response> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Семафор с асинхронным ожиданием: {@link #acquire()} не блокирует поток, а
+     * возвращает future, который завершится при освобождении разрешения.
+     */
+    private static final class AsyncPermits {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private int available;
+
+        AsyncPermits(int permits) {
+            this.available = permits;
+        }
+
+        CompletableFuture<Void> acquire() {
+            lock.lock();
+            try {
+                if (available > 0) {
+                    available--;
+                    return CompletableFuture.completedFuture(null);
+                }
+                CompletableFuture<Void> waiter = new CompletableFuture<>();
+                waiters.addLast(waiter);
+                return waiter;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            CompletableFuture<Void> next;
+            lock.lock();
+            try {
+                next = waiters.pollFirst();
+                if (next == null) {
+                    available++;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (next != null) {
+                next.complete(null);
+            }
+        }
+    }
+}
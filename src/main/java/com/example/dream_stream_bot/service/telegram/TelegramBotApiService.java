@@ -1,39 +1,39 @@
 package com.example.dream_stream_bot.service.telegram;
 
+import com.example.dream_stream_bot.bot.message.OutboundDispatcher;
+import com.example.dream_stream_bot.bot.message.RetryAfterException;
 import com.example.dream_stream_bot.model.telegram.BotEntity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.RestClientException;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Сервис для работы с Telegram Bot API
+ * Сервис для работы с Telegram Bot API.
+ * HTTP-вызовы идут через общий {@link TelegramApiClient} (пул соединений, HTTP/2, таймауты).
  */
 @Service
 public class TelegramBotApiService {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(TelegramBotApiService.class);
-    private static final String TELEGRAM_API_URL = "https://api.telegram.org/bot";
-    
-    private final RestTemplate restTemplate;
+
+    private final TelegramApiClient apiClient;
     private final ObjectMapper objectMapper;
+    private final OutboundDispatcher outboundDispatcher;
     
     @Autowired
-    public TelegramBotApiService(ObjectMapper objectMapper) {
-        this.restTemplate = new RestTemplate();
+    public TelegramBotApiService(TelegramApiClient apiClient, ObjectMapper objectMapper,
+                                 OutboundDispatcher outboundDispatcher) {
+        this.apiClient = apiClient;
         this.objectMapper = objectMapper;
+        this.outboundDispatcher = outboundDispatcher;
     }
 
     public record WebhookInfo(
@@ -60,13 +60,11 @@ public class TelegramBotApiService {
             return Optional.empty();
         }
 
-        String url = TELEGRAM_API_URL + token + "/getWebhookInfo";
-
         try {
-            ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
-            if (response == null || response.getBody() == null) return Optional.empty();
+            TelegramApiClient.Response response = apiClient.get(token, "getWebhookInfo", Map.of());
+            if (response.body() == null) return Optional.empty();
 
-            var json = objectMapper.readTree(response.getBody());
+            var json = objectMapper.readTree(response.body());
             boolean ok = json.has("ok") && json.get("ok").asBoolean(false);
 
             String webhookUrl = null;
@@ -97,11 +95,6 @@ public class TelegramBotApiService {
             return false;
         }
 
-        String url = TELEGRAM_API_URL + token + "/setWebhook";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
         Map<String, Object> payload = new HashMap<>();
         payload.put("url", webhookUrl);
         if (secretToken != null && !secretToken.isBlank()) {
@@ -109,8 +102,7 @@ public class TelegramBotApiService {
         }
 
         try {
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
+            TelegramApiClient.Response response = apiClient.post(token, "setWebhook", payload);
             boolean ok = isTelegramOk(response);
             if (ok) {
                 LOGGER.info("✅ Webhook set for bot '{}' -> {}", bot.getUsername(), webhookUrl);
@@ -119,7 +111,7 @@ public class TelegramBotApiService {
                         bot.getUsername(), webhookUrl, safeBody(response));
             }
             return ok;
-        } catch (RestClientException e) {
+        } catch (RuntimeException e) {
             LOGGER.error("❌ Failed to set webhook for bot '{}' -> {}: {}",
                     bot.getUsername(), webhookUrl, e.getMessage(), e);
             return false;
@@ -133,17 +125,11 @@ public class TelegramBotApiService {
             return false;
         }
 
-        String url = TELEGRAM_API_URL + token + "/deleteWebhook";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
         Map<String, Object> payload = new HashMap<>();
         payload.put("drop_pending_updates", true);
 
         try {
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
+            TelegramApiClient.Response response = apiClient.post(token, "deleteWebhook", payload);
             boolean ok = isTelegramOk(response);
             if (ok) {
                 LOGGER.info("✅ Webhook deleted for bot '{}'", bot.getUsername());
@@ -152,7 +138,7 @@ public class TelegramBotApiService {
                         bot.getUsername(), safeBody(response));
             }
             return ok;
-        } catch (RestClientException e) {
+        } catch (RuntimeException e) {
             LOGGER.error("❌ Failed to delete webhook for bot '{}': {}", bot.getUsername(), e.getMessage(), e);
             return false;
         }
@@ -160,36 +146,75 @@ public class TelegramBotApiService {
 
     /**
      * Отправка произвольного сообщения через {@code sendMessage} (чат = личка или id группы).
+     * Синхронно, в обход очереди лимитов — для разовых служебных вызовов; уведомления
+     * и рассылки должны идти через {@link #enqueueTextMessage}.
      */
     public boolean sendTextMessage(BotEntity bot, long chatId, String text, Map<String, Object> replyMarkup) {
+        if (!canSend(bot, text)) {
+            return false;
+        }
+        try {
+            TelegramApiClient.Response response = postSendMessage(bot, chatId, text, replyMarkup);
+            boolean ok = isTelegramOk(response);
+            if (!ok) {
+                LOGGER.warn("❌ sendTextMessage failed for bot '{}' chatId={} | {}", bot.getUsername(), chatId, safeBody(response));
+            }
+            return ok;
+        } catch (RuntimeException e) {
+            LOGGER.warn("❌ sendTextMessage exception bot '{}' chatId={}: {}", bot.getUsername(), chatId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Отправка {@code sendMessage} через {@link OutboundDispatcher}: с лимитами Telegram
+     * на бота/чат/группу и повтором после 429 {@code retry_after}. Не блокирует.
+     */
+    public CompletableFuture<Boolean> enqueueTextMessage(BotEntity bot, long chatId, String text,
+                                                         Map<String, Object> replyMarkup,
+                                                         OutboundDispatcher.Priority priority) {
+        if (!canSend(bot, text)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        // Та же полоса, что у ответов бота через MessageSender: лимит Telegram общий на токен.
+        return outboundDispatcher.submit(OutboundDispatcher.laneKey(bot.getToken()), chatId, priority,
+                "sendMessage@" + bot.getUsername(), () -> {
+                    TelegramApiClient.Response response = postSendMessage(bot, chatId, text, replyMarkup);
+                    if (response.isTooManyRequests()) {
+                        throw new RetryAfterException(retryAfterOf(response.body()));
+                    }
+                    if (!isTelegramOk(response)) {
+                        throw new IllegalStateException("Telegram rejected sendMessage: " + safeBody(response));
+                    }
+                });
+    }
+
+    private boolean canSend(BotEntity bot, String text) {
         String token = bot.getToken();
         if (token == null || token.isBlank()) {
             LOGGER.warn("❌ sendTextMessage skipped: empty token for bot '{}'", bot.getUsername());
             return false;
         }
-        if (text == null || text.isBlank()) {
-            return false;
-        }
-        String url = TELEGRAM_API_URL + token + "/sendMessage";
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+        return text != null && !text.isBlank();
+    }
+
+    private TelegramApiClient.Response postSendMessage(BotEntity bot, long chatId, String text, Map<String, Object> replyMarkup) {
         Map<String, Object> payload = new HashMap<>();
         payload.put("chat_id", chatId);
         payload.put("text", text);
         if (replyMarkup != null && !replyMarkup.isEmpty()) {
             payload.put("reply_markup", replyMarkup);
         }
+        return apiClient.post(bot.getToken(), "sendMessage", payload);
+    }
+
+    /** {@code parameters.retry_after} из тела ответа 429; по умолчанию — 1 секунда. */
+    private int retryAfterOf(String body) {
         try {
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
-            boolean ok = isTelegramOk(response);
-            if (!ok) {
-                LOGGER.warn("❌ sendTextMessage failed for bot '{}' chatId={} | {}", bot.getUsername(), chatId, safeBody(response));
-            }
-            return ok;
-        } catch (RestClientException e) {
-            LOGGER.warn("❌ sendTextMessage exception bot '{}' chatId={}: {}", bot.getUsername(), chatId, e.getMessage());
-            return false;
+            var json = objectMapper.readTree(body);
+            return json.path("parameters").path("retry_after").asInt(1);
+        } catch (Exception e) {
+            return 1;
         }
     }
 
@@ -213,22 +238,26 @@ public class TelegramBotApiService {
                                  List<MenuCommand> commands,
                                  Map<String, Object> scope,
                                  String languageCode) {
+        return setMyCommandsAsync(bot, commands, scope, languageCode).join();
+    }
+
+    /**
+     * Асинхронный {@link #setMyCommands}: несколько scope можно отправить параллельно.
+     * Future всегда завершается нормально ({@code false} при любой ошибке).
+     */
+    public CompletableFuture<Boolean> setMyCommandsAsync(BotEntity bot,
+                                                         List<MenuCommand> commands,
+                                                         Map<String, Object> scope,
+                                                         String languageCode) {
         String token = bot.getToken();
         if (token == null || token.isBlank()) {
             LOGGER.warn("❌ setMyCommands skipped: empty token for bot '{}'", bot.getUsername());
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
-        if (commands == null) {
-            commands = List.of();
-        }
-
-        String url = TELEGRAM_API_URL + token + "/setMyCommands";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+        List<MenuCommand> menu = commands == null ? List.of() : commands;
 
         Map<String, Object> payload = new HashMap<>();
-        payload.put("commands", commands.stream()
+        payload.put("commands", menu.stream()
                 .map(c -> Map.of("command", c.command(), "description", c.description()))
                 .toList());
         if (scope != null && !scope.isEmpty()) {
@@ -238,37 +267,37 @@ public class TelegramBotApiService {
             payload.put("language_code", languageCode);
         }
 
-        try {
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(url, entity, String.class);
-            boolean ok = isTelegramOk(response);
-            if (ok) {
-                LOGGER.info("✅ setMyCommands ok for bot '{}' scope={} lang={} count={}",
-                        bot.getUsername(), scope, languageCode, commands.size());
-            } else {
-                LOGGER.warn("❌ setMyCommands failed for bot '{}' scope={} lang={} | {}",
-                        bot.getUsername(), scope, languageCode, safeBody(response));
-            }
-            return ok;
-        } catch (RestClientException e) {
-            LOGGER.warn("❌ setMyCommands exception bot '{}' scope={} lang={}: {}",
-                    bot.getUsername(), scope, languageCode, e.getMessage());
-            return false;
-        }
+        return apiClient.postAsync(token, "setMyCommands", payload)
+                .handle((response, error) -> {
+                    if (error != null) {
+                        LOGGER.warn("❌ setMyCommands exception bot '{}' scope={} lang={}: {}",
+                                bot.getUsername(), scope, languageCode, error.getMessage());
+                        return false;
+                    }
+                    boolean ok = isTelegramOk(response);
+                    if (ok) {
+                        LOGGER.info("✅ setMyCommands ok for bot '{}' scope={} lang={} count={}",
+                                bot.getUsername(), scope, languageCode, menu.size());
+                    } else {
+                        LOGGER.warn("❌ setMyCommands failed for bot '{}' scope={} lang={} | {}",
+                                bot.getUsername(), scope, languageCode, safeBody(response));
+                    }
+                    return ok;
+                });
     }
 
-    private boolean isTelegramOk(ResponseEntity<String> response) {
-        if (response == null || response.getBody() == null) return false;
+    private boolean isTelegramOk(TelegramApiClient.Response response) {
+        if (response == null || response.body() == null) return false;
         try {
-            var json = objectMapper.readTree(response.getBody());
+            var json = objectMapper.readTree(response.body());
             return json.has("ok") && json.get("ok").asBoolean(false);
         } catch (Exception e) {
             return false;
         }
     }
 
-    private String safeBody(ResponseEntity<String> response) {
+    private String safeBody(TelegramApiClient.Response response) {
         if (response == null) return "null";
-        return response.getBody() != null ? response.getBody() : "<empty>";
+        return response.body() != null ? response.body() : "<empty>";
     }
 }
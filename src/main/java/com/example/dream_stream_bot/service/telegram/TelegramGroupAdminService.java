@@ -6,10 +6,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Вызовы Telegram Bot API, связанные с правами в групповых чатах.
@@ -19,12 +20,11 @@ public class TelegramGroupAdminService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TelegramGroupAdminService.class);
 
-    private static final String TELEGRAM_API_URL = "https://api.telegram.org/bot";
-
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final TelegramApiClient apiClient;
     private final ObjectMapper objectMapper;
 
-    public TelegramGroupAdminService(ObjectMapper objectMapper) {
+    public TelegramGroupAdminService(TelegramApiClient apiClient, ObjectMapper objectMapper) {
+        this.apiClient = apiClient;
         this.objectMapper = objectMapper;
     }
 
@@ -66,10 +66,9 @@ public class TelegramGroupAdminService {
                 || chatId == null || telegramUserId == null) {
             return Optional.empty();
         }
-        String url = TELEGRAM_API_URL + bot.getToken()
-                + "/getChatMember?chat_id=" + chatId + "&user_id=" + telegramUserId;
         try {
-            String body = restTemplate.getForEntity(url, String.class).getBody();
+            String body = apiClient.get(bot.getToken(), "getChatMember",
+                    Map.of("chat_id", chatId, "user_id", telegramUserId)).body();
             if (body == null) {
                 LOGGER.debug("getChatMember empty body chatId={} tgUserId={}", chatId, telegramUserId);
                 return Optional.empty();
@@ -107,10 +106,8 @@ public class TelegramGroupAdminService {
                 || chatId == null || telegramUserId == null) {
             return Optional.empty();
         }
-        String url = TELEGRAM_API_URL + bot.getToken()
-                + "/getChatAdministrators?chat_id=" + chatId;
         try {
-            String body = restTemplate.getForEntity(url, String.class).getBody();
+            String body = apiClient.get(bot.getToken(), "getChatAdministrators", Map.of("chat_id", chatId)).body();
             if (body == null) {
                 LOGGER.debug("getChatAdministrators empty body chatId={}", chatId);
                 return Optional.empty();
@@ -205,15 +202,32 @@ public class TelegramGroupAdminService {
 
     /** Заголовок чата (для групп — title) или пусто при ошибке. */
     public Optional<String> getChatTitle(BotEntity bot, Long chatId) {
+        return getChatTitleAsync(bot, chatId).join();
+    }
+
+    /**
+     * Асинхронный {@link #getChatTitle}: для списков групп запросы идут параллельно
+     * через общий {@link TelegramApiClient}. Future всегда завершается нормально.
+     */
+    public CompletableFuture<Optional<String>> getChatTitleAsync(BotEntity bot, Long chatId) {
         if (bot == null || bot.getToken() == null || bot.getToken().isBlank() || chatId == null) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return apiClient.getAsync(bot.getToken(), "getChat", Map.of("chat_id", chatId))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        LOGGER.warn("getChat failed chatId={}: {}", chatId, error.getMessage());
+                        return Optional.empty();
+                    }
+                    return parseChatTitle(chatId, response.body());
+                });
+    }
+
+    private Optional<String> parseChatTitle(Long chatId, String body) {
+        if (body == null) {
             return Optional.empty();
         }
-        String url = TELEGRAM_API_URL + bot.getToken() + "/getChat?chat_id=" + chatId;
         try {
-            String body = restTemplate.getForEntity(url, String.class).getBody();
-            if (body == null) {
-                return Optional.empty();
-            }
             JsonNode root = objectMapper.readTree(body);
             if (!root.path("ok").asBoolean(false)) {
                 LOGGER.warn("getChat not ok chatId={}: {}", chatId, truncateForLog(body, 400));
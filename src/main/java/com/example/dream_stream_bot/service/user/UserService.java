@@ -3,9 +3,11 @@ package com.example.dream_stream_bot.service.user;
 import com.example.dream_stream_bot.dto.UserDto;
 import com.example.dream_stream_bot.model.user.UserEntity;
 import com.example.dream_stream_bot.model.user.UserRepository;
+import com.example.dream_stream_bot.service.access.EntitlementsChangedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,10 +28,12 @@ public class UserService {
     private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
     
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
     
     /**
@@ -143,6 +147,7 @@ public class UserService {
      */
     public void deleteById(Long id) {
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(EntitlementsChangedEvent.user(id));
     }
     
     /**
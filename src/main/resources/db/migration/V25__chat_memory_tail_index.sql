@@ -0,0 +1,9 @@
+-- Миграция V25: индексы chat_memory под чтение хвоста разговора.
+--
+-- Хвост читается как ORDER BY message_index DESC LIMIT n по составному индексу
+-- (conversation_id, message_index) из V1. Одиночный индекс по conversation_id
+-- полностью перекрывается составным и только удорожает вставки.
+
+CREATE INDEX IF NOT EXISTS idx_chat_memory_conversation_index ON chat_memory(conversation_id, message_index);
+
+DROP INDEX IF EXISTS idx_chat_memory_conversation_id;
@@ -0,0 +1,10 @@
+-- Миграция V26: пороги сжатия памяти разговора на уровне агента.
+--
+-- Когда разговор превышает summarize_after_tokens (оценка), старые сообщения заменяются
+-- одной строкой chat_memory с role = 'summary'; последние summary_keep_messages остаются как есть.
+
+ALTER TABLE agent_config ADD COLUMN IF NOT EXISTS summarize_after_tokens INTEGER;
+ALTER TABLE agent_config ADD COLUMN IF NOT EXISTS summary_keep_messages INTEGER DEFAULT 20;
+
+COMMENT ON COLUMN agent_config.summarize_after_tokens IS 'Порог (оценка токенов) для сжатия истории в summary; NULL — не сжимать';
+COMMENT ON COLUMN agent_config.summary_keep_messages IS 'Сколько последних сообщений не попадает в summary';
@@ -0,0 +1,15 @@
+-- Миграция V27: бюджет контекста в токенах.
+--
+-- chat_memory.token_count — оценка токенов сообщения, считается один раз при записи.
+-- Для старых строк остаётся NULL и оценивается при чтении.
+-- agent_config.context_token_budget — сколько токенов может занять весь промпт;
+-- reply_token_reserve — сколько из них оставить под ответ модели.
+
+ALTER TABLE chat_memory ADD COLUMN IF NOT EXISTS token_count INTEGER;
+
+ALTER TABLE agent_config ADD COLUMN IF NOT EXISTS context_token_budget INTEGER;
+ALTER TABLE agent_config ADD COLUMN IF NOT EXISTS reply_token_reserve INTEGER DEFAULT 1024;
+
+COMMENT ON COLUMN chat_memory.token_count IS 'Оценка токенов сообщения (со служебными), считается при записи';
+COMMENT ON COLUMN agent_config.context_token_budget IS 'Бюджет токенов промпта; NULL — только окно mem_window';
+COMMENT ON COLUMN agent_config.reply_token_reserve IS 'Токены бюджета, зарезервированные под ответ модели';
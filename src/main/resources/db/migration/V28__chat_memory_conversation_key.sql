@@ -0,0 +1,26 @@
+-- Миграция V28: типизированный ключ разговора в chat_memory.
+--
+-- conversation_id имеет вид bot:<bot>[:chat:<chat>][:thread:<thread>][:user:<user>].
+-- Удаления по пользователю и по групповому чату раньше шли через LIKE с ведущим
+-- шаблоном ('%:user:<id>') и обходили всю таблицу. Теперь части ключа лежат в
+-- отдельных колонках с составными индексами; thread — существующая message_thread_id.
+
+ALTER TABLE chat_memory ADD COLUMN IF NOT EXISTS bot_id BIGINT;
+ALTER TABLE chat_memory ADD COLUMN IF NOT EXISTS chat_id BIGINT;
+ALTER TABLE chat_memory ADD COLUMN IF NOT EXISTS user_id BIGINT;
+
+UPDATE chat_memory
+SET bot_id            = CAST(substring(conversation_id FROM '^bot:(\d+)') AS BIGINT),
+    chat_id           = CAST(substring(conversation_id FROM ':chat:(-?\d+)') AS BIGINT),
+    user_id           = CAST(substring(conversation_id FROM ':user:(\d+)$') AS BIGINT),
+    message_thread_id = COALESCE(message_thread_id,
+                                 CAST(substring(conversation_id FROM ':thread:(\d+)') AS INTEGER))
+WHERE bot_id IS NULL
+  AND conversation_id ~ '^bot:\d+';
+
+CREATE INDEX IF NOT EXISTS idx_chat_memory_bot_user ON chat_memory (bot_id, user_id);
+CREATE INDEX IF NOT EXISTS idx_chat_memory_bot_chat ON chat_memory (bot_id, chat_id);
+
+COMMENT ON COLUMN chat_memory.bot_id IS 'Бот из conversation_id (bot:<id>)';
+COMMENT ON COLUMN chat_memory.chat_id IS 'Групповой чат из conversation_id (:chat:<id>); NULL — личный разговор';
+COMMENT ON COLUMN chat_memory.user_id IS 'Telegram id пользователя из conversation_id (:user:<id>)';
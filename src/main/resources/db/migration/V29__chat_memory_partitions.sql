@@ -0,0 +1,117 @@
+-- Миграция V29: chat_memory секционируется по месяцам created_at.
+--
+-- Таблица растёт быстрее всех, а удаление старой истории построчными DELETE раздувает WAL
+-- и нагружает vacuum. Секция на месяц (chat_memory_pYYYYMM) удаляется одним DROP TABLE.
+-- Секции на будущие месяцы создаёт ChatMemoryPartitionService; строки вне готовых секций
+-- попадают в chat_memory_default, откуда он же переносит их в месячные секции.
+--
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования,
+-- поэтому он становится (id, created_at). У id своя последовательность: старая была привязана
+-- к прежней таблице (serial или identity — в зависимости от того, кто её создал) и уходит вместе с ней.
+--
+-- Миграция идёт вне общей транзакции (V29__chat_memory_partitions.sql.conf): строки копируются
+-- порциями по диапазонам id, каждая порция — своя транзакция, поэтому большая история не держит
+-- одну многочасовую транзакцию и не копит WAL до конца переноса. Шаги повторяемы: после сбоя
+-- (flyway repair и повторный запуск) перенос продолжится с последнего скопированного id.
+
+DO $$
+BEGIN
+    IF to_regclass('chat_memory_unpartitioned') IS NULL AND NOT EXISTS (
+            SELECT 1 FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid
+            WHERE c.relname = 'chat_memory') THEN
+        ALTER TABLE chat_memory RENAME TO chat_memory_unpartitioned;
+    END IF;
+END $$;
+
+CREATE SEQUENCE IF NOT EXISTS chat_memory_row_id_seq;
+
+CREATE TABLE IF NOT EXISTS chat_memory (
+    id                  BIGINT       NOT NULL DEFAULT nextval('chat_memory_row_id_seq'),
+    conversation_id     VARCHAR(255) NOT NULL,
+    message_index       INTEGER      NOT NULL,
+    role                VARCHAR(50)  NOT NULL,
+    content             TEXT         NOT NULL,
+    created_at          TIMESTAMP    NOT NULL DEFAULT now(),
+    telegram_message_id INTEGER,
+    message_thread_id   INTEGER,
+    token_count         INTEGER,
+    bot_id              BIGINT,
+    chat_id             BIGINT,
+    user_id             BIGINT,
+    CONSTRAINT chat_memory_partitioned_pkey PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+DO $$
+DECLARE
+    first_row TIMESTAMP;
+    part_month DATE;
+    last_month DATE := (date_trunc('month', now()) + INTERVAL '3 months')::date;
+BEGIN
+    IF to_regclass('chat_memory_unpartitioned') IS NOT NULL THEN
+        EXECUTE 'SELECT MIN(created_at) FROM chat_memory_unpartitioned' INTO first_row;
+    END IF;
+    part_month := date_trunc('month', COALESCE(first_row, now()))::date;
+    WHILE part_month <= last_month LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF chat_memory FOR VALUES FROM (%L) TO (%L)',
+                       'chat_memory_p' || to_char(part_month, 'YYYYMM'), part_month, (part_month + INTERVAL '1 month')::date);
+        part_month := (part_month + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+CREATE TABLE IF NOT EXISTS chat_memory_default PARTITION OF chat_memory DEFAULT;
+
+-- Перенос порциями по 50 000 id с COMMIT после каждой; продолжается с MAX(id) уже перенесённых строк.
+DO $$
+DECLARE
+    batch     CONSTANT BIGINT := 50000;
+    next_id   BIGINT;
+    last_id   BIGINT;
+BEGIN
+    IF to_regclass('chat_memory_unpartitioned') IS NULL THEN
+        RETURN;
+    END IF;
+    SELECT MAX(id) + 1 INTO next_id FROM chat_memory;
+    IF next_id IS NULL THEN
+        EXECUTE 'SELECT MIN(id) FROM chat_memory_unpartitioned' INTO next_id;
+    END IF;
+    EXECUTE 'SELECT MAX(id) FROM chat_memory_unpartitioned' INTO last_id;
+    WHILE next_id IS NOT NULL AND next_id <= last_id LOOP
+        EXECUTE 'INSERT INTO chat_memory (id, conversation_id, message_index, role, content, created_at, '
+                || 'telegram_message_id, message_thread_id, token_count, bot_id, chat_id, user_id) '
+                || 'SELECT id, conversation_id, message_index, role, content, COALESCE(created_at, now()), '
+                || 'telegram_message_id, message_thread_id, token_count, bot_id, chat_id, user_id '
+                || 'FROM chat_memory_unpartitioned WHERE id >= $1 AND id < $2'
+            USING next_id, next_id + batch;
+        next_id := next_id + batch;
+        COMMIT;
+    END LOOP;
+END $$;
+
+DROP TABLE IF EXISTS chat_memory_unpartitioned;
+SELECT setval('chat_memory_row_id_seq', COALESCE((SELECT MAX(id) FROM chat_memory), 0) + 1, false);
+ALTER SEQUENCE chat_memory_row_id_seq OWNED BY chat_memory.id;
+
+CREATE INDEX IF NOT EXISTS idx_chat_memory_conversation_index ON chat_memory (conversation_id, message_index);
+CREATE INDEX IF NOT EXISTS idx_chat_memory_conv_tg_msg
+    ON chat_memory (conversation_id, telegram_message_id)
+    WHERE telegram_message_id IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_chat_memory_bot_user ON chat_memory (bot_id, user_id);
+CREATE INDEX IF NOT EXISTS idx_chat_memory_bot_chat ON chat_memory (bot_id, chat_id);
+
+COMMENT ON TABLE chat_memory IS 'История сообщений чата для AI ботов (секции по месяцам created_at)';
+COMMENT ON COLUMN chat_memory.id IS 'Уникальный идентификатор записи';
+COMMENT ON COLUMN chat_memory.conversation_id IS 'Идентификатор беседы';
+COMMENT ON COLUMN chat_memory.message_index IS 'Индекс сообщения в беседе';
+COMMENT ON COLUMN chat_memory.role IS 'Роль отправителя (user, assistant, system, summary)';
+COMMENT ON COLUMN chat_memory.content IS 'Содержание сообщения';
+COMMENT ON COLUMN chat_memory.created_at IS 'Дата создания записи; ключ секционирования';
+COMMENT ON COLUMN chat_memory.telegram_message_id IS 'message_id в Telegram (для обработки edited_message и /forget_last)';
+COMMENT ON COLUMN chat_memory.message_thread_id IS 'message_thread_id в Telegram (топик в форум-группе)';
+COMMENT ON COLUMN chat_memory.token_count IS 'Оценка токенов сообщения (со служебными), считается при записи';
+COMMENT ON COLUMN chat_memory.bot_id IS 'Бот из conversation_id (bot:<id>)';
+COMMENT ON COLUMN chat_memory.chat_id IS 'Групповой чат из conversation_id (:chat:<id>); NULL — личный разговор';
+COMMENT ON COLUMN chat_memory.user_id IS 'Telegram id пользователя из conversation_id (:user:<id>)';
+
+INSERT INTO system_settings (setting_key, setting_value, updated_at)
+VALUES ('CHAT_MEMORY_MAX_AGE_MONTHS', '0', now())
+ON CONFLICT (setting_key) DO NOTHING;
@@ -0,0 +1,28 @@
+-- Миграция V30: холодный архив истории чатов.
+--
+-- Разговоры, в которых давно не было сообщений, переносятся из chat_memory в одну строку
+-- chat_memory_archive: все сообщения в payload (JSON, сжатый gzip). Строки и индексы
+-- chat_memory освобождаются; когда пользователь возвращается, разговор восстанавливается
+-- обратно в chat_memory с прежними message_index (ChatMemoryArchiveService).
+
+CREATE TABLE IF NOT EXISTS chat_memory_archive (
+    conversation_id VARCHAR(255) PRIMARY KEY,
+    bot_id          BIGINT,
+    chat_id         BIGINT,
+    user_id         BIGINT,
+    message_count   INTEGER   NOT NULL,
+    raw_bytes       BIGINT    NOT NULL,
+    payload         BYTEA     NOT NULL,
+    last_message_at TIMESTAMP NOT NULL,
+    archived_at     TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_chat_memory_archive_bot_user ON chat_memory_archive (bot_id, user_id);
+CREATE INDEX IF NOT EXISTS idx_chat_memory_archive_bot_chat ON chat_memory_archive (bot_id, chat_id);
+CREATE INDEX IF NOT EXISTS idx_chat_memory_archive_last_message ON chat_memory_archive (last_message_at);
+
+COMMENT ON TABLE chat_memory_archive IS 'Архив неактивных разговоров: сообщения chat_memory одним сжатым сегментом';
+COMMENT ON COLUMN chat_memory_archive.message_count IS 'Число сообщений в сегменте';
+COMMENT ON COLUMN chat_memory_archive.raw_bytes IS 'Размер сегмента до сжатия';
+COMMENT ON COLUMN chat_memory_archive.payload IS 'JSON-массив сообщений (index, role, content, ...), сжатый gzip';
+COMMENT ON COLUMN chat_memory_archive.last_message_at IS 'created_at последнего сообщения разговора';
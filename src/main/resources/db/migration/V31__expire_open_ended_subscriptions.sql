@@ -0,0 +1,14 @@
+-- Миграция V31: подписки TRIAL/ACTIVE без expires_at.
+--
+-- Доступ проверяется по статусу, а SubscriptionExpiryScheduler планирует только подписки со сроком.
+-- Без срока доступ положен лишь безлимиту (ACTIVE на тарифе FREE_UNLIMITED); остальные такие
+-- строки остались от ручных правок и раньше отсекались проверкой срока — переводим их в EXPIRED.
+
+UPDATE subscription s
+SET status = 'EXPIRED',
+    updated_at = now()
+WHERE s.status IN ('TRIAL', 'ACTIVE')
+  AND s.expires_at IS NULL
+  AND NOT (s.status = 'ACTIVE'
+           AND EXISTS (SELECT 1 FROM subscription_tariff t
+                       WHERE t.id = s.tariff_id AND t.access_mode = 'FREE_UNLIMITED'));
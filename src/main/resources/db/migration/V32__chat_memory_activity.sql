@@ -0,0 +1,28 @@
+-- Миграция V32: время последнего сообщения разговора.
+--
+-- Ночной перенос в архив искал неактивные разговоры через GROUP BY по всей chat_memory.
+-- Теперь ChatMemoryBatchWriter при каждой записи обновляет строку разговора в
+-- chat_memory_activity, и поиск идёт по индексу last_message_at. Перенос в архив
+-- удаляет строку; удаления истории по боту, чату и пользователю удаляют её по тем же
+-- типизированным колонкам, что и в chat_memory_archive.
+
+CREATE TABLE IF NOT EXISTS chat_memory_activity (
+    conversation_id VARCHAR(255) PRIMARY KEY,
+    bot_id          BIGINT,
+    chat_id         BIGINT,
+    user_id         BIGINT,
+    last_message_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_chat_memory_activity_last_message ON chat_memory_activity (last_message_at);
+CREATE INDEX IF NOT EXISTS idx_chat_memory_activity_bot_user ON chat_memory_activity (bot_id, user_id);
+CREATE INDEX IF NOT EXISTS idx_chat_memory_activity_bot_chat ON chat_memory_activity (bot_id, chat_id);
+
+INSERT INTO chat_memory_activity (conversation_id, bot_id, chat_id, user_id, last_message_at)
+SELECT conversation_id, MAX(bot_id), MAX(chat_id), MAX(user_id), MAX(created_at)
+FROM chat_memory
+GROUP BY conversation_id
+ON CONFLICT (conversation_id) DO NOTHING;
+
+COMMENT ON TABLE chat_memory_activity IS 'Последнее сообщение каждого разговора chat_memory (кандидаты в холодный архив)';
+COMMENT ON COLUMN chat_memory_activity.last_message_at IS 'created_at самого нового сообщения разговора';
@@ -0,0 +1,120 @@
+package com.example.dream_stream_bot.bot;
+
+import com.example.dream_stream_bot.bot.command.CallbackDispatcher;
+import com.example.dream_stream_bot.bot.command.CommandDispatcher;
+import com.example.dream_stream_bot.bot.command.PrivateReplyNavigationRouter;
+import com.example.dream_stream_bot.bot.error.BotUpdateErrorHandler;
+import com.example.dream_stream_bot.bot.message.MessageSender;
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.bot.update.ConversationUpdateDispatcher;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import com.example.dream_stream_bot.model.telegram.BotEntity;
+import com.example.dream_stream_bot.service.access.AccessGate;
+import com.example.dream_stream_bot.service.access.GatingDedup;
+import com.example.dream_stream_bot.service.payment.ReceiptEmailAwaitService;
+import com.example.dream_stream_bot.service.subscription.GroupLinkWizardService;
+import com.example.dream_stream_bot.service.telegram.BotMenuSyncService;
+import com.example.dream_stream_bot.service.telegram.BotService;
+import com.example.dream_stream_bot.service.telegram.MessageHandlerService;
+import com.example.dream_stream_bot.service.telegram.TelegramBotApiService;
+import com.example.dream_stream_bot.service.telegram.UserStateService;
+import com.example.dream_stream_bot.service.user.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Webhook-режим: регистрация сводится к реестру и вызовам {@link TelegramBotApiService}. */
+class BotLifecycleManagerTest {
+
+    private static final long BOT_ID = 1L;
+
+    private final TelegramBotApiService telegramBotApiService = mock(TelegramBotApiService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private BotLifecycleManager manager;
+
+    @BeforeEach
+    void setUp() {
+        TelegramProperties properties = new TelegramProperties();
+        properties.setDeliveryMode("webhook");
+        properties.getWebhook().setBaseUrl("https://example.org");
+        when(telegramBotApiService.setWebhook(any(BotEntity.class), anyString(), any())).thenReturn(true);
+        manager = new BotLifecycleManager(mock(BotService.class), mock(MessageHandlerService.class),
+                mock(UserStateService.class), telegramBotApiService, mock(UserService.class),
+                mock(MessageSender.class), mock(CommandDispatcher.class), mock(CallbackDispatcher.class),
+                mock(BotUpdateErrorHandler.class), mock(EditedMessageHandler.class), mock(AccessGate.class),
+                mock(GatingDedup.class), mock(PrivateReplyNavigationRouter.class),
+                mock(GroupLinkWizardService.class), mock(ReceiptEmailAwaitService.class), properties,
+                mock(BotMenuSyncService.class), mock(ConversationUpdateDispatcher.class),
+                mock(BotRuntimeRegistry.class), eventPublisher, new BotExecutors(properties));
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+    }
+
+    private static BotEntity bot(String username) {
+        BotEntity bot = new BotEntity();
+        bot.setId(BOT_ID);
+        bot.setUsername(username);
+        bot.setToken("100:token");
+        bot.setType("copycat");
+        return bot;
+    }
+
+    @Test
+    void renameReleasesTheOldUsername() throws Exception {
+        assertNotNull(manager.start(bot("old_name_bot")));
+        assertNotNull(manager.start(bot("new_name_bot")));
+
+        assertEquals(Set.of("new_name_bot"), manager.botRegistry().keySet());
+        verify(eventPublisher).publishEvent(new BotUnregisteredEvent(BOT_ID, "old_name_bot", "new_name_bot"));
+    }
+
+    @Test
+    void restartUnderTheSameUsernameKeepsItsResources() throws Exception {
+        manager.start(bot("same_name_bot"));
+        manager.start(bot("same_name_bot"));
+
+        assertEquals(Set.of("same_name_bot"), manager.botRegistry().keySet());
+        verify(eventPublisher, never()).publishEvent(any(BotUnregisteredEvent.class));
+        verify(telegramBotApiService, never()).deleteWebhook(any(BotEntity.class));
+    }
+
+    @Test
+    void stopReleasesTheUsernameWithoutSuccessor() throws Exception {
+        manager.start(bot("stopped_bot"));
+
+        manager.stop(BOT_ID);
+        manager.stop(BOT_ID);
+
+        assertFalse(manager.isRunning(BOT_ID));
+        assertEquals(Set.of(), manager.botRegistry().keySet());
+        verify(telegramBotApiService).deleteWebhook(any(BotEntity.class));
+        verify(eventPublisher).publishEvent(new BotUnregisteredEvent(BOT_ID, "stopped_bot", null));
+    }
+
+    @Test
+    void failedWebhookRegistrationLeavesNothingRegistered() throws Exception {
+        when(telegramBotApiService.setWebhook(any(BotEntity.class), anyString(), any())).thenReturn(false);
+
+        assertNull(manager.start(bot("broken_bot")));
+
+        assertFalse(manager.isRunning(BOT_ID));
+        assertEquals(Set.of(), manager.botRegistry().keySet());
+    }
+}
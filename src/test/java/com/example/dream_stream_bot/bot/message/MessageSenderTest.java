@@ -0,0 +1,60 @@
+package com.example.dream_stream_bot.bot.message;
+
+import com.example.dream_stream_bot.model.telegram.BotEntity;
+import com.example.dream_stream_bot.service.telegram.TelegramApiClient;
+import com.example.dream_stream_bot.service.telegram.TelegramBotApiService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageSenderTest {
+
+    private static DefaultAbsSender botWithToken(String token) {
+        DefaultAbsSender bot = mock(DefaultAbsSender.class);
+        when(bot.getBotToken()).thenReturn(token);
+        return bot;
+    }
+
+    @Test
+    void rateLimitKeyIsTheTelegramBotIdFromToken() {
+        assertEquals(123456789L, MessageSender.botIdOf(botWithToken("123456789:AAE-secret")));
+    }
+
+    @Test
+    void recreatedBotWithTheSameTokenSharesTheLimit() {
+        assertEquals(MessageSender.botIdOf(botWithToken("555:first")),
+                MessageSender.botIdOf(botWithToken("555:second")));
+    }
+
+    @Test
+    void repliesAndNotificationsOfOneBotShareALane() {
+        OutboundDispatcher dispatcher = mock(OutboundDispatcher.class);
+        MessageSender sender = new MessageSender(mock(TypingKeepAliveService.class), dispatcher);
+        TelegramBotApiService api = new TelegramBotApiService(mock(TelegramApiClient.class), new ObjectMapper(),
+                dispatcher);
+        BotEntity entity = new BotEntity();
+        entity.setId(3L);
+        entity.setUsername("lane_bot");
+        entity.setToken("777:secret");
+
+        sender.send(botWithToken("777:secret"), OutgoingMessage.builder().chatId(10L).text("ответ").build());
+        sender.answerCallback(botWithToken("777:secret"), 10L, "cq");
+        api.enqueueTextMessage(entity, 10L, "уведомление", null, OutboundDispatcher.Priority.BROADCAST);
+
+        ArgumentCaptor<Long> lanes = ArgumentCaptor.forClass(Long.class);
+        verify(dispatcher, times(3)).submit(lanes.capture(), anyLong(), any(), anyString(), any());
+        assertEquals(List.of(777L, 777L, 777L), lanes.getAllValues());
+    }
+}
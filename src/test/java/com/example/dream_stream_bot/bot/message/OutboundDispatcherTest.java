@@ -0,0 +1,161 @@
+package com.example.dream_stream_bot.bot.message;
+
+import com.example.dream_stream_bot.bot.message.OutboundDispatcher.Priority;
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundDispatcherTest {
+
+    private static final long BOT = 42L;
+    private static final long CHAT = 7L;
+
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private TelegramProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private OutboundDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TelegramProperties();
+        TelegramProperties.Outbound outbound = properties.getOutbound();
+        // Лимиты не мешают — проверяем порядок и повторы.
+        outbound.setGlobalPerSecond(1_000);
+        outbound.setPerChatPerSecond(1_000);
+        outbound.setPerChatBurst(1_000);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    private OutboundDispatcher start() {
+        dispatcher = new OutboundDispatcher(properties, new BotExecutors(properties), meterRegistry);
+        return dispatcher;
+    }
+
+    private CompletableFuture<Boolean> record(long chatId, Priority priority, String name) {
+        return dispatcher.submit(BOT, chatId, priority, name, () -> calls.add(name));
+    }
+
+    @Test
+    void callsOfOneChatRunInSubmissionOrder() throws Exception {
+        start();
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(record(CHAT, Priority.INTERACTIVE, "m" + i));
+        }
+
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(5, TimeUnit.SECONDS));
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            expected.add("m" + i);
+        }
+        assertEquals(expected, calls);
+    }
+
+    @Test
+    void interactiveOvertakesQueuedBroadcast() throws Exception {
+        start();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocker = dispatcher.submit(BOT, CHAT, Priority.BROADCAST, "blocker", () -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> broadcast = record(CHAT, Priority.BROADCAST, "broadcast");
+        CompletableFuture<Boolean> reply = record(CHAT, Priority.INTERACTIVE, "reply");
+        release.countDown();
+
+        assertTrue(blocker.get(5, TimeUnit.SECONDS));
+        assertTrue(broadcast.get(5, TimeUnit.SECONDS));
+        assertTrue(reply.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("reply", "broadcast"), calls);
+    }
+
+    @Test
+    void retryAfterRequeuesAtTheHeadOfTheChat() throws Exception {
+        start();
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Boolean> first = dispatcher.submit(BOT, CHAT, Priority.INTERACTIVE, "first", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new RetryAfterException(1);
+            }
+            calls.add("first");
+        });
+        CompletableFuture<Boolean> second = record(CHAT, Priority.INTERACTIVE, "second");
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+        assertEquals(List.of("first", "second"), calls);
+        assertEquals(1.0, meterRegistry.get("telegram.outbound.retry_after").counter().count());
+    }
+
+    @Test
+    void retriesStopAfterMaxRetries() throws Exception {
+        properties.getOutbound().setMaxRetries(0);
+        start();
+
+        CompletableFuture<Boolean> result = dispatcher.submit(BOT, CHAT, Priority.INTERACTIVE, "limited", () -> {
+            throw new RetryAfterException(1);
+        });
+
+        assertFalse(result.get(5, TimeUnit.SECONDS));
+        assertEquals(1.0, meterRegistry.get("telegram.outbound.failed").counter().count());
+    }
+
+    @Test
+    void failedCallDoesNotBlockTheChat() throws Exception {
+        start();
+        CompletableFuture<Boolean> failed = dispatcher.submit(BOT, CHAT, Priority.INTERACTIVE, "broken", () -> {
+            throw new IllegalStateException("chat not found");
+        });
+        CompletableFuture<Boolean> next = record(CHAT, Priority.INTERACTIVE, "next");
+
+        assertFalse(failed.get(5, TimeUnit.SECONDS));
+        assertTrue(next.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("next"), calls);
+    }
+
+    @Test
+    void perChatLimitSpacesOutCalls() throws Exception {
+        properties.getOutbound().setPerChatPerSecond(10);
+        properties.getOutbound().setPerChatBurst(1);
+        start();
+
+        long startedAt = System.nanoTime();
+        CompletableFuture<Boolean> last = null;
+        for (int i = 0; i < 4; i++) {
+            last = record(CHAT, Priority.INTERACTIVE, "m" + i);
+        }
+        assertTrue(last.get(5, TimeUnit.SECONDS));
+
+        // Первый вызов — сразу, ещё три — по одному в 100 мс.
+        assertTrue(System.nanoTime() - startedAt >= TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(List.of("m0", "m1", "m2", "m3"), calls);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.dream_stream_bot.bot.message;
+
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.meta.api.methods.send.SendChatAction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Колесо крутится вручную через {@link TypingKeepAliveService#advance()}; отправки асинхронны. */
+class TypingKeepAliveServiceTest {
+
+    private static final long CHAT = 7L;
+    private static final long TIMEOUT_MS = 2_000;
+
+    private TelegramProperties properties;
+    private TypingKeepAliveService service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TelegramProperties();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    private TypingKeepAliveService start() {
+        service = new TypingKeepAliveService(new BotExecutors(properties), properties, false);
+        return service;
+    }
+
+    private static DefaultAbsSender bot(String token) {
+        DefaultAbsSender bot = mock(DefaultAbsSender.class);
+        when(bot.getBotToken()).thenReturn(token);
+        return bot;
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            service.advance();
+        }
+    }
+
+    @Test
+    void typingIsSentAtOnceAndRefreshedEveryFourSeconds() throws Exception {
+        start();
+        DefaultAbsSender bot = bot("100:token");
+
+        service.start(bot, CHAT, null);
+        verify(bot, timeout(TIMEOUT_MS).times(1)).execute(any(SendChatAction.class));
+
+        advance(TypingKeepAliveService.REFRESH_TICKS - 1);
+        verify(bot, after(100).times(1)).execute(any(SendChatAction.class));
+
+        advance(1);
+        verify(bot, timeout(TIMEOUT_MS).times(2)).execute(any(SendChatAction.class));
+    }
+
+    @Test
+    void parallelRequestsToOneChatShareASession() throws Exception {
+        start();
+        DefaultAbsSender bot = bot("100:token");
+
+        MessageSender.TypingKeepAliveHandle first = service.start(bot, CHAT, null);
+        MessageSender.TypingKeepAliveHandle second = service.start(bot, CHAT, null);
+        service.start(bot, CHAT, 42).close();
+
+        assertEquals(1, service.activeSessions());
+        verify(bot, timeout(TIMEOUT_MS).times(2)).execute(any(SendChatAction.class));
+
+        first.close();
+        first.close();
+        assertEquals(1, service.activeSessions());
+        advance(TypingKeepAliveService.REFRESH_TICKS);
+        verify(bot, timeout(TIMEOUT_MS).times(3)).execute(any(SendChatAction.class));
+
+        second.close();
+        assertEquals(0, service.activeSessions());
+    }
+
+    @Test
+    void closedSessionIsSkippedByTheWheel() throws Exception {
+        start();
+        DefaultAbsSender bot = bot("100:token");
+
+        service.start(bot, CHAT, null).close();
+        verify(bot, timeout(TIMEOUT_MS).times(1)).execute(any(SendChatAction.class));
+
+        advance(TypingKeepAliveService.WHEEL_SLOTS * 2);
+        verify(bot, after(200).times(1)).execute(any(SendChatAction.class));
+        assertEquals(0, service.activeSessions());
+    }
+
+    @Test
+    void recreatedBotSharesTheRateLimitOfItsToken() throws Exception {
+        properties.getOutbound().setTypingActionsPerSecond(1);
+        start();
+        DefaultAbsSender before = bot("100:token");
+        DefaultAbsSender restarted = bot("100:token");
+
+        service.start(before, CHAT, null);
+        verify(before, timeout(TIMEOUT_MS).times(1)).execute(any(SendChatAction.class));
+        service.start(restarted, CHAT + 1, null);
+
+        // Лимит токена исчерпан — новый объект бота ждёт следующего тика, а не получает свой bucket.
+        verify(restarted, after(200).never()).execute(any(SendChatAction.class));
+        assertEquals(1, service.rateLimitedBots());
+    }
+}
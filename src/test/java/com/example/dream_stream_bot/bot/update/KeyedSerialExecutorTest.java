@@ -0,0 +1,85 @@
+package com.example.dream_stream_bot.bot.update;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyedSerialExecutorTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void sameKeyRunsInSubmissionOrderWithoutOverlap() throws Exception {
+        KeyedSerialExecutor executor = new KeyedSerialExecutor(pool);
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(200);
+
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            executor.execute("bot:1:user:42", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                seen.add(n);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, seen.get(i));
+        }
+        assertEquals(0, executor.activeKeys());
+    }
+
+    @Test
+    void differentKeysRunInParallel() throws Exception {
+        KeyedSerialExecutor executor = new KeyedSerialExecutor(pool);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Runnable blocking = () -> {
+            bothStarted.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        executor.execute("bot:1:user:1", blocking);
+        executor.execute("bot:1:user:2", blocking);
+
+        assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    void failingTaskDoesNotBreakTheChain() throws Exception {
+        KeyedSerialExecutor executor = new KeyedSerialExecutor(pool);
+        CountDownLatch next = new CountDownLatch(1);
+
+        executor.execute("k", () -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.execute("k", next::countDown);
+
+        assertTrue(next.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.dream_stream_bot.bot.update;
+
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpdateSpillStoreTest {
+
+    private static final String BOT = "spill_test_bot";
+
+    @TempDir
+    Path spillDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private TelegramProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TelegramProperties();
+        properties.getWebhook().getIngestion().setSpillDirectory(spillDir.toString());
+    }
+
+    private static Update update(int id) {
+        Update update = new Update();
+        update.setUpdateId(id);
+        return update;
+    }
+
+    private static List<Integer> readAll(UpdateSpillStore store, List<Path> claimed) {
+        return claimed.stream().map(store::read).map(Update::getUpdateId).toList();
+    }
+
+    @Test
+    void spilledUpdatesAreClaimedOldestFirst() {
+        UpdateSpillStore store = new UpdateSpillStore(objectMapper, properties);
+        assertTrue(store.spill(BOT, update(30)));
+        assertTrue(store.spill(BOT, update(10)));
+        assertTrue(store.spill(BOT, update(20)));
+
+        assertEquals(List.of(10, 20), readAll(store, store.claim(BOT, 2)));
+        assertEquals(List.of(30), readAll(store, store.claim(BOT, 2)));
+        assertTrue(store.claim(BOT, 2).isEmpty());
+        assertTrue(store.pendingBots().isEmpty());
+    }
+
+    @Test
+    void claimedButUnreadFilesAreRecoveredAfterRestart() {
+        UpdateSpillStore store = new UpdateSpillStore(objectMapper, properties);
+        store.spill(BOT, update(1));
+        store.spill(BOT, update(2));
+        assertEquals(2, store.claim(BOT, 10).size());
+        assertTrue(store.claim(BOT, 10).isEmpty());
+
+        UpdateSpillStore restarted = new UpdateSpillStore(objectMapper, properties);
+        assertEquals(List.of(BOT), restarted.pendingBots());
+        assertEquals(List.of(1, 2), readAll(restarted, restarted.claim(BOT, 10)));
+    }
+
+    @Test
+    void transferKeepsOrderUnderTheNewName() {
+        UpdateSpillStore store = new UpdateSpillStore(objectMapper, properties);
+        store.spill(BOT, update(2));
+        store.spill(BOT, update(1));
+        store.claim(BOT, 1);
+        store.spill("renamed_bot", update(3));
+
+        assertEquals(2, store.transfer(BOT, "renamed_bot"));
+
+        assertEquals(List.of("renamed_bot"), store.pendingBots());
+        assertEquals(List.of(1, 2, 3), readAll(store, store.claim("renamed_bot", 10)));
+    }
+
+    @Test
+    void discardRemovesPendingAndClaimedFiles() {
+        UpdateSpillStore store = new UpdateSpillStore(objectMapper, properties);
+        store.spill(BOT, update(1));
+        store.spill(BOT, update(2));
+        store.claim(BOT, 1);
+
+        assertEquals(2, store.discard(BOT));
+        assertTrue(store.pendingBots().isEmpty());
+        assertEquals(0, store.discard(BOT));
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.dream_stream_bot.bot.update;
+
+import com.example.dream_stream_bot.bot.AbstractTelegramBot;
+import com.example.dream_stream_bot.bot.BotUnregisteredEvent;
+import com.example.dream_stream_bot.bot.error.BotUpdateErrorHandler;
+import com.example.dream_stream_bot.bot.update.WebhookUpdateIngestor.IngestResult;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class WebhookUpdateIngestorTest {
+
+    private static final String BOT = "ingestor_test_bot";
+    private static final String RENAMED = "ingestor_renamed_bot";
+
+    @TempDir
+    Path spillDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Map<String, AbstractTelegramBot> botRegistry = new ConcurrentHashMap<>();
+    private final BotUpdateErrorHandler errorHandler = mock(BotUpdateErrorHandler.class);
+    private final List<Integer> handled = new CopyOnWriteArrayList<>();
+    /** Воркер держит первый апдейт, пока тест не откроет защёлку, — так очередь заполняется предсказуемо. */
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch firstTaken = new CountDownLatch(1);
+    private TelegramProperties properties;
+    private UpdateSpillStore spillStore;
+    private SimpleMeterRegistry meterRegistry;
+    private WebhookUpdateIngestor ingestor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TelegramProperties();
+        TelegramProperties.Ingestion ingestion = properties.getWebhook().getIngestion();
+        ingestion.setQueueCapacity(2);
+        ingestion.setSpillDirectory(spillDir.toString());
+        ingestion.setShutdownDrainMs(200);
+        botRegistry.put(BOT, mock(AbstractTelegramBot.class));
+        doAnswer(invocation -> {
+            firstTaken.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            handled.add(invocation.<Update>getArgument(2).getUpdateId());
+            return null;
+        }).when(errorHandler).handle(any(), anyString(), any(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (ingestor != null) {
+            ingestor.shutdown();
+        }
+    }
+
+    private WebhookUpdateIngestor newIngestor(TelegramProperties.OverflowPolicy policy) {
+        properties.getWebhook().getIngestion().setOverflowPolicy(policy);
+        spillStore = new UpdateSpillStore(objectMapper, properties);
+        meterRegistry = new SimpleMeterRegistry();
+        ingestor = new WebhookUpdateIngestor(botRegistry, errorHandler, properties, spillStore,
+                meterRegistry, new BotExecutors(properties));
+        return ingestor;
+    }
+
+    private static Update update(int id) {
+        Update update = new Update();
+        update.setUpdateId(id);
+        return update;
+    }
+
+    /** Первый апдейт забран воркером, ещё два лежат в очереди ёмкостью 2 — следующий её переполнит. */
+    private void fillQueue() throws InterruptedException {
+        assertEquals(IngestResult.ACCEPTED, ingestor.submit(BOT, update(1)));
+        assertTrue(firstTaken.await(5, TimeUnit.SECONDS));
+        assertEquals(IngestResult.ACCEPTED, ingestor.submit(BOT, update(2)));
+        assertEquals(IngestResult.ACCEPTED, ingestor.submit(BOT, update(3)));
+        assertEquals(2, ingestor.depth(BOT));
+    }
+
+    private void awaitHandled(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (handled.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(count, handled.size());
+    }
+
+    @Test
+    void fullQueueRejectsUnderRejectPolicy() throws Exception {
+        newIngestor(TelegramProperties.OverflowPolicy.REJECT);
+        fillQueue();
+
+        assertEquals(IngestResult.REJECTED, ingestor.submit(BOT, update(4)));
+
+        release.countDown();
+        awaitHandled(3);
+        assertEquals(List.of(1, 2, 3), handled);
+    }
+
+    @Test
+    void fullQueueEvictsOldestUnderDropOldestPolicy() throws Exception {
+        newIngestor(TelegramProperties.OverflowPolicy.DROP_OLDEST);
+        fillQueue();
+
+        assertEquals(IngestResult.DROPPED_OLDEST, ingestor.submit(BOT, update(4)));
+
+        release.countDown();
+        awaitHandled(3);
+        assertEquals(List.of(1, 3, 4), handled);
+    }
+
+    @Test
+    void overflowIsSpilledAndReadBackWhenQueueIsIdle() throws Exception {
+        newIngestor(TelegramProperties.OverflowPolicy.SPILL);
+        fillQueue();
+
+        assertEquals(IngestResult.SPILLED, ingestor.submit(BOT, update(4)));
+        assertEquals(List.of(BOT), spillStore.pendingBots());
+
+        release.countDown();
+        awaitHandled(4);
+        assertEquals(List.of(1, 2, 3, 4), handled);
+        assertTrue(spillStore.pendingBots().isEmpty());
+    }
+
+    @Test
+    void shutdownSpillsUndrainedUpdatesUnderAnyPolicy() throws Exception {
+        newIngestor(TelegramProperties.OverflowPolicy.REJECT);
+        fillQueue();
+
+        ingestor.shutdown();
+
+        assertEquals(IngestResult.REJECTED, ingestor.submit(BOT, update(5)));
+        assertEquals(0, ingestor.depth(BOT));
+        release.countDown();
+        awaitHandled(1);
+        assertEquals(List.of(1), handled);
+        assertEquals(List.of(2, 3), spillStore.claim(BOT, 10).stream()
+                .map(spillStore::read).map(Update::getUpdateId).toList());
+    }
+
+    @Test
+    void spilledUpdatesAreResumedAfterRestart() throws Exception {
+        release.countDown();
+        new UpdateSpillStore(objectMapper, properties).spill(BOT, update(7));
+        new UpdateSpillStore(objectMapper, properties).spill(BOT, update(8));
+
+        newIngestor(TelegramProperties.OverflowPolicy.REJECT).resumeSpilled();
+
+        awaitHandled(2);
+        assertEquals(List.of(7, 8), handled);
+    }
+
+    /** Воркер дорабатывает текущий апдейт чуть позже, чем очередь освобождается. */
+    private void releaseWorkerLater() {
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        releaser.setDaemon(true);
+        releaser.start();
+    }
+
+    @Test
+    void renamedBotTakesOverPendingUpdates() throws Exception {
+        newIngestor(TelegramProperties.OverflowPolicy.REJECT);
+        fillQueue();
+        spillStore.spill(BOT, update(4));
+        assertNotNull(meterRegistry.find("telegram.webhook.queue.depth").tag("bot", BOT).gauge());
+
+        botRegistry.put(RENAMED, botRegistry.remove(BOT));
+        releaseWorkerLater();
+        ingestor.onBotUnregistered(new BotUnregisteredEvent(1L, BOT, RENAMED));
+
+        awaitHandled(4);
+        assertEquals(List.of(1, 2, 3, 4), handled);
+        assertEquals(0, ingestor.depth(BOT));
+        assertNull(meterRegistry.find("telegram.webhook.queue.depth").tag("bot", BOT).gauge());
+        assertNull(meterRegistry.find("telegram.webhook.updates").tag("bot", BOT).counter());
+        assertTrue(spillStore.pendingBots().isEmpty());
+    }
+
+    @Test
+    void deletedBotDiscardsPendingUpdates() throws Exception {
+        newIngestor(TelegramProperties.OverflowPolicy.REJECT);
+        fillQueue();
+        spillStore.spill(BOT, update(4));
+
+        botRegistry.remove(BOT);
+        releaseWorkerLater();
+        ingestor.onBotUnregistered(new BotUnregisteredEvent(1L, BOT, null));
+
+        awaitHandled(1);
+        Thread.sleep(200);
+        assertEquals(List.of(1), handled);
+        assertEquals(0, ingestor.depth(BOT));
+        assertNull(meterRegistry.find("telegram.webhook.queue.depth").tag("bot", BOT).gauge());
+        assertTrue(spillStore.pendingBots().isEmpty());
+    }
+}
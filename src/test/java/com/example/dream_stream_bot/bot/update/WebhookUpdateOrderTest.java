@@ -0,0 +1,110 @@
+package com.example.dream_stream_bot.bot.update;
+
+import com.example.dream_stream_bot.bot.AbstractTelegramBot;
+import com.example.dream_stream_bot.bot.error.BotUpdateErrorHandler;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Webhook-очередь → бот → {@link ConversationUpdateDispatcher}: апдейты одного чата
+ * доходят до обработчика в порядке поступления.
+ */
+class WebhookUpdateOrderTest {
+
+    private static final String BOT = "order_test_bot";
+    private static final int UPDATES = 300;
+
+    @TempDir
+    Path spillDir;
+
+    private WebhookUpdateIngestor ingestor;
+    private ConversationUpdateDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        ingestor.shutdown();
+        dispatcher.shutdown();
+    }
+
+    /** Бот без сервисов: записывает id апдейтов своих разговоров. */
+    private static final class RecordingBot extends AbstractTelegramBot {
+        private final Map<Long, List<Integer>> seenByUser = new ConcurrentHashMap<>();
+        private final CountDownLatch done = new CountDownLatch(UPDATES * 2);
+
+        RecordingBot(ConversationUpdateDispatcher dispatcher) {
+            super(1L, null, null, null, null, null, null, null, null, dispatcher, null);
+        }
+
+        @Override
+        protected void doHandleUpdate(Update update) {
+            if (ThreadLocalRandom.current().nextInt(4) == 0) {
+                Thread.yield();
+            }
+            seenByUser.computeIfAbsent(update.getMessage().getFrom().getId(), id -> new CopyOnWriteArrayList<>())
+                    .add(update.getUpdateId());
+            done.countDown();
+        }
+    }
+
+    private static Update privateMessage(int updateId, long userId) {
+        User from = new User();
+        from.setId(userId);
+        from.setFirstName("user" + userId);
+        from.setIsBot(false);
+        Chat chat = new Chat();
+        chat.setId(userId);
+        chat.setType("private");
+        Message message = new Message();
+        message.setMessageId(updateId);
+        message.setFrom(from);
+        message.setChat(chat);
+        message.setText("m" + updateId);
+        Update update = new Update();
+        update.setUpdateId(updateId);
+        update.setMessage(message);
+        return update;
+    }
+
+    @Test
+    void updatesOfOneChatReachTheBotInArrivalOrder() throws Exception {
+        TelegramProperties properties = new TelegramProperties();
+        properties.getUpdates().setWorkerThreads(8);
+        properties.getWebhook().getIngestion().setSpillDirectory(spillDir.toString());
+        BotExecutors botExecutors = new BotExecutors(properties);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new ConversationUpdateDispatcher(properties, botExecutors, meterRegistry);
+        RecordingBot bot = new RecordingBot(dispatcher);
+        ingestor = new WebhookUpdateIngestor(Map.of(BOT, bot), new BotUpdateErrorHandler(null), properties,
+                new UpdateSpillStore(new ObjectMapper(), properties), meterRegistry, botExecutors);
+
+        for (int i = 1; i <= UPDATES; i++) {
+            ingestor.submit(BOT, privateMessage(2 * i, 101L));
+            ingestor.submit(BOT, privateMessage(2 * i + 1, 202L));
+        }
+
+        assertTrue(bot.done.await(10, TimeUnit.SECONDS));
+        assertEquals(IntStream.rangeClosed(1, UPDATES).map(i -> 2 * i).boxed().toList(), bot.seenByUser.get(101L));
+        assertEquals(IntStream.rangeClosed(1, UPDATES).map(i -> 2 * i + 1).boxed().toList(), bot.seenByUser.get(202L));
+    }
+}
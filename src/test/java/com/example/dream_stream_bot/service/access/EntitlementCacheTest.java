@@ -0,0 +1,82 @@
+package com.example.dream_stream_bot.service.access;
+
+import com.example.dream_stream_bot.config.properties.AccessProperties;
+import com.example.dream_stream_bot.model.consent.ConsentCode;
+import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
+import com.example.dream_stream_bot.service.consent.ConsentVerdict;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntitlementCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final EntitlementCache cache = new EntitlementCache(new AccessProperties(), registry);
+
+    private static SubscriptionSnapshot subscription(long id, long botId, long ownerUserId) {
+        return new SubscriptionSnapshot(id, botId, ownerUserId, null, SubscriptionStatus.ACTIVE,
+                OffsetDateTime.now().plusDays(30), null, null);
+    }
+
+    @Test
+    void repeatedLookupIsServedFromMemory() {
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            cache.personal(1L, 10L, () -> {
+                loads.incrementAndGet();
+                return Optional.of(subscription(100L, 1L, 10L));
+            });
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2.0, registry.get("access.entitlement.cache.requests").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void userEventDropsOnlyThatUsersVerdicts() {
+        ConsentVerdict missing = new ConsentVerdict(ConsentVerdict.bit(ConsentCode.PRIVACY_POLICY),
+                ConsentVerdict.bit(ConsentCode.PRIVACY_POLICY));
+        cache.consents(1L, 10L, () -> missing);
+        cache.consents(1L, 11L, () -> ConsentVerdict.NONE);
+
+        cache.onEntitlementsChanged(EntitlementsChangedEvent.user(10L));
+
+        assertTrue(cache.consents(1L, 10L, () -> ConsentVerdict.NONE).accessGranted());
+        assertTrue(cache.consents(1L, 11L, () -> missing).accessGranted());
+    }
+
+    @Test
+    void botEventDropsSubscriptionsOfThatBot() {
+        cache.group(1L, -500L, Optional::empty);
+        cache.group(2L, -500L, () -> Optional.of(subscription(200L, 2L, 10L)));
+
+        cache.onEntitlementsChanged(EntitlementsChangedEvent.bot(1L));
+
+        assertTrue(cache.group(1L, -500L, () -> Optional.of(subscription(101L, 1L, 10L))).isPresent());
+        assertEquals(200L, cache.group(2L, -500L, Optional::empty).orElseThrow().id());
+    }
+
+    @Test
+    void missingUserIsNotCached() {
+        assertFalse(cache.appUserId(777L, Optional::empty).isPresent());
+
+        assertEquals(Optional.of(10L), cache.appUserId(777L, () -> Optional.of(10L)));
+    }
+
+    @Test
+    void loadRacingWithInvalidationIsNotKept() {
+        cache.personal(1L, 10L, () -> {
+            cache.onEntitlementsChanged(EntitlementsChangedEvent.userOnBot(10L, 1L));
+            return Optional.empty();
+        });
+
+        assertTrue(cache.personal(1L, 10L, () -> Optional.of(subscription(100L, 1L, 10L))).isPresent());
+    }
+}
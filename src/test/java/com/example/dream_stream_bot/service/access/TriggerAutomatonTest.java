@@ -0,0 +1,48 @@
+package com.example.dream_stream_bot.service.access;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TriggerAutomatonTest {
+
+    @Test
+    void matchesAnyPatternIgnoringCase() {
+        TriggerAutomaton automaton = TriggerAutomaton.compile(List.of("@DreamBot", "Морфей", "#сон"));
+
+        assertTrue(automaton.matches("привет, @dreambot!"));
+        assertTrue(automaton.matches("МОРФЕЙ, что это значит?"));
+        assertTrue(automaton.matches("мне приснилось #СОН"));
+        assertFalse(automaton.matches("обычное сообщение в группе"));
+    }
+
+    @Test
+    void findsPatternThatStartsInsideFailedPrefix() {
+        // «сон» начинается внутри «сос…», где автомат уже ушёл по ветке другого шаблона
+        TriggerAutomaton automaton = TriggerAutomaton.compile(List.of("сосна", "сон"));
+
+        assertTrue(automaton.matches("ссосон"));
+        assertTrue(automaton.matches("Сосна у дома"));
+        assertFalse(automaton.matches("сосн"));
+    }
+
+    @Test
+    void findsShorterPatternSuffixOfLongerBranch() {
+        TriggerAutomaton automaton = TriggerAutomaton.compile(List.of("abcd", "bc"));
+
+        assertTrue(automaton.matches("xabcx"));
+        assertFalse(automaton.matches("abx"));
+    }
+
+    @Test
+    void emptyAndBlankPatternsNeverMatch() {
+        TriggerAutomaton automaton = TriggerAutomaton.compile(Arrays.asList(null, ""));
+
+        assertFalse(automaton.matches("anything"));
+        assertFalse(automaton.matches(""));
+    }
+}
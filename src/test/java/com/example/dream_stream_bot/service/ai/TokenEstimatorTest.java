@@ -0,0 +1,25 @@
+package com.example.dream_stream_bot.service.ai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenEstimatorTest {
+
+    @Test
+    void emptyTextHasNoTokens() {
+        assertEquals(0, TokenEstimator.estimate(null));
+        assertEquals(0, TokenEstimator.estimate(""));
+        assertEquals(TokenEstimator.MESSAGE_OVERHEAD, TokenEstimator.estimateMessage(""));
+    }
+
+    @Test
+    void cyrillicCostsMoreThanLatinOfSameLength() {
+        int latin = TokenEstimator.estimate("I dreamt about the sea");
+        int cyrillic = TokenEstimator.estimate("Мне приснилось море!!!");
+
+        assertEquals(6, latin);
+        assertTrue(cyrillic > latin);
+    }
+}
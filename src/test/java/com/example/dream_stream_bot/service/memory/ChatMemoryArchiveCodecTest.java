@@ -0,0 +1,40 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatMemoryArchiveCodecTest {
+
+    private final ChatMemoryArchiveCodec codec = new ChatMemoryArchiveCodec(new ObjectMapper());
+
+    @Test
+    void segmentRoundTripsAllFields() {
+        List<ChatMemoryArchiveCodec.Message> messages = List.of(
+                new ChatMemoryArchiveCodec.Message(0, "summary", "Ранее: пользователь видел сон о море", null, null,
+                        "2025-01-10T12:00:00"),
+                new ChatMemoryArchiveCodec.Message(7, "user", "а что значит волна?", 4512, 17, "2025-01-10T12:01:30"));
+
+        ChatMemoryArchiveCodec.Segment segment = codec.encode(messages);
+
+        assertEquals(messages, codec.decode(segment.payload()));
+    }
+
+    @Test
+    void dialogTextIsCompressed() {
+        List<ChatMemoryArchiveCodec.Message> messages = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            messages.add(new ChatMemoryArchiveCodec.Message(i, i % 2 == 0 ? "user" : "assistant",
+                    "Мне снова снился дом у реки, и я не мог найти дверь.", null, null, "2025-01-10T12:00:00"));
+        }
+
+        ChatMemoryArchiveCodec.Segment segment = codec.encode(messages);
+
+        assertTrue(segment.payload().length * 5L < segment.rawBytes());
+    }
+}
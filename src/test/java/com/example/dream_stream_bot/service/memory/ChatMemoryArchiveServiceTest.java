@@ -0,0 +1,102 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.config.properties.ChatMemoryProperties;
+import com.example.dream_stream_bot.service.settings.SystemSettingsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatMemoryArchiveServiceTest {
+
+    private static final String CONV = "bot:1:user:7";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PostgresChatMemoryRepository repository = mock(PostgresChatMemoryRepository.class);
+    private final ChatMemoryArchiveRepository archiveRepository = mock(ChatMemoryArchiveRepository.class);
+    private final ChatMemoryBatchWriter batchWriter = mock(ChatMemoryBatchWriter.class);
+    private final AtomicReference<ChatMemoryArchiveEntity> stored = new AtomicReference<>();
+    private ChatMemoryArchiveService service;
+
+    @BeforeEach
+    void setUp() {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        service = new ChatMemoryArchiveService(jdbcTemplate, mock(PlatformTransactionManager.class),
+                repository, archiveRepository, batchWriter, mock(ChatMemoryWriteBehind.class),
+                new ChatMemoryTailCache(properties, new SimpleMeterRegistry()),
+                mock(SystemSettingsService.class), new ObjectMapper(), properties, new SimpleMeterRegistry());
+
+        when(archiveRepository.existsById(CONV)).thenAnswer(invocation -> stored.get() != null);
+        when(archiveRepository.findById(CONV)).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+        doAnswer(invocation -> {
+            stored.set(invocation.getArgument(0));
+            return stored.get();
+        }).when(archiveRepository).save(any(ChatMemoryArchiveEntity.class));
+        doAnswer(invocation -> {
+            stored.set(null);
+            return null;
+        }).when(archiveRepository).delete(any(ChatMemoryArchiveEntity.class));
+    }
+
+    private static ChatMemoryEntity row(int index, LocalDateTime createdAt) {
+        ChatMemoryEntity entity = new ChatMemoryEntity();
+        entity.setConversationId(CONV);
+        entity.setMessageIndex(index);
+        entity.setRole("user");
+        entity.setContent("сон " + index);
+        entity.setCreatedAt(createdAt);
+        return entity;
+    }
+
+    @Test
+    void missingArchiveIsLookedUpOnce() {
+        assertFalse(service.rehydrate(CONV));
+        assertFalse(service.rehydrate(CONV));
+        assertFalse(service.rehydrate(CONV));
+
+        verify(archiveRepository, times(1)).existsById(CONV);
+    }
+
+    @Test
+    void archivingForgetsTheCachedMiss() {
+        assertFalse(service.rehydrate(CONV));
+        LocalDateTime longAgo = LocalDateTime.now().minusDays(200);
+        when(repository.findByConversationIdOrderByMessageIndexAsc(CONV))
+                .thenReturn(List.of(row(0, longAgo), row(1, longAgo.plusMinutes(1))));
+
+        assertTrue(service.archive(CONV, LocalDateTime.now().minusDays(90)));
+        verify(jdbcTemplate).update(eq("DELETE FROM chat_memory_activity WHERE conversation_id = ?"), eq(CONV));
+
+        assertTrue(service.rehydrate(CONV));
+        verify(batchWriter).insertIndexed(eq(CONV), anyList());
+        assertFalse(service.rehydrate(CONV));
+        verify(archiveRepository, times(2)).existsById(CONV);
+    }
+
+    @Test
+    void recentlyActiveConversationIsNotArchived() {
+        when(repository.findByConversationIdOrderByMessageIndexAsc(CONV))
+                .thenReturn(List.of(row(0, LocalDateTime.now().minusHours(1))));
+
+        assertFalse(service.archive(CONV, LocalDateTime.now().minusDays(90)));
+        verify(archiveRepository, times(0)).save(any(ChatMemoryArchiveEntity.class));
+    }
+}
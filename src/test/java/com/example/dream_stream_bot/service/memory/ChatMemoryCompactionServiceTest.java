@@ -0,0 +1,70 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import com.example.dream_stream_bot.model.agent.AgentConfigEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatMemoryCompactionServiceTest {
+
+    private static final String CONV = "bot:1:user:7";
+
+    private final PostgresChatMemoryRepository repository = mock(PostgresChatMemoryRepository.class);
+    private final ChatMemoryWriteBehind writeBehind = mock(ChatMemoryWriteBehind.class);
+    private final AgentConfigEntity agentConfig = new AgentConfigEntity();
+    private ChatMemoryCompactionService service;
+
+    @BeforeEach
+    void setUp() {
+        agentConfig.setSummarizeAfterTokens(100);
+        agentConfig.setSummaryKeepMessages(20);
+        service = new ChatMemoryCompactionService(mock(ChatClient.class), repository,
+                mock(ChatMemoryService.class), writeBehind, new BotExecutors(new TelegramProperties()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private static ChatMemoryBatchWriter.IndexedMessage pending(int index, String content) {
+        return new ChatMemoryBatchWriter.IndexedMessage(index,
+                new ChatMemoryBatchWriter.PendingMessage("user", content, null, null, LocalDateTime.now()));
+    }
+
+    @Test
+    void conversationUnderThresholdIsNeitherFlushedNorRead() {
+        when(repository.sumTokens(CONV)).thenReturn(60L);
+        when(writeBehind.pending(CONV)).thenReturn(List.of(pending(5, "короткий сон")));
+
+        assertFalse(service.compactIfNeeded(CONV, agentConfig));
+
+        verify(writeBehind, never()).flush(anyString());
+        verify(repository, never()).findByConversationIdOrderByMessageIndexAsc(anyString());
+    }
+
+    @Test
+    void bufferedMessagesCountTowardsTheThreshold() {
+        when(repository.sumTokens(CONV)).thenReturn(90L);
+        when(writeBehind.pending(CONV)).thenReturn(List.of(pending(5, "мне снился длинный-длинный сон про море")));
+        when(repository.findByConversationIdOrderByMessageIndexAsc(CONV)).thenReturn(List.of());
+
+        assertFalse(service.compactIfNeeded(CONV, agentConfig));
+
+        verify(writeBehind).flush(CONV);
+        verify(repository).findByConversationIdOrderByMessageIndexAsc(CONV);
+    }
+}
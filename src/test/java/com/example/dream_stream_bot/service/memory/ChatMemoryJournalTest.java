@@ -0,0 +1,76 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatMemoryJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sealedSegmentsAreReadInWriteOrderAndSurviveRestart() throws Exception {
+        try (ChatMemoryJournal journal = new ChatMemoryJournal(objectMapper, dir, 1024, false)) {
+            journal.append(entry("bot:1:user:7", 0, "user", "привет"));
+            journal.append(entry("bot:1:user:7", 1, "assistant", "здравствуй"));
+        }
+
+        try (ChatMemoryJournal reopened = new ChatMemoryJournal(objectMapper, dir, 1024, false)) {
+            List<Path> sealed = reopened.seal();
+            List<ChatMemoryJournal.Entry> entries = reopened.readAll(sealed);
+
+            assertEquals(2, entries.size());
+            assertEquals(0, entries.get(0).index());
+            assertEquals("здравствуй", entries.get(1).content());
+
+            reopened.delete(sealed);
+            assertTrue(reopened.readAll(reopened.seal()).isEmpty());
+        }
+    }
+
+    @Test
+    void entriesAfterSealGoToNewSegment() throws Exception {
+        try (ChatMemoryJournal journal = new ChatMemoryJournal(objectMapper, dir, 1024, false)) {
+            journal.append(entry("c", 0, "user", "old"));
+            List<Path> sealed = journal.seal();
+            journal.append(entry("c", 1, "user", "new"));
+
+            journal.delete(sealed);
+
+            List<ChatMemoryJournal.Entry> rest = journal.readAll(journal.seal());
+            assertEquals(1, rest.size());
+            assertEquals("new", rest.get(0).content());
+        }
+    }
+
+    @Test
+    void truncatedLastLineIsSkipped() throws Exception {
+        try (ChatMemoryJournal journal = new ChatMemoryJournal(objectMapper, dir, 1024, false)) {
+            journal.append(entry("c", 0, "user", "целая строка"));
+            List<Path> sealed = journal.seal();
+            Files.writeString(sealed.get(0), "{\"conversationId\":\"c\",\"ind", StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND);
+
+            List<ChatMemoryJournal.Entry> entries = journal.readAll(sealed);
+
+            assertEquals(1, entries.size());
+            assertEquals("целая строка", entries.get(0).content());
+        }
+    }
+
+    private static ChatMemoryJournal.Entry entry(String conv, int index, String role, String content) {
+        return new ChatMemoryJournal.Entry(conv, index, role, content, null, null, "2026-01-01T10:00:00");
+    }
+}
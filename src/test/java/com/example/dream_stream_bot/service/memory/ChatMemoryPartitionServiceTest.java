@@ -0,0 +1,53 @@
+package com.example.dream_stream_bot.service.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatMemoryPartitionServiceTest {
+
+    @Test
+    void partitionNameIsYearAndMonth() {
+        assertEquals("chat_memory_p202603", ChatMemoryPartitionService.partitionName(YearMonth.of(2026, 3)));
+    }
+
+    @Test
+    void dropsOnlyMonthsEntirelyOlderThanMaxAge() {
+        List<String> partitions = List.of("chat_memory_p202509", "chat_memory_p202510", "chat_memory_p202411",
+                "chat_memory_default", "chat_memory_p2025");
+
+        assertEquals(List.of("chat_memory_p202411", "chat_memory_p202509"),
+                ChatMemoryPartitionService.expiredPartitions(partitions, YearMonth.of(2026, 10), 12));
+    }
+
+    @Test
+    void invalidMonthNamesAreNeverDropped() {
+        List<String> partitions = List.of("chat_memory_p202513", "chat_memory_p202400", "chat_memory_p202401;",
+                "chat_memory_p202401");
+
+        assertEquals(List.of("chat_memory_p202401"),
+                ChatMemoryPartitionService.expiredPartitions(partitions, YearMonth.of(2026, 10), 12));
+    }
+
+    @Test
+    void monthSuffixIsValidated() {
+        assertEquals(Optional.of(YearMonth.of(2025, 12)), ChatMemoryPartitionService.parseMonth("202512"));
+        assertTrue(ChatMemoryPartitionService.parseMonth("202513").isEmpty());
+        assertTrue(ChatMemoryPartitionService.parseMonth("2025-1").isEmpty());
+        assertTrue(ChatMemoryPartitionService.parseMonth("202501' OR 1=1").isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> ChatMemoryPartitionService.partitionName(YearMonth.of(10000, 1)));
+    }
+
+    @Test
+    void zeroMaxAgeKeepsEverything() {
+        assertTrue(ChatMemoryPartitionService.expiredPartitions(
+                List.of("chat_memory_p200001"), YearMonth.of(2026, 10), 0).isEmpty());
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
+import com.example.dream_stream_bot.model.subscription.SubscriptionTariffEntity;
+import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
+import com.example.dream_stream_bot.model.telegram.BotRepository;
+import com.example.dream_stream_bot.service.settings.SystemSettingsService;
+import com.example.dream_stream_bot.service.subscription.SubscriptionService;
+import com.example.dream_stream_bot.service.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ChatMemoryRetentionServiceTest {
+
+    private static final long OWNER_TG = 141614461L;
+    private static final long FREE_OWNER_TG = 3001L;
+    private static final long TRIAL_OWNER_TG = 3002L;
+    private static final long GROUP_CHAT = -100123L;
+    /** Другой чат, чей id начинается с id первого, — строковый префикс задел бы и его. */
+    private static final long PREFIXED_CHAT = -1001234L;
+
+    @Autowired
+    private ChatMemoryRetentionService retentionService;
+    @Autowired
+    private PostgresChatMemoryRepository chatMemoryRepository;
+    @Autowired
+    private SubscriptionService subscriptionService;
+    @Autowired
+    private SubscriptionTariffRepository tariffRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private BotRepository botRepository;
+    @Autowired
+    private SystemSettingsService systemSettingsService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long botId;
+    private long expiredGroup;
+    private long expiredTrial;
+
+    @BeforeEach
+    void setUp() {
+        botId = botRepository.findByUsername("integration_test_bot").orElseThrow().getId();
+        Long owner = userService.findOrCreateByTelegramId(OWNER_TG, null, null, null).getId();
+        Long freeOwner = userService.findOrCreateByTelegramId(FREE_OWNER_TG, "free", null, null).getId();
+        Long trialOwner = userService.findOrCreateByTelegramId(TRIAL_OWNER_TG, "trial", null, null).getId();
+        Long groupTariff = tariff("GROUP_S");
+
+        expiredGroup = subscription(owner, groupTariff, GROUP_CHAT, SubscriptionStatus.EXPIRED, 200);
+        subscription(owner, groupTariff, PREFIXED_CHAT, SubscriptionStatus.ACTIVE, -30);
+        subscription(freeOwner, tariff("PERSONAL_FREE"), null, SubscriptionStatus.ACTIVE, 200);
+        expiredTrial = subscription(trialOwner, tariff("PERSONAL_TRIAL"), null, SubscriptionStatus.EXPIRED, 200);
+
+        remember(groupConversation(GROUP_CHAT));
+        remember(groupConversation(PREFIXED_CHAT));
+        remember(privateConversation(FREE_OWNER_TG));
+        remember(privateConversation(TRIAL_OWNER_TG));
+    }
+
+    private Long tariff(String code) {
+        return tariffRepository.findByBotIdOrderBySortOrderAscIdAsc(botId).stream()
+                .filter(t -> code.equals(t.getCode()))
+                .map(SubscriptionTariffEntity::getId)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /** Подписка, чей срок закончился {@code expiredDaysAgo} дней назад (отрицательное — ещё не закончился). */
+    private long subscription(Long ownerUserId, Long tariffId, Long chatId, SubscriptionStatus status,
+                              int expiredDaysAgo) {
+        long id = subscriptionService.createOrGet(ownerUserId, botId, tariffId, chatId).getId();
+        jdbcTemplate.update("UPDATE subscription SET status = ?, expires_at = ? WHERE id = ?", status.name(),
+                Timestamp.from(OffsetDateTime.now().minusDays(expiredDaysAgo).toInstant()), id);
+        return id;
+    }
+
+    private String groupConversation(long chatId) {
+        return "bot:" + botId + ":chat:" + chatId + ":user:7";
+    }
+
+    private String privateConversation(long telegramId) {
+        return "bot:" + botId + ":user:" + telegramId;
+    }
+
+    private void remember(String conversationId) {
+        ChatMemoryEntity entity = new ChatMemoryEntity();
+        entity.setConversationId(conversationId);
+        entity.setMessageIndex(0);
+        entity.setRole("user");
+        entity.setContent("мне снилось море");
+        chatMemoryRepository.save(entity);
+    }
+
+    private int rows(String conversationId) {
+        return chatMemoryRepository.countByConversationId(conversationId);
+    }
+
+    private String storedCursor() {
+        return systemSettingsService.get(SystemSettingsService.KEY_CHAT_MEMORY_RETENTION_CURSOR).orElse("0");
+    }
+
+    @Test
+    void fullPassPurgesExpiredMemoryAndResetsTheCursor() {
+        assertEquals(2, retentionService.purgeExpiredMemories());
+
+        assertEquals(0, rows(groupConversation(GROUP_CHAT)));
+        assertEquals(0, rows(privateConversation(TRIAL_OWNER_TG)));
+        assertEquals("0", storedCursor());
+    }
+
+    @Test
+    void groupPurgeKeepsAChatWhoseIdSharesThePrefix() {
+        retentionService.purgeExpiredMemories();
+
+        assertEquals(0, rows(groupConversation(GROUP_CHAT)));
+        assertEquals(1, rows(groupConversation(PREFIXED_CHAT)));
+    }
+
+    @Test
+    void freeUnlimitedSubscriptionIsSkippedDespiteOldExpiry() {
+        retentionService.purgeExpiredMemories();
+
+        assertEquals(1, rows(privateConversation(FREE_OWNER_TG)));
+    }
+
+    @Test
+    void interruptedPassResumesAfterTheStoredCursor() {
+        assertTrue(expiredTrial > expiredGroup);
+        systemSettingsService.set(SystemSettingsService.KEY_CHAT_MEMORY_RETENTION_CURSOR,
+                String.valueOf(expiredGroup));
+
+        assertEquals(1, retentionService.purgeExpiredMemories());
+
+        assertEquals(1, rows(groupConversation(GROUP_CHAT)));
+        assertEquals(0, rows(privateConversation(TRIAL_OWNER_TG)));
+        assertEquals("0", storedCursor());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.config.properties.ChatMemoryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChatMemoryTailCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private ChatMemoryTailCache cache(int maxMessages) {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        properties.getCache().setMaxMessagesPerConversation(maxMessages);
+        return new ChatMemoryTailCache(properties, registry);
+    }
+
+    @Test
+    void appendedMessagesAreServedWithoutReload() {
+        ChatMemoryTailCache cache = cache(200);
+        cache.put("c", List.of(new ChatMemoryTailCache.Entry(0, "user", "сон про море")), true);
+
+        cache.append("c", List.of(pending("user", "а что это значит?"), pending("assistant", "перемены")));
+
+        List<ChatMemoryTailCache.Entry> window = cache.window("c", 2);
+        assertEquals(2, window.size());
+        assertEquals(1, window.get(0).index());
+        assertEquals("перемены", window.get(1).content());
+        assertEquals(1.0, registry.get("chat.memory.cache.requests").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void incompleteTailShorterThanWindowIsMiss() {
+        ChatMemoryTailCache cache = cache(2);
+        cache.put("c", List.of(new ChatMemoryTailCache.Entry(0, "user", "a")), true);
+        cache.append("c", List.of(pending("assistant", "b"), pending("user", "c")));
+
+        // Хвост обрезан до двух сообщений — окно из трёх надо читать из БД.
+        assertNull(cache.window("c", 3));
+        assertEquals(2, cache.window("c", 2).size());
+    }
+
+    @Test
+    void invalidateByPredicateDropsMatchingConversations() {
+        ChatMemoryTailCache cache = cache(200);
+        cache.put("bot:1:user:7", List.of(), true);
+        cache.put("bot:1:chat:5:user:7", List.of(), true);
+        cache.put("bot:2:user:7", List.of(), true);
+
+        cache.invalidateIf(conv -> conv.startsWith("bot:1:"));
+
+        assertNull(cache.window("bot:1:user:7", 1));
+        assertNull(cache.window("bot:1:chat:5:user:7", 1));
+        assertEquals(0, cache.window("bot:2:user:7", 1).size());
+    }
+
+    @Test
+    void summaryStaysInFrontOfTrimmedWindow() {
+        ChatMemoryTailCache cache = cache(2);
+        cache.put("c", List.of(
+                new ChatMemoryTailCache.Entry(9, ChatMemoryEntity.ROLE_SUMMARY, "раньше снился лес"),
+                new ChatMemoryTailCache.Entry(10, "user", "a")), true);
+        cache.append("c", List.of(pending("assistant", "b"), pending("user", "c")));
+
+        List<ChatMemoryTailCache.Entry> window = cache.window("c", 2);
+
+        assertEquals(3, window.size());
+        assertEquals(ChatMemoryEntity.ROLE_SUMMARY, window.get(0).role());
+        assertEquals("b", window.get(1).content());
+        assertEquals(12, window.get(2).index());
+    }
+
+    @Test
+    void appendWithoutCachedTailDoesNothing() {
+        ChatMemoryTailCache cache = cache(200);
+
+        cache.append("c", List.of(pending("user", "hello")));
+
+        assertNull(cache.window("c", 1));
+    }
+
+    private static ChatMemoryBatchWriter.PendingMessage pending(String role, String content) {
+        return new ChatMemoryBatchWriter.PendingMessage(role, content, null, null, null);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.config.properties.ChatMemoryProperties;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import com.example.dream_stream_bot.service.memory.ChatMemoryBatchWriter.IndexedMessage;
+import com.example.dream_stream_bot.service.memory.ChatMemoryBatchWriter.PendingMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatMemoryWriteBehindTest {
+
+    @TempDir
+    Path journalDir;
+
+    private final ChatMemoryBatchWriter batchWriter = mock(ChatMemoryBatchWriter.class);
+    /** Что «записано в БД»: сообщения по разговорам в порядке вставки. */
+    private final Map<String, List<IndexedMessage>> written = new ConcurrentHashMap<>();
+    /** Разговоры, запись которых в БД падает. */
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        when(batchWriter.nextIndex(anyString())).thenReturn(0);
+        when(batchWriter.insertIndexed(anyString(), anyList())).thenAnswer(invocation -> {
+            String conversationId = invocation.getArgument(0);
+            if (failing.contains(conversationId)) {
+                throw new IllegalStateException("database is down");
+            }
+            List<IndexedMessage> messages = invocation.getArgument(1);
+            written.computeIfAbsent(conversationId, k -> new ArrayList<>()).addAll(messages);
+            return messages.size();
+        });
+    }
+
+    private ChatMemoryWriteBehind start() {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        ChatMemoryProperties.WriteBehind settings = properties.getWriteBehind();
+        settings.setEnabled(true);
+        settings.setJournalDirectory(journalDir.toString());
+        // Фоновый сброс не должен вмешиваться — тесты сбрасывают сами.
+        settings.setFlushIntervalMs(3_600_000);
+        ChatMemoryWriteBehind writeBehind = new ChatMemoryWriteBehind(properties, batchWriter, new ObjectMapper(),
+                new BotExecutors(new TelegramProperties()));
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    private static List<PendingMessage> messages(String... contents) {
+        List<PendingMessage> result = new ArrayList<>();
+        for (String content : contents) {
+            result.add(new PendingMessage("user", content, null, null, LocalDateTime.of(2026, 1, 1, 10, 0)));
+        }
+        return result;
+    }
+
+    private static List<Integer> indexes(List<IndexedMessage> messages) {
+        return messages.stream().map(IndexedMessage::index).toList();
+    }
+
+    @Test
+    void messagesAreBufferedUntilFlush() {
+        ChatMemoryWriteBehind writeBehind = start();
+
+        writeBehind.append("a", messages("сон", "про море"));
+
+        assertEquals(List.of(0, 1), indexes(writeBehind.pending("a")));
+        assertTrue(written.isEmpty());
+
+        assertTrue(writeBehind.flushAll());
+        assertEquals(List.of(0, 1), indexes(written.get("a")));
+        assertTrue(writeBehind.pending("a").isEmpty());
+
+        writeBehind.append("a", messages("и волны"));
+        assertEquals(List.of(2), indexes(writeBehind.pending("a")));
+        verify(batchWriter, times(1)).nextIndex("a");
+    }
+
+    @Test
+    void evictedConversationStartsOverFromDatabaseIndex() {
+        ChatMemoryWriteBehind writeBehind = start();
+        writeBehind.append("a", messages("раз", "два"));
+
+        writeBehind.flushAndEvict("a"::equals);
+
+        assertEquals(List.of(0, 1), indexes(written.get("a")));
+        assertTrue(writeBehind.pending("a").isEmpty());
+        writeBehind.append("a", messages("заново"));
+        assertEquals(List.of(0), indexes(writeBehind.pending("a")));
+        verify(batchWriter, times(2)).nextIndex("a");
+    }
+
+    @Test
+    void clearedConversationIsNotReplayedWhenOtherFlushFailed() {
+        failing.add("b");
+        ChatMemoryWriteBehind writeBehind = start();
+        writeBehind.append("a", messages("удалить"));
+        writeBehind.append("b", messages("сохранить"));
+
+        // Сброс "b" падает — сегменты журнала остаются, но строки "a" из них вычищаются.
+        writeBehind.flushAndEvict("a"::equals);
+        assertFalse(writeBehind.flushAll());
+
+        // Падение процесса: новый экземпляр воспроизводит журнал.
+        failing.clear();
+        written.clear();
+        start();
+
+        assertFalse(written.containsKey("a"));
+        assertEquals(List.of(0), indexes(written.get("b")));
+        assertEquals("сохранить", written.get("b").get(0).message().content());
+    }
+
+    @Test
+    void flushedJournalIsNotReplayed() {
+        ChatMemoryWriteBehind writeBehind = start();
+        writeBehind.append("a", messages("уже в БД"));
+        assertTrue(writeBehind.flushAll());
+
+        written.clear();
+        start();
+
+        assertTrue(written.isEmpty());
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.dream_stream_bot.service.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ContextBudgetTest {
+
+    private record Item(String name, int tokens) {
+    }
+
+    private static List<Item> fit(List<Item> window, int budget) {
+        return ContextBudget.fitNewest(window, Item::tokens, i -> i.name().equals("summary"), budget);
+    }
+
+    @Test
+    void takesNewestMessagesThatFit() {
+        List<Item> window = List.of(new Item("a", 50), new Item("b", 30), new Item("c", 30), new Item("d", 30));
+
+        assertEquals(List.of(window.get(2), window.get(3)), fit(window, 80));
+    }
+
+    @Test
+    void oversizedMessageCutsOffEverythingOlder() {
+        List<Item> window = List.of(new Item("a", 5), new Item("huge", 500), new Item("c", 10));
+
+        assertEquals(List.of(window.get(2)), fit(window, 100));
+    }
+
+    @Test
+    void summaryGoesFirstWhenItTakesAtMostHalfTheBudget() {
+        Item summary = new Item("summary", 40);
+        List<Item> window = List.of(summary, new Item("a", 30), new Item("b", 30), new Item("c", 30));
+
+        assertEquals(List.of(summary, window.get(2), window.get(3)), fit(window, 100));
+        assertEquals(List.of(window.get(2), window.get(3)), fit(window, 70));
+    }
+
+    @Test
+    void unlimitedBudgetKeepsWindow() {
+        List<Item> window = List.of(new Item("a", 1_000_000));
+
+        assertSame(window, fit(window, ContextBudget.UNLIMITED));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.dream_stream_bot.service.memory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationKeyTest {
+
+    @Test
+    void parsesPrivateConversation() {
+        assertEquals(new ConversationKey(3L, null, null, 42L), ConversationKey.parse("bot:3:user:42"));
+    }
+
+    @Test
+    void parsesForumTopicWithNegativeChatId() {
+        ConversationKey key = ConversationKey.parse("bot:3:chat:-1001234:thread:17:user:42");
+
+        assertEquals(new ConversationKey(3L, -1001234L, 17, 42L), key);
+        assertTrue(key.isInChat(3L, -1001234L));
+        assertTrue(key.isUserInBot(3L, 42L));
+    }
+
+    @Test
+    void chatPrefixDoesNotMatchLongerChatId() {
+        // LIKE 'bot:3:chat:-100%' задел бы и чат -1001234; типизированный ключ — нет.
+        assertFalse(ConversationKey.parse("bot:3:chat:-1001234:user:42").isInChat(3L, -100L));
+    }
+
+    @Test
+    void foreignFormatHasNoParts() {
+        ConversationKey key = ConversationKey.parse("bot:3:update:99");
+
+        assertNull(key.botId());
+        assertFalse(key.isUserInBot(3L, 99L));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.dream_stream_bot.service.memory;
+
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.config.properties.ChatMemoryProperties;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostgresChatMemoryTest {
+
+    private static final String CONV = "bot:1:user:7";
+
+    @TempDir
+    Path journalDir;
+
+    private final PostgresChatMemoryRepository repository = mock(PostgresChatMemoryRepository.class);
+    private final ChatMemoryBatchWriter batchWriter = mock(ChatMemoryBatchWriter.class);
+    private final ChatMemoryArchiveService archiveService = mock(ChatMemoryArchiveService.class);
+    private final ChatMemoryActivityRepository activityRepository = mock(ChatMemoryActivityRepository.class);
+    /** Строки «в БД», по возрастанию индекса. */
+    private final List<ChatMemoryEntity> rows = new ArrayList<>();
+    private ChatMemoryWriteBehind writeBehind;
+    private PostgresChatMemory memory;
+
+    @BeforeEach
+    void setUp() {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setJournalDirectory(journalDir.toString());
+        properties.getWriteBehind().setFlushIntervalMs(3_600_000);
+        writeBehind = new ChatMemoryWriteBehind(properties, batchWriter, new ObjectMapper(),
+                new BotExecutors(new TelegramProperties()));
+        writeBehind.start();
+
+        when(repository.findByConversationIdOrderByMessageIndexDesc(eq(CONV), any(Limit.class)))
+                .thenAnswer(invocation -> {
+                    int limit = invocation.<Limit>getArgument(1).max();
+                    List<ChatMemoryEntity> newestFirst = new ArrayList<>(rows);
+                    Collections.reverse(newestFirst);
+                    return newestFirst.subList(0, Math.min(limit, newestFirst.size()));
+                });
+        when(batchWriter.nextIndex(CONV)).thenAnswer(invocation -> rows.size());
+
+        memory = new PostgresChatMemory();
+        ReflectionTestUtils.setField(memory, "repository", repository);
+        ReflectionTestUtils.setField(memory, "batchWriter", batchWriter);
+        ReflectionTestUtils.setField(memory, "writeBehind", writeBehind);
+        ReflectionTestUtils.setField(memory, "tailCache",
+                new ChatMemoryTailCache(properties, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(memory, "archiveService", archiveService);
+        ReflectionTestUtils.setField(memory, "activityRepository", activityRepository);
+    }
+
+    private void row(int index, String role, String content) {
+        ChatMemoryEntity entity = new ChatMemoryEntity();
+        entity.setConversationId(CONV);
+        entity.setMessageIndex(index);
+        entity.setRole(role);
+        entity.setContent(content);
+        rows.add(entity);
+    }
+
+    private static List<String> texts(List<Message> messages) {
+        return messages.stream().map(Message::getText).toList();
+    }
+
+    @Test
+    void bufferedMessagesAreMergedIntoWindow() {
+        row(0, "user", "мне снилось море");
+
+        memory.add(CONV, List.of(new AssistantMessage("море — это чувства"), new UserMessage("а волны?")));
+
+        verify(batchWriter, times(0)).insertIndexed(eq(CONV), anyList());
+        assertEquals(List.of(1, 2), writeBehind.pending(CONV).stream()
+                .map(ChatMemoryBatchWriter.IndexedMessage::index).toList());
+        assertEquals(List.of("мне снилось море", "море — это чувства", "а волны?"), texts(memory.get(CONV, 10)));
+        assertEquals(List.of("море — это чувства", "а волны?"), texts(memory.get(CONV, 2)));
+    }
+
+    @Test
+    void compactedConversationShorterThanWindowIsServedFromCache() {
+        row(0, ChatMemoryEntity.ROLE_SUMMARY, "раньше снился лес");
+        row(1, "user", "а теперь море");
+        row(2, "assistant", "вода — это чувства");
+
+        List<String> first = texts(memory.get(CONV, 3));
+        List<String> second = texts(memory.get(CONV, 3));
+
+        assertEquals(first, second);
+        assertEquals(3, second.size());
+        assertEquals("вода — это чувства", second.get(2));
+        verify(repository, times(1)).findByConversationIdOrderByMessageIndexDesc(eq(CONV), any(Limit.class));
+        verify(repository, never()).findFirstByConversationIdOrderByMessageIndexAsc(CONV);
+    }
+
+    @Test
+    void archiveIsConsultedOnlyWhenConversationHasNoRows() {
+        row(0, "user", "сон в базе");
+
+        assertEquals(List.of("сон в базе"), texts(memory.get(CONV, 10)));
+        verify(archiveService, never()).rehydrate(CONV);
+
+        String archived = "bot:1:user:8";
+        assertTrue(memory.get(archived, 10).isEmpty());
+        verify(archiveService).rehydrate(archived);
+    }
+
+    @Test
+    void clearFlushesAndForgetsBufferedMessages() {
+        row(0, "user", "старый сон");
+        memory.add(CONV, List.of(new UserMessage("ещё не записан")));
+
+        memory.clear(CONV);
+
+        verify(batchWriter).insertIndexed(eq(CONV), anyList());
+        verify(repository).deleteByConversationId(CONV);
+        verify(activityRepository).deleteExact(CONV);
+        assertTrue(writeBehind.pending(CONV).isEmpty());
+    }
+}
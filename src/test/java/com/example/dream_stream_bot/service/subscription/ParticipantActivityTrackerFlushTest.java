@@ -0,0 +1,78 @@
+package com.example.dream_stream_bot.service.subscription;
+
+import com.example.dream_stream_bot.bot.update.BotExecutors;
+import com.example.dream_stream_bot.config.properties.AccessProperties;
+import com.example.dream_stream_bot.config.properties.TelegramProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/** Сброс и первое чтение месячного набора подписки идут из разных потоков. */
+class ParticipantActivityTrackerFlushTest {
+
+    private static final long SUBSCRIPTION = 1L;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    /** Строки {@code subscription_participant}, видимые после «коммита». */
+    private final Set<Long> stored = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch writeStarted = new CountDownLatch(1);
+    private final CountDownLatch commit = new CountDownLatch(1);
+
+    private ParticipantActivityTracker newTracker() {
+        doAnswer(invocation -> List.copyOf(stored))
+                .when(jdbcTemplate).queryForList(anyString(), eq(Long.class), any(), any());
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            if (sql.startsWith("INSERT")) {
+                writeStarted.countDown();
+                commit.await(5, TimeUnit.SECONDS);
+                List<Object[]> rows = invocation.getArgument(1);
+                rows.forEach(row -> stored.add((Long) row[0]));
+            }
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        return new ParticipantActivityTracker(new AccessProperties(), jdbcTemplate,
+                mock(PlatformTransactionManager.class), mock(SubscriptionParticipantService.class),
+                new BotExecutors(new TelegramProperties()), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void monthLoadedDuringFlushSeesTheInFlightBatch() throws Exception {
+        ParticipantActivityTracker tracker = newTracker();
+        tracker.touch(SUBSCRIPTION, 501L);
+        tracker.touch(SUBSCRIPTION, 502L);
+
+        CompletableFuture<Integer> flushed = CompletableFuture.supplyAsync(tracker::flush);
+        assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+        // Смена месяца: набор подписки будет прочитан заново, пока пачка 501/502 ещё не записана.
+        ((Map<?, ?>) ReflectionTestUtils.getField(tracker, "months")).clear();
+
+        CompletableFuture<Long> firstTouch = CompletableFuture.supplyAsync(() -> tracker.touch(SUBSCRIPTION, 503L));
+        Thread.sleep(100);
+        assertFalse(firstTouch.isDone());
+
+        commit.countDown();
+        assertEquals(2, flushed.get(5, TimeUnit.SECONDS));
+        assertEquals(3L, firstTouch.get(5, TimeUnit.SECONDS));
+    }
+}
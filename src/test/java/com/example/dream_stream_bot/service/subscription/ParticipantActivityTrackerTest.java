@@ -0,0 +1,83 @@
+package com.example.dream_stream_bot.service.subscription;
+
+import com.example.dream_stream_bot.model.subscription.SubscriptionParticipantEntity;
+import com.example.dream_stream_bot.model.subscription.SubscriptionParticipantRepository;
+import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
+import com.example.dream_stream_bot.model.telegram.BotEntity;
+import com.example.dream_stream_bot.model.telegram.BotRepository;
+import com.example.dream_stream_bot.model.user.UserEntity;
+import com.example.dream_stream_bot.model.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class ParticipantActivityTrackerTest {
+
+    @Autowired
+    private ParticipantActivityTracker tracker;
+    @Autowired
+    private SubscriptionService subscriptionService;
+    @Autowired
+    private SubscriptionTariffRepository tariffRepository;
+    @Autowired
+    private SubscriptionParticipantRepository participantRepository;
+    @Autowired
+    private BotRepository botRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long subscriptionId() {
+        BotEntity bot = botRepository.findByUsername("integration_test_bot").orElseThrow();
+        UserEntity user = userRepository.findByTelegramId(141614461L).orElseThrow();
+        Long tariffId = tariffRepository.findByBotIdAndDefaultPersonalTrue(bot.getId()).orElseThrow().getId();
+        return subscriptionService.createOrGet(user.getId(), bot.getId(), tariffId, null).getId();
+    }
+
+    @Test
+    void monthlyMembersAreCountedInMemoryAndFlushedInOneBatch() {
+        Long subscriptionId = subscriptionId();
+
+        assertEquals(1, tracker.touch(subscriptionId, 501L));
+        assertEquals(1, tracker.touch(subscriptionId, 501L));
+        assertEquals(2, tracker.touch(subscriptionId, 502L));
+        assertTrue(participantRepository.findBySubscriptionId(subscriptionId).isEmpty());
+
+        assertEquals(2, tracker.flush());
+
+        List<Long> stored = participantRepository.findBySubscriptionId(subscriptionId).stream()
+                .map(SubscriptionParticipantEntity::getTelegramId)
+                .sorted()
+                .toList();
+        assertEquals(List.of(501L, 502L), stored);
+
+        tracker.touch(subscriptionId, 501L);
+        tracker.flush();
+        assertEquals(2, participantRepository.findBySubscriptionId(subscriptionId).size());
+    }
+
+    @Test
+    void forgottenUserIsNotWrittenBack() {
+        Long subscriptionId = subscriptionId();
+        tracker.touch(subscriptionId, 601L);
+        tracker.touch(subscriptionId, 602L);
+
+        tracker.forgetTelegramUser(601L);
+        tracker.flush();
+
+        List<Long> stored = participantRepository.findBySubscriptionId(subscriptionId).stream()
+                .map(SubscriptionParticipantEntity::getTelegramId)
+                .toList();
+        assertEquals(List.of(602L), stored);
+        assertEquals(1, tracker.touch(subscriptionId, 602L));
+    }
+}
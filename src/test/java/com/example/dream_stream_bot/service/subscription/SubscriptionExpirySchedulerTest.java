@@ -0,0 +1,106 @@
+package com.example.dream_stream_bot.service.subscription;
+
+import com.example.dream_stream_bot.model.subscription.SubscriptionEntity;
+import com.example.dream_stream_bot.model.subscription.SubscriptionStatus;
+import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
+import com.example.dream_stream_bot.model.telegram.BotEntity;
+import com.example.dream_stream_bot.model.telegram.BotRepository;
+import com.example.dream_stream_bot.model.user.UserEntity;
+import com.example.dream_stream_bot.model.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class SubscriptionExpirySchedulerTest {
+
+    @Autowired
+    private SubscriptionExpiryScheduler scheduler;
+    @Autowired
+    private SubscriptionService subscriptionService;
+    @Autowired
+    private SubscriptionTariffRepository tariffRepository;
+    @Autowired
+    private BotRepository botRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private SubscriptionEntity activeForOneDay() {
+        BotEntity bot = botRepository.findByUsername("integration_test_bot").orElseThrow();
+        UserEntity user = userRepository.findByTelegramId(141614461L).orElseThrow();
+        Long tariffId = tariffRepository.findByBotIdAndDefaultPersonalTrue(bot.getId()).orElseThrow().getId();
+        SubscriptionEntity subscription = subscriptionService.createOrGet(user.getId(), bot.getId(), tariffId, null);
+        return subscriptionService.grantManual(subscription, 1, null, "test");
+    }
+
+    @Test
+    void subscriptionIsExpiredWhenItsPeriodEnds() {
+        SubscriptionEntity subscription = activeForOneDay();
+        assertTrue(subscriptionService.isActive(subscription));
+        Instant expiresAt = subscription.getExpiresAt().toInstant();
+        scheduler.schedule(subscription.getId(), subscription.getExpiresAt());
+
+        assertEquals(0, scheduler.expireDue(expiresAt.minusSeconds(60)));
+        assertEquals(SubscriptionStatus.ACTIVE, subscriptionService.requireById(subscription.getId()).getStatus());
+
+        assertEquals(1, scheduler.expireDue(expiresAt.plusSeconds(1)));
+        SubscriptionEntity expired = subscriptionService.requireById(subscription.getId());
+        assertEquals(SubscriptionStatus.EXPIRED, expired.getStatus());
+        assertFalse(subscriptionService.isActive(expired));
+    }
+
+    @Test
+    void extendedSubscriptionIsNotExpiredAtOldDeadline() {
+        SubscriptionEntity subscription = activeForOneDay();
+        Instant oldExpiresAt = subscription.getExpiresAt().toInstant();
+        scheduler.schedule(subscription.getId(), subscription.getExpiresAt());
+
+        SubscriptionEntity extended = subscriptionService.grantManual(subscription, 30, null, "test");
+        scheduler.schedule(extended.getId(), extended.getExpiresAt());
+
+        assertEquals(0, scheduler.expireDue(oldExpiresAt.plusSeconds(1)));
+        assertEquals(SubscriptionStatus.ACTIVE, subscriptionService.requireById(subscription.getId()).getStatus());
+    }
+
+    @Test
+    void onlyTheCallThatFlipsTheRowGetsTheSubscription() {
+        SubscriptionEntity subscription = activeForOneDay();
+        OffsetDateTime afterExpiry = subscription.getExpiresAt().plusSeconds(1);
+
+        assertTrue(subscriptionService.expireIfDue(subscription.getId(), subscription.getExpiresAt().minusSeconds(1)).isEmpty());
+        assertTrue(subscriptionService.expireIfDue(subscription.getId(), afterExpiry).isPresent());
+        assertTrue(subscriptionService.expireIfDue(subscription.getId(), afterExpiry).isEmpty());
+        assertEquals(SubscriptionStatus.EXPIRED, subscriptionService.requireById(subscription.getId()).getStatus());
+    }
+
+    @Test
+    void openEndedSubscriptionGivesAccessOnlyAsUnlimited() {
+        SubscriptionEntity subscription = new SubscriptionEntity();
+        subscription.setStatus(SubscriptionStatus.ACTIVE);
+        assertTrue(subscriptionService.isActive(subscription));
+
+        subscription.setStatus(SubscriptionStatus.TRIAL);
+        assertFalse(subscriptionService.isActive(subscription));
+    }
+
+    @Test
+    void staleActiveSnapshotPastItsDeadlineGivesNoAccess() {
+        SubscriptionEntity subscription = new SubscriptionEntity();
+        subscription.setStatus(SubscriptionStatus.ACTIVE);
+        subscription.setExpiresAt(OffsetDateTime.now().minusSeconds(1));
+
+        // Другой инстанс ещё не перевёл строку в EXPIRED — срок всё равно сверяется.
+        assertFalse(subscriptionService.isActive(subscription));
+    }
+}
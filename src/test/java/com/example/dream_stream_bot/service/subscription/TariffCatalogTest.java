@@ -0,0 +1,70 @@
+package com.example.dream_stream_bot.service.subscription;
+
+import com.example.dream_stream_bot.model.subscription.SubscriptionTariffEntity;
+import com.example.dream_stream_bot.model.subscription.SubscriptionTariffRepository;
+import com.example.dream_stream_bot.model.subscription.TariffScope;
+import com.example.dream_stream_bot.model.telegram.BotRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class TariffCatalogTest {
+
+    @Autowired
+    private TariffCatalog catalog;
+    @Autowired
+    private SubscriptionTariffService tariffService;
+    @Autowired
+    private SubscriptionTariffRepository tariffRepository;
+    @Autowired
+    private BotRepository botRepository;
+
+    private Long botId() {
+        return botRepository.findByUsername("integration_test_bot").orElseThrow().getId();
+    }
+
+    private static List<String> codes(List<SubscriptionTariffEntity> tariffs) {
+        return tariffs.stream().map(SubscriptionTariffEntity::getCode).toList();
+    }
+
+    @Test
+    void tariffsAreIndexedByBotAndScopeInSortOrder() {
+        Long botId = botId();
+
+        assertEquals(List.of("PERSONAL_TRIAL", "PERSONAL_FREE", "GROUP_S", "GROUP_M", "GROUP_L"),
+                codes(catalog.byBot(botId)));
+        assertEquals(List.of("GROUP_S", "GROUP_M", "GROUP_L"), codes(catalog.active(botId, TariffScope.GROUP)));
+        assertTrue(catalog.activePaid(botId, TariffScope.PERSONAL).isEmpty());
+        assertEquals("PERSONAL_TRIAL", tariffService.resolveDefaultPersonal(botId).getCode());
+        assertEquals("GROUP_S", tariffService.resolveDefaultGroup(botId).getCode());
+
+        SubscriptionTariffEntity groupM = catalog.active(botId, TariffScope.GROUP).get(1);
+        assertEquals(groupM, tariffService.require(groupM.getId()));
+        assertTrue(tariffService.isGroupTariff(groupM.getId()));
+    }
+
+    @Test
+    void uncommittedChangesDoNotLeakIntoCatalog() {
+        Long botId = botId();
+        SubscriptionTariffEntity cached = catalog.active(botId, TariffScope.GROUP).get(1);
+
+        SubscriptionTariffEntity managed = tariffRepository.findById(cached.getId()).orElseThrow();
+        assertNotSame(cached, managed);
+        managed.setActive(false);
+        tariffRepository.flush();
+
+        assertTrue(cached.isActive());
+        assertEquals(List.of("GROUP_S", "GROUP_M", "GROUP_L"), codes(catalog.active(botId, TariffScope.GROUP)));
+    }
+}
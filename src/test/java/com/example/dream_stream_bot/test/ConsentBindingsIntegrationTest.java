@@ -9,6 +9,7 @@ import com.example.dream_stream_bot.model.telegram.BotRepository;
 import com.example.dream_stream_bot.model.user.UserEntity;
 import com.example.dream_stream_bot.model.user.UserRepository;
 import com.example.dream_stream_bot.service.consent.ConsentService;
+import com.example.dream_stream_bot.service.consent.ConsentVerdict;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -18,6 +19,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 
@@ -196,6 +198,33 @@ class ConsentBindingsIntegrationTest {
                 "global current is v2; user only accepted v1 bound to bot");
     }
 
+    @Test
+    void verdictReportsMissingBoundCodesInOneQuery() {
+        BotEntity bot = createBot("verdict-bot");
+        UserEntity user = createUser(910123L);
+
+        ConsentDocumentEntity privacy = consentService.createDraft(
+                ConsentCode.PRIVACY_POLICY, "Verdict privacy", "p", null, ConsentChangeType.MINOR);
+        consentService.publish(privacy.getId(), false);
+        ConsentDocumentEntity offer = consentService.createDraft(
+                ConsentCode.OFFER, "Verdict offer", "o", null, ConsentChangeType.MINOR);
+        consentService.publish(offer.getId(), false);
+        consentService.bindDocumentToBot(bot.getId(), ConsentCode.PRIVACY_POLICY, privacy.getId());
+        consentService.bindDocumentToBot(bot.getId(), ConsentCode.OFFER, offer.getId());
+
+        ConsentVerdict before = consentService.verdictForBot(bot.getId(), user.getId());
+        assertEquals(EnumSet.of(ConsentCode.OFFER, ConsentCode.PRIVACY_POLICY), before.missingCodes());
+        assertFalse(before.accessGranted());
+
+        consentService.recordAcceptance(user.getId(), privacy.getId(), null, null, null, "test");
+
+        ConsentVerdict after = consentService.verdictForBot(bot.getId(), user.getId());
+        assertTrue(after.isRequired(ConsentCode.OFFER));
+        assertEquals(EnumSet.of(ConsentCode.OFFER), after.missingCodes());
+        assertTrue(after.accessGranted(), "offer is accepted at checkout, not for access");
+        assertEquals(ConsentCode.OFFER, after.firstMissing(List.of(ConsentCode.PRIVACY_POLICY, ConsentCode.OFFER)));
+    }
+
     private BotEntity createBot(String username) {
         BotEntity bot = new BotEntity();
         bot.setName("Test Bot");